@@ -182,4 +182,28 @@ public interface IBlockPlacer {
      */
     void setPause(boolean pause);
     
+    /**
+     * Get the current block placing time budget per tick
+     * @return Number of milliseconds, -1 if the adaptive budget is disabled
+     */
+    default double getTickBudget() {
+        return -1;
+    }
+    
+    /**
+     * Get the measured server tick time (smoothed)
+     * @return Number of milliseconds, -1 if the tick time is not measured
+     */
+    default double getMeasuredTickTime() {
+        return -1;
+    }
+    
+    /**
+     * Get the adaptive tick budget controller state
+     * @return 
+     */
+    default TickBudgetState getTickBudgetState() {
+        return TickBudgetState.Disabled;
+    }
+    
 }
@@ -40,6 +40,8 @@
  */
 package org.primesoft.asyncworldedit.api.directChunk;
 
+import java.util.UUID;
+import java.util.function.Predicate;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 
@@ -130,11 +132,41 @@ public interface IWrappedChunk {
     
     
     /**
-     * Send chunk updagte message to players
+     * Send chunk updagte message to players. Only the dirty sections are 
+     * sent, if no section is marked as dirty the whole chunk is sent.
      */
     public void sendChunkUpdate();
     
     
+    /**
+     * Send the chunk sections to players in view distance. The default 
+     * implementation sends the whole chunk to all players.
+     * @param sectionMask The sections to send (bit 0 is the section at Y 0-15)
+     * @param playerFilter Players for which the filter returns false are skipped
+     */
+    public default void sendChunkUpdate(int sectionMask, Predicate<UUID> playerFilter) {
+        sendChunkUpdate();
+    }
+    
+    
+    /**
+     * Mark the chunk sections as changed. The default implementation does
+     * not track the changed sections.
+     * @param sectionMask The changed sections (bit 0 is the section at Y 0-15)
+     */
+    public default void markSectionsDirty(int sectionMask) {
+    }
+    
+    
+    /**
+     * Get and clear the changed sections
+     * @return The changed sections mask, 0 if the sections are not tracked
+     */
+    public default int resetDirtySections() {
+        return 0;
+    }
+    
+    
     /**
      * Set the chunk data to dirty (requires save)
      */
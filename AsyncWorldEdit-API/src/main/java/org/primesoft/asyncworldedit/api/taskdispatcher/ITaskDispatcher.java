@@ -44,6 +44,7 @@ import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.utils.IAction;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
@@ -185,6 +186,37 @@ public interface ITaskDispatcher {
      */    
     <T> T queueFastOperation(IFunc<T> action);
     
+    /**
+     * Queue an action on the dispatcher without waiting for it to finish.
+     * The default implementation waits using queueFastOperation.
+     * @param action
+     * @return the action completion
+     */    
+    default CompletableFuture<Void> queueFastOperationAsync(IAction action) {
+        return queueFastOperationAsync(() -> {
+            action.execute();
+            return null;
+        });
+    }
+    
+    /**
+     * Queue an operation on the dispatcher without waiting for the result.
+     * Use this to pipeline multiple main thread reads. The default
+     * implementation waits using queueFastOperation.
+     * @param action
+     * @return the operation result
+     */    
+    default <T> CompletableFuture<T> queueFastOperationAsync(IFunc<T> action) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            result.complete(queueFastOperation(action));
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+        }
+        
+        return result;
+    }
+    
 
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
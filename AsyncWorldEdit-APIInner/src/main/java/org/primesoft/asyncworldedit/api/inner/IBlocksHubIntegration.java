@@ -124,6 +124,33 @@ public interface IBlocksHubIntegration {
      */
     void logBlock(IPlayerEntry playerEntry, IWorld world, BlockVector3 location, BlockStateHolder oldBlock, BlockStateHolder newBlock, boolean dc);
 
+    /**
+     * Log multiple block changes using BlocksHub
+     *
+     * @param playerEntry
+     * @param world
+     * @param locations
+     * @param oldBlocks
+     * @param newBlocks
+     * @param count number of block changes to log
+     * @param dc
+     */
+    default void logBlocks(IPlayerEntry playerEntry, IWorld world, BlockVector3[] locations,
+            BlockStateHolder[] oldBlocks, BlockStateHolder[] newBlocks, int count, boolean dc) {
+        for (int i = 0; i < count; i++) {
+            logBlock(playerEntry, world, locations[i], oldBlocks[i], newBlocks[i], dc);
+        }
+    }
+
+    /**
+     * Are all the block changes allowed without any checks and logging
+     *
+     * @return
+     */
+    default boolean isAcceptAll() {
+        return !isReal();
+    }
+
     /**
      * Is this a real thing
      * @return 
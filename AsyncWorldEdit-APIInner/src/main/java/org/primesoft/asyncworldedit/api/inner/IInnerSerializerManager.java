@@ -38,6 +38,7 @@ package org.primesoft.asyncworldedit.api.inner;
 import java.io.File;
 import java.io.IOException;
 import java.util.stream.Stream;
+import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
 import org.primesoft.asyncworldedit.api.changesetSerializer.ISerializerManager;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
 
@@ -56,6 +57,45 @@ public interface IInnerSerializerManager extends ISerializerManager {
      */
     IUndoEntry load(IChunkCacheStream stream) throws IOException;
 
+    /**
+     * Detect the undo file format and skip the file header
+     *
+     * @param stream
+     * @return The undo file format
+     * @throws IOException
+     */
+    int readHeader(IChunkCacheStream stream) throws IOException;
+
+    /**
+     * Get the stream containing the undo entries (the stream positions
+     * used by the undo index)
+     *
+     * @param stream The undo file stream (positioned after the header)
+     * @param format The undo file format
+     * @return
+     * @throws IOException
+     */
+    IChunkCacheStream getEntryStream(IChunkCacheStream stream, int format) throws IOException;
+
+    /**
+     * Load the undo data from stream
+     *
+     * @param stream
+     * @param format The undo file format
+     * @param storage The undo storage
+     * @return
+     * @throws IOException
+     */
+    IUndoEntry load(IChunkCacheStream stream, int format, IMemoryStorage storage) throws IOException;
+
+    /**
+     * Write the buffered undo data to the undo file. Needs to be called
+     * before the undo file is read.
+     *
+     * @param storageFile
+     */
+    void flush(File storageFile);
+
     Stream<File> getUndoFiles() throws IOException;
     
     /**
@@ -50,7 +50,10 @@ package org.primesoft.asyncworldedit.blockshub.platform.bukkit;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.inner.IBlocksHubIntegration;
@@ -66,8 +69,18 @@ import org.primesoft.blockshub.api.platform.BukkitBlockData;
  */
 public class BlocksHubIntegrationV3 implements IBlocksHubIntegration {
 
+    /**
+     * Maximum number of cached block conversions
+     */
+    private final static int MAX_CONVERTED = 4096;
+
     private final IBlocksHubApi m_blocksApi;
 
+    /**
+     * The converted block states
+     */
+    private final Map<BlockState, IBlockData> m_converted = new ConcurrentHashMap<>();
+
     /**
      * Create new instance of the class
      *
@@ -222,6 +235,54 @@ public class BlocksHubIntegrationV3 implements IBlocksHubIntegration {
         }
     }
 
+    /**
+     * Log multiple block changes using BlocksHub, the player and world are
+     * validated only once
+     *
+     * @param playerEntry
+     * @param world
+     * @param locations
+     * @param oldBlocks
+     * @param newBlocks
+     * @param count
+     * @param dc
+     */
+    @Override
+    public void logBlocks(IPlayerEntry playerEntry, IWorld world, BlockVector3[] locations,
+            BlockStateHolder[] oldBlocks, BlockStateHolder[] newBlocks, int count, boolean dc) {
+        if (world == null) {
+            return;
+        }
+
+        if (playerEntry == null 
+                || playerEntry.isDisposed()
+                || playerEntry.getUUID() == null) {
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            final BlockVector3 location = locations[i];
+            if (location == null) {
+                continue;
+            }
+
+            try {
+                m_blocksApi.logBlock(playerEntry.getUUID(), world.getUUID(),
+                        location.getX(), location.getY(), location.getZ(),
+                        convert(oldBlocks[i]),
+                        convert(newBlocks[i]));
+            } catch (Exception ex) {
+                log(String.format("Error logging block: %1$s", ex.toString()));
+                log(String.format("Player: %1$s", playerEntry.getName()));
+                log(String.format("World: %1$s", world.getName()));
+                log(String.format("Location: %1$s", location));
+
+                ExceptionHelper.printException(ex, "Error logging block.");
+                return;
+            }
+        }
+    }
+
     @Override
     public boolean hasAccess(IPlayerEntry playerEntry, IWorld world, Vector3 location) {
         return hasAccess(playerEntry, world, location, false);
@@ -280,12 +341,29 @@ public class BlocksHubIntegrationV3 implements IBlocksHubIntegration {
         }
     }
     
-    private static IBlockData convert(BlockStateHolder bsh) {
+    /**
+     * Convert the block state, the conversions are cached
+     *
+     * @param bsh
+     * @return
+     */
+    private IBlockData convert(BlockStateHolder bsh) {
         if (bsh == null) {
             return null;
         }
         
-        return new BukkitBlockData(BukkitAdapter.adapt(bsh));
+        final BlockState state = bsh.toImmutableState();
+        IBlockData result = m_converted.get(state);
+        if (result == null) {
+            if (m_converted.size() >= MAX_CONVERTED) {
+                m_converted.clear();
+            }
+            
+            result = new BukkitBlockData(BukkitAdapter.adapt(state));
+            m_converted.put(state, result);
+        }
+        
+        return result;
     }
 
     @Override
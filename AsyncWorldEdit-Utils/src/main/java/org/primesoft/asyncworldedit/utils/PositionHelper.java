@@ -126,4 +126,19 @@ public class PositionHelper {
     public static BlockVector2 positionToChunk(BlockVector3 v) {
         return BlockVector2.at(positionToChunk((int) v.getX()), positionToChunk((int) v.getZ()));
     }
+    
+    /**
+     * Pack the chunk section coordinates of a block position into a single long
+     * (26 bits X, 26 bits Z, 12 bits Y)
+     *
+     * @param x block X
+     * @param y block Y
+     * @param z block Z
+     * @return
+     */
+    public static long sectionKey(int x, int y, int z) {
+        return ((long) (x >> 4) & 0x3ffffff) << 38
+                | ((long) (z >> 4) & 0x3ffffff) << 12
+                | ((long) (y >> 4) & 0xfff);
+    }
 }
@@ -57,6 +57,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.UUID;
+import java.util.function.Predicate;
 import net.minecraft.server.v1_8_R3.BlockPosition;
 import net.minecraft.server.v1_8_R3.Chunk;
 import net.minecraft.server.v1_8_R3.ChunkSection;
@@ -535,7 +536,12 @@ public class WrappedChunk extends BaseBukkitWrappedChunk<CraftChunk> {
     
 
     @Override
-    public void sendChunkUpdate() {
+    public void sendChunkUpdate(int sectionMask, Predicate<UUID> playerFilter) {
+        sectionMask &= 0xffff;
+        if (sectionMask == 0 || !m_bukkitWorld.isChunkLoaded(m_cx, m_cz)) {
+            return;
+        }
+
         final CraftChunk bukkitChunk = getChunk();
 
         Chunk chunk = bukkitChunk.getHandle();
@@ -547,8 +553,13 @@ public class WrappedChunk extends BaseBukkitWrappedChunk<CraftChunk> {
         WorldServer world = (WorldServer) (bukkitChunk.getHandle().world);
         final List<Packet> updatePackages = new ArrayList<Packet>();
 
-        updatePackages.add(new PacketPlayOutMapChunk(chunk, false, 0xff00));
-        updatePackages.add(new PacketPlayOutMapChunk(chunk, false, 0x00ff));
+        if (sectionMask == 0xffff) {
+            //Full mask is handled by the client as a new chunk
+            updatePackages.add(new PacketPlayOutMapChunk(chunk, false, 0xff00));
+            updatePackages.add(new PacketPlayOutMapChunk(chunk, false, 0x00ff));
+        } else {
+            updatePackages.add(new PacketPlayOutMapChunk(chunk, false, sectionMask));
+        }
 
         for (EntityHuman eh : (List<EntityHuman>) world.players) {
             if (!(eh instanceof EntityPlayer)) {
@@ -559,7 +570,7 @@ public class WrappedChunk extends BaseBukkitWrappedChunk<CraftChunk> {
             double diffz = Math.abs(eh.locZ - z);
 
             EntityPlayer ep = (EntityPlayer) eh;
-            if (diffx <= view && diffz <= view) {
+            if (diffx <= view && diffz <= view && playerFilter.test(ep.getUniqueID())) {
                 PlayerConnection pc = ep.playerConnection;
 
                 for (Packet p : updatePackages) {
@@ -567,5 +578,5 @@ public class WrappedChunk extends BaseBukkitWrappedChunk<CraftChunk> {
                 }
             }
         }
-    }        
+    }
 }
@@ -50,7 +50,9 @@ package org.primesoft.asyncworldedit.asyncinjector.async;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import org.primesoft.asyncworldedit.asyncinjector.validators.OperationValidator;
 import org.primesoft.asyncworldedit.asyncinjector.validators.StackValidator;
+import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.session.request.Request;
 import java.lang.reflect.Field;
@@ -78,6 +80,7 @@ import org.primesoft.asyncworldedit.utils.WaitFor;
 import org.primesoft.asyncworldedit.worldedit.AsyncEditSession;
 import org.primesoft.asyncworldedit.worldedit.AsyncTask;
 import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
+import org.primesoft.asyncworldedit.worldedit.extent.MultiThreadExtent;
 
 /**
  *
@@ -146,10 +149,13 @@ public class AsyncOperationProcessor implements IOperationProcessor {
 
         final WaitFor wait = asyncSession.getWait();
         final int jobId = m_blockPlacer.getJobId(playerEntry);
-        final CancelabeEditSession cancelableSession = new CancelabeEditSession(asyncSession, asyncSession.getMask(), jobId);
+        final Mask mask = asyncSession.getMask();
+        final CancelabeEditSession cancelableSession = new CancelabeEditSession(asyncSession, mask, jobId);
         final JobEntry job = new JobEntry(playerEntry, cancelableSession, jobId, name);
+        final MultiThreadExtent parallelExtent = ParallelRegionProcessor.canProcess(op, sessions)
+                ? ParallelRegionProcessor.createExtent(cancelableSession) : null;
 
-        injectEditSession(sessions, cancelableSession);
+        injectEditSession(sessions, parallelExtent != null ? parallelExtent : cancelableSession);
 
         m_blockPlacer.addJob(playerEntry, job);
 
@@ -162,7 +168,11 @@ public class AsyncOperationProcessor implements IOperationProcessor {
                 try {
                     wait.checkAndWait(null);
 
-                    action.execute(op);
+                    if (parallelExtent != null) {
+                        ParallelRegionProcessor.process((RegionVisitor) op, parallelExtent, session, mask);
+                    } else {
+                        action.execute(op);
+                    }
 
                     return session.getChangeSet().size();
                 } catch (Exception ex) {
@@ -207,10 +217,13 @@ public class AsyncOperationProcessor implements IOperationProcessor {
 
         final WaitFor wait = asyncSession.getWait();
         final int jobId = m_blockPlacer.getJobId(playerEntry);
-        final CancelabeEditSession cancelableSession = new CancelabeEditSession(asyncSession, asyncSession.getMask(), jobId);
+        final Mask mask = asyncSession.getMask();
+        final CancelabeEditSession cancelableSession = new CancelabeEditSession(asyncSession, mask, jobId);
         final JobEntry job = new JobEntry(playerEntry, cancelableSession, jobId, name);
+        final MultiThreadExtent parallelExtent = ParallelRegionProcessor.canProcess(op, sessions)
+                ? ParallelRegionProcessor.createExtent(cancelableSession) : null;
 
-        injectEditSession(sessions, cancelableSession);
+        injectEditSession(sessions, parallelExtent != null ? parallelExtent : cancelableSession);
 
         m_blockPlacer.addJob(playerEntry, job);
 
@@ -222,7 +235,11 @@ public class AsyncOperationProcessor implements IOperationProcessor {
                     throws MaxChangedBlocksException {
                 try {
                     wait.checkAndWait(null);
-                    action.execute(op);
+                    if (parallelExtent != null) {
+                        ParallelRegionProcessor.process((RegionVisitor) op, parallelExtent, session, mask);
+                    } else {
+                        action.execute(op);
+                    }
 
                     return cancelableSession.getChangeSet().size();
                 } catch (Exception ex) {
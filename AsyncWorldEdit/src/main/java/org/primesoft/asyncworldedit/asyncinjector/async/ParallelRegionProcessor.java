@@ -0,0 +1,424 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.asyncinjector.async;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.RegionMaskingFilter;
+import com.sk89q.worldedit.function.block.BlockReplace;
+import com.sk89q.worldedit.function.mask.BlockMask;
+import com.sk89q.worldedit.function.mask.ExistingBlockMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.function.pattern.BlockPattern;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.session.request.Request;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.primesoft.asyncworldedit.LoggerProvider.log;
+import org.primesoft.asyncworldedit.api.inner.IClassScannerResult;
+import org.primesoft.asyncworldedit.api.worldedit.IThreadSafeEditSession;
+import org.primesoft.asyncworldedit.configuration.ConfigParallel;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.DebugLevel;
+import org.primesoft.asyncworldedit.utils.Reflection;
+import org.primesoft.asyncworldedit.utils.RequestCotext;
+import org.primesoft.asyncworldedit.utils.SessionCanceled;
+import org.primesoft.asyncworldedit.worldedit.AsyncEditSession;
+import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
+import org.primesoft.asyncworldedit.worldedit.ITaskContext;
+import org.primesoft.asyncworldedit.worldedit.TaskContext;
+import org.primesoft.asyncworldedit.worldedit.extent.MultiThreadExtent;
+import org.primesoft.asyncworldedit.worldedit.function.RegionMaskingFilterEx;
+import org.primesoft.asyncworldedit.worldedit.function.block.KeepDataBlockReplace;
+import org.primesoft.asyncworldedit.worldedit.function.mask.DeltaMask;
+import org.primesoft.asyncworldedit.worldedit.function.mask.SkipDataBlockMask;
+import org.primesoft.asyncworldedit.worldedit.history.changeset.IExtendedChangeSet;
+import org.primesoft.asyncworldedit.worldedit.history.changeset.OrderedChangeSetMerger;
+
+/**
+ * Runs cuboid region visitors on a fork-join pool. The region is split into
+ * slabs of whole chunk rows, each slab is processed by its own cancelable edit
+ * session and the changes are merged in the original iteration order.
+ *
+ * @author SBPrime
+ */
+public final class ParallelRegionProcessor {
+
+    /**
+     * Number of slabs created for each worker thread
+     */
+    private static final int SLABS_PER_THREAD = 4;
+
+    /**
+     * The pool mutex
+     */
+    private static final Object s_poolMutex = new Object();
+
+    /**
+     * The region workers
+     */
+    private static ForkJoinPool s_pool;
+
+    private ParallelRegionProcessor() {
+    }
+
+    /**
+     * Check if the operation can be processed in parallel
+     *
+     * @param op
+     * @param sessions the class scanner results
+     * @return
+     */
+    public static boolean canProcess(Operation op, List<IClassScannerResult> sessions) {
+        final ConfigParallel config = ConfigProvider.parallel();
+        if (config == null || !config.isEnabled()
+                || op == null || op.getClass() != RegionVisitor.class) {
+            return false;
+        }
+
+        final Region region = Reflection.get(RegionVisitor.class, Region.class, op, "region",
+                "Unable to get the visitor region");
+        if (!(region instanceof CuboidRegion)) {
+            return false;
+        }
+
+        final BlockVector3 min = region.getMinimumPoint();
+        final BlockVector3 max = region.getMaximumPoint();
+        final long volume = (long) (max.getBlockX() - min.getBlockX() + 1)
+                * (max.getBlockY() - min.getBlockY() + 1)
+                * (max.getBlockZ() - min.getBlockZ() + 1);
+        if (volume < config.getMinVolume()
+                || (max.getBlockZ() >> 4) == (min.getBlockZ() >> 4)) {
+            return false;
+        }
+
+        final RegionFunction function = Reflection.get(RegionVisitor.class, RegionFunction.class, op, "function",
+                "Unable to get the visitor function");
+        if (!isThreadSafe(function)) {
+            return false;
+        }
+
+        for (IClassScannerResult entry : sessions) {
+            final Field field = entry.getField();
+            if (entry.getType() != AsyncEditSession.class
+                    || field == null || entry.getOwner() == null) {
+                continue;
+            }
+
+            if (!field.getType().isAssignableFrom(MultiThreadExtent.class)) {
+                if (ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.DEBUG)) {
+                    log(String.format("* Parallel mode disabled, EditSession stored in %1$s %2$s",
+                            entry.getOwner().getClass().getName(), field.getName()));
+                }
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Create the extent injected to the operation instead of the edit session
+     *
+     * @param session
+     * @return
+     */
+    public static MultiThreadExtent createExtent(CancelabeEditSession session) {
+        final MultiThreadExtent result = new MultiThreadExtent();
+        result.setDefault(session);
+
+        return result;
+    }
+
+    /**
+     * Process the region visitor
+     *
+     * @param visitor
+     * @param extent the extent injected to the visitor function
+     * @param session the job edit session
+     * @param mask the edit session mask
+     * @return number of affected blocks
+     * @throws WorldEditException
+     */
+    public static int process(RegionVisitor visitor, MultiThreadExtent extent,
+            CancelabeEditSession session, Mask mask) throws WorldEditException {
+        final ConfigParallel config = ConfigProvider.parallel();
+        final ForkJoinPool pool = getPool(config.getThreads());
+
+        final CuboidRegion region = Reflection.get(RegionVisitor.class, CuboidRegion.class, visitor, "region",
+                "Unable to get the visitor region");
+        final RegionFunction function = Reflection.get(RegionVisitor.class, RegionFunction.class, visitor, "function",
+                "Unable to get the visitor function");
+        final List<CuboidRegion> slabs = split(region, pool.getParallelism() * SLABS_PER_THREAD);
+        final int cnt = slabs.size();
+
+        final ChangeSet changeSet = session.getChangeSet();
+        final OrderedChangeSetMerger merger = changeSet instanceof IExtendedChangeSet
+                ? new OrderedChangeSetMerger((IExtendedChangeSet) changeSet, cnt, config.getMaxPending()) : null;
+
+        final IThreadSafeEditSession parent = session.getParent();
+        final CancelabeEditSession[] sessions = new CancelabeEditSession[cnt];
+        for (int i = 0; i < cnt; i++) {
+            sessions[i] = new CancelabeEditSession(parent, mask, session.getJobId(),
+                    merger != null ? merger.getSlot(i) : changeSet);
+        }
+
+        final ITaskContext context = TaskContext.get();
+        final Request request = Request.request();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final RegionFunction safeFunction = position -> {
+            if (session.isCanceled() || error.get() != null) {
+                throw new IllegalArgumentException(new SessionCanceled());
+            }
+
+            return function.apply(position);
+        };
+
+        final List<ForkJoinTask<Integer>> tasks = new ArrayList<>(cnt);
+        for (int i = 0; i < cnt; i++) {
+            final int slab = i;
+            tasks.add(pool.submit(() -> {
+                final CancelabeEditSession slabSession = sessions[slab];
+
+                TaskContext.set(context);
+                extent.setExtent(slabSession);
+                try (RequestCotext rc = new RequestCotext(request, slabSession)) {
+                    final RegionVisitor slabVisitor = new RegionVisitor(slabs.get(slab), safeFunction);
+
+                    Operation current = slabVisitor;
+                    while (current != null) {
+                        current = current.resume(new RunContext());
+                    }
+                    slabSession.flushSession();
+
+                    return slabVisitor.getAffected();
+                } catch (Exception ex) {
+                    error.compareAndSet(null, ex);
+                    return 0;
+                } finally {
+                    extent.setExtent(null);
+                    TaskContext.remove();
+
+                    if (merger != null) {
+                        try {
+                            merger.complete(slab);
+                        } catch (WorldEditException ex) {
+                            error.compareAndSet(null, ex);
+                        }
+                    }
+                }
+            }));
+        }
+
+        int affected = 0;
+        for (ForkJoinTask<Integer> task : tasks) {
+            affected += task.join();
+        }
+
+        final Exception ex = error.get();
+        if (ex instanceof WorldEditException) {
+            throw (WorldEditException) ex;
+        } else if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+        } else if (ex != null) {
+            throw new IllegalStateException(ex);
+        }
+
+        Reflection.set(RegionVisitor.class, visitor, "affected", affected,
+                "Unable to set the affected blocks");
+        return affected;
+    }
+
+    /**
+     * Split the region into slabs of whole chunk rows (along the Z axis).
+     * The slabs are returned in the order the region iterator visits the
+     * chunks.
+     *
+     * @param region
+     * @param maxSlabs
+     * @return
+     */
+    static List<CuboidRegion> split(CuboidRegion region, int maxSlabs) {
+        final BlockVector3 min = region.getMinimumPoint();
+        final BlockVector3 max = region.getMaximumPoint();
+        final int minRow = min.getBlockZ() >> 4;
+        final int maxRow = max.getBlockZ() >> 4;
+        final int rows = maxRow - minRow + 1;
+        final int rowsPerSlab = (rows + Math.max(1, maxSlabs) - 1) / Math.max(1, maxSlabs);
+
+        final List<CuboidRegion> result = new ArrayList<>();
+        for (int row = minRow; row <= maxRow; row += rowsPerSlab) {
+            final int z1 = Math.max(row << 4, min.getBlockZ());
+            final int z2 = Math.min(((row + rowsPerSlab) << 4) - 1, max.getBlockZ());
+
+            result.add(new CuboidRegion(region.getWorld(),
+                    BlockVector3.at(min.getBlockX(), min.getBlockY(), z1),
+                    BlockVector3.at(max.getBlockX(), max.getBlockY(), z2)));
+        }
+
+        return result;
+    }
+
+    /**
+     * Check if the region function can be used by multiple threads
+     *
+     * @param function
+     * @return
+     */
+    static boolean isThreadSafe(RegionFunction function) {
+        if (function == null) {
+            return false;
+        }
+
+        final Class<?> cls = function.getClass();
+        if (cls == BlockReplace.class) {
+            return isThreadSafe(Reflection.get(BlockReplace.class, Pattern.class, function, "pattern",
+                    "Unable to get the replace pattern"));
+        }
+
+        if (cls == KeepDataBlockReplace.class) {
+            return isThreadSafe(((KeepDataBlockReplace) function).getPattern());
+        }
+
+        if (cls == RegionMaskingFilterEx.class) {
+            final RegionMaskingFilterEx filter = (RegionMaskingFilterEx) function;
+            return isThreadSafe(filter.getMask()) && isThreadSafe(filter.getFunction());
+        }
+
+        if (cls == RegionMaskingFilter.class) {
+            return isThreadSafe(Reflection.get(RegionMaskingFilter.class, Mask.class, function, "mask",
+                    "Unable to get the filter mask"))
+                    && isThreadSafe(Reflection.get(RegionMaskingFilter.class, RegionFunction.class, function, "function",
+                            "Unable to get the filter function"));
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if the pattern can be used by multiple threads. Only the single
+     * block patterns are accepted, they do not change when applied.
+     *
+     * @param pattern
+     * @return
+     */
+    private static boolean isThreadSafe(Pattern pattern) {
+        return pattern instanceof BlockStateHolder
+                || (pattern != null && pattern.getClass() == BlockPattern.class);
+    }
+
+    /**
+     * Check if the mask can be used by multiple threads. Only the masks that
+     * do not store any state when tested are accepted.
+     *
+     * @param mask
+     * @return
+     */
+    private static boolean isThreadSafe(Mask mask) {
+        if (mask == null) {
+            return false;
+        }
+
+        final Class<?> cls = mask.getClass();
+        return cls == BlockMask.class || cls == ExistingBlockMask.class
+                || cls == SkipDataBlockMask.class || cls == DeltaMask.class;
+    }
+
+    /**
+     * Stop the region workers
+     */
+    public static void stop() {
+        synchronized (s_poolMutex) {
+            if (s_pool != null) {
+                s_pool.shutdown();
+                s_pool = null;
+            }
+        }
+    }
+
+    /**
+     * Get the worker pool
+     *
+     * @param threads
+     * @return
+     */
+    private static ForkJoinPool getPool(int threads) {
+        synchronized (s_poolMutex) {
+            if (s_pool != null && s_pool.getParallelism() != threads) {
+                s_pool.shutdown();
+                s_pool = null;
+            }
+
+            if (s_pool == null) {
+                s_pool = new ForkJoinPool(threads, ParallelRegionProcessor::newThread, null, true);
+            }
+
+            return s_pool;
+        }
+    }
+
+    private static ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        final ForkJoinWorkerThread result = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        result.setName("AWE region worker " + result.getPoolIndex());
+
+        return result;
+    }
+}
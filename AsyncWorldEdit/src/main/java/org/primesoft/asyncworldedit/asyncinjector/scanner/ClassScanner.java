@@ -68,17 +68,20 @@ import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import com.sk89q.worldedit.world.registry.BlockRegistry;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
@@ -110,6 +113,12 @@ public abstract class ClassScanner implements IClassScanner {
     
     private IClassScannerEntry[] m_blackList = new IClassScannerEntry[0];
     
+    /**
+     * The cached class scan plans, the plans are stored in the scanned classes
+     * so they do not prevent other plugins from being unloaded
+     */
+    private ClassValue<ClassScanPlan> m_plans = createPlanCache();
+    
     /**
      * Is the class scanner initialized
      */
@@ -122,6 +131,7 @@ public abstract class ClassScanner implements IClassScanner {
     @Override
     public IClassScanner initialize() {
         m_blackList = getBlackList();
+        m_plans = createPlanCache();
         m_isInitialized = true;
         return this;
     }
@@ -145,7 +155,8 @@ public abstract class ClassScanner implements IClassScanner {
         }
 
         Queue<ScannerQueueEntry> toScan = new ArrayDeque<>();
-        HashSet<Object> scanned = new HashSet<>();
+        Set<Object> scanned = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Class<?>> typesKey = Arrays.asList(types.clone());
 
         boolean debugOn = ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.DEBUG);
         toScan.add(new ScannerQueueEntry(o, null, null));
@@ -175,7 +186,7 @@ public abstract class ClassScanner implements IClassScanner {
                 sParent = null;
             }
 
-            if (scanned.contains(cObject)) {
+            if (!scanned.add(cObject)) {
                 if (debugOn) {
                     log(String.format("* Skip:\t%1$s", sParent));
                 }
@@ -185,7 +196,7 @@ public abstract class ClassScanner implements IClassScanner {
                     log(String.format("* Scanning:\t%1$s", sParent));
                 }
                 try {
-                    for (ScannerQueueEntry f : unpack(cClass, cObject)) {
+                    for (ScannerQueueEntry f : unpack(cClass, cObject, typesKey)) {
                         Object t = f.getValue();
                         Class<?> ct = f.getValueClass();
                         if (t != null && ct != null) {
@@ -209,11 +220,9 @@ public abstract class ClassScanner implements IClassScanner {
                                 }
                             }
 
-                            if (isPrimitive(ct) || 
-                                isBlackList(ct) ||
-                                isStatic(f.getField()) ||
-                                isBlackList(cClass, f.getField()) ||
-                                Objects.equals(t, entry.getParent()))
+                            if (!f.canScan() ||
+                                t == entry.getParent() ||
+                                getPlan(ct).isIgnored())
                             {
                                 if (debugOn) {
                                     log(String.format("* - %1$s", classMsg));
@@ -241,7 +250,6 @@ public abstract class ClassScanner implements IClassScanner {
                     log("https://github.com/SBPrime/AsyncWorldEdit/issues");
                     log("-----------------------------------------------------------------------");
                 }
-                scanned.add(cObject);
                 if (debugOn) {
                     log(String.format("* Added:\t%1$s objects.", added));
                 }
@@ -270,34 +278,30 @@ public abstract class ClassScanner implements IClassScanner {
     }
 
     /**
-     * Get all fields from a class
+     * Get all fields from a class that can lead to the searched types
      *
      * @param oClass
      * @param o
+     * @param types
      * @return
+     * @throws Throwable
      */
-    private Iterable<ScannerQueueEntry> unpack(Class<?> oClass, Object o) {
-        HashSet<ScannerQueueEntry> result = new HashSet<>();
-
-        if (isPrimitive(oClass) || isBlackList(oClass)) {
-            return result;
+    private List<ScannerQueueEntry> unpack(Class<?> oClass, Object o, List<Class<?>> types) throws Throwable {
+        final ClassScanPlan plan = getPlan(oClass);
+        if (plan.isIgnored()) {
+            return Collections.emptyList();
         }
 
-        if (oClass.isArray()) {
-            Class<?> componenClass = oClass;
-            while (componenClass.isArray()) {
-                componenClass = componenClass.getComponentType();
-            }
-            if (!isPrimitive(componenClass) && !isBlackList(componenClass)) {
-                for (Object t : (Object[]) o) {
-                    if (t != null) {
-                        result.add(new ScannerQueueEntry(t, o, null));
-                    }
+        final List<ScannerQueueEntry> result = new ArrayList<>();
+        if (plan.isArray()) {
+            for (Object t : (Object[]) o) {
+                if (t != null) {
+                    result.add(new ScannerQueueEntry(t, o, null));
                 }
             }
         }
 
-        if (Iterable.class.isAssignableFrom(oClass)) {
+        if (plan.isIterable()) {
             for (Object t : (Iterable<Object>) o) {
                 if (t != null) {
                     result.add(new ScannerQueueEntry(t, o, null));
@@ -305,27 +309,195 @@ public abstract class ClassScanner implements IClassScanner {
             }
         }
 
-        for (Field f : getAllFields(oClass)) {
-            boolean restore = !f.isAccessible();
-            if (restore) {
-                f.setAccessible(true);
-            }
+        for (FieldAccessor f : getReachableFields(plan, types)) {
+            final Object t;
             try {
-                Object t = f.get(o);
-                if (t != null) {
-                    result.add(new ScannerQueueEntry(t, o, f));
-                }
-            } catch (IllegalArgumentException ex) {
-            } catch (IllegalAccessException ex) {
+                t = f.get(o);
+            } catch (Exception ex) {
+                continue;
+            }
+            
+            if (t != null) {
+                result.add(new ScannerQueueEntry(t, o, f.getField(), f.canScan()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create the scan plan cache
+     *
+     * @return
+     */
+    private ClassValue<ClassScanPlan> createPlanCache() {
+        return new ClassValue<ClassScanPlan>() {
+            @Override
+            protected ClassScanPlan computeValue(Class<?> type) {
+                return createPlan(type);
             }
+        };
+    }
+
+    /**
+     * Get the cached scan plan for a class
+     *
+     * @param oClass
+     * @return
+     */
+    private ClassScanPlan getPlan(Class<?> oClass) {
+        return m_plans.get(oClass);
+    }
 
-            if (restore) {
-                f.setAccessible(false);
+    /**
+     * Create the scan plan for a class
+     *
+     * @param oClass
+     * @return
+     */
+    private ClassScanPlan createPlan(Class<?> oClass) {
+        if (isPrimitive(oClass) || isBlackList(oClass)) {
+            return ClassScanPlan.IGNORED;
+        }
+
+        boolean isArray = false;
+        if (oClass.isArray()) {
+            Class<?> componenClass = getComponentClass(oClass);
+            isArray = !isPrimitive(componenClass) && !isBlackList(componenClass);
+        }
+
+        List<FieldAccessor> fields = new ArrayList<>();
+        for (Field f : getAllFields(oClass)) {
+            FieldAccessor accessor = FieldAccessor.create(f, !isStatic(f) && !isBlackList(oClass, f));
+            if (accessor != null) {
+                fields.add(accessor);
             }
         }
+
+        return new ClassScanPlan(false, isArray, Iterable.class.isAssignableFrom(oClass),
+                fields.toArray(new FieldAccessor[0]));
+    }
+
+    /**
+     * Get the plan fields that can contain one of the types or can lead to them
+     *
+     * @param plan
+     * @param types
+     * @return
+     */
+    private FieldAccessor[] getReachableFields(ClassScanPlan plan, List<Class<?>> types) {
+        FieldAccessor[] result = plan.getReachable(types);
+        if (result != null) {
+            return result;
+        }
+
+        result = Stream.of(plan.getFields())
+                .filter(f -> canReach(f, types, new HashSet<>()))
+                .toArray(FieldAccessor[]::new);
+        plan.setReachable(types, result);
+
         return result;
     }
 
+    /**
+     * Check if the field value can be one of the types or can lead to them. 
+     * The check uses only the declared field types, a value that can not be
+     * one of the types is followed only by the fields of the declared type.
+     *
+     * @param f
+     * @param types
+     * @param visited
+     * @return
+     */
+    private boolean canReach(FieldAccessor f, List<Class<?>> types, Set<Class<?>> visited) {
+        final Class<?> fType = f.getType();
+
+        if (canBeType(fType, types)) {
+            return true;
+        }
+
+        if (!f.canScan()) {
+            return false;
+        }
+
+        return canReach(fType, types, visited);
+    }
+
+    /**
+     * Check if the declared type can lead to one of the types
+     *
+     * @param fType
+     * @param types
+     * @param visited
+     * @return
+     */
+    private boolean canReach(Class<?> fType, List<Class<?>> types, Set<Class<?>> visited) {
+        if (fType.isPrimitive()) {
+            return false;
+        }
+
+        if (fType.isArray()) {
+            Class<?> componenClass = getComponentClass(fType);
+            if (isPrimitive(componenClass) || isBlackList(componenClass)) {
+                return false;
+            }
+
+            return canBeType(componenClass, types) || canReach(componenClass, types, visited);
+        }
+
+        if (!visited.add(fType)) {
+            return false;
+        }
+
+        final ClassScanPlan plan = getPlan(fType);
+        if (plan.isIgnored()) {
+            return false;
+        }
+
+        if (plan.isIterable()) {
+            return true;
+        }
+
+        for (FieldAccessor child : plan.getFields()) {
+            if (canReach(child, types, visited)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if the field type can hold one of the types
+     *
+     * @param fType
+     * @param types
+     * @return
+     */
+    private static boolean canBeType(Class<?> fType, List<Class<?>> types) {
+        final Class<?> cls = fType.isPrimitive() ? MethodType.methodType(fType).wrap().returnType() : fType;
+        final boolean isFinal = Modifier.isFinal(cls.getModifiers()) && !cls.isInterface();
+
+        for (Class<?> type : types) {
+            if (type.isAssignableFrom(cls)) {
+                return true;
+            }
+
+            if (!isFinal && (type.isInterface() || cls.isInterface() || cls.isAssignableFrom(type))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Class<?> getComponentClass(Class<?> oClass) {
+        Class<?> componenClass = oClass;
+        while (componenClass.isArray()) {
+            componenClass = componenClass.getComponentType();
+        }
+        return componenClass;
+    }
+
     private boolean isBlackList(Class<?> oClass) {
         return isBlackList(oClass, null);
     }
@@ -416,6 +588,7 @@ public abstract class ClassScanner implements IClassScanner {
         }
         
         m_filters.put(filter, ITEM);
+        m_plans.clear();
     }
 
     @Override
@@ -425,6 +598,7 @@ public abstract class ClassScanner implements IClassScanner {
         }
         
         m_filters.remove(filter);
+        m_plans.clear();
     }
 
     private boolean isStatic(Field f) {
@@ -438,5 +612,6 @@ public abstract class ClassScanner implements IClassScanner {
     @Override
     public void loadConfig() {
         m_configurableFilter.loadConfig();
+        m_plans.clear();
     }    
 }
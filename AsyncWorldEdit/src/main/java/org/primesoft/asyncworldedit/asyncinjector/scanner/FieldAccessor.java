@@ -0,0 +1,148 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.asyncinjector.scanner;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Cached field getter used by the class scanner
+ *
+ * @author SBPrime
+ */
+final class FieldAccessor {
+    private final static MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final static MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * Create the field accessor
+     *
+     * @param field
+     * @param canScan Can the field value be scanned
+     * @return null if the field is not accessible
+     */
+    static FieldAccessor create(Field field, boolean canScan) {
+        final boolean restore = !field.isAccessible();
+
+        try {
+            if (restore) {
+                field.setAccessible(true);
+            }
+
+            MethodHandle getter = LOOKUP.unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+
+            return new FieldAccessor(field, getter.asType(GETTER_TYPE), canScan);
+        } catch (IllegalAccessException | RuntimeException ex) {
+            return null;
+        } finally {
+            if (restore) {
+                try {
+                    field.setAccessible(false);
+                } catch (RuntimeException ex) {
+                }
+            }
+        }
+    }
+
+    private final Field m_field;
+
+    private final MethodHandle m_getter;
+
+    private final boolean m_canScan;
+
+    private FieldAccessor(Field field, MethodHandle getter, boolean canScan) {
+        m_field = field;
+        m_getter = getter;
+        m_canScan = canScan;
+    }
+
+    /**
+     * Get the field value
+     *
+     * @param o The object (ignored for static fields)
+     * @return
+     * @throws Throwable
+     */
+    Object get(Object o) throws Throwable {
+        return (Object) m_getter.invokeExact(o);
+    }
+
+    /**
+     * The field
+     *
+     * @return
+     */
+    Field getField() {
+        return m_field;
+    }
+
+    /**
+     * The declared field type
+     *
+     * @return
+     */
+    Class<?> getType() {
+        return m_field.getType();
+    }
+
+    /**
+     * Can the field value be scanned (not static and not black listed)
+     *
+     * @return
+     */
+    boolean canScan() {
+        return m_canScan;
+    }
+}
@@ -59,8 +59,13 @@ public class ScannerQueueEntry {
     private final Object m_value;
     private final Class<?> m_valueClass;
     private final Field m_field;
+    private final boolean m_canScan;
 
     public ScannerQueueEntry(Object value, Object parent, Field field) {
+        this(value, parent, field, true);
+    }
+
+    public ScannerQueueEntry(Object value, Object parent, Field field, boolean canScan) {
         /*
          * String sParent = parent == null ? 
          *        "null:null" : (parent.hashCode() + ":" + parent.getClass().getName());
@@ -73,6 +78,7 @@ public class ScannerQueueEntry {
         m_value = value;
         m_valueClass = value != null ? value.getClass() : null;
         m_field = field;
+        m_canScan = canScan;
     }
 
     public Object getParent() {
@@ -90,4 +96,12 @@ public class ScannerQueueEntry {
     public Field getField() {
         return m_field;
     }
+
+    /**
+     * Can the value be scanned (the field is not static and not black listed)
+     * @return 
+     */
+    public boolean canScan() {
+        return m_canScan;
+    }
 }
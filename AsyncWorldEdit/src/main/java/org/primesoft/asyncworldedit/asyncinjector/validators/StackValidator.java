@@ -47,8 +47,11 @@
  */
 package org.primesoft.asyncworldedit.asyncinjector.validators;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.configuration.DebugLevel;
@@ -131,6 +134,18 @@ public class StackValidator {
     private static final Pattern[] s_countPatterns = new Pattern[]{
         Pattern.compile(".*asyncworldedit.*AsyncOperationProcessor.*")
     };
+    
+    private static final StackValidatorEntry[] NO_ENTRIES = new StackValidatorEntry[0];
+    
+    /**
+     * The s_data entries matching a class name
+     */
+    private static final Map<String, StackValidatorEntry[]> s_classEntries = new ConcurrentHashMap<>();
+    
+    /**
+     * The s_countPatterns matching a class name
+     */
+    private static final Map<String, boolean[]> s_classCounts = new ConcurrentHashMap<>();
 
     /**
      * Check if the stack trace allow asyncing
@@ -147,10 +162,11 @@ public class StackValidator {
                 log("****************************************************************");
             }
 
-            if (!validateStack(methodName)) {
+            final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+            if (!validateStack(stackTrace, methodName)) {
                 return false;
             }
-            if (!validateCount()) {
+            if (!validateCount(stackTrace)) {
                 return false;
             }
 
@@ -177,7 +193,7 @@ public class StackValidator {
                 log("****************************************************************");
             }
 
-            StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+            StackTraceElement[] stackTrace = new Throwable().getStackTrace();
             for (int i = stackTrace.length - 1; i >= 0; i--) {
                 StackTraceElement element = stackTrace[i];
                 if (debugOn) {
@@ -204,15 +220,55 @@ public class StackValidator {
         }
     }
 
+    /**
+     * Get the validator entries that match the class name
+     *
+     * @param className
+     * @return
+     */
+    private static StackValidatorEntry[] getEntries(String className) {
+        StackValidatorEntry[] result = s_classEntries.get(className);
+        if (result == null) {
+            result = Stream.of(s_data)
+                    .filter(i -> i.isClassMatch(className))
+                    .toArray(StackValidatorEntry[]::new);
+            if (result.length == 0) {
+                result = NO_ENTRIES;
+            }
+            s_classEntries.put(className, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the count patterns that match the class name
+     *
+     * @param className
+     * @return
+     */
+    private static boolean[] getCounts(String className) {
+        boolean[] result = s_classCounts.get(className);
+        if (result == null) {
+            result = new boolean[s_countPatterns.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = s_countPatterns[i].matcher(className).matches();
+            }
+            s_classCounts.put(className, result);
+        }
+
+        return result;
+    }
+
     /**
      * Validate the stack trace position
      *
+     * @param stackTrace
      * @param methodName
      * @return
      */
-    private static boolean validateStack(InOutParam<String> methodName) {
+    private static boolean validateStack(StackTraceElement[] stackTrace, InOutParam<String> methodName) {
         final boolean debugOn = ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.DEBUG);
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
         int i = stackTrace.length - 1;
         try {
             for (; i >= 0; i--) {
@@ -221,11 +277,13 @@ public class StackValidator {
                     log(String.format("* %1$s", element.toString()));
                 }
 
-                for (StackValidatorEntry entry : s_data) {
-                    Boolean result = entry.process(
-                            () -> element.getClassName(), 
-                            () -> element.getMethodName(),
-                            debugOn ? s -> log(s) : null);
+                for (StackValidatorEntry entry : getEntries(element.getClassName())) {
+                    Boolean result = debugOn ? 
+                            entry.process(
+                                    () -> element.getClassName(), 
+                                    () -> element.getMethodName(),
+                                    s -> log(s)) :
+                            entry.processMethod(element.getClassName(), element.getMethodName());
                     
                     if (result != null) {
                         if (result) {
@@ -258,25 +316,30 @@ public class StackValidator {
     /**
      * Validate stack entry count
      *
+     * @param stackTrace
      * @return
      */
-    private static boolean validateCount() {
+    private static boolean validateCount(StackTraceElement[] stackTrace) {
         final boolean debugOn = ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.DEBUG);
-        final StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        final int[] counts = new int[s_countPatterns.length];
 
-        boolean result = true;
-
-        for (Pattern p : s_countPatterns) {
-            int cnt = 0;
-            for (StackTraceElement stack : stackTrace) {
-                if (p.matcher(stack.toString()).matches()) {
-                    cnt++;
+        for (StackTraceElement stack : stackTrace) {
+            final boolean[] matches = getCounts(stack.getClassName());
+            for (int i = 0; i < matches.length; i++) {
+                if (matches[i] && ++counts[i] >= 2 && !debugOn) {
+                    return false;
                 }
             }
+        }
+
+        boolean result = true;
+
+        for (int i = 0; i < s_countPatterns.length; i++) {
+            final int cnt = counts[i];
 
             result &= cnt < 2;
             if (debugOn) {
-                log(String.format("* %1$s --> %2$s", p.pattern(), cnt));
+                log(String.format("* %1$s --> %2$s", s_countPatterns[i].pattern(), cnt));
             } else if (!result) {
                 return false;
             }
@@ -47,6 +47,9 @@
  */
 package org.primesoft.asyncworldedit.asyncinjector.validators;
 
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -74,6 +77,11 @@ public class StackValidatorEntry {
      * The class regexp
      */
     private final Pattern m_classRegexp;
+    
+    /**
+     * The cached method results (empty - no match)
+     */
+    private final Map<String, Optional<Boolean>> m_methodCache = new ConcurrentHashMap<>();
 
     public Pattern[] getMethodWhiteList() {
         return m_methodWhiteRegexp;
@@ -128,28 +136,55 @@ public class StackValidatorEntry {
         this(classRegexp, new String[0], new String[0]);
     }
     
+    /**
+     * Check if the class name matches the entry class pattern
+     * @param className
+     * @return 
+     */
+    public boolean isClassMatch(String className) {
+        return getClassPattern().matcher(className).matches();
+    }
+    
+    /**
+     * Process the method of a class that matches the class pattern. 
+     * The result is cached per method name.
+     * @param className
+     * @param methodName
+     * @return 
+     */
+    public Boolean processMethod(String className, String methodName) {
+        Optional<Boolean> result = m_methodCache.get(methodName);
+        if (result == null) {
+            result = Optional.ofNullable(processLists(className, methodName, null));
+            m_methodCache.put(methodName, result);
+        }
+        
+        return result.orElse(null);
+    }
+    
     public Boolean process(
             Supplier<String> className, 
             Supplier<String> methodName,
             Consumer<String> log) {
         
         final String cName = className.get();
-        final Matcher m = getClassPattern().matcher(cName);
-        if (!m.matches()) {
+        if (!isClassMatch(cName)) {
             //No class match
             return null;
         }
 
-        String mName = methodName.get();
+        return processLists(cName, methodName.get(), log);
+    }
+    
+    private Boolean processLists(String className, String methodName, Consumer<String> log) {
         for (ProcessList entry : getLists()) {
-            Boolean r = entry.process(cName, mName, log);
+            Boolean r = entry.process(className, methodName, log);
             if (r != null) {
                 return r;
             }
         }
         
         return null;
-        
     }
     
     protected Boolean processMethodBlackList(
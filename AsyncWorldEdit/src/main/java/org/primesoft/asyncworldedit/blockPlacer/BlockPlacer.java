@@ -47,10 +47,13 @@
  */
 package org.primesoft.asyncworldedit.blockPlacer;
 
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerListener;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import org.primesoft.asyncworldedit.blockPlacer.entries.JobEntry;
+import org.primesoft.asyncworldedit.blockPlacer.entries.SectionBatchEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.UndoJob;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.permissions.Permission;
@@ -61,13 +64,14 @@ import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.IPhysicsWatch;
 import org.primesoft.asyncworldedit.api.MessageSystem;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerPlayer;
+import org.primesoft.asyncworldedit.api.blockPlacer.TickBudgetState;
 import org.primesoft.asyncworldedit.api.blockPlacer.entries.IJobEntry;
 import org.primesoft.asyncworldedit.api.blockPlacer.entries.JobStatus;
 import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
@@ -93,6 +97,12 @@ import org.primesoft.asyncworldedit.utils.GCUtils;
  */
 public class BlockPlacer implements IBlockPlacer {
     private final static Object INSTANCE = new Object();
+    
+    /**
+     * The global queue size and free memory are checked every SAMPLE_MASK + 1 
+     * queued blocks (per player)
+     */
+    private final static int SAMPLE_MASK = 0x3ff;
 
     /**
      * Bukkit scheduler
@@ -100,7 +110,8 @@ public class BlockPlacer implements IBlockPlacer {
     private final IScheduler m_scheduler;
 
     /**
-     * MTA mutex
+     * MTA mutex (queue management and the block placer loop, not used when 
+     * adding blocks)
      */
     private final Object m_mutex = new Object();
 
@@ -113,23 +124,41 @@ public class BlockPlacer implements IBlockPlacer {
      * Current scheduler task
      */
     private BlockPlacerTask m_task;
+    
+    /**
+     * The adaptive tick budget
+     */
+    private TickBudgetController m_budgetController;
 
     /**
      * Logged events queue (per player)
      */
-    private final HashMap<IPlayerEntry, BlockPlacerPlayer> m_blocks;
+    private final ConcurrentHashMap<IPlayerEntry, BlockPlacerPlayer> m_blocks;
         
-    private final AtomicInteger m_blocksCount = new AtomicInteger(0);
+    /**
+     * Number of blocks on all queues
+     */
+    private final LongAdder m_blocksCount = new LongAdder();
 
     /**
      * All locked queues
      */
-    private final HashSet<IPlayerEntry> m_lockedQueues;
+    private final Set<IPlayerEntry> m_lockedQueues;
 
     /**
      * Is the global queue locked
      */
-    private boolean m_globalQueueLocked;
+    private volatile boolean m_globalQueueLocked;
+    
+    /**
+     * Is the global queue full (sampled)
+     */
+    private volatile boolean m_sampledQueueFull;
+    
+    /**
+     * Is the free memory low (sampled)
+     */
+    private volatile boolean m_sampledMemoryLow;
 
     /**
      * Global queue max size
@@ -151,6 +180,11 @@ public class BlockPlacer implements IBlockPlacer {
      */
     private long m_minMemorySoft;
 
+    /**
+     * Maximum number of blocks in one section batch
+     */
+    private int m_batchSize;
+
     /**
      * Talk interval
      */
@@ -222,6 +256,36 @@ public class BlockPlacer implements IBlockPlacer {
         m_isPaused = pause;
     }
 
+    /**
+     * Get the current block placing time budget per tick
+     * 
+     * @return Number of milliseconds, -1 if the adaptive budget is disabled
+     */
+    @Override
+    public double getTickBudget() {
+        return m_budgetController.getBudget();
+    }
+
+    /**
+     * Get the measured server tick time (smoothed)
+     * 
+     * @return Number of milliseconds
+     */
+    @Override
+    public double getMeasuredTickTime() {
+        return m_budgetController.getTickTime();
+    }
+
+    /**
+     * Get the adaptive tick budget controller state
+     * 
+     * @return 
+     */
+    @Override
+    public TickBudgetState getTickBudgetState() {
+        return m_budgetController.getState();
+    }
+
     /**
      * Get the physics watcher
      *
@@ -240,8 +304,8 @@ public class BlockPlacer implements IBlockPlacer {
         m_jobAddedListeners = new ConcurrentHashMap<>();
         m_lastRunTime = System.currentTimeMillis();
         m_runNumber = 0;
-        m_blocks = new HashMap<>();
-        m_lockedQueues = new HashSet<>();
+        m_blocks = new ConcurrentHashMap<>();
+        m_lockedQueues = ConcurrentHashMap.newKeySet();
         m_scheduler = aweCore.getPlatform().getScheduler();
         m_progressDisplay = aweCore.getProgressDisplayManager();        
 
@@ -263,11 +327,16 @@ public class BlockPlacer implements IBlockPlacer {
         m_talkInterval = rConfig.getQueueTalkInterval();
         m_queueMaxSizeHard = rConfig.getQueueMaxSizeHard();
         m_queueMaxSizeSoft = rConfig.getQueueMaxSizeSoft();
+        m_batchSize = rConfig.getBatchSize();
         
         ConfigMemory mConfig = ConfigProvider.memory();
         
         m_minMemoryHard = mConfig.getMinMemoryHard() * 1000;
         m_minMemorySoft = mConfig.getMinMemorySoft() * 1000;
+        
+        m_budgetController = new TickBudgetController(rConfig.isAdaptiveBudgetEnabled(),
+                rConfig.getAdaptiveTargetTickTime(), 
+                rConfig.getAdaptiveMinTime(), rConfig.getAdaptiveMaxTime());
 
         if (m_task != null) {
             m_task.queueStop();
@@ -316,6 +385,8 @@ public class BlockPlacer implements IBlockPlacer {
     private void run(BlockPlacerTask task) {
         long enterFunctionTime = System.currentTimeMillis();
         final long timeDelte = enterFunctionTime - m_lastRunTime;
+        
+        m_budgetController.measure(m_interval);
 
         if (isPaused()) {
             m_lastRunTime = enterFunctionTime;
@@ -362,20 +433,22 @@ public class BlockPlacer implements IBlockPlacer {
         
         boolean blockPlaced = !groups.isEmpty() && processQueue(processedGroups, blocksPlaced, jobsToCancel);
 
+        sampleLimits();
+        
         if (m_globalQueueLocked) {
             boolean unlock = GCUtils.getTotalAvailableMemory() >= m_minMemorySoft;
 
             if (blockPlaced) {
-                int globalSize = m_blocksCount.get();
+                long globalSize = m_blocksCount.sum();
                 unlock &= (globalSize < m_queueMaxSizeSoft);
             }
 
             if (unlock) {
+                m_globalQueueLocked = false;
+                
                 synchronized (m_globalWaitMutex) {
                     m_globalWaitMutex.notifyAll();
                 }
-
-                m_globalQueueLocked = false;
             } else if (!blockPlaced) {
                 GCUtils.GC();
             }
@@ -424,6 +497,10 @@ public class BlockPlacer implements IBlockPlacer {
         long startTime = System.currentTimeMillis();
         int blocks = 0;
         
+        final double budget = m_budgetController.getBudget();
+        final long budgetEnd = budget < 0 ? Long.MAX_VALUE
+                : System.nanoTime() + (long) (budget * 1000000);
+        
         boolean demanding = false;
 
         int pos = 0;
@@ -440,15 +517,15 @@ public class BlockPlacer implements IBlockPlacer {
             if (entry == null) {
                 groups.remove(group);
             } else {
+                blocks += BlockPlacerPlayer.getEntrySize(entry);
                 entry.process(this);
-                blocks++;
                 
                 
                 boolean isDemanding = entry.isDemanding();
                 demanding |= isDemanding;
                 
                 long now = System.currentTimeMillis();
-                if (isDemanding) {
+                if (isDemanding || System.nanoTime() >= budgetEnd) {
                     groups.clear();
                 } 
                 else if ((maxTime != -1 && (now - startTime) >= maxTime) ||
@@ -467,7 +544,9 @@ public class BlockPlacer implements IBlockPlacer {
         if (ConfigProvider.messages().debugLevel().isAtLeast(DebugLevel.TRACE)) {
             log("[BP RUN] Blocks placed: " + blocks + 
                 "\tTime: " + (System.currentTimeMillis() - startTime) + 
-                "\tIs demanding task: " + (demanding ? "Y" : "N"));
+                "\tIs demanding task: " + (demanding ? "Y" : "N") +
+                "\tBudget: " + String.format("%.2f", budget) +
+                "\tTick time: " + String.format("%.2f", m_budgetController.getTickTime()));
         }
         return blocks > 0;
     }
@@ -502,44 +581,39 @@ public class BlockPlacer implements IBlockPlacer {
             final IPlayerEntry player = playerEntries[keyPos];
             final BlockPlacerPlayer playerEntry = m_blocks.get(player);
             if (playerEntry != null) {
-                Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
-                synchronized (queue) {
-                    if (!queue.isEmpty()) {
-                        IBlockPlacerEntry entry = queue.poll();
-                        m_blocksCount.decrementAndGet();
-                        
-                        if (entry != null) {
-                            result = entry;
-                            resultPlayer = player;
-
-                            if (blocksPlaced.containsKey(player)) {
-                                blocksPlaced.put(player, blocksPlaced.get(player) + 1);
-                            } else {
-                                blocksPlaced.put(player, 1);
-                            }
-                        }
+                IBlockPlacerEntry entry = playerEntry.poll();
+                if (entry != null) {
+                    final int size = BlockPlacerPlayer.getEntrySize(entry);
+                    m_blocksCount.add(-size);
+
+                    result = entry;
+                    resultPlayer = player;
+
+                    if (blocksPlaced.containsKey(player)) {
+                        blocksPlaced.put(player, blocksPlaced.get(player) + size);
                     } else {
-                        for (IJobEntry job : playerEntry.getJobs()) {
-                            JobStatus jStatus = job.getStatus();
-                            if (jStatus == JobStatus.Done
-                                    || jStatus == JobStatus.Waiting
-                                    || jStatus == JobStatus.Canceled) {
-                                jobsToCancel.add(job);
-                            }
+                        blocksPlaced.put(player, size);
+                    }
+                } else {
+                    for (IJobEntry job : playerEntry.getJobs()) {
+                        JobStatus jStatus = job.getStatus();
+                        if (jStatus == JobStatus.Done
+                                || jStatus == JobStatus.Waiting
+                                || jStatus == JobStatus.Canceled) {
+                            jobsToCancel.add(job);
                         }
+                    }
 
-                        for (IJobEntry job : jobsToCancel) {
-                            playerEntry.removeJob(job);
-                        }
+                    for (IJobEntry job : jobsToCancel) {
+                        playerEntry.removeJob(job);
                     }
                 }
 
-                final int size = queue.size();
+                final int size = playerEntry.getQueuedBlocks();
                 if (size < permissionGroup.getQueueSoftLimit()) {
                     unlockQueue(player, true);
                 }
-                if (size == 0 && !playerEntry.hasJobs()) {
-                    m_blocks.remove(playerEntries[keyPos]);
+                if (size == 0 && !playerEntry.hasJobs() && tryRemovePlayer(player, playerEntry)) {
                     if (player.getMessaging(MessageSystem.BAR)) {
                         hideProgressBar(player, playerEntry);
                     }
@@ -571,11 +645,11 @@ public class BlockPlacer implements IBlockPlacer {
             }
         }
 
+        m_globalQueueLocked = false;
+        
         synchronized (m_globalWaitMutex) {
             m_globalWaitMutex.notifyAll();
         }
-
-        m_globalQueueLocked = false;
     }
 
     /**
@@ -663,6 +737,52 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public boolean addTasks(final IPlayerEntry player, final IBlockPlacerEntry entry) {
+        if (entry == null) {
+            return false;
+        }
+        
+        return addEntry(player, entry, null, -1, null, null, null, false);
+    }
+    
+    /**
+     * Add a single block change to the player section batches. The change is 
+     * going to be applied on the main thread using the batch target.
+     * 
+     * @param player
+     * @param jobId
+     * @param worldName
+     * @param target
+     * @param location
+     * @param block
+     * @param notifyAndLight
+     * @return 
+     */
+    public boolean addBlock(final IPlayerEntry player, int jobId, String worldName,
+            ISectionBatchTarget target, BlockVector3 location, BlockStateHolder block,
+            boolean notifyAndLight) {
+        if (target == null || location == null) {
+            return false;
+        }
+        
+        return addEntry(player, null, worldName, jobId, target, location, block, notifyAndLight);
+    }
+    
+    /**
+     * Add entry or a batched block to the player queue
+     * 
+     * @param player
+     * @param entry The block placer entry, null when adding a batched block
+     * @param worldName
+     * @param jobId
+     * @param target
+     * @param location
+     * @param block
+     * @param notifyAndLight
+     * @return 
+     */
+    private boolean addEntry(final IPlayerEntry player, final IBlockPlacerEntry entry,
+            final String worldName, final int jobId, final ISectionBatchTarget target,
+            final BlockVector3 location, final BlockStateHolder block, final boolean notifyAndLight) {
         if (player == null) {
             return false;
         }
@@ -685,38 +805,49 @@ public class BlockPlacer implements IBlockPlacer {
 
             if (waitOn != null) {
                 synchronized (waitOn) {
-                    try {
-                        int wait = (int) (m_interval < 1 ? 5000
-                                : Math.min(10000, 10000 * ConfigProvider.TICKS_PER_SECOND / m_interval));
-                        waitOn.wait(wait);
-                    } catch (InterruptedException ex) {
-                        return false;
+                    final boolean locked = waitOn == m_globalWaitMutex
+                            ? m_globalQueueLocked
+                            : m_lockedQueues.contains(player);
+                    
+                    if (locked) {
+                        try {
+                            int wait = (int) (m_interval < 1 ? 5000
+                                    : Math.min(10000, 10000 * ConfigProvider.TICKS_PER_SECOND / m_interval));
+                            waitOn.wait(wait);
+                        } catch (InterruptedException ex) {
+                            return false;
 
+                        }
                     }
                 }
+                
+                waitOn = null;
             }
 
-            synchronized (m_mutex) {
-                final BlockPlacerPlayer playerEntry = 
-                        m_blocks.computeIfAbsent(player, pe -> new BlockPlacerPlayer(pe));
-
+            BlockPlacerPlayer playerEntry;
+            while (!(playerEntry = m_blocks.computeIfAbsent(player, pe -> new BlockPlacerPlayer(pe))).tryAcquire()) {
+                //The entry was retired by the block placer
+                m_blocks.remove(player, playerEntry);
+            }
+            
+            try {
                 if (m_lockedQueues.contains(player) && !(entry instanceof JobEntry)) {
                     waitOn = player.getWaitMutex();
                     retry = true;
                     continue;
                 }
 
-                final Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
                 final boolean bypassGlobal = (player.isAllowed(Permission.QUEUE_BYPASS) && !ConfigProvider.permission().isQueueBypassDisabled())
                         || entry instanceof JobEntry;
                 final boolean bypass = player.isAllowed(Permission.QUEUE_BYPASS) || entry instanceof JobEntry;
                 final IPermissionGroup group = player.getPermissionGroup();
                 
-                int globalSize = m_blocksCount.get();
-                long memAvailable = GCUtils.getTotalAvailableMemory();
+                if ((playerEntry.nextSample() & SAMPLE_MASK) == 0) {
+                    sampleLimits();
+                }
 
-                boolean queueFull = m_queueMaxSizeHard > 0 && globalSize > m_queueMaxSizeHard;
-                boolean memLow = m_minMemoryHard > 0 && memAvailable < m_minMemoryHard;
+                boolean queueFull = m_sampledQueueFull;
+                boolean memLow = m_sampledMemoryLow;
 
                 if ((queueFull || memLow) && !bypassGlobal) {
                     if (!playerEntry.isInformed()) {
@@ -740,21 +871,8 @@ public class BlockPlacer implements IBlockPlacer {
                     playerEntry.setInformed(false);
                 }
 
-                boolean wait;
-                synchronized (queue) {
-                    if (queue.size() >= group.getQueueHardLimit() && !bypass) {
-                        wait = true;
-                    } else {
-                        queue.add(entry);
-                        m_blocksCount.incrementAndGet();
-                        
-                        wait = false;
-                    }
-                }
-
-                if (wait) {
-                    if (!m_lockedQueues.contains(player)) {
-                        m_lockedQueues.add(player);
+                if (playerEntry.getQueuedBlocks() >= group.getQueueHardLimit() && !bypass) {
+                    if (m_lockedQueues.add(player)) {
                         player.say(MessageType.BLOCK_PLACER_QUEUE_FULL.format());
                     }
 
@@ -763,16 +881,33 @@ public class BlockPlacer implements IBlockPlacer {
                     continue;
                 }
                 
-                if (entry instanceof IBlockPlacerLocationEntry) {
-                    IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
-                    String worldName = bpEntry.getWorldName();
+                //Register the physics lock and the job before the entry is
+                //published, the block placer may process it right away
+                if (entry == null) {
                     if (worldName != null) {
-                        m_physicsWatcher.addLocation(worldName, bpEntry.getLocation());
+                        m_physicsWatcher.addLocation(worldName, location);
+                    }
+                } else if (entry instanceof IBlockPlacerLocationEntry) {
+                    IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
+                    String entryWorld = bpEntry.getWorldName();
+                    if (entryWorld != null) {
+                        m_physicsWatcher.addLocation(entryWorld, bpEntry.getLocation());
                     }
                 }
                 if (entry instanceof JobEntry) {
                     playerEntry.addJob((JobEntry) entry, true);
                 }
+                
+                m_blocksCount.increment();
+                if (entry != null) {
+                    playerEntry.add(entry);
+                } else {
+                    playerEntry.addBatched(worldName, jobId, target, player, notifyAndLight,
+                            location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                            block, m_batchSize);
+                }
+            } finally {
+                playerEntry.release();
             }
         } while (retry);
 
@@ -780,6 +915,33 @@ public class BlockPlacer implements IBlockPlacer {
         return true;
     }
 
+    /**
+     * Sample the global queue size and the available memory
+     */
+    private void sampleLimits() {
+        final long globalSize = m_blocksCount.sum();
+        final long memAvailable = GCUtils.getTotalAvailableMemory();
+        
+        m_sampledQueueFull = m_queueMaxSizeHard > 0 && globalSize > m_queueMaxSizeHard;
+        m_sampledMemoryLow = m_minMemoryHard > 0 && memAvailable < m_minMemoryHard;
+    }
+    
+    /**
+     * Remove the player entry from the block placer if it has no queued entries
+     * 
+     * @param player
+     * @param playerEntry
+     * @return 
+     */
+    private boolean tryRemovePlayer(IPlayerEntry player, BlockPlacerPlayer playerEntry) {
+        if (!playerEntry.tryRetire()) {
+            return false;
+        }
+        
+        m_blocks.remove(player, playerEntry);
+        return true;
+    }
+
     /**
      * Wait for job to finish
      *
@@ -831,9 +993,7 @@ public class BlockPlacer implements IBlockPlacer {
      */
     @Override
     public int cancelJob(IPlayerEntry player, int jobId) {
-        int newSize, result;
         final BlockPlacerPlayer playerEntry;
-        Queue<IBlockPlacerEntry> queue = null;
         IJobEntry job = null;
         synchronized (m_mutex) {
             playerEntry = m_blocks.get(player);
@@ -846,8 +1006,6 @@ public class BlockPlacer implements IBlockPlacer {
                 return 0;
             }
 
-            queue = playerEntry.getQueue();
-
             if (job != null) {
                 playerEntry.removeJob(job);
                 onJobRemoved(job);
@@ -857,41 +1015,14 @@ public class BlockPlacer implements IBlockPlacer {
         waitForJob(job);
 
         synchronized (m_mutex) {
-            Queue<IBlockPlacerEntry> filtered = new LinkedList<>();
-            if (queue != null) {
-                synchronized (queue) {
-                    //TODO: Optimize this for undo
-                    for (IBlockPlacerEntry entry : queue) {
-                        if (entry.getJobId() == jobId) {
-                            if (entry instanceof IBlockPlacerLocationEntry) {
-                                IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
-                                String worldName = bpEntry.getWorldName();
-                                if (worldName != null) {
-                                    m_physicsWatcher.removeLocation(worldName, bpEntry.getLocation());
-                                }
-                            } else if (entry instanceof JobEntry) {
-                                JobEntry jobEntry = (JobEntry) entry;
-                                playerEntry.removeJob(jobEntry);
-                                onJobRemoved(jobEntry);
-                            }
-                        } else {
-                            filtered.add(entry);
-                        }
-                    }
-                }
-
-                newSize = filtered.size();
-                result = queue.size() - filtered.size();
-            } else {
-                newSize = 0;
-                result = 0;
-            }
+            final int result = playerEntry.removeEntries(
+                    entry -> entry.getJobId() == jobId,
+                    entry -> onEntryRemoved(playerEntry, entry));
+            final int newSize = playerEntry.getQueuedBlocks();
+            
             IPermissionGroup group = player.getPermissionGroup();
-            m_blocksCount.addAndGet(-result);
-            if (newSize > 0) {
-                playerEntry.updateQueue(filtered);
-            } else if (newSize == 0) {
-                m_blocks.remove(player);
+            m_blocksCount.add(-result);
+            if (newSize == 0 && tryRemovePlayer(player, playerEntry)) {
                 if (player.getMessaging(MessageSystem.BAR)) {
                     hideProgressBar(player, playerEntry);
                 }
@@ -899,8 +1030,9 @@ public class BlockPlacer implements IBlockPlacer {
             if (newSize == 0 || newSize < group.getQueueSoftLimit()) {
                 unlockQueue(player, newSize != 0);
             }
+            
+            return result;
         }
-        return result;
     }
 
     /**
@@ -913,43 +1045,66 @@ public class BlockPlacer implements IBlockPlacer {
     public int purge(IPlayerEntry player) {
         int result = 0;
         synchronized (m_mutex) {
-            final BlockPlacerPlayer playerEntry = m_blocks.get(player);
+            final BlockPlacerPlayer playerEntry = m_blocks.remove(player);
             if (playerEntry != null) {
-                Queue<IBlockPlacerEntry> queue = playerEntry.getQueue();
-                synchronized (queue) {
-                    for (IBlockPlacerEntry entry : queue) {
-                        if (entry instanceof IBlockPlacerLocationEntry) {
-                            IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
-                            String name = bpEntry.getWorldName();
-                            if (name != null) {
-                                m_physicsWatcher.removeLocation(name, bpEntry.getLocation());
-                            }
-                        } else if (entry instanceof JobEntry) {
-                            JobEntry jobEntry = (JobEntry) entry;
-                            playerEntry.removeJob(jobEntry);
-                            onJobRemoved(jobEntry);
-                        }
-                    }
-                }
+                playerEntry.retire();
+                
+                result = playerEntry.removeEntries(
+                        entry -> true,
+                        entry -> onEntryRemoved(playerEntry, entry));
 
                 IJobEntry[] jobs = playerEntry.getJobs();
                 for (IJobEntry job : jobs) {
                     playerEntry.removeJob(job.getJobId());
                     onJobRemoved(job);
                 }
-                result = queue.size();
-                m_blocks.remove(player);                
                 if (player.getMessaging(MessageSystem.BAR)) {
                     hideProgressBar(player, playerEntry);
                 }
                 
-                m_blocksCount.addAndGet(-result);
+                m_blocksCount.add(-result);
             }
             unlockQueue(player, false);
         }
 
         return result;
     }
+    
+    /**
+     * Cleanup after a queued entry was removed without processing it
+     *
+     * @param playerEntry
+     * @param entry
+     */
+    private void onEntryRemoved(BlockPlacerPlayer playerEntry, IBlockPlacerEntry entry) {
+        if (entry instanceof SectionBatchEntry) {
+            removeLocations((SectionBatchEntry) entry);
+        } else if (entry instanceof IBlockPlacerLocationEntry) {
+            IBlockPlacerLocationEntry bpEntry = (IBlockPlacerLocationEntry) entry;
+            String worldName = bpEntry.getWorldName();
+            if (worldName != null) {
+                m_physicsWatcher.removeLocation(worldName, bpEntry.getLocation());
+            }
+        } else if (entry instanceof JobEntry) {
+            JobEntry jobEntry = (JobEntry) entry;
+            playerEntry.removeJob(jobEntry);
+            onJobRemoved(jobEntry);
+        }
+    }
+
+    /**
+     * Remove the physics watch locations for all the batched blocks
+     *
+     * @param batch
+     */
+    private void removeLocations(SectionBatchEntry batch) {
+        final String worldName = batch.getWorldName();
+        if (worldName == null) {
+            return;
+        }
+
+        batch.forEachLocation(l -> m_physicsWatcher.removeLocation(worldName, l));
+    }
 
     /**
      * Remove all entries
@@ -1155,11 +1310,10 @@ public class BlockPlacer implements IBlockPlacer {
      * @param player
      */
     private void unlockQueue(final IPlayerEntry player, boolean talk) {
-        if (m_lockedQueues.contains(player)) {
+        if (m_lockedQueues.remove(player)) {
             if (talk) {
                 player.say(MessageType.BLOCK_PLACER_QUEUE_UNLOCKED.format());
             }
-            m_lockedQueues.remove(player);
 
             Object mutex = player.getWaitMutex();
             synchronized (mutex) {
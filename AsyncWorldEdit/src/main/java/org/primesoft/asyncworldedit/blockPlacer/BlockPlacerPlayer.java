@@ -47,23 +47,29 @@
  */
 package org.primesoft.asyncworldedit.blockPlacer;
 
+import com.sk89q.worldedit.world.block.BlockStateHolder;
 import java.util.Comparator;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerPlayer;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
 import org.primesoft.asyncworldedit.api.blockPlacer.ICountProvider;
 import org.primesoft.asyncworldedit.api.blockPlacer.entries.IJobEntry;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.RedoJob;
+import org.primesoft.asyncworldedit.blockPlacer.entries.SectionBatchEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.UndoJob;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.strings.MessageType;
+import static org.primesoft.asyncworldedit.utils.PositionHelper.sectionKey;
 
 /**
  * Operation queue player entry
@@ -76,9 +82,51 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
     private final Map<ICountProvider, Object> m_otherCountSources = new ConcurrentHashMap<>();
 
     /**
-     * The queue
+     * Producer counter value of a retired entry
      */
-    private Queue<IBlockPlacerEntry> m_queue;
+    private final static int RETIRED = -1;
+
+    /**
+     * The queue (multiple producers, the block placer is the only consumer)
+     */
+    private volatile Queue<IBlockPlacerEntry> m_queue;
+    
+    /**
+     * Number of blocks on the queue (section batches count as multiple blocks)
+     */
+    private final AtomicInteger m_queuedBlocks = new AtomicInteger(0);
+    
+    /**
+     * Number of producers currently adding entries, RETIRED when the entry 
+     * was removed from the block placer
+     */
+    private final AtomicInteger m_producers = new AtomicInteger(0);
+    
+    /**
+     * The section batches mutex
+     */
+    private final Object m_batchMutex = new Object();
+    
+    /**
+     * The section batches that still accept new blocks
+     */
+    private final Map<Long, SectionBatchEntry> m_openBatches = new HashMap<>();
+    
+    /**
+     * Are there any open section batches
+     */
+    private volatile boolean m_hasOpenBatches;
+    
+    /**
+     * The last used section batch
+     */
+    private SectionBatchEntry m_lastBatch;
+    
+    /**
+     * Enqueue counter used to sample the queue limits
+     */
+    private final AtomicInteger m_sampleCounter = new AtomicInteger(0);
+    
     /**
      * Current block placing speed (blocks per second)
      */
@@ -112,7 +160,7 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
      */
     public BlockPlacerPlayer(IPlayerEntry player) {
         m_player = player;
-        m_queue = new LinkedList<>();
+        m_queue = new ConcurrentLinkedQueue<>();
         m_speed = 0;
         m_jobs = new ConcurrentHashMap<>();
     }
@@ -154,7 +202,254 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
      */
     @Override
     public void updateQueue(Queue<IBlockPlacerEntry> newQueue) {
-        m_queue = newQueue;
+        synchronized (m_batchMutex) {
+            sealBatches();
+        
+            int blocks = 0;
+            for (IBlockPlacerEntry entry : newQueue) {
+                blocks += getEntrySize(entry);
+            }
+
+            m_queue = newQueue instanceof ConcurrentLinkedQueue ? newQueue : new ConcurrentLinkedQueue<>(newQueue);
+            m_queuedBlocks.set(blocks);
+        }
+    }
+    
+    /**
+     * Get the number of blocks the entry represents
+     * @param entry
+     * @return 
+     */
+    public static int getEntrySize(IBlockPlacerEntry entry) {
+        if (entry instanceof SectionBatchEntry) {
+            return ((SectionBatchEntry) entry).size();
+        }
+        
+        return 1;
+    }
+    
+    /**
+     * Number of blocks on the queue.
+     * @return 
+     */
+    public int getQueuedBlocks() {
+        return m_queuedBlocks.get();
+    }
+    
+    /**
+     * Get the next enqueue sample number, used to decide when to check the limits.
+     * @return 
+     */
+    int nextSample() {
+        return m_sampleCounter.incrementAndGet();
+    }
+    
+    /**
+     * Register a producer, producers can not add entries to a retired player entry
+     * @return false if the entry is retired
+     */
+    boolean tryAcquire() {
+        while (true) {
+            final int producers = m_producers.get();
+            if (producers == RETIRED) {
+                return false;
+            }
+            
+            if (m_producers.compareAndSet(producers, producers + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Unregister a producer
+     */
+    void release() {
+        m_producers.decrementAndGet();
+    }
+    
+    /**
+     * Try to retire the entry, this is possible only when there are no 
+     * active producers and the queue is empty.
+     * @return 
+     */
+    boolean tryRetire() {
+        if (m_queuedBlocks.get() != 0 || !m_queue.isEmpty()) {
+            return false;
+        }
+        
+        if (!m_producers.compareAndSet(0, RETIRED)) {
+            return false;
+        }
+        
+        if (m_queuedBlocks.get() != 0 || !m_queue.isEmpty()) {
+            m_producers.set(0);
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Retire the entry regardless of the queue content, waits for the active
+     * producers to finish.
+     */
+    void retire() {
+        while (!m_producers.compareAndSet(0, RETIRED)) {
+            if (m_producers.get() == RETIRED) {
+                return;
+            }
+            
+            Thread.yield();
+        }
+    }
+    
+    /**
+     * Is the entry retired
+     * @return 
+     */
+    boolean isRetired() {
+        return m_producers.get() == RETIRED;
+    }
+    
+    /**
+     * Add entry to the queue, all open section batches are sealed to 
+     * keep the operations order.
+     * @param entry 
+     */
+    public void add(IBlockPlacerEntry entry) {
+        if (m_hasOpenBatches) {
+            synchronized (m_batchMutex) {
+                sealBatches();
+                
+                m_queuedBlocks.addAndGet(getEntrySize(entry));
+                m_queue.add(entry);
+            }
+            
+            return;
+        }
+        
+        m_queuedBlocks.addAndGet(getEntrySize(entry));
+        m_queue.add(entry);
+    }
+    
+    /**
+     * Get and remove the next entry from the queue. Section batches are sealed
+     * before they are returned. Only the block placer should call this method.
+     * @return 
+     */
+    public IBlockPlacerEntry poll() {
+        final IBlockPlacerEntry entry = m_queue.poll();
+        if (entry == null) {
+            return null;
+        }
+        
+        if (entry instanceof SectionBatchEntry) {
+            final SectionBatchEntry batch = (SectionBatchEntry) entry;
+            
+            synchronized (m_batchMutex) {
+                batch.seal();
+
+                if (m_lastBatch == batch) {
+                    m_lastBatch = null;
+                }
+                m_openBatches.remove(batch.getSectionKey(), batch);
+                m_hasOpenBatches = !m_openBatches.isEmpty();
+                
+                m_queuedBlocks.addAndGet(-batch.size());
+            }
+        } else {
+            m_queuedBlocks.addAndGet(-getEntrySize(entry));
+        }
+        
+        return entry;
+    }
+    
+    /**
+     * Remove all the matching entries from the queue
+     * @param filter The entries to remove
+     * @param onRemoved Called for each removed entry
+     * @return Number of removed blocks
+     */
+    public int removeEntries(Predicate<IBlockPlacerEntry> filter, Consumer<IBlockPlacerEntry> onRemoved) {
+        final int[] removed = new int[]{0};
+        
+        synchronized (m_batchMutex) {
+            sealBatches();
+            
+            m_queue.removeIf(entry -> {
+                if (!filter.test(entry)) {
+                    return false;
+                }
+                
+                removed[0] += getEntrySize(entry);
+                onRemoved.accept(entry);
+                return true;
+            });
+            
+            m_queuedBlocks.addAndGet(-removed[0]);
+        }
+        
+        return removed[0];
+    }
+    
+    /**
+     * Add a block change to the section batches.
+     * @param worldName
+     * @param jobId
+     * @param target
+     * @param player
+     * @param notifyAndLight
+     * @param x
+     * @param y
+     * @param z
+     * @param block
+     * @param maxSize maximum number of blocks in one batch
+     */
+    public void addBatched(String worldName, int jobId, ISectionBatchTarget target, 
+            IPlayerEntry player, boolean notifyAndLight, 
+            int x, int y, int z, BlockStateHolder block, int maxSize) {
+        synchronized (m_batchMutex) {
+            SectionBatchEntry batch = m_lastBatch;
+
+            if (batch == null || !batch.isInSection(x, y, z)) {
+                batch = m_openBatches.get(sectionKey(x, y, z));
+            }
+
+            m_queuedBlocks.incrementAndGet();
+            
+            if (batch == null || !batch.isSameBatch(jobId, target, notifyAndLight) ||
+                    !batch.tryAdd(x, y, z, block)) {
+                if (batch != null) {
+                    batch.seal();
+                }
+
+                batch = new SectionBatchEntry(worldName, jobId, target, player, notifyAndLight, 
+                        x, y, z, maxSize);
+                batch.tryAdd(x, y, z, block);
+
+                m_openBatches.put(sectionKey(x, y, z), batch);
+                m_hasOpenBatches = true;
+                m_queue.add(batch);
+            }
+
+            m_lastBatch = batch;
+        }
+    }
+    
+    /**
+     * Seal all the open section batches. Needs to be called while holding the 
+     * batch mutex.
+     */
+    private void sealBatches() {
+        if (m_openBatches.isEmpty()) {
+            return;
+        }
+        
+        m_openBatches.values().forEach(SectionBatchEntry::seal);
+        m_openBatches.clear();
+        m_hasOpenBatches = false;
+        m_lastBatch = null;
     }
 
     /**
@@ -337,12 +632,12 @@ public class BlockPlacerPlayer implements IBlockPlacerPlayer {
 
     @Override
     public boolean hasBlocks() {
-        return !m_queue.isEmpty() || m_otherCountSources.keySet().stream().anyMatch(i -> i.getCount() > 0);
+        return m_queuedBlocks.get() > 0 || m_otherCountSources.keySet().stream().anyMatch(i -> i.getCount() > 0);
     }
 
     @Override
     public int getOperationCount() {
-        return m_queue.size() + m_otherCountSources.keySet().stream().mapToInt(ICountProvider::getCount).sum();
+        return m_queuedBlocks.get() + m_otherCountSources.keySet().stream().mapToInt(ICountProvider::getCount).sum();
     }
 
     @Override
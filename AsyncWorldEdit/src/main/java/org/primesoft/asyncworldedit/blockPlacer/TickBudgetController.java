@@ -0,0 +1,260 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.primesoft.asyncworldedit.api.blockPlacer.TickBudgetState;
+
+/**
+ * Adaptive block placer time budget. Measures the server tick time on each 
+ * block placer run and changes the block placing budget to keep the server 
+ * tick time below the target.
+ *
+ * @author SBPrime
+ */
+class TickBudgetController {
+    /**
+     * Nominal tick length (ms)
+     */
+    private final static double TICK_LENGTH = 50;
+
+    /**
+     * The measured tick time smoothing factor
+     */
+    private final static double SMOOTHING = 0.25;
+
+    /**
+     * Budget multiplier used when the tick time is above the target
+     */
+    private final static double BACKOFF = 0.5;
+
+    /**
+     * Part of the target used as the hold band
+     */
+    private final static double HOLD_BAND = 0.9;
+
+    /**
+     * Part of the spare tick time added to the budget
+     */
+    private final static double GROW_RATE = 0.1;
+
+    /**
+     * Minimum budget increase (ms)
+     */
+    private final static double MIN_GROW = 0.25;
+
+    /**
+     * The thread CPU time source, null if not supported
+     */
+    private final ThreadMXBean m_threadBean;
+
+    /**
+     * Is the adaptive budget enabled
+     */
+    private final boolean m_isEnabled;
+
+    /**
+     * Target tick time (ms)
+     */
+    private final double m_target;
+
+    /**
+     * Minimum block placing time per tick (ms)
+     */
+    private final double m_minBudget;
+
+    /**
+     * Maximum block placing time per tick (ms)
+     */
+    private final double m_maxBudget;
+
+    /**
+     * The current block placing budget (ms)
+     */
+    private volatile double m_budget;
+
+    /**
+     * The smoothed tick time (ms), -1 if not measured
+     */
+    private volatile double m_tickTime;
+
+    /**
+     * The controller state
+     */
+    private volatile TickBudgetState m_state;
+
+    /**
+     * Wall time of the last measurement (ns)
+     */
+    private long m_lastWallTime = -1;
+
+    /**
+     * Main thread CPU time of the last measurement (ns)
+     */
+    private long m_lastCpuTime = -1;
+
+    /**
+     * Create new controller
+     *
+     * @param isEnabled is the adaptive budget enabled
+     * @param target target tick time (ms)
+     * @param minBudget minimum block placing time per tick (ms)
+     * @param maxBudget maximum block placing time per tick (ms)
+     */
+    TickBudgetController(boolean isEnabled, double target, double minBudget, double maxBudget) {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!threadBean.isCurrentThreadCpuTimeSupported()) {
+            threadBean = null;
+        } else if (!threadBean.isThreadCpuTimeEnabled()) {
+            try {
+                threadBean.setThreadCpuTimeEnabled(true);
+            } catch (UnsupportedOperationException | SecurityException ex) {
+                threadBean = null;
+            }
+        }
+
+        m_threadBean = threadBean;
+        m_isEnabled = isEnabled;
+        m_target = target;
+        m_minBudget = Math.max(0, minBudget);
+        m_maxBudget = Math.max(m_minBudget, maxBudget);
+        m_budget = m_minBudget;
+        m_tickTime = -1;
+        m_state = isEnabled ? TickBudgetState.Holding : TickBudgetState.Disabled;
+    }
+
+    /**
+     * Is the adaptive budget enabled
+     *
+     * @return
+     */
+    boolean isEnabled() {
+        return m_isEnabled;
+    }
+
+    /**
+     * The current block placing budget (ms)
+     *
+     * @return
+     */
+    double getBudget() {
+        return m_isEnabled ? m_budget : -1;
+    }
+
+    /**
+     * The smoothed tick time (ms)
+     *
+     * @return
+     */
+    double getTickTime() {
+        return m_tickTime;
+    }
+
+    /**
+     * The controller state
+     *
+     * @return
+     */
+    TickBudgetState getState() {
+        return m_state;
+    }
+
+    /**
+     * Measure the tick time, needs to be called from the main thread on each
+     * block placer run
+     *
+     * @param ticks number of ticks since the last run
+     */
+    void measure(long ticks) {
+        final long wallTime = System.nanoTime();
+        final long cpuTime = m_threadBean != null ? m_threadBean.getCurrentThreadCpuTime() : -1;
+
+        if (m_lastWallTime >= 0 && ticks > 0) {
+            final double wallTick = (wallTime - m_lastWallTime) / 1000000.0 / ticks;
+            final double cpuTick = cpuTime >= 0 && m_lastCpuTime >= 0
+                    ? (cpuTime - m_lastCpuTime) / 1000000.0 / ticks
+                    : wallTick;
+
+            //When the server is not able to keep up it does not sleep between 
+            //the ticks so the wall time is the tick time
+            update(wallTick > TICK_LENGTH ? wallTick : Math.min(cpuTick, wallTick));
+        }
+
+        m_lastWallTime = wallTime;
+        m_lastCpuTime = cpuTime;
+    }
+
+    /**
+     * Update the controller using a tick time sample
+     *
+     * @param sample measured tick time (ms)
+     */
+    void update(double sample) {
+        final double tickTime = m_tickTime < 0 ? sample : m_tickTime + (sample - m_tickTime) * SMOOTHING;
+        m_tickTime = tickTime;
+
+        if (!m_isEnabled) {
+            return;
+        }
+
+        double budget = m_budget;
+        if (sample > m_target) {
+            //React to spikes using the raw sample
+            budget = budget * BACKOFF;
+            m_state = TickBudgetState.BackingOff;
+        } else if (tickTime > m_target * HOLD_BAND) {
+            m_state = TickBudgetState.Holding;
+        } else {
+            budget += Math.max(MIN_GROW, (m_target - tickTime) * GROW_RATE);
+            m_state = TickBudgetState.Growing;
+        }
+
+        m_budget = Math.max(m_minBudget, Math.min(m_maxBudget, budget));
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer.entries;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.function.Consumer;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.blockPlacer.BlockPlacer;
+import org.primesoft.asyncworldedit.blockPlacer.BlockPlacerEntry;
+import org.primesoft.asyncworldedit.blockPlacer.ISectionBatchTarget;
+import org.primesoft.asyncworldedit.utils.PositionHelper;
+
+/**
+ * Block placer entry that groups the block changes of a single chunk section.
+ * The positions and blocks are stored in primitive arrays (section relative
+ * position and palette index) so queuing a block does not allocate.
+ *
+ * All the add and seal calls need to be done while holding the player batch
+ * mutex. Once the entry is sealed it is no longer modified.
+ *
+ * @author SBPrime
+ */
+public class SectionBatchEntry extends BlockPlacerEntry {
+
+    /**
+     * The initial array size
+     */
+    private final static int INITIAL_SIZE = 64;
+
+    /**
+     * Maximum number of different blocks in one batch
+     */
+    private final static int MAX_PALETTE = 256;
+
+    private final String m_worldName;
+
+    private final ISectionBatchTarget m_target;
+
+    private final IPlayerEntry m_player;
+
+    private final boolean m_notifyAndLight;
+
+    private final int m_maxSize;
+
+    /**
+     * The section origin
+     */
+    private final int m_x;
+    private final int m_y;
+    private final int m_z;
+
+    /**
+     * Section relative block positions (y << 8 | z << 4 | x)
+     */
+    private short[] m_positions;
+
+    /**
+     * Palette indexes of the blocks
+     */
+    private byte[] m_blocks;
+
+    private final BlockStateHolder[] m_palette;
+
+    private int m_paletteSize;
+
+    private int m_lastPaletteIdx;
+
+    private int m_size;
+
+    private boolean m_isSealed;
+
+    public SectionBatchEntry(String worldName, int jobId, ISectionBatchTarget target,
+            IPlayerEntry player, boolean notifyAndLight,
+            int x, int y, int z, int maxSize) {
+        super(jobId, false);
+
+        m_worldName = worldName;
+        m_target = target;
+        m_player = player;
+        m_notifyAndLight = notifyAndLight;
+        m_maxSize = maxSize;
+
+        m_x = x & ~0xf;
+        m_y = y & ~0xf;
+        m_z = z & ~0xf;
+
+        final int size = Math.min(INITIAL_SIZE, maxSize);
+        m_positions = new short[size];
+        m_blocks = new byte[size];
+        m_palette = new BlockStateHolder[MAX_PALETTE];
+    }
+
+    public String getWorldName() {
+        return m_worldName;
+    }
+
+    /**
+     * The player that queued the changes
+     *
+     * @return
+     */
+    public IPlayerEntry getPlayer() {
+        return m_player;
+    }
+
+    /**
+     * Should the changes notify the neighbours and update the light
+     *
+     * @return
+     */
+    public boolean isNotifyAndLight() {
+        return m_notifyAndLight;
+    }
+
+    /**
+     * The packed section coordinates
+     *
+     * @return
+     */
+    public long getSectionKey() {
+        return PositionHelper.sectionKey(m_x, m_y, m_z);
+    }
+
+    /**
+     * Check if the batch can store changes for the provided parameters
+     *
+     * @param jobId
+     * @param target
+     * @param notifyAndLight
+     * @return
+     */
+    public boolean isSameBatch(int jobId, ISectionBatchTarget target, boolean notifyAndLight) {
+        return !m_isSealed && getJobId() == jobId && m_target == target
+                && m_notifyAndLight == notifyAndLight;
+    }
+
+    /**
+     * Is the block inside the batch section
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    public boolean isInSection(int x, int y, int z) {
+        return (x & ~0xf) == m_x && (y & ~0xf) == m_y && (z & ~0xf) == m_z;
+    }
+
+    /**
+     * Number of block changes in the batch
+     *
+     * @return
+     */
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isSealed() {
+        return m_isSealed;
+    }
+
+    /**
+     * Seal the batch, no more blocks are going to be added
+     */
+    public void seal() {
+        m_isSealed = true;
+    }
+
+    /**
+     * Try to add a block change to the batch
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param block
+     * @return false if the batch is sealed or full
+     */
+    public boolean tryAdd(int x, int y, int z, BlockStateHolder block) {
+        if (m_isSealed || m_size >= m_maxSize) {
+            return false;
+        }
+
+        final int paletteIdx = getPaletteIndex(block);
+        if (paletteIdx < 0) {
+            return false;
+        }
+
+        if (m_size == m_positions.length) {
+            final int newSize = Math.min(m_maxSize, m_positions.length * 2);
+            final short[] positions = new short[newSize];
+            final byte[] blocks = new byte[newSize];
+
+            System.arraycopy(m_positions, 0, positions, 0, m_size);
+            System.arraycopy(m_blocks, 0, blocks, 0, m_size);
+
+            m_positions = positions;
+            m_blocks = blocks;
+        }
+
+        m_positions[m_size] = (short) (((y & 0xf) << 8) | ((z & 0xf) << 4) | (x & 0xf));
+        m_blocks[m_size] = (byte) paletteIdx;
+        m_size++;
+
+        return true;
+    }
+
+    /**
+     * Find or add the block in the batch palette
+     *
+     * @param block
+     * @return palette index, -1 if the palette is full
+     */
+    private int getPaletteIndex(BlockStateHolder block) {
+        if (m_paletteSize > 0) {
+            final BlockStateHolder last = m_palette[m_lastPaletteIdx];
+            if (last == block) {
+                return m_lastPaletteIdx;
+            }
+        }
+
+        for (int i = 0; i < m_paletteSize; i++) {
+            final BlockStateHolder b = m_palette[i];
+            if (b == block || b.equals(block)) {
+                m_lastPaletteIdx = i;
+                return i;
+            }
+        }
+
+        if (m_paletteSize >= MAX_PALETTE) {
+            return -1;
+        }
+
+        m_lastPaletteIdx = m_paletteSize;
+        m_palette[m_paletteSize++] = block;
+        return m_lastPaletteIdx;
+    }
+
+    /**
+     * Get the location of the n-th change
+     *
+     * @param idx
+     * @return
+     */
+    public BlockVector3 getLocation(int idx) {
+        final int pos = m_positions[idx];
+        return BlockVector3.at(m_x + (pos & 0xf), m_y + ((pos >> 8) & 0xf), m_z + ((pos >> 4) & 0xf));
+    }
+
+    /**
+     * Get the block of the n-th change
+     *
+     * @param idx
+     * @return
+     */
+    public BlockStateHolder getBlock(int idx) {
+        return m_palette[m_blocks[idx] & 0xff];
+    }
+
+    /**
+     * Iterate over all the stored locations
+     *
+     * @param consumer
+     */
+    public void forEachLocation(Consumer<BlockVector3> consumer) {
+        for (int i = 0; i < m_size; i++) {
+            consumer.accept(getLocation(i));
+        }
+    }
+
+    @Override
+    public boolean process(IBlockPlacer bp) {
+        return m_target.applyBatch(this, ((BlockPlacer) bp).getPhysicsWatcher());
+    }
+}
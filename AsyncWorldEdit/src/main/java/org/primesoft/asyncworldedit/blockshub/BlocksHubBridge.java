@@ -123,6 +123,28 @@ public class BlocksHubBridge implements IBlocksHubBridge {
         m_integrator.logBlock(playerEntry, world, location, oldBlock, newBlock, dc);
     }
 
+    @Override
+    public void logBlocks(IPlayerEntry playerEntry, IWorld world, BlockVector3[] locations,
+            BlockStateHolder[] oldBlocks, BlockStateHolder[] newBlocks, int count, boolean dc) {
+        if (!m_shouldProcess || count <= 0) {
+            return;
+        }
+        
+        BHLevel level = ConfigProvider.blocksHub().getLogBlocks();
+        if (level == BHLevel.Disabled || (dc && level == BHLevel.Regular)) {
+            return;
+        }
+
+        if (playerEntry == null || !playerEntry.isPlayer()
+                || playerEntry.isDisposed()
+                || playerEntry.getUUID() == null || playerEntry.getName() == null
+                || playerEntry.getName().isEmpty()) {
+            return;
+        }
+
+        m_integrator.logBlocks(playerEntry, world, locations, oldBlocks, newBlocks, count, dc);
+    }
+
     @Override
     public void addFacroty(IBlocksHubFactory factory) {        
         if (factory == null) {
@@ -440,6 +462,11 @@ public class BlocksHubBridge implements IBlocksHubBridge {
         return m_integrator.canPlace(playerEntry, world, location, oldBlock, newBlock, dc);
     }
 
+    @Override
+    public boolean isAcceptAll() {
+        return !m_shouldProcess;
+    }
+
     @Override
     public void initialize(Object blocksHubPlugin) {
         if (blocksHubPlugin == null) {
@@ -98,6 +98,16 @@ public class NullBlocksHubIntegration implements IBlocksHubIntegration {
         return true;
     }
 
+    @Override
+    public void logBlocks(IPlayerEntry playerEntry, IWorld world, BlockVector3[] locations,
+            BlockStateHolder[] oldBlocks, BlockStateHolder[] newBlocks, int count, boolean dc) {
+    }
+
+    @Override
+    public boolean isAcceptAll() {
+        return true;
+    }
+
     @Override
     public boolean isReal() {
         return false;
@@ -51,17 +51,18 @@ import org.primesoft.asyncworldedit.changesetSerializer.serializers.SerializerBl
 import org.primesoft.asyncworldedit.changesetSerializer.serializers.SerializerBlockChange;
 import com.sk89q.worldedit.history.change.Change;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -79,11 +80,17 @@ import org.primesoft.asyncworldedit.api.worldedit.ICancelabeEditSession;
 import org.primesoft.asyncworldedit.changesetSerializer.serializers.SerializerBiomeChange;
 import org.primesoft.asyncworldedit.configuration.ConfigMemory;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.ConfigUndo;
 import org.primesoft.asyncworldedit.configuration.UndoBehaviour;
+import org.primesoft.asyncworldedit.configuration.UndoCompression;
+import org.primesoft.asyncworldedit.configuration.UndoSync;
 import org.primesoft.asyncworldedit.strings.MessageType;
-import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.utils.GCUtils;
+import org.primesoft.asyncworldedit.utils.io.ChannelOutputStream;
+import org.primesoft.asyncworldedit.utils.io.MappedChunkStream;
+import org.primesoft.asyncworldedit.utils.io.SegmentWriter;
+import org.primesoft.asyncworldedit.utils.io.SegmentedStream;
 import org.primesoft.asyncworldedit.utils.io.VarInt;
 
 /**
@@ -92,6 +99,18 @@ import org.primesoft.asyncworldedit.utils.io.VarInt;
  */
 public final class SerializerManager implements IInnerSerializerManager {
     private final static Object ITEM = new Object();
+
+    /**
+     * The write buffer size
+     */
+    private final static int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The reusable undo file and index write buffers (for each writer thread)
+     */
+    private final static ThreadLocal<ByteBuffer[]> s_buffers = ThreadLocal.withInitial(() -> new ByteBuffer[]{
+        ByteBuffer.allocateDirect(BUFFER_SIZE), ByteBuffer.allocateDirect(BUFFER_SIZE)
+    });
     
     /**
      * The Zero UUID
@@ -110,7 +129,7 @@ public final class SerializerManager implements IInnerSerializerManager {
     /**
      * List of all undo descriptors
      */
-    private final Map<File, UndoDescriptor> m_undoDescriptors = new HashMap<>();
+    private final Map<File, UndoDescriptor> m_undoDescriptors = new ConcurrentHashMap<>();
 
     /**
      * List of all known serializers
@@ -196,7 +215,7 @@ public final class SerializerManager implements IInnerSerializerManager {
         }
 
         try {
-            m_undoDescriptors.put(undoFile, new UndoDescriptor(undoFile));
+            m_undoDescriptors.put(undoFile, new UndoDescriptor(undoFile, UndoEntry.FORMAT_SEGMENTED));
 
             return undoFile;
         } catch (IOException ioe) {
@@ -206,6 +225,49 @@ public final class SerializerManager implements IInnerSerializerManager {
         }
     }
 
+    /**
+     * Write the new palette entries, the current segment and its index
+     * entries
+     *
+     * @param ud
+     * @param segments
+     * @param out
+     * @param outIdx
+     * @throws IOException
+     */
+    private static void flushSegment(UndoDescriptor ud, SegmentWriter segments, 
+            DataOutputStream out, DataOutputStream outIdx) throws IOException {
+        //The palette entries need to be stored before the segment using them
+        if (ud.hasPaletteChanges()) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream palettes = new DataOutputStream(bytes);
+
+            ud.savePalettes(palettes);
+            palettes.flush();
+
+            segments.writeMetadata(out, bytes.toByteArray(), bytes.size());
+        }
+
+        segments.flush(out);
+        ud.writePendingIndex(outIdx);
+    }
+
+    /**
+     * Create the undo file segment writer
+     *
+     * @return
+     */
+    private static SegmentWriter createSegmentWriter() {
+        final ConfigUndo undoConfig = ConfigProvider.undo();
+        if (undoConfig == null) {
+            return new SegmentWriter(262144, SegmentWriter.CODEC_DEFLATE, 1);
+        }
+
+        final int codec = undoConfig.getCompression() == UndoCompression.None
+                ? SegmentWriter.CODEC_NONE : SegmentWriter.CODEC_DEFLATE;
+        return new SegmentWriter(undoConfig.getSegmentSize(), codec, undoConfig.getCompressionLevel());
+    }
+
     @Override
     public void close(File storageFile) {
         if (storageFile == null) {
@@ -218,10 +280,62 @@ public final class SerializerManager implements IInnerSerializerManager {
         }
 
         try {
-            ud.close();
+            synchronized (ud.getMutex()) {
+                flush(ud);
+                ud.close();
+            }
         } catch (IOException ioe) {
             ExceptionHelper.printException(ioe, "Unable to close undo file.");
         }
+
+        final StreamProvider sp = StreamProvider.getInstance();
+        sp.closeChannel(ud.getFile());
+        sp.closeChannel(getIndexFile(ud.getFile()));
+    }
+
+    /**
+     * Open an undo file that is not known to the serializer manager, for 
+     * example a file left by the previous server run. The palettes are 
+     * loaded from the file.
+     *
+     * @param storageFile
+     * @return The undo storage or null if the file can not be read
+     */
+    IMemoryStorage reopen(File storageFile) {
+        if (storageFile == null) {
+            return null;
+        }
+
+        UndoDescriptor ud = m_undoDescriptors.get(storageFile);
+        if (ud != null) {
+            return ud;
+        }
+
+        try (RandomAccessFile stream = new RandomAccessFile(storageFile, "r");
+                MappedChunkStream dataStream = new MappedChunkStream(stream.getChannel())) {
+            final int format = UndoEntry.readHeader(dataStream);
+
+            if (format != UndoEntry.FORMAT_LEGACY && format != UndoEntry.FORMAT_SEGMENTED) {
+                log(String.format("Unable to open undo file %1$s, unsupported format %2$s.", storageFile, format));
+                return null;
+            }
+
+            ud = new UndoDescriptor(storageFile, format);
+
+            if (format == UndoEntry.FORMAT_SEGMENTED) {
+                try (SegmentedStream segments = new SegmentedStream(dataStream)) {
+                    for (int i = 0; i < segments.getMetadataCount(); i++) {
+                        ud.loadPalettes(new DataInputStream(new ByteArrayInputStream(segments.getMetadata(i))));
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            ExceptionHelper.printException(ioe, String.format("Unable to open undo file %1$s.", storageFile));
+            return null;
+        }
+
+        m_undoDescriptors.put(storageFile, ud);
+        return ud;
     }
 
     @Override
@@ -244,94 +358,120 @@ public final class SerializerManager implements IInnerSerializerManager {
             return;
         }
 
+        write(ud, data, false);
+    }
+
+    @Override
+    public void flush(File storageFile) {
+        if (storageFile == null) {
+            return;
+        }
+
+        final UndoDescriptor ud = m_undoDescriptors.get(storageFile);
+        if (ud == null) {
+            return;
+        }
+
+        flush(ud);
+    }
+
+    /**
+     * Write the pending segment to the undo file
+     *
+     * @param ud
+     */
+    private void flush(UndoDescriptor ud) {
+        synchronized (ud.getMutex()) {
+            if (ud.hasPendingSegment()) {
+                write(ud, Collections.emptyList(), true);
+            }
+        }
+    }
+
+    /**
+     * Write the changes to the undo file. The segment writer is kept in the
+     * undo descriptor and the segment is written when it is full, when the
+     * undo file is flushed or closed.
+     *
+     * @param ud
+     * @param data
+     * @param flush Write the pending segment
+     */
+    private void write(UndoDescriptor ud, List<Change> data, boolean flush) {
         final StreamProvider sp = StreamProvider.getInstance();
         final File fileName = ud.getFile();
-        final File fileNameIdx = new File(ud.getFile().getPath() + ".idx");
-
-        sp.reserve();
-        sp.reserve();
+        final File fileNameIdx = getIndexFile(fileName);
 
         sp.addReference(fileName);
         sp.addReference(fileNameIdx);
 
         synchronized (ud.getMutex()) {
-            FileOutputStream stream = null;
-            FileOutputStream streamIdx = null;
+            UndoChannel channel = null;
+            UndoChannel channelIdx = null;
+            boolean failed = true;
 
             try {
-                stream = new FileOutputStream(fileName, true);
-                streamIdx = new FileOutputStream(fileNameIdx, true);
-
-                ByteArrayOutputStream memoryOut = new ByteArrayOutputStream();
-                ByteArrayOutputStream memoryOutIdx = new ByteArrayOutputStream();
-
-                DataOutputStream bufferStream = new DataOutputStream(memoryOut);
-                DataOutputStream bufferStreamIdx = new DataOutputStream(memoryOutIdx);
+                final UndoChannel[] channels = sp.acquireChannels(fileName, fileNameIdx);
+                channel = channels[0];
+                channelIdx = channels[1];
+
+                final ByteBuffer[] buffers = s_buffers.get();
+                final DataOutputStream bufferStream = new DataOutputStream(
+                        new ChannelOutputStream(channel.getChannel(), buffers[0]));
+                final DataOutputStream bufferStreamIdx = new DataOutputStream(
+                        new ChannelOutputStream(channelIdx.getChannel(), buffers[1]));
+
+                if (channel.getChannel().size() == 0) {
+                    UndoEntry.writeHeader(bufferStream, ud.getFormat());
+                }
+                
+                SegmentWriter segments = ud.getSegments();
+                if (segments == null && ud.isSegmented() && !ud.isClosed()) {
+                    segments = createSegmentWriter();
+                    ud.setSegments(segments);
+                }
 
                 for (Change change : data) {
-                    if (bufferStreamIdx.size() > 1000000) {
-                        bufferStreamIdx.flush();
-                        bufferStreamIdx.close();
-                        streamIdx.write(memoryOutIdx.toByteArray());
-
-                        memoryOutIdx = new ByteArrayOutputStream();
-                        bufferStreamIdx = new DataOutputStream(memoryOutIdx);
-                    }
-                    if (bufferStream.size() > 1000000) {
-                        bufferStream.flush();
-                        bufferStream.close();
-                        stream.write(memoryOut.toByteArray());
-
-                        memoryOut = new ByteArrayOutputStream();
-                        bufferStream = new DataOutputStream(memoryOut);
-                    }
-
-                    long size = save(ud, bufferStream, change);
-                    VarInt.writeLong(bufferStreamIdx, size);
-
                     if (ud.isClosed()) {
                         break;
                     }
+                    
+                    if (segments == null) {
+                        long size = save(ud, bufferStream, change);
+                        VarInt.writeLong(bufferStreamIdx, size);
+                        continue;
+                    }
+                    
+                    long size = save(ud, segments.getOutput(), change);
+                    VarInt.writeLong(ud.getPendingIndex(), size);
+                    
+                    if (segments.isFull()) {
+                        flushSegment(ud, segments, bufferStream, bufferStreamIdx);
+                    }
                 }
 
-                bufferStream.flush();
-                bufferStream.close();
+                if (segments != null && (flush || ud.isClosed())) {
+                    flushSegment(ud, segments, bufferStream, bufferStreamIdx);
+                }
 
+                //Group commit, the data is written before the index
+                bufferStream.flush();
                 bufferStreamIdx.flush();
-                bufferStreamIdx.close();
-
-                memoryOut.flush();
-                memoryOut.close();
 
-                memoryOutIdx.flush();
-                memoryOutIdx.close();
-
-                stream.write(memoryOut.toByteArray());
-                stream.flush();
-                stream.close();
-
-                streamIdx.write(memoryOutIdx.toByteArray());
-                streamIdx.flush();
-                streamIdx.close();
+                final UndoSync sync = getSync();
+                channel.commit(sync);
+                channelIdx.commit(sync);
+                
+                failed = false;
             } catch (IOException ioe) {
                 ExceptionHelper.printException(ioe, String.format("Unable to save undo data. Data might be corrupted"));
-
-                if (stream != null) {
-                    try {
-                        stream.close();
-                    } catch (IOException ex) {
-                    }
+            } finally {
+                if (failed) {
+                    ud.releaseSegments();
                 }
 
-                if (streamIdx != null) {
-                    try {
-                        streamIdx.close();
-                    } catch (IOException ex) {
-                    }
-                }
-            } finally {
-                sp.release();
-                sp.release();
+                sp.releaseChannel(channel);
+                sp.releaseChannel(channelIdx);
 
                 sp.removeReference(fileName);
                 sp.removeReference(fileNameIdx);
@@ -339,6 +479,26 @@ public final class SerializerManager implements IInnerSerializerManager {
         }
     }
 
+    /**
+     * Get the undo index file
+     *
+     * @param file
+     * @return
+     */
+    private static File getIndexFile(File file) {
+        return new File(file.getPath() + ".idx");
+    }
+
+    /**
+     * Get the undo file sync mode
+     *
+     * @return
+     */
+    private static UndoSync getSync() {
+        final ConfigUndo undoConfig = ConfigProvider.undo();
+        return undoConfig != null ? undoConfig.getSync() : UndoSync.None;
+    }
+
     @Override
     public List<Change> load(File storageFile, int entries,
             IPlayerEntry player, ICancelabeEditSession editSession) {
@@ -358,6 +518,8 @@ public final class SerializerManager implements IInnerSerializerManager {
             return result;
         }
 
+        flush(ud);
+
         final Object mutex = ud.getMutex();
         final StreamProvider sp = StreamProvider.getInstance();
         final File fileName = ud.getFile();
@@ -372,10 +534,12 @@ public final class SerializerManager implements IInnerSerializerManager {
                 UndoEntry uEntry;
                 boolean breakLoop = false;
 
-                IChunkCacheStream dataStream = new ChunkCacheStream(stream);
+                IChunkCacheStream dataStream = new MappedChunkStream(stream.getChannel());
+                int format = UndoEntry.readHeader(dataStream);
+                IChunkCacheStream entryStream = getEntryStream(dataStream, format);
 
                 do {
-                    uEntry = UndoEntry.load(dataStream);
+                    uEntry = (UndoEntry) load(entryStream, format, ud);
                     Change change = deserialize(uEntry, ud);
 
                     if (change != null) {
@@ -412,6 +576,9 @@ public final class SerializerManager implements IInnerSerializerManager {
                     }
                 } while (uEntry != null && result.size() < entries && !breakLoop);
 
+                if (entryStream instanceof Closeable) {
+                    ((Closeable) entryStream).close();
+                }
                 stream.close();
             } catch (IOException ioe) {
                 ExceptionHelper.printException(ioe, "Unable to load undo data. Data might be corrupted.");
@@ -449,6 +616,10 @@ public final class SerializerManager implements IInnerSerializerManager {
         }
 
         data.setId(idx);
+        if (descriptor.isSegmented()) {
+            return UndoEntry.saveCompact(stream, data, descriptor.getTypes());
+        }
+        
         return save(stream, data);
     }
 
@@ -602,6 +773,33 @@ public final class SerializerManager implements IInnerSerializerManager {
         return UndoEntry.load(stream);
     }
 
+    @Override
+    public int readHeader(IChunkCacheStream stream) throws IOException {
+        return UndoEntry.readHeader(stream);
+    }
+
+    @Override
+    public IChunkCacheStream getEntryStream(IChunkCacheStream stream, int format) throws IOException {
+        if (format == UndoEntry.FORMAT_SEGMENTED) {
+            return new SegmentedStream(stream);
+        }
+
+        return stream;
+    }
+
+    @Override
+    public IUndoEntry load(IChunkCacheStream stream, int format, IMemoryStorage storage) throws IOException {
+        if (format == UndoEntry.FORMAT_LEGACY) {
+            return UndoEntry.load(stream);
+        }
+
+        if (format != UndoEntry.FORMAT_SEGMENTED || !(storage instanceof UndoDescriptor)) {
+            throw new IOException(String.format("Unsupported undo file format %1$s", format));
+        }
+
+        return UndoEntry.loadCompact(stream, ((UndoDescriptor) storage).getTypes());
+    }
+
     @Override
     public int save(RandomAccessFile stream, IUndoEntry undoEntry) throws IOException {
         return UndoEntry.save(stream, undoEntry);
@@ -48,11 +48,15 @@
 package org.primesoft.asyncworldedit.changesetSerializer;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.ConfigUndo;
 import org.primesoft.asyncworldedit.configuration.DebugLevel;
+import org.primesoft.asyncworldedit.configuration.UndoSync;
 
 /**
  *
@@ -162,6 +166,9 @@ public class StreamProvider {
          * Remove the file
          */
         private void removeFile() {
+            closeChannel(m_file);
+            closeChannel(new File(m_file.getPath() + ".idx"));
+
             if (m_removeOnClean) {                
                 if (m_file.exists() && !m_file.delete()) {
                     log(String.format("Error removing file %1$s", m_file));
@@ -193,14 +200,14 @@ public class StreamProvider {
     }
 
     /**
-     * Maximum number of opened files
+     * Default maximum number of opened files
      */
-    private final static int MAX_FILES = 10;
+    private final static int MAX_FILES = 64;
 
     /**
      * The instance of StreamProvider
      */
-    private final static StreamProvider s_instance = new StreamProvider();
+    private final static StreamProvider s_instance = new StreamProvider(-1);
 
     /**
      * Get the instance of stream provider
@@ -217,10 +224,223 @@ public class StreamProvider {
     private final Object m_streamCountMutex = new Object();
 
     /**
-     * Number of opened files
+     * Number of opened files (pooled channels and reserved files)
      */
     private int m_streamCount = 0;
 
+    /**
+     * The pooled undo file channels (least recently used first)
+     */
+    private final LinkedHashMap<File, UndoChannel> m_channels = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The maximum number of opened files, -1 to use the configuration
+     */
+    private final int m_maxFiles;
+
+    StreamProvider(int maxFiles) {
+        m_maxFiles = maxFiles;
+    }
+
+    /**
+     * Get the maximum number of opened files
+     *
+     * @return
+     */
+    private int getMaxFiles() {
+        if (m_maxFiles > 0) {
+            return m_maxFiles;
+        }
+
+        final ConfigUndo undo = ConfigProvider.undo();
+        return undo != null ? undo.getMaxOpenFiles() : MAX_FILES;
+    }
+
+    /**
+     * Get the undo file sync mode
+     *
+     * @return
+     */
+    private static UndoSync getSync() {
+        final ConfigUndo undo = ConfigProvider.undo();
+        return undo != null ? undo.getSync() : UndoSync.None;
+    }
+
+    /**
+     * Close the least recently used idle channel. Needs to be called while
+     * holding the stream count mutex.
+     *
+     * @return true if a channel was closed
+     */
+    private boolean evictIdle() {
+        for (Iterator<UndoChannel> it = m_channels.values().iterator(); it.hasNext();) {
+            final UndoChannel channel = it.next();
+            if (channel.m_users > 0) {
+                continue;
+            }
+
+            it.remove();
+            channel.close(getSync());
+            m_streamCount = Math.max(0, m_streamCount - 1);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Wait for a free file handle. Needs to be called while holding the stream
+     * count mutex.
+     */
+    private void waitForHandle() {
+        final int maxFiles = getMaxFiles();
+        while (m_streamCount >= maxFiles && !evictIdle()) {
+            try {
+                m_streamCountMutex.wait(1000);
+            } catch (InterruptedException ex) {
+            }
+        }
+    }
+
+    /**
+     * Number of opened files
+     *
+     * @return
+     */
+    int getOpenCount() {
+        synchronized (m_streamCountMutex) {
+            return m_streamCount;
+        }
+    }
+
+    /**
+     * Get the pooled append channels for the files, the channels are acquired
+     * together so writers using more than one file can not block each other.
+     * The channels need to be released using releaseChannel
+     *
+     * @param files
+     * @return
+     * @throws IOException
+     */
+    public UndoChannel[] acquireChannels(File... files) throws IOException {
+        final UndoChannel[] result = new UndoChannel[files.length];
+
+        synchronized (m_streamCountMutex) {
+            final int maxFiles = getMaxFiles();
+            int missing;
+            while ((missing = countMissing(files)) > 0 && m_streamCount + missing > maxFiles) {
+                if (evictIdle()) {
+                    continue;
+                }
+
+                try {
+                    m_streamCountMutex.wait(1000);
+                } catch (InterruptedException ex) {
+                }
+            }
+
+            try {
+                for (int i = 0; i < files.length; i++) {
+                    UndoChannel channel = m_channels.get(files[i]);
+                    if (channel == null) {
+                        channel = new UndoChannel(files[i]);
+                        m_channels.put(files[i], channel);
+                        m_streamCount++;
+                    }
+
+                    channel.m_users++;
+                    result[i] = channel;
+                }
+            } catch (IOException ex) {
+                for (UndoChannel channel : result) {
+                    releaseChannel(channel);
+                }
+
+                throw ex;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the pooled append channel for the file, the channel needs to be
+     * released using releaseChannel
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public UndoChannel acquireChannel(File file) throws IOException {
+        return acquireChannels(file)[0];
+    }
+
+    /**
+     * Number of files without an open channel. Needs to be called while
+     * holding the stream count mutex.
+     *
+     * @param files
+     * @return
+     */
+    private int countMissing(File[] files) {
+        int result = 0;
+        for (File file : files) {
+            if (!m_channels.containsKey(file)) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Release the pooled channel, the channel is kept open until it is
+     * evicted or closed
+     *
+     * @param channel
+     */
+    public void releaseChannel(UndoChannel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        synchronized (m_streamCountMutex) {
+            channel.m_users = Math.max(0, channel.m_users - 1);
+            if (channel.m_users == 0 && channel.m_closeOnRelease
+                    && m_channels.remove(channel.getFile(), channel)) {
+                channel.close(getSync());
+                m_streamCount = Math.max(0, m_streamCount - 1);
+            }
+
+            m_streamCountMutex.notifyAll();
+        }
+    }
+
+    /**
+     * Close the pooled channel for the file
+     *
+     * @param file
+     */
+    public void closeChannel(File file) {
+        synchronized (m_streamCountMutex) {
+            final UndoChannel channel = m_channels.get(file);
+            if (channel == null) {
+                return;
+            }
+
+            if (channel.m_users > 0) {
+                channel.m_closeOnRelease = true;
+                return;
+            }
+
+            m_channels.remove(file);
+            channel.close(getSync());
+            m_streamCount = Math.max(0, m_streamCount - 1);
+            m_streamCountMutex.notifyAll();
+        }
+    }
+
     /**
      * The stream reference counter
      */
@@ -243,12 +463,7 @@ public class StreamProvider {
      */
     public void reserve() {
         synchronized (m_streamCountMutex) {
-            while (m_streamCount >= MAX_FILES) {
-                try {
-                    m_streamCountMutex.wait(1000);
-                } catch (InterruptedException ex) {
-                }
-            }
+            waitForHandle();
 
             m_streamCount++;
         }
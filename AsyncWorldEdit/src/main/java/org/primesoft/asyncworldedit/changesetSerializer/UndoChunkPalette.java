@@ -0,0 +1,174 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import java.util.Arrays;
+
+/**
+ * Per undo file chunk coordinates lookup table, maps packed chunk coordinates
+ * to small integer ids. The ids are stored in an open addressing table
+ * (linear probing) so the lookups do not box the coordinates.
+ *
+ * @author SBPrime
+ */
+public final class UndoChunkPalette {
+
+    /**
+     * Minimum size of the lookup table
+     */
+    private final static int MIN_CAPACITY = 16;
+
+    /**
+     * The chunk coordinates for each id
+     */
+    private long[] m_values = new long[MIN_CAPACITY];
+
+    /**
+     * The lookup table, stores id + 1 (0 is an empty slot)
+     */
+    private int[] m_table = new int[MIN_CAPACITY * 2];
+
+    /**
+     * Number of entries in the palette
+     */
+    private int m_size;
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Get the chunk id, add the chunk to the palette if needed
+     *
+     * @param chunk The packed chunk coordinates
+     * @return
+     */
+    public synchronized int getOrAdd(long chunk) {
+        final int mask = m_table.length - 1;
+        int idx = hash(chunk) & mask;
+
+        int slot;
+        while ((slot = m_table[idx]) != 0) {
+            if (m_values[slot - 1] == chunk) {
+                return slot - 1;
+            }
+
+            idx = (idx + 1) & mask;
+        }
+
+        final int id = m_size;
+        if (id == m_values.length) {
+            m_values = Arrays.copyOf(m_values, id * 2);
+        }
+
+        m_values[id] = chunk;
+        m_table[idx] = id + 1;
+        m_size++;
+
+        if (m_size * 2 > m_table.length) {
+            rehash(m_table.length * 2);
+        }
+
+        return id;
+    }
+
+    /**
+     * Rebuild the lookup table
+     *
+     * @param capacity The new table size
+     */
+    private void rehash(int capacity) {
+        final int[] table = new int[capacity];
+        final int mask = capacity - 1;
+
+        for (int id = 0; id < m_size; id++) {
+            int idx = hash(m_values[id]) & mask;
+            while (table[idx] != 0) {
+                idx = (idx + 1) & mask;
+            }
+
+            table[idx] = id + 1;
+        }
+
+        m_table = table;
+    }
+
+    /**
+     * Is the id known
+     *
+     * @param id
+     * @return
+     */
+    public synchronized boolean contains(int id) {
+        return id >= 0 && id < m_size;
+    }
+
+    /**
+     * Get the packed chunk coordinates for id
+     *
+     * @param id
+     * @return The chunk coordinates or 0 if the id is unknown
+     */
+    public synchronized long get(int id) {
+        if (id < 0 || id >= m_size) {
+            return 0;
+        }
+
+        return m_values[id];
+    }
+
+    /**
+     * Number of entries in the palette
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return m_size;
+    }
+}
@@ -48,15 +48,22 @@
 package org.primesoft.asyncworldedit.changesetSerializer;
 
 import com.sk89q.worldedit.history.change.Change;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
+import org.primesoft.asyncworldedit.utils.io.SegmentWriter;
+import org.primesoft.asyncworldedit.utils.io.VarInt;
 
 /**
  *
@@ -71,6 +78,56 @@ public class UndoDescriptor implements IMemoryStorage {
 
     private final Map<UUID, Change> m_memoryChanges = new ConcurrentHashMap<UUID, Change>();
 
+    /**
+     * The undo file format
+     */
+    private final int m_format;
+
+    /**
+     * The entry type names
+     */
+    private final UndoPalette<String> m_types = new UndoPalette<>();
+
+    /**
+     * The block states
+     */
+    private final UndoPalette<String> m_blocks = new UndoPalette<>();
+
+    /**
+     * The chunk coordinates
+     */
+    private final UndoChunkPalette m_chunks = new UndoChunkPalette();
+
+    /**
+     * Number of type names written to the undo file
+     */
+    private int m_typesSaved;
+
+    /**
+     * Number of block states written to the undo file
+     */
+    private int m_blocksSaved;
+
+    /**
+     * Number of chunk coordinates written to the undo file
+     */
+    private int m_chunksSaved;
+
+    /**
+     * The segment writer, kept open between the save batches
+     */
+    private SegmentWriter m_segments;
+
+    /**
+     * The index entries for the segment that is not yet written
+     */
+    private final ByteArrayOutputStream m_pendingIdx = new ByteArrayOutputStream();
+
+    /**
+     * The pending index entries stream
+     */
+    private final DataOutputStream m_pendingIdxStream = new DataOutputStream(m_pendingIdx);
+
     /**
      * The current entry IDX
      *
@@ -98,8 +155,201 @@ public class UndoDescriptor implements IMemoryStorage {
         return (++m_entryIdx);
     }
 
-    UndoDescriptor(File file) throws FileNotFoundException {
+    UndoDescriptor(File file, int format) throws FileNotFoundException {
         m_file = file;
+        m_format = format;
+    }
+
+    /**
+     * The undo file format
+     *
+     * @return
+     */
+    public int getFormat() {
+        return m_format;
+    }
+
+    /**
+     * Are the entries stored in compressed segments using the compact
+     * (palette based) entry format
+     *
+     * @return
+     */
+    public boolean isSegmented() {
+        return m_format == UndoEntry.FORMAT_SEGMENTED;
+    }
+
+    /**
+     * The entry type names palette
+     *
+     * @return
+     */
+    public UndoPalette<String> getTypes() {
+        return m_types;
+    }
+
+    /**
+     * The block states palette
+     *
+     * @return
+     */
+    public UndoPalette<String> getBlocks() {
+        return m_blocks;
+    }
+
+    /**
+     * The chunk coordinates palette
+     *
+     * @return
+     */
+    public UndoChunkPalette getChunks() {
+        return m_chunks;
+    }
+
+    /**
+     * Are there any palette entries that are not written to the undo file
+     *
+     * @return
+     */
+    boolean hasPaletteChanges() {
+        return m_types.size() != m_typesSaved
+                || m_blocks.size() != m_blocksSaved
+                || m_chunks.size() != m_chunksSaved;
+    }
+
+    /**
+     * Write the palette entries added since the last call. Each palette is
+     * stored as: first id, number of entries, entries
+     *
+     * @param stream
+     * @throws IOException
+     */
+    void savePalettes(DataOutput stream) throws IOException {
+        m_typesSaved = savePalette(stream, m_types, m_typesSaved);
+        m_blocksSaved = savePalette(stream, m_blocks, m_blocksSaved);
+
+        final int chunks = m_chunks.size();
+        VarInt.writeInt(stream, m_chunksSaved);
+        VarInt.writeInt(stream, chunks - m_chunksSaved);
+        for (int i = m_chunksSaved; i < chunks; i++) {
+            stream.writeLong(m_chunks.get(i));
+        }
+        m_chunksSaved = chunks;
+    }
+
+    private static int savePalette(DataOutput stream, UndoPalette<String> palette, int from) throws IOException {
+        final int size = palette.size();
+
+        VarInt.writeInt(stream, from);
+        VarInt.writeInt(stream, size - from);
+        for (int i = from; i < size; i++) {
+            stream.writeUTF(palette.get(i));
+        }
+
+        return size;
+    }
+
+    /**
+     * Read the palette entries written by savePalettes. Entries that are 
+     * already known are skipped.
+     *
+     * @param stream
+     * @throws IOException
+     */
+    void loadPalettes(DataInput stream) throws IOException {
+        m_typesSaved = loadPalette(stream, m_types);
+        m_blocksSaved = loadPalette(stream, m_blocks);
+
+        final int from = VarInt.readInt(stream);
+        final int count = VarInt.readInt(stream);
+        if (from > m_chunks.size()) {
+            throw new IOException("Missing chunk palette entries");
+        }
+        for (int i = 0; i < count; i++) {
+            final long chunk = stream.readLong();
+            if (from + i >= m_chunks.size()) {
+                m_chunks.getOrAdd(chunk);
+            }
+        }
+        m_chunksSaved = m_chunks.size();
+    }
+
+    private static int loadPalette(DataInput stream, UndoPalette<String> palette) throws IOException {
+        final int from = VarInt.readInt(stream);
+        final int count = VarInt.readInt(stream);
+        if (from > palette.size()) {
+            throw new IOException("Missing palette entries");
+        }
+
+        for (int i = 0; i < count; i++) {
+            final String value = stream.readUTF();
+            if (from + i >= palette.size()) {
+                palette.getOrAdd(value);
+            }
+        }
+
+        return palette.size();
+    }
+
+    /**
+     * Get the segment writer (MTA: mutex)
+     *
+     * @return The writer or null if not created
+     */
+    SegmentWriter getSegments() {
+        return m_segments;
+    }
+
+    /**
+     * Set the segment writer (MTA: mutex)
+     *
+     * @param segments
+     */
+    void setSegments(SegmentWriter segments) {
+        m_segments = segments;
+    }
+
+    /**
+     * The index entries stream for the segment that is not yet written
+     * (MTA: mutex)
+     *
+     * @return
+     */
+    DataOutput getPendingIndex() {
+        return m_pendingIdxStream;
+    }
+
+    /**
+     * Is there any data that is not written to the undo file (MTA: mutex)
+     *
+     * @return
+     */
+    boolean hasPendingSegment() {
+        return m_segments != null && m_pendingIdx.size() > 0;
+    }
+
+    /**
+     * Write the pending index entries to the output (MTA: mutex)
+     *
+     * @param out
+     * @throws IOException
+     */
+    void writePendingIndex(OutputStream out) throws IOException {
+        m_pendingIdxStream.flush();
+        m_pendingIdx.writeTo(out);
+        m_pendingIdx.reset();
+    }
+
+    /**
+     * Drop the pending segment and release the segment writer (MTA: mutex)
+     */
+    void releaseSegments() {
+        if (m_segments != null) {
+            m_segments.close();
+            m_segments = null;
+        }
+
+        m_pendingIdx.reset();
     }
 
     /**
@@ -162,7 +412,10 @@ public class UndoDescriptor implements IMemoryStorage {
     }
 
     void close() throws IOException {
-        m_isClosed = true;
+        synchronized (m_mutex) {
+            m_isClosed = true;
+            releaseSegments();
+        }
     }
 
     boolean isClosed() {
@@ -47,14 +47,18 @@
  */
 package org.primesoft.asyncworldedit.changesetSerializer;
 
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
 import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
 import org.primesoft.asyncworldedit.utils.io.UnsafeDataInput;
+import org.primesoft.asyncworldedit.utils.io.VarInt;
 
 /**
  *
@@ -62,8 +66,31 @@ import org.primesoft.asyncworldedit.utils.io.UnsafeDataInput;
  */
 public class UndoEntry implements IUndoEntry {
 
+    /**
+     * The original undo file format (no header, full type names)
+     */
+    public final static int FORMAT_LEGACY = 1;
+
+    /**
+     * The compact undo file format (type palette, variable length integers)
+     * stored in compressed segments. Format 2 (compact entries without
+     * segments) is no longer used.
+     */
+    public final static int FORMAT_SEGMENTED = 3;
+
+    /**
+     * The undo file header magic ("AWEU"), the legacy format always starts
+     * with the upper part of entry ID 0
+     */
+    private final static int MAGIC = 0x41574555;
+
     private final static int LONG_SIZE = 8;
     private final static int INT_SIZE = 4;
+    
+    /**
+     * The file header size (magic + format version)
+     */
+    public final static int HEADER_SIZE = INT_SIZE + 1;
     private final static Charset UTF8 = Charset.forName("UTF8");
 
     private final String m_type;
@@ -324,6 +351,124 @@ public class UndoEntry implements IUndoEntry {
         return new UndoEntry(new String(typeBytes, UTF8), data, id);
     }
 
+    /**
+     * Write the undo file header
+     *
+     * @param stream
+     * @param format
+     * @return Number of bytes written
+     * @throws IOException
+     */
+    static int writeHeader(DataOutput stream, int format) throws IOException {
+        if (format == FORMAT_LEGACY) {
+            return 0;
+        }
+
+        stream.writeInt(MAGIC);
+        stream.writeByte(format);
+
+        return HEADER_SIZE;
+    }
+
+    /**
+     * Detect the undo file format, the stream is positioned after the header
+     *
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    static int readHeader(IChunkCacheStream stream) throws IOException {
+        final long start = stream.getFilePointer();
+
+        if (stream.length() - start >= HEADER_SIZE && stream.readInt() == MAGIC) {
+            return stream.readUnsignedByte();
+        }
+
+        stream.seek(start, SeekOrigin.Begin);
+        return FORMAT_LEGACY;
+    }
+
+    /**
+     * Save the undo data to stream using the compact format
+     *
+     * @param stream
+     * @param entry
+     * @param types The type names palette
+     * @return Number of bytes written
+     * @throws IOException
+     */
+    public static int saveCompact(DataOutput stream, IUndoEntry entry, UndoPalette<String> types) throws IOException {
+        final byte[] data = entry.getData();
+        final long id = entry.getId() + 1; //The unset ID (-1) is stored as 0
+        final int type = types.getOrAdd(entry.getType());
+        final int dataLen = data.length;
+
+        VarInt.writeLong(stream, id);
+        VarInt.writeInt(stream, type);
+        VarInt.writeInt(stream, dataLen);
+        stream.write(data);
+
+        return getVarSize(id) + getVarSize(type) + getVarSize(dataLen) + dataLen;
+    }
+
+    /**
+     * Load the compact undo data from stream
+     *
+     * @param stream
+     * @param types The type names palette
+     * @return The entry or null if the end of the stream is reached
+     * @throws IOException
+     */
+    static UndoEntry loadCompact(IChunkCacheStream stream, UndoPalette<String> types) throws IOException {
+        if (stream.getFilePointer() >= stream.length()) {
+            return null;
+        }
+
+        try {
+            return loadCompact((DataInput) stream, types);
+        } catch (EOFException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Load the compact undo data from stream
+     *
+     * @param stream
+     * @param types The type names palette
+     * @return
+     * @throws IOException
+     */
+    public static UndoEntry loadCompact(DataInput stream, UndoPalette<String> types) throws IOException {
+        final long id = VarInt.readLong(stream) - 1;
+        final int type = VarInt.readInt(stream);
+        final int dataLen = VarInt.readInt(stream);
+
+        if (dataLen < 0) {
+            throw new IOException("Invalid undo entry length");
+        }
+
+        final byte[] data = new byte[dataLen];
+        stream.readFully(data);
+
+        return new UndoEntry(types.get(type), data, id);
+    }
+
+    /**
+     * Get the number of bytes used by a variable length number
+     *
+     * @param value
+     * @return
+     */
+    private static int getVarSize(long value) {
+        int result = 1;
+        while ((value >>>= 7) != 0) {
+            result++;
+        }
+
+        return result;
+    }
+
     @Override
     public long getId() {
         return m_id;
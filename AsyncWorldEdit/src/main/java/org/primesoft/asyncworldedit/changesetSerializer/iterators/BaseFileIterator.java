@@ -48,6 +48,7 @@
 package org.primesoft.asyncworldedit.changesetSerializer.iterators;
 
 import com.sk89q.worldedit.history.change.Change;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -58,7 +59,7 @@ import org.primesoft.asyncworldedit.api.inner.IInnerSerializerManager;
 import org.primesoft.asyncworldedit.api.utils.IDisposable;
 import org.primesoft.asyncworldedit.changesetSerializer.StreamProvider;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
-import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
+import org.primesoft.asyncworldedit.utils.io.MappedChunkStream;
 import org.primesoft.asyncworldedit.worldedit.history.changeset.ThreadSafeChangeSet;
 
 /**
@@ -84,6 +85,7 @@ public abstract class BaseFileIterator implements Iterator<Change>, ThreadSafeCh
     protected File m_file;
     protected RandomAccessFile m_stream;
     protected IChunkCacheStream m_dataStream;
+    protected int m_format;
     protected int m_storageSize;
     protected Change[] m_memoryChanges;
     protected IMemoryStorage m_memoryStorage;
@@ -113,14 +115,18 @@ public abstract class BaseFileIterator implements Iterator<Change>, ThreadSafeCh
         final StreamProvider sp = StreamProvider.getInstance();
         final RandomAccessFile stream;
         final IChunkCacheStream dataStream;
+        final int format;
+
+        m_changesetSerializer.flush(storageFile);
 
         sp.reserve();
         sp.addReference(storageFile);
 
         try {
             stream = new RandomAccessFile(storageFile, "r");
-            dataStream = new ChunkCacheStream(stream);
-
+            IChunkCacheStream fileStream = new MappedChunkStream(stream.getChannel());
+            format = m_changesetSerializer.readHeader(fileStream);
+            dataStream = m_changesetSerializer.getEntryStream(fileStream, format);
         } catch (IOException ex) {
             ExceptionHelper.printException(ex, String.format("Unable to create undo iterator for %1$s", storageFile.getName()));
 
@@ -141,6 +147,7 @@ public abstract class BaseFileIterator implements Iterator<Change>, ThreadSafeCh
             m_file = storageFile;
             m_stream = stream;
             m_dataStream = dataStream;
+            m_format = format;
             m_memoryStorage = m_changesetSerializer.getMemoryStorage(storageFile);
         }
 
@@ -175,6 +182,9 @@ public abstract class BaseFileIterator implements Iterator<Change>, ThreadSafeCh
             }
 
             try {
+                if (m_dataStream instanceof Closeable) {
+                    ((Closeable) m_dataStream).close();
+                }
                 m_stream.close();
             } catch (IOException ioe) {
 
@@ -210,7 +220,10 @@ public abstract class BaseFileIterator implements Iterator<Change>, ThreadSafeCh
         Change item;
 
         if (tmp < 0) {
-            item = readFromFile(m_position);
+            synchronized (m_mutex) {
+                //The mapped file can not be accessed after dispose
+                item = m_isDisposed ? null : readFromFile(m_position);
+            }
         } else if (tmp < m_memoryChanges.length) {
             item = getFromMemory(tmp);
         } else {
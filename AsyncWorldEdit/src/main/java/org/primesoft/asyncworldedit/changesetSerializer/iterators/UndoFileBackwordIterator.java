@@ -55,7 +55,7 @@ import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
 import org.primesoft.asyncworldedit.api.inner.IInnerSerializerManager;
 import org.primesoft.asyncworldedit.changesetSerializer.StreamProvider;
 import org.primesoft.asyncworldedit.api.io.SeekOrigin;
-import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
+import org.primesoft.asyncworldedit.utils.io.MappedChunkStream;
 import org.primesoft.asyncworldedit.utils.io.VarInt;
 
 /**
@@ -91,7 +91,7 @@ public class UndoFileBackwordIterator extends BaseFileIterator {
             return false;
         }
 
-        long pos = 0;
+        long pos;
         final File idxFile = new File(m_file.getPath() + ".idx");
         final StreamProvider sp = StreamProvider.getInstance();
         sp.reserve();
@@ -99,13 +99,18 @@ public class UndoFileBackwordIterator extends BaseFileIterator {
 
         RandomAccessFile inputStream = null;
         try {
+            pos = m_dataStream.getFilePointer();
             inputStream = new RandomAccessFile(idxFile, "r");
 
-            ChunkCacheStream io = new ChunkCacheStream(inputStream, 4, 0x10000);
+            MappedChunkStream io = new MappedChunkStream(inputStream.getChannel());
 
-            for (int i = 0; i < m_storageSize; i++) {
-                m_offsets[i] = pos;
-                pos += VarInt.readLong(io);
+            try {
+                for (int i = 0; i < m_storageSize; i++) {
+                    m_offsets[i] = pos;
+                    pos += VarInt.readLong(io);
+                }
+            } finally {
+                io.close();
             }
         } catch (IOException ioe) {
             dispose();
@@ -143,7 +148,7 @@ public class UndoFileBackwordIterator extends BaseFileIterator {
             while (id > position && m_offsetPos >= 0) {
                 m_dataStream.seek(m_offsets[m_offsetPos], SeekOrigin.Begin);
                 m_offsetPos--;
-                uEntry = m_changesetSerializer.load(m_dataStream);
+                uEntry = m_changesetSerializer.load(m_dataStream, m_format, m_memoryStorage);
                 if (uEntry == null) {
                     return null;
                 }
@@ -75,7 +75,7 @@ public class UndoFileForwardIterator extends BaseFileIterator {
             long id = -1;
             
             while (id < position) {
-                uEntry = m_changesetSerializer.load(m_dataStream);
+                uEntry = m_changesetSerializer.load(m_dataStream, m_format, m_memoryStorage);
                 if (uEntry == null) {
                     return null;
                 }
@@ -61,9 +61,12 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IChangesetSerializer;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
+import org.primesoft.asyncworldedit.changesetSerializer.UndoDescriptor;
+import org.primesoft.asyncworldedit.changesetSerializer.UndoPalette;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.utils.io.UnsafeDataInput;
 import org.primesoft.asyncworldedit.utils.io.UnsafeDataOutput;
+import org.primesoft.asyncworldedit.utils.io.VarInt;
 import org.primesoft.asyncworldedit.worldedit.blocks.BlockStates;
 import org.bukkit.Bukkit;
 
@@ -77,6 +80,33 @@ public class SerializerBlockChange implements IChangesetSerializer {
 
     private static final String CLASS_TYPE = BlockChange.class.getName();    
 
+    /**
+     * Compact block flag: the block is a block state
+     */
+    private final static int FLAG_STATE = 1;
+
+    /**
+     * Compact block flag: the block has NBT data
+     */
+    private final static int FLAG_NBT = 2;
+
+    private final static int FLAG_BITS = 2;
+
+    /**
+     * Get the compact storage
+     *
+     * @param storage
+     * @return The storage or null if the legacy format should be used
+     */
+    private static UndoDescriptor getCompact(IMemoryStorage storage) {
+        if (!(storage instanceof UndoDescriptor)) {
+            return null;
+        }
+
+        final UndoDescriptor descriptor = (UndoDescriptor) storage;
+        return descriptor.isSegmented() ? descriptor : null;
+    }
+
     @Override
     public boolean canSerialize(String type) {
         return (type != null) && type.equalsIgnoreCase(CLASS_TYPE);
@@ -106,6 +136,11 @@ public class SerializerBlockChange implements IChangesetSerializer {
             previous = BlockStates.AIR;
         }
 
+        final UndoDescriptor compact = getCompact(storage);
+        if (compact != null) {
+            return serializeCompact(compact, position, previous, current);
+        }
+
         try {
             UnsafeDataOutput stream = new UnsafeDataOutput();
 
@@ -129,6 +164,11 @@ public class SerializerBlockChange implements IChangesetSerializer {
             return null;
         }
 
+        final UndoDescriptor compact = getCompact(storage);
+        if (compact != null) {
+            return deserializeCompact(compact, data);
+        }
+
         try {
             UnsafeDataInput stream = new UnsafeDataInput(data);
 
@@ -146,6 +186,117 @@ public class SerializerBlockChange implements IChangesetSerializer {
         }
     }
 
+    /**
+     * Serialize the block change using the compact format. The position is
+     * stored as a chunk palette id followed by the chunk relative coordinates,
+     * the blocks are stored as block palette ids.
+     *
+     * @param descriptor
+     * @param position
+     * @param previous
+     * @param current
+     * @return
+     */
+    private byte[] serializeCompact(UndoDescriptor descriptor, BlockVector3 position,
+            BlockStateHolder previous, BlockStateHolder current) {
+        final int x = position.getBlockX();
+        final int y = position.getBlockY();
+        final int z = position.getBlockZ();
+        final long chunk = ((long) (x >> 4) << 32) | ((z >> 4) & 0xffffffffL);
+
+        try {
+            UnsafeDataOutput stream = new UnsafeDataOutput(16);
+
+            VarInt.writeInt(stream, descriptor.getChunks().getOrAdd(chunk));
+            stream.writeByte(((x & 0xf) << 4) | (z & 0xf));
+            VarInt.writeSignedInt(stream, y);
+
+            writeCompactBlock(stream, descriptor.getBlocks(), previous);
+            writeCompactBlock(stream, descriptor.getBlocks(), current);
+
+            return stream.toByteArray();
+        } catch (IOException ex) {
+            ExceptionHelper.printException(ex, "Unable to serialize BlockChange");
+            return null;
+        }
+    }
+
+    /**
+     * Deserialize the compact block change
+     *
+     * @param descriptor
+     * @param data
+     * @return
+     */
+    private Change deserializeCompact(UndoDescriptor descriptor, byte[] data) {
+        try {
+            UnsafeDataInput stream = new UnsafeDataInput(data);
+
+            final int chunkId = VarInt.readInt(stream);
+            if (!descriptor.getChunks().contains(chunkId)) {
+                return null;
+            }
+            final long chunk = descriptor.getChunks().get(chunkId);
+
+            final int xz = stream.readUnsignedByte();
+            final int x = ((int) (chunk >> 32) << 4) | (xz >> 4);
+            final int z = ((int) chunk << 4) | (xz & 0xf);
+            final int y = VarInt.readSignedInt(stream);
+
+            BlockStateHolder previous = readCompactBlock(stream, descriptor.getBlocks());
+            BlockStateHolder current = readCompactBlock(stream, descriptor.getBlocks());
+
+            return new BlockChange(BlockVector3.at(x, y, z), previous, current);
+        } catch (IOException ioe) {
+            ExceptionHelper.printException(ioe, "Unable to deserialize BlockChange");
+            return null;
+        }
+    }
+
+    /**
+     * Serialize block data using the block palette
+     *
+     * @param stream
+     * @param palette
+     * @param bsh
+     */
+    private void writeCompactBlock(DataOutput stream, UndoPalette<String> palette, BlockStateHolder bsh) throws IOException {
+        final boolean isBs = isBlockState(bsh);
+        final BaseBlock block = isBs ? null : bsh.toBaseBlock();
+        final String id = isBs ? bsh.getAsString() : block.toImmutableState().getAsString();
+        final boolean hasNbt = block != null && block.hasNbtData();
+
+        int flags = 0;
+        if (isBs) {
+            flags |= FLAG_STATE;
+        }
+        if (hasNbt) {
+            flags |= FLAG_NBT;
+        }
+
+        VarInt.writeInt(stream, (palette.getOrAdd(id) << FLAG_BITS) | flags);
+        if (hasNbt) {
+            NbtTagSerializer.serialize(stream, block.getNbtData());
+        }
+    }
+
+    private BlockStateHolder readCompactBlock(DataInput stream, UndoPalette<String> palette) throws IOException {
+        final int value = VarInt.readInt(stream);
+        final String id = palette.get(value >>> FLAG_BITS);
+        final BlockState state = id != null ? BlockFactory.getState(id) : null;
+
+        Tag nbtTag = (value & FLAG_NBT) != 0 ? NbtTagSerializer.deserialize(stream) : null;
+        if (state == null) {
+            return null;
+        }
+
+        if (nbtTag instanceof CompoundTag) {
+            return state.toBaseBlock((CompoundTag) nbtTag);
+        }
+
+        return (value & FLAG_STATE) != 0 ? state : state.toBaseBlock();
+    }
+
     /**
      * Serialize block data
      *
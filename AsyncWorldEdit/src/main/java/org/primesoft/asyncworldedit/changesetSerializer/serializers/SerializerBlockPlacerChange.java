@@ -55,6 +55,7 @@ import org.primesoft.asyncworldedit.api.changesetSerializer.IMemoryStorage;
 import org.primesoft.asyncworldedit.api.changesetSerializer.ISerializerManager;
 import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
 import org.primesoft.asyncworldedit.blockPlacer.BlockPlacerChange;
+import org.primesoft.asyncworldedit.changesetSerializer.UndoDescriptor;
 import org.primesoft.asyncworldedit.changesetSerializer.UndoEntry;
 import org.primesoft.asyncworldedit.utils.Compression;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
@@ -72,6 +73,21 @@ public class SerializerBlockPlacerChange implements IChangesetSerializer {
     private final IBlockPlacer m_blockPlacer;
     private final ISerializerManager m_serializerManager;
 
+    /**
+     * Get the compact storage
+     *
+     * @param storage
+     * @return The storage or null if the legacy format should be used
+     */
+    private static UndoDescriptor getCompact(IMemoryStorage storage) {
+        if (!(storage instanceof UndoDescriptor)) {
+            return null;
+        }
+
+        final UndoDescriptor descriptor = (UndoDescriptor) storage;
+        return descriptor.isSegmented() ? descriptor : null;
+    }
+
     public SerializerBlockPlacerChange(ISerializerManager serializerManager, IBlockPlacer blockPlacer) {
         m_blockPlacer = blockPlacer;
         m_serializerManager = serializerManager;
@@ -100,13 +116,22 @@ public class SerializerBlockPlacerChange implements IChangesetSerializer {
                 entry = m_serializerManager.serialize(subChange, storage);
             }
 
+            final UndoDescriptor compact = getCompact(storage);
             if (entry == null) {
                 stream.writeBoolean(false);
+            } else if (compact != null) {
+                stream.writeBoolean(true);
+                UndoEntry.saveCompact(stream, entry, compact.getTypes());
             } else {
                 stream.writeBoolean(true);
                 UndoEntry.save(stream, entry);
             }
 
+            if (compact != null) {
+                //The compact entries are too small to be compressed one by one
+                return stream.toByteArray();
+            }
+            
             return Compression.compress(stream.toByteArray());
         } catch (IOException ex) {
             ExceptionHelper.printException(ex, "Unable to serialize BlockPlacerChange");
@@ -117,7 +142,10 @@ public class SerializerBlockPlacerChange implements IChangesetSerializer {
     @Override
     public Change deserialize(byte[] data, IMemoryStorage storage) {
         try {
-            data = Compression.decompress(data);
+            final UndoDescriptor compact = getCompact(storage);
+            if (compact == null) {
+                data = Compression.decompress(data);
+            }
             
             UnsafeDataInput stream = new UnsafeDataInput(data);
 
@@ -125,7 +153,9 @@ public class SerializerBlockPlacerChange implements IChangesetSerializer {
 
             Change subChange = null;
             if (stream.readBoolean()) {
-                IUndoEntry subEntry = UndoEntry.load(stream);
+                IUndoEntry subEntry = compact != null
+                        ? UndoEntry.loadCompact(stream, compact.getTypes())
+                        : UndoEntry.load(stream);
                 subChange = m_serializerManager.deserialize(subEntry, storage);
             }
             
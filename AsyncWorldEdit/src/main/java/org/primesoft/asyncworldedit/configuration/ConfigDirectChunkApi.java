@@ -70,6 +70,16 @@ public class ConfigDirectChunkApi {
      */
     private final byte m_blockLight;
 
+    /**
+     * Number of relight worker threads
+     */
+    private final int m_relightThreads;
+
+    /**
+     * Maximum number of chunk packets sent to a player in one tick
+     */
+    private final int m_maxChunkPackets;
+
     /**
      * Automatically calculate the light level
      * @return 
@@ -94,22 +104,46 @@ public class ConfigDirectChunkApi {
         return m_blockLight;
     }
 
+    /**
+     * Number of relight worker threads
+     * @return 
+     */
+    public int getRelightThreads() {
+        return m_relightThreads;
+    }
+
+    /**
+     * Maximum number of chunk packets sent to a player in one tick, 0 for
+     * no limit
+     * @return 
+     */
+    public int getMaxChunkPackets() {
+        return m_maxChunkPackets;
+    }
+
     public ConfigDirectChunkApi(IConfigurationSection section) {
         boolean autoRelight;
-        int sectionLight, blockLight;
+        int sectionLight, blockLight, relightThreads, maxChunkPackets;
 
         if (section == null) {
             autoRelight = true;
             sectionLight = 0;
             blockLight = -1;
+            relightThreads = 0;
+            maxChunkPackets = 32;
         } else {
             autoRelight = section.getBoolean("autoRelight", true);
             sectionLight = section.getInt("newSectionLightLevel", 0);
             blockLight = section.getInt("blockLightLevel", -1);
+            relightThreads = section.getInt("relightThreads", 0);
+            maxChunkPackets = section.getInt("maxChunkPacketsPerTick", 32);
         }
 
         m_autoRelight = autoRelight;
         m_sectionLight = (byte) Math.min(15, Math.max(sectionLight, 0));
         m_blockLight = (byte) Math.min(15, Math.max(blockLight, -1));
+        m_relightThreads = relightThreads > 0 ? relightThreads
+                : Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        m_maxChunkPackets = Math.max(0, maxChunkPackets);
     }
 }
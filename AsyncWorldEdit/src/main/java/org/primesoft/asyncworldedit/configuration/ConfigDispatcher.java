@@ -71,6 +71,11 @@ public class ConfigDispatcher {
      */
     private int m_maxTime;
 
+    /**
+     * Number of chunks loaded ahead of the region iterators
+     */
+    private int m_prefetchDistance;
+
     public int getMaxIdle() {
         return m_maxIdle;
     }
@@ -83,15 +88,26 @@ public class ConfigDispatcher {
         return m_maxTime;
     }
 
+    /**
+     * Number of chunks loaded ahead of the region iterators, 0 disables the
+     * prefetch
+     * @return 
+     */
+    public int getPrefetchDistance() {
+        return m_prefetchDistance;
+    }
+
     public ConfigDispatcher(IConfigurationSection dSection) {
         if (dSection == null) {
             m_maxIdle = 200;
             m_maxJobs = 2000;
             m_maxTime = 20;
+            m_prefetchDistance = 8;
         } else {
             m_maxIdle = dSection.getInt("max-idle-runs", 200);
             m_maxJobs = dSection.getInt("max-jobs", 2000);
             m_maxTime = dSection.getInt("max-time", 20);
+            m_prefetchDistance = Math.max(0, dSection.getInt("prefetch-distance", 8));
         }
 
         if (m_maxTime < 1) {
@@ -62,6 +62,11 @@ public class ConfigMemory {
 
     private final long m_gcTimeout;
 
+    /**
+     * The block snapshot cache size (in kilobytes) for each edit session
+     */
+    private final long m_snapshotCacheSize;
+
     public long getMinMemoryHard() {
         return m_minMemoryHard;
     }
@@ -74,15 +79,26 @@ public class ConfigMemory {
         return m_gcTimeout;
     }
 
+    /**
+     * The block snapshot cache size (in kilobytes) for each edit session,
+     * 0 disables the cache
+     * @return 
+     */
+    public long getSnapshotCacheSize() {
+        return m_snapshotCacheSize;
+    }
+
     ConfigMemory(IConfigurationSection memorySection) {
         if (memorySection == null) {
             m_minMemoryHard = 200000;
             m_minMemorySoft = 400000;
             m_gcTimeout = 10000;
+            m_snapshotCacheSize = 8192;
         } else {
             m_minMemoryHard = memorySection.getLong("minimumHard", 200000);
             m_minMemorySoft = memorySection.getLong("minimumSoft", 400000);
             m_gcTimeout = memorySection.getLong("gcTimeout", 10000);
+            m_snapshotCacheSize = Math.max(0, memorySection.getLong("snapshotCacheSize", 8192));
         }
 
         if (m_minMemorySoft < m_minMemoryHard) {
@@ -0,0 +1,135 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.configuration;
+
+import org.primesoft.asyncworldedit.platform.api.IConfigurationSection;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class ConfigParallel {
+
+    /**
+     * Is the parallel region mode enabled
+     */
+    private final boolean m_isEnabled;
+
+    /**
+     * Number of region worker threads
+     */
+    private final int m_threads;
+
+    /**
+     * Minimum region volume processed in parallel
+     */
+    private final long m_minVolume;
+
+    /**
+     * Maximum number of changes buffered by a slab
+     */
+    private final int m_maxPending;
+
+    /**
+     * Is the parallel region mode enabled
+     * @return 
+     */
+    public boolean isEnabled() {
+        return m_isEnabled;
+    }
+
+    /**
+     * Number of region worker threads
+     * @return 
+     */
+    public int getThreads() {
+        return m_threads;
+    }
+
+    /**
+     * Minimum region volume (in blocks) processed in parallel
+     * @return 
+     */
+    public long getMinVolume() {
+        return m_minVolume;
+    }
+
+    /**
+     * Maximum number of changes buffered by a slab waiting for the previous
+     * slabs
+     * @return 
+     */
+    public int getMaxPending() {
+        return m_maxPending;
+    }
+
+    ConfigParallel(IConfigurationSection section) {
+        boolean isEnabled;
+        int threads;
+        long minVolume;
+        int maxPending;
+
+        if (section == null) {
+            isEnabled = false;
+            threads = 0;
+            minVolume = 65536;
+            maxPending = 16384;
+        } else {
+            isEnabled = section.getBoolean("enabled", false);
+            threads = section.getInt("threads", 0);
+            minVolume = section.getLong("min-volume", 65536);
+            maxPending = section.getInt("max-pending", 16384);
+        }
+
+        m_threads = threads > 0 ? threads
+                : Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+        m_isEnabled = isEnabled && m_threads > 1;
+        m_minVolume = Math.max(0, minVolume);
+        m_maxPending = Math.max(1, maxPending);
+    }
+}
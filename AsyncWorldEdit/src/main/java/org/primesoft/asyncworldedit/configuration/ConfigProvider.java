@@ -137,6 +137,11 @@ public class ConfigProvider {
      */
     private static ConfigMessages m_configMessages;
     
+    /**
+     * The parallel region operations configuration
+     */
+    private static ConfigParallel m_configParallel;
+    
     /**
      * The undo folder
      */
@@ -228,6 +233,14 @@ public class ConfigProvider {
         return m_configDCApi;
     }
     
+    /**
+     * Get the parallel region operations configuration
+     * @return 
+     */
+    public static ConfigParallel parallel() {
+        return m_configParallel;
+    }
+    
     /**
      * Get the renderer configuration
      * @return 
@@ -371,6 +384,7 @@ public class ConfigProvider {
         m_configPermission = new ConfigPermission(mainSection.getConfigurationSection("permissions"));
         m_configUndo = new ConfigUndo(mainSection.getConfigurationSection("undo"));
         m_configMessages = new ConfigMessages(mainSection.getConfigurationSection("messages"));
+        m_configParallel = new ConfigParallel(mainSection.getConfigurationSection("parallel"));
         
         parseGroupsSection(mainSection.getConfigurationSection("permissionGroups"));        
         m_disabledOperations = parseOperationsSection(mainSection);
@@ -67,6 +67,18 @@ public class ConfigRenderer {
     private final int m_cooldown;
     
     private final int m_bpsAverage;
+    
+    private final boolean m_batchMode;
+    
+    private final int m_batchSize;
+    
+    private final boolean m_adaptiveBudget;
+    
+    private final int m_adaptiveTarget;
+    
+    private final int m_adaptiveMinTime;
+    
+    private final int m_adaptiveMaxTime;
 
     /**
      * Get maximum size of the queue
@@ -101,6 +113,54 @@ public class ConfigRenderer {
     public int bpsAveragePoints() {
         return m_bpsAverage;
     }
+    
+    /**
+     * Is the chunk section batched block queue enabled
+     * @return 
+     */
+    public boolean isBatchModeEnabled() {
+        return m_batchMode;
+    }
+    
+    /**
+     * Maximum number of blocks in one section batch
+     * @return 
+     */
+    public int getBatchSize() {
+        return m_batchSize;
+    }
+    
+    /**
+     * Is the adaptive block placing time budget enabled
+     * @return 
+     */
+    public boolean isAdaptiveBudgetEnabled() {
+        return m_adaptiveBudget;
+    }
+    
+    /**
+     * The server tick time (ms) the adaptive budget tries to keep
+     * @return 
+     */
+    public int getAdaptiveTargetTickTime() {
+        return m_adaptiveTarget;
+    }
+    
+    /**
+     * Minimum adaptive block placing time per tick (ms)
+     * @return 
+     */
+    public int getAdaptiveMinTime() {
+        return m_adaptiveMinTime;
+    }
+    
+    /**
+     * Maximum adaptive block placing time per tick (ms)
+     * @return 
+     */
+    public int getAdaptiveMaxTime() {
+        return m_adaptiveMaxTime;
+    }
 
     public ConfigRenderer(IConfigurationSection renderSection) {
         if (renderSection == null) {
@@ -110,6 +170,12 @@ public class ConfigRenderer {
             m_queueMaxSizeHard = 10000000;
             m_queueMaxSizeSoft = 5000000;
             m_bpsAverage = 5;
+            m_batchMode = false;
+            m_batchSize = 4096;
+            m_adaptiveBudget = false;
+            m_adaptiveTarget = 45;
+            m_adaptiveMinTime = 1;
+            m_adaptiveMaxTime = 40;
         } else {
             m_interval = renderSection.getInt("interval", 15);
             m_queueTalkInterval = renderSection.getInt("talk-interval", 10);
@@ -117,6 +183,12 @@ public class ConfigRenderer {
             m_queueMaxSizeHard = renderSection.getInt("queue-max-size-hard", 10000000);
             m_queueMaxSizeSoft = renderSection.getInt("queue-max-size-soft", 5000000);
             m_bpsAverage = renderSection.getInt("bps-avg-data-points", 5);
+            m_batchMode = renderSection.getBoolean("batch-mode", false);
+            m_batchSize = Math.max(1, Math.min(4096, renderSection.getInt("batch-size", 4096)));
+            m_adaptiveBudget = renderSection.getBoolean("adaptive-budget", false);
+            m_adaptiveTarget = renderSection.getInt("adaptive-target-mspt", 45);
+            m_adaptiveMinTime = Math.max(0, renderSection.getInt("adaptive-min-time", 1));
+            m_adaptiveMaxTime = Math.max(m_adaptiveMinTime, renderSection.getInt("adaptive-max-time", 40));
 
             if (m_bpsAverage < 2) {
                 log("Warinig: Not enough data points to properly calculate the BPS. Value: " + m_bpsAverage + " minimum: 2");
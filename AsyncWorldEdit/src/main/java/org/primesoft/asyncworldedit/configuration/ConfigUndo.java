@@ -63,6 +63,13 @@ public class ConfigUndo {
     private final int m_keepSessionOnLogoutFor;
     private final int m_keepUndoFileFor;
     private final int m_undoFileCleanupInterval;
+    private final UndoCompression m_compression;
+    private final int m_compressionLevel;
+    private final int m_segmentSize;
+    private final UndoSync m_sync;
+    private final int m_maxOpenFiles;
+    private final int m_saveThreads;
+    private final int m_maxQueuedSize;
 
     public UndoBehaviour getMainBehaviour() {
         return m_undoMain;
@@ -91,6 +98,67 @@ public class ConfigUndo {
     public int keepUndoFileFor() {
         return m_keepUndoFileFor;
     }
+    
+    /**
+     * The undo file compression codec
+     * @return 
+     */
+    public UndoCompression getCompression() {
+        return m_compression;
+    }
+    
+    /**
+     * The compression level (1 - fastest, 9 - best compression)
+     * @return 
+     */
+    public int getCompressionLevel() {
+        return m_compressionLevel;
+    }
+    
+    /**
+     * The uncompressed size of a single undo file segment (in bytes)
+     * @return 
+     */
+    public int getSegmentSize() {
+        return m_segmentSize;
+    }
+    
+    /**
+     * When the undo file writes are synchronized with the disk
+     * @return 
+     */
+    public UndoSync getSync() {
+        return m_sync;
+    }
+    
+    /**
+     * The maximum number of undo files opened at the same time
+     * @return 
+     */
+    public int getMaxOpenFiles() {
+        return m_maxOpenFiles;
+    }
+    
+    /**
+     * The number of threads used to save the undo files
+     * @return 
+     */
+    public int getSaveThreads() {
+        if (m_saveThreads > 0) {
+            return m_saveThreads;
+        }
+        
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    }
+    
+    /**
+     * The maximum size of the changes waiting to be saved (in kilobytes),
+     * 0 - no limit
+     * @return 
+     */
+    public int getMaxQueuedSize() {
+        return m_maxQueuedSize;
+    }
 
 
     ConfigUndo(IConfigurationSection secUndo) {
@@ -102,11 +170,25 @@ public class ConfigUndo {
             m_keepSessionOnLogoutFor = 0;
             m_undoFileCleanupInterval = 30;
             m_keepUndoFileFor = 0;
+            m_compression = UndoCompression.Deflate;
+            m_compressionLevel = 1;
+            m_segmentSize = 262144;
+            m_sync = UndoSync.None;
+            m_maxOpenFiles = 64;
+            m_saveThreads = 0;
+            m_maxQueuedSize = 65536;
         } else {
             m_storeOnDisk = secUndo.getBoolean("storeOnDisk", true);
             m_keepSessionOnLogoutFor = secUndo.getInt("keepSessionOnLogoutFor", 0);
             m_undoFileCleanupInterval = secUndo.getInt("undoFileCleanupInterval", 30);
             m_keepUndoFileFor = secUndo.getInt("keepUndoFileFor", 0);
+            m_compressionLevel = Math.max(1, Math.min(9, secUndo.getInt("compressionLevel", 1)));
+            m_segmentSize = Math.max(4096, secUndo.getInt("segmentSize", 262144));
+            m_compression = parseCompression(secUndo.getString("compression", null), UndoCompression.Deflate);
+            m_sync = parseSync(secUndo.getString("sync", null), UndoSync.None);
+            m_maxOpenFiles = Math.max(4, secUndo.getInt("maxOpenFiles", 64));
+            m_saveThreads = Math.max(0, secUndo.getInt("saveThreads", 0));
+            m_maxQueuedSize = Math.max(0, secUndo.getInt("maxQueuedSize", 65536));
             
             m_undoAsync = parse(secUndo.getString("memoryLow", null), UndoBehaviour.Wait);
             UndoBehaviour uLoad = parse(secUndo.getString("memoryLowStorage", null), UndoBehaviour.Wait);
@@ -131,6 +213,36 @@ public class ConfigUndo {
         }
     }
 
+    private UndoCompression parseCompression(String value, UndoCompression defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        
+        for (UndoCompression i : UndoCompression.values()) {
+            if (i.name().equalsIgnoreCase(value)) {
+                return i;
+            }
+        }
+        
+        log(String.format("WARNING: Unknown undo compression %1$s", value));
+        return defaultValue;
+    }
+
+    private UndoSync parseSync(String value, UndoSync defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        
+        for (UndoSync i : UndoSync.values()) {
+            if (i.name().equalsIgnoreCase(value)) {
+                return i;
+            }
+        }
+        
+        log(String.format("WARNING: Unknown undo sync mode %1$s", value));
+        return defaultValue;
+    }
+
     private UndoBehaviour parse(String value, UndoBehaviour defaultValue) {
         if (value == null) {
             return defaultValue;
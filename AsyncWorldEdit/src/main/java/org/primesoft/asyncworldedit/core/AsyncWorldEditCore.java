@@ -80,6 +80,7 @@ import org.primesoft.asyncworldedit.api.playerManager.IPlayerManager;
 import org.primesoft.asyncworldedit.api.progressDisplay.IProgressDisplayManager;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.adapter.AdapterProvider;
+import org.primesoft.asyncworldedit.asyncinjector.async.ParallelRegionProcessor;
 import org.primesoft.asyncworldedit.api.IAweOperations;
 import org.primesoft.asyncworldedit.api.changesetSerializer.ISerializerManager;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
@@ -102,6 +103,7 @@ import org.primesoft.asyncworldedit.api.inner.IMessageProvider;
 import org.primesoft.asyncworldedit.blockshub.BlocksHubBridge;
 import org.primesoft.asyncworldedit.progressDisplay.ProgressDisplayManager;
 import org.primesoft.asyncworldedit.versionChecker.VersionChecker;
+import org.primesoft.asyncworldedit.worldedit.history.changeset.FileChangeSetManager;
 
 /**
  * The plugin main class
@@ -404,6 +406,7 @@ public abstract class AsyncWorldEditCore implements IAsyncWorldEditCore, IAweOpe
     private void initializeConfig() {
         m_blockPlacer.loadConfig();
         m_cron.loadConfig();
+        FileChangeSetManager.loadConfig();
         if (ConfigProvider.physicsFreeze().isEnabled()) {
             m_platform.getPhysicsWatcher().enable(ConfigProvider.physicsFreeze()::shouldFreeze);
         } else {
@@ -435,6 +438,8 @@ public abstract class AsyncWorldEditCore implements IAsyncWorldEditCore, IAweOpe
             m_blockPlacer.stop();
             m_cron.stop();
             m_dispatcher.stop();
+            ParallelRegionProcessor.stop();
+            FileChangeSetManager.stop();
 
             IInnerDirectChunkAPI dcApi = getInnerDirectChunkAPI();
             IBlockRelighter bRelighter = dcApi != null ? dcApi.getBlockRelighter() : null;
@@ -51,7 +51,7 @@ import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
-import org.primesoft.asyncworldedit.utils.InOutParam;
+import org.primesoft.asyncworldedit.utils.StripedChunkLock;
 
 /**
  * This class suppresses chunk unloading
@@ -95,14 +95,18 @@ public abstract class ChunkWatch implements IChunkWatch {
     public void add(int cx, int cz, String worldName) {        
         final long chunk = encode(cx, cz);
         final WorldEntry worldEntry = getEntry(worldName);
-        worldEntry.Watched.compute(chunk, (_chunk, value) -> {
+        
+        worldEntry.Locks.lockChunk(cx, cz);
+        try {
+            Integer value = worldEntry.Watched.get(chunk);
+            worldEntry.Watched.put(chunk, value == null ? 1 : value + 1);
+            
             if (value == null) {
                 forceloadOn(worldName, cx, cz);
-                return 1;
             }
-
-            return value + 1;
-        });
+        } finally {
+            worldEntry.Locks.unlockChunk(cx, cz);
+        }
     }
 
     /**
@@ -117,20 +121,22 @@ public abstract class ChunkWatch implements IChunkWatch {
         final WorldEntry worldEntry = getEntry(worldName);
         final long chunk = encode(cx, cz);
         
-        worldEntry.Watched.computeIfPresent(chunk, (_chunk, value) -> {            
+        worldEntry.Locks.lockChunk(cx, cz);
+        try {
+            Integer value = worldEntry.Watched.get(chunk);
             if (value == null) {
-                return null;
+                return;
             }
-
-            value = value - 1;
-            try {
-                return value <= 0 ? null : value;
-            } finally {
-                if (value <= 0) {
-                    forceloadOff(worldName, cx, cz);
-                }
+            
+            if (value > 1) {
+                worldEntry.Watched.put(chunk, value - 1);
+            } else {
+                worldEntry.Watched.remove(chunk);
+                forceloadOff(worldName, cx, cz);
             }
-        });        
+        } finally {
+            worldEntry.Locks.unlockChunk(cx, cz);
+        }
     }
 
     protected final int getReferences(String worldName, int cx, int cz) {
@@ -151,21 +157,24 @@ public abstract class ChunkWatch implements IChunkWatch {
     public boolean chunkUnloading(String worldName, int cx, int cz) {
         final WorldEntry worldEntry = getEntry(worldName);
         final long chunk = encode(cx, cz);
-        final InOutParam<Boolean> result = InOutParam.Ref(false);
         
-        worldEntry.Watched.computeIfPresent(chunk, (_chunk, value) -> {
+        worldEntry.Locks.lockChunk(cx, cz);
+        try {
+            Integer value = worldEntry.Watched.get(chunk);
             boolean cancel = value != null && value > 0;
             
             if (cancel && supportUnloadCancel()) {
-                result.setValue(true);
-            } else {
+                return true;
+            }
+            
+            if (value != null) {
                 worldEntry.Loaded.remove(chunk);
             }
-
-            return value;
-        });
-
-        return result.getValue();
+            
+            return false;
+        } finally {
+            worldEntry.Locks.unlockChunk(cx, cz);
+        }
     }
 
     /**
@@ -247,5 +256,11 @@ public abstract class ChunkWatch implements IChunkWatch {
          * Suppressed chunks
          */
         public final Map<Long, Integer> Watched = new ConcurrentHashMap<>();
+        
+        /**
+         * The chunk locks, used to keep the watch counter and the 
+         * forceload state in sync
+         */
+        public final StripedChunkLock Locks = new StripedChunkLock();
     }
 }
@@ -69,6 +69,7 @@ import org.primesoft.asyncworldedit.platform.api.IScheduler;
 import org.primesoft.asyncworldedit.platform.api.ITask;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.utils.InOutParam;
+import org.primesoft.asyncworldedit.worldedit.regions.ChunkPrefetcher;
 
 /**
  *
@@ -179,6 +180,8 @@ public final class Cron implements ICron {
                     .forEach(i -> integrator.removeSession(i));
         }
 
+        ChunkPrefetcher.releaseAbandoned();
+
         ConfigUndo undoConfig = ConfigProvider.undo();
         if (undoConfig != null && ((now - m_lastUndoScann) / 60000.0) > undoConfig.undoFileCleanupInterval()) {
             m_lastUndoScann = now;
@@ -0,0 +1,387 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The chunk forceload tickets. The tickets are issued and released from any
+ * thread, the forceload state is changed only in the main thread tick. The
+ * released chunks are kept force loaded for the hold time using a hashed timer
+ * wheel and the chunk loads are limited per tick.
+ *
+ * When there are no ticket changes, loads or expiring tickets the tick does
+ * not do any work.
+ *
+ * @author SBPrime
+ */
+public abstract class ForceloadTicketManager {
+
+    /**
+     * The ticket is waiting for the chunk to be force loaded
+     */
+    private final static int QUEUED = 0;
+
+    /**
+     * The chunk is force loaded
+     */
+    private final static int FORCED = 1;
+
+    /**
+     * The ticket was released, the chunk is force loaded until the deadline
+     */
+    private final static int RELEASED = 2;
+
+    /**
+     * The ticket is no longer valid
+     */
+    private final static int DROPPED = 3;
+
+    /**
+     * The ticket changes waiting for the main thread
+     */
+    private final Queue<Operation> m_operations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The active tickets (main thread only)
+     */
+    private final Map<String, Map<Long, Ticket>> m_tickets = new HashMap<>();
+
+    /**
+     * The tickets waiting for the chunk to be force loaded (main thread only)
+     */
+    private final Queue<Ticket> m_loadQueue = new ArrayDeque<>();
+
+    /**
+     * The expiry timer wheel (main thread only)
+     */
+    private final List<Ticket>[] m_wheel;
+
+    /**
+     * Number of ticks the chunk is kept after the ticket is released
+     */
+    private final int m_holdTicks;
+
+    /**
+     * Maximum number of chunks force loaded in a single tick
+     */
+    private final int m_loadsPerTick;
+
+    /**
+     * Number of tickets in the timer wheel (main thread only)
+     */
+    private int m_expiring;
+
+    /**
+     * The current tick (main thread only)
+     */
+    private long m_tick;
+
+    @SuppressWarnings("unchecked")
+    protected ForceloadTicketManager(int holdTicks, int loadsPerTick) {
+        m_holdTicks = Math.max(1, holdTicks);
+        m_loadsPerTick = Math.max(1, loadsPerTick);
+
+        int size = 1;
+        while (size <= m_holdTicks) {
+            size <<= 1;
+        }
+        m_wheel = new List[size];
+    }
+
+    /**
+     * Request the chunk to be force loaded
+     *
+     * @param world
+     * @param cx
+     * @param cz
+     */
+    public void issue(String world, int cx, int cz) {
+        m_operations.add(new Operation(world, cx, cz, true));
+    }
+
+    /**
+     * Release the chunk force load request
+     *
+     * @param world
+     * @param cx
+     * @param cz
+     */
+    public void release(String world, int cx, int cz) {
+        m_operations.add(new Operation(world, cx, cz, false));
+    }
+
+    /**
+     * Process the ticket changes, the chunk loads and the expired tickets. Needs
+     * to be called every tick from the main thread.
+     */
+    public void tick() {
+        final long tick = ++m_tick;
+
+        Operation operation;
+        while ((operation = m_operations.poll()) != null) {
+            if (operation.issue) {
+                doIssue(operation);
+            } else {
+                doRelease(operation, tick);
+            }
+        }
+
+        if (m_expiring > 0) {
+            processExpired(tick);
+        }
+
+        if (!m_loadQueue.isEmpty()) {
+            processLoads();
+        }
+    }
+
+    /**
+     * Remove all the tickets and the chunk force loads. Needs to be called
+     * from the main thread.
+     */
+    public void clear() {
+        m_operations.clear();
+        m_loadQueue.clear();
+
+        for (int i = 0; i < m_wheel.length; i++) {
+            m_wheel[i] = null;
+        }
+        m_expiring = 0;
+
+        for (Map.Entry<String, Map<Long, Ticket>> entry : m_tickets.entrySet()) {
+            final String world = entry.getKey();
+
+            for (Ticket ticket : entry.getValue().values()) {
+                if (ticket.state == FORCED || ticket.state == RELEASED) {
+                    setForceLoaded(world, ticket.cx, ticket.cz, false);
+                }
+                ticket.state = DROPPED;
+            }
+        }
+        m_tickets.clear();
+    }
+
+    /**
+     * Get the number of active tickets (main thread only)
+     *
+     * @return
+     */
+    public int getTicketCount() {
+        int result = 0;
+        for (Map<Long, Ticket> tickets : m_tickets.values()) {
+            result += tickets.size();
+        }
+
+        return result;
+    }
+
+    /**
+     * Change the chunk force load state
+     *
+     * @param world
+     * @param cx
+     * @param cz
+     * @param forceLoaded
+     * @return false if the world is not loaded
+     */
+    protected abstract boolean setForceLoaded(String world, int cx, int cz, boolean forceLoaded);
+
+    private static long encode(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
+    private void doIssue(Operation operation) {
+        final Map<Long, Ticket> tickets = m_tickets.computeIfAbsent(operation.world, _w -> new HashMap<>());
+        final long key = encode(operation.cx, operation.cz);
+        final Ticket ticket = tickets.get(key);
+
+        if (ticket == null) {
+            final Ticket newTicket = new Ticket(operation.world, operation.cx, operation.cz);
+            tickets.put(key, newTicket);
+            m_loadQueue.add(newTicket);
+        } else if (ticket.state == RELEASED) {
+            ticket.state = FORCED;
+        }
+    }
+
+    private void doRelease(Operation operation, long tick) {
+        final Map<Long, Ticket> tickets = m_tickets.get(operation.world);
+        final long key = encode(operation.cx, operation.cz);
+        final Ticket ticket = tickets != null ? tickets.get(key) : null;
+
+        if (ticket == null) {
+            return;
+        }
+
+        if (ticket.state == QUEUED) {
+            ticket.state = DROPPED;
+            tickets.remove(key);
+        } else if (ticket.state == FORCED) {
+            ticket.state = RELEASED;
+            ticket.deadline = tick + m_holdTicks;
+
+            final int slot = (int) (ticket.deadline & (m_wheel.length - 1));
+            List<Ticket> bucket = m_wheel[slot];
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                m_wheel[slot] = bucket;
+            }
+            bucket.add(ticket);
+            m_expiring++;
+        }
+    }
+
+    /**
+     * Process the timer wheel slot for the current tick. The wheel is larger
+     * than the hold time so all the tickets in the slot are due or were issued
+     * again.
+     *
+     * @param tick
+     */
+    private void processExpired(long tick) {
+        final int slot = (int) (tick & (m_wheel.length - 1));
+        final List<Ticket> bucket = m_wheel[slot];
+        if (bucket == null) {
+            return;
+        }
+
+        m_wheel[slot] = null;
+        m_expiring -= bucket.size();
+
+        for (Ticket ticket : bucket) {
+            if (ticket.state != RELEASED || ticket.deadline != tick) {
+                continue;
+            }
+
+            ticket.state = DROPPED;
+            setForceLoaded(ticket.world, ticket.cx, ticket.cz, false);
+
+            final Map<Long, Ticket> tickets = m_tickets.get(ticket.world);
+            if (tickets != null) {
+                tickets.remove(encode(ticket.cx, ticket.cz));
+                if (tickets.isEmpty()) {
+                    m_tickets.remove(ticket.world);
+                }
+            }
+        }
+    }
+
+    /**
+     * Force load the queued chunks, limited to the loads per tick
+     */
+    private void processLoads() {
+        int loads = 0;
+
+        while (loads < m_loadsPerTick) {
+            final Ticket ticket = m_loadQueue.poll();
+            if (ticket == null) {
+                return;
+            }
+
+            if (ticket.state != QUEUED) {
+                continue;
+            }
+
+            loads++;
+            if (setForceLoaded(ticket.world, ticket.cx, ticket.cz, true)) {
+                ticket.state = FORCED;
+            } else {
+                ticket.state = DROPPED;
+
+                final Map<Long, Ticket> tickets = m_tickets.get(ticket.world);
+                if (tickets != null) {
+                    tickets.remove(encode(ticket.cx, ticket.cz));
+                }
+            }
+        }
+    }
+
+    /**
+     * The ticket change
+     */
+    private static class Operation {
+
+        public final String world;
+        public final int cx;
+        public final int cz;
+        public final boolean issue;
+
+        public Operation(String world, int cx, int cz, boolean issue) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+            this.issue = issue;
+        }
+    }
+
+    /**
+     * The chunk ticket
+     */
+    private static class Ticket {
+
+        public final String world;
+        public final int cx;
+        public final int cz;
+
+        public int state = QUEUED;
+        public long deadline;
+
+        public Ticket(String world, int cx, int cz) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+        }
+    }
+}
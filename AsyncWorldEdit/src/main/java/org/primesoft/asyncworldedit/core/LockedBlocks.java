@@ -0,0 +1,335 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import static org.primesoft.asyncworldedit.utils.PositionHelper.sectionKey;
+
+/**
+ * The locked blocks index of a single world. Blocks are grouped by chunk 
+ * section, each section stores a bitset of locked blocks and (only when needed)
+ * the additional reference counts.
+ * 
+ * Reads are lock free and do not allocate. Writes need to be done while
+ * holding the instance monitor.
+ *
+ * @author SBPrime
+ */
+final class LockedBlocks {
+    /**
+     * Minimum size of the sections table
+     */
+    private final static int MIN_CAPACITY = 16;
+    
+    /**
+     * Number of longs in the section bitset
+     */
+    private final static int SECTION_WORDS = 4096 / 64;
+    
+    /**
+     * The chunk section entry
+     */
+    private final static class Section {
+        private final long m_key;
+        
+        private final AtomicLongArray m_bits = new AtomicLongArray(SECTION_WORDS);
+        
+        /**
+         * Additional references (reference count - 1), allocated on first use
+         */
+        private int[] m_extra;
+        
+        /**
+         * Number of locked blocks
+         */
+        private int m_count;
+
+        private Section(long key) {
+            m_key = key;
+        }
+        
+        private boolean isSet(int idx) {
+            return (m_bits.get(idx >> 6) & (1L << idx)) != 0;
+        }
+    }
+    
+    /**
+     * The open addressing table (linear probing). Sections are never removed
+     * from a published table, empty sections are dropped when the table is rebuilt.
+     */
+    private volatile Section[] m_table = new Section[MIN_CAPACITY];
+    
+    /**
+     * Number of used table slots
+     */
+    private int m_used;
+    
+    /**
+     * Number of empty sections in the table
+     */
+    private int m_empty;
+    
+    /**
+     * Number of locked blocks
+     */
+    private volatile int m_total;
+    
+    /**
+     * Get the block index inside the section
+     * @param x
+     * @param y
+     * @param z
+     * @return 
+     */
+    private static int index(int x, int y, int z) {
+        return ((y & 0xf) << 8) | ((z & 0xf) << 4) | (x & 0xf);
+    }
+    
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    private static Section find(Section[] table, long key) {
+        final int mask = table.length - 1;
+        int idx = hash(key) & mask;
+        
+        while (true) {
+            final Section s = table[idx];
+            if (s == null || s.m_key == key) {
+                return s;
+            }
+            
+            idx = (idx + 1) & mask;
+        }
+    }
+    
+    private static void insert(Section[] table, Section section) {
+        final int mask = table.length - 1;
+        int idx = hash(section.m_key) & mask;
+        
+        while (table[idx] != null) {
+            idx = (idx + 1) & mask;
+        }
+        
+        table[idx] = section;
+    }
+    
+    /**
+     * Rebuild the table dropping all the empty sections
+     * @param capacity the new table capacity
+     */
+    private void rebuild(int capacity) {
+        final Section[] table = new Section[capacity];
+        int used = 0;
+        
+        for (Section s : m_table) {
+            if (s != null && s.m_count > 0) {
+                insert(table, s);
+                used++;
+            }
+        }
+        
+        m_used = used;
+        m_empty = 0;
+        m_table = table;
+    }
+    
+    /**
+     * Is the index empty
+     * @return 
+     */
+    boolean isEmpty() {
+        return m_total == 0;
+    }
+    
+    /**
+     * Add block reference (needs the instance monitor)
+     * @param x
+     * @param y
+     * @param z 
+     */
+    void add(int x, int y, int z) {
+        final long key = sectionKey(x, y, z);
+        Section section = find(m_table, key);
+        
+        if (section == null) {
+            if ((m_used + 1) * 2 > m_table.length) {
+                final int live = m_used - m_empty + 1;
+                int capacity = MIN_CAPACITY;
+                while (live * 4 > capacity) {
+                    capacity <<= 1;
+                }
+                
+                rebuild(capacity);
+            }
+            
+            section = new Section(key);
+            insert(m_table, section);
+            m_used++;
+            m_empty++;
+        }
+        
+        final int idx = index(x, y, z);
+        if (section.isSet(idx)) {
+            if (section.m_extra == null) {
+                section.m_extra = new int[4096];
+            }
+            
+            section.m_extra[idx]++;
+            return;
+        }
+        
+        section.m_bits.set(idx >> 6, section.m_bits.get(idx >> 6) | (1L << idx));
+        if (section.m_count++ == 0) {
+            m_empty--;
+        }
+        m_total++;
+    }
+    
+    /**
+     * Remove block reference (needs the instance monitor)
+     * @param x
+     * @param y
+     * @param z 
+     */
+    void remove(int x, int y, int z) {
+        final Section section = find(m_table, sectionKey(x, y, z));
+        if (section == null) {
+            return;
+        }
+        
+        final int idx = index(x, y, z);
+        if (!section.isSet(idx)) {
+            return;
+        }
+        
+        if (section.m_extra != null && section.m_extra[idx] > 0) {
+            section.m_extra[idx]--;
+            return;
+        }
+        
+        section.m_bits.set(idx >> 6, section.m_bits.get(idx >> 6) & ~(1L << idx));
+        m_total--;
+        
+        if (--section.m_count == 0) {
+            section.m_extra = null;
+            m_empty++;
+            
+            if (m_empty > MIN_CAPACITY && m_empty * 2 > m_used) {
+                int capacity = MIN_CAPACITY;
+                while ((m_used - m_empty) * 4 > capacity) {
+                    capacity <<= 1;
+                }
+                
+                rebuild(capacity);
+            }
+        }
+    }
+    
+    /**
+     * Remove all the locked blocks (needs the instance monitor)
+     */
+    void clear() {
+        m_table = new Section[MIN_CAPACITY];
+        m_used = 0;
+        m_empty = 0;
+        m_total = 0;
+    }
+    
+    /**
+     * Check if the block is locked
+     * @param x
+     * @param y
+     * @param z
+     * @return 
+     */
+    boolean isLocked(int x, int y, int z) {
+        final Section section = find(m_table, sectionKey(x, y, z));
+        
+        return section != null && section.isSet(index(x, y, z));
+    }
+    
+    /**
+     * Check if any block in the cube around the position is locked
+     * @param x
+     * @param y
+     * @param z
+     * @param delta the cube "radius"
+     * @return 
+     */
+    boolean isAnyLocked(int x, int y, int z, int delta) {
+        if (m_total == 0) {
+            return false;
+        }
+        
+        final Section[] table = m_table;
+        Section section = null;
+        long lastKey = 0;
+        boolean hasSection = false;
+        
+        for (int px = x - delta; px <= x + delta; px++) {
+            for (int py = y - delta; py <= y + delta; py++) {
+                for (int pz = z - delta; pz <= z + delta; pz++) {
+                    final long key = sectionKey(px, py, pz);
+                    if (!hasSection || key != lastKey) {
+                        section = find(table, key);
+                        lastKey = key;
+                        hasSection = true;
+                    }
+                    
+                    if (section != null && section.isSet(index(px, py, pz))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        
+        return false;
+    }
+}
@@ -49,8 +49,8 @@ package org.primesoft.asyncworldedit.core;
 
 import com.sk89q.worldedit.math.BlockVector3;
 import org.primesoft.asyncworldedit.api.IPhysicsWatch;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -63,26 +63,20 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
     /**
      * Is physics watch enabled
      */
-    protected boolean m_isEnabled;
+    protected volatile boolean m_isEnabled;
     
-    protected Function<String, Boolean> m_check = i -> true;
+    protected volatile Function<String, Boolean> m_check = i -> true;
 
     /**
-     * MTA mutex
+     * Locked blocks (per world)
      */
-    private final Object m_mutex;
-
-    /**
-     * Locked blocks
-     */
-    private final Map<String, Map<Integer, Map<Integer, Map<Integer, Integer>>>> m_locked;
+    private final Map<String, LockedBlocks> m_locked;
 
     /**
      * Create new instanc of the class
      */
     public PhysicsWatch() {
-        m_mutex = new Object();
-        m_locked = new HashMap<>();
+        m_locked = new ConcurrentHashMap<>();
     }
 
     /**
@@ -95,8 +89,8 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
 
     @Override
     public void enable(Function<String, Boolean> check) {
-        m_isEnabled = true;
         m_check = check;
+        m_isEnabled = true;
     }
     
     
@@ -107,8 +101,10 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
     @Override
     public void disable() {
         m_isEnabled = false;
-        synchronized (m_mutex) {
-            m_locked.clear();
+        for (LockedBlocks locked : m_locked.values()) {
+            synchronized (locked) {
+                locked.clear();
+            }
         }
     }
 
@@ -120,19 +116,33 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
      */
     @Override
     public void addLocation(String name, BlockVector3 location) {
-        int x = location.getBlockX();
-        int y = location.getBlockY();
-        int z = location.getBlockZ();
+        addLocation(name, location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+    
+    /**
+     * Add new watched location
+     *
+     * @param name The world name
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void addLocation(String name, int x, int y, int z) {
+        if (!m_isEnabled || name == null) {
+            return;
+        }
 
-        synchronized (m_mutex) {
+        LockedBlocks locked = m_locked.get(name);
+        if (locked == null) {
+            locked = m_locked.computeIfAbsent(name, i -> new LockedBlocks());
+        }
+
+        synchronized (locked) {
             if (!m_isEnabled) {
                 return;
             }
-
-            Map<Integer, Map<Integer, Map<Integer, Integer>>> xhash = m_locked.computeIfAbsent(name, i -> new HashMap<>());
-            Map<Integer, Map<Integer, Integer>> yhash = xhash.computeIfAbsent(x, i -> new HashMap<>());
-            Map<Integer, Integer> zhash = yhash.computeIfAbsent(y, i -> new HashMap<>());
-            zhash.compute(z, (_z, value) -> value == null ? 1 : (value + 1));           
+            
+            locked.add(x, y, z);
         }
     }
 
@@ -144,47 +154,29 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
      */
     @Override
     public void removeLocation(String name, BlockVector3 location) {
-        int x = location.getBlockX();
-        int y = location.getBlockY();
-        int z = location.getBlockZ();
-
-        synchronized (m_mutex) {
-            if (!m_isEnabled) {
-                return;
-            }
-
-            final Map<Integer, Map<Integer, Map<Integer, Integer>>> xhash = m_locked.get(name);
-            if (xhash == null) {
-                return;
-            }
+        removeLocation(name, location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+    
+    /**
+     * Remove watched location
+     *
+     * @param name the world name
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void removeLocation(String name, int x, int y, int z) {
+        if (!m_isEnabled || name == null) {
+            return;
+        }
 
-            final Map<Integer, Map<Integer, Integer>> yhash = xhash.get(x);
-            if (yhash == null) {
-                return;
-            }
-            
-            final Map<Integer, Integer> zhash = yhash.get(y);
-            if (zhash == null) {
-                return;
-            }
-            
-            zhash.compute(z, (_z, value) -> {
-                if (value == null || value == 1) {
-                    return null;
-                }
-                
-                return value - 1;
-            });
+        final LockedBlocks locked = m_locked.get(name);
+        if (locked == null) {
+            return;
+        }
 
-            if (zhash.isEmpty()) {
-                yhash.remove(y);
-            }
-            if (yhash.isEmpty()) {
-                xhash.remove(x);
-            }
-            if (xhash.isEmpty()) {
-                m_locked.remove(name);
-            }
+        synchronized (locked) {
+            locked.remove(x, y, z);
         }
     }
     
@@ -200,34 +192,12 @@ public abstract class PhysicsWatch implements IPhysicsWatch {
     protected boolean cancelEvent(String name, int x, int y, int z, String material) {        
         final int delta = 1;
 
-        synchronized (m_mutex) {
-            Map<Integer, Map<Integer, Map<Integer, Integer>>> xhash = m_locked.get(name);
-            if (xhash == null) {
-                return false;
-            }
-
-            for (int px = x - delta; px <= x + delta; px++) {
-                final Map<Integer, Map<Integer, Integer>> yhash = xhash.get(px);
-                if (yhash == null) {
-                    continue;
-                }
-
-                for (int py = y - delta; py <= y + delta; py++) {
-                    final Map<Integer, Integer> zhash = yhash.get(py);
-                    if (zhash == null) {
-                        continue;
-                    }
-
-                    for (int pz = z - delta; pz <= z + delta; pz++) {
-                        if (zhash.containsKey(pz)) {
-                            return m_check.apply(material);
-                        }
-                    }
-                }
-            }
+        final LockedBlocks locked = name != null ? m_locked.get(name) : null;
+        if (locked == null || !locked.isAnyLocked(x, y, z, delta)) {
+            return false;
         }
         
-        return false;
+        return m_check.apply(material);
     }
     
     
@@ -0,0 +1,294 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
+import org.primesoft.asyncworldedit.configuration.ConfigDirectChunkApi;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.platform.api.IScheduler;
+import org.primesoft.asyncworldedit.platform.api.ITask;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+
+/**
+ * Chunk update packets queue. The dirty sections of a chunk are collected
+ * and sent once per tick, the number of chunk packets sent to a player in 
+ * one tick is limited.
+ *
+ * @author SBPrime
+ */
+public class ChunkUpdateQueue {
+
+    /**
+     * The running chunk update queue
+     */
+    private static final AtomicReference<ChunkUpdateQueue> s_instance = new AtomicReference<>();
+
+    /**
+     * Get the running chunk update queue
+     *
+     * @return null if no queue is running
+     */
+    public static ChunkUpdateQueue getInstance() {
+        return s_instance.get();
+    }
+
+    /**
+     * The chunk key
+     */
+    private static final class ChunkKey {
+
+        private final UUID m_world;
+
+        private final int m_cx;
+
+        private final int m_cz;
+
+        ChunkKey(IWrappedChunk chunk) {
+            m_world = chunk.getWorld().getUUID();
+            m_cx = chunk.getX();
+            m_cz = chunk.getZ();
+        }
+
+        @Override
+        public int hashCode() {
+            return (m_cx * 31 + m_cz) * 31 + m_world.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ChunkKey)) {
+                return false;
+            }
+
+            ChunkKey other = (ChunkKey) obj;
+            return m_cx == other.m_cx && m_cz == other.m_cz
+                    && Objects.equals(m_world, other.m_world);
+        }
+    }
+
+    /**
+     * The pending chunk update
+     */
+    private static final class PendingUpdate {
+
+        /**
+         * The last chunk wrapper
+         */
+        private IWrappedChunk m_chunk;
+
+        /**
+         * The sections to send
+         */
+        private int m_sections;
+
+        /**
+         * Players that should receive the update, null for all players
+         */
+        private Set<UUID> m_players;
+
+        PendingUpdate(IWrappedChunk chunk, int sections, Set<UUID> players) {
+            m_chunk = chunk;
+            m_sections = sections;
+            m_players = players;
+        }
+
+        void merge(IWrappedChunk chunk, int sections, Set<UUID> players) {
+            m_chunk = chunk;
+            m_sections |= sections;
+
+            if (players == null || m_players == null) {
+                m_players = null;
+            } else {
+                m_players.addAll(players);
+            }
+        }
+    }
+
+    /**
+     * The pending updates
+     */
+    private final Map<ChunkKey, PendingUpdate> m_pending = new LinkedHashMap<>();
+
+    /**
+     * The flush task
+     */
+    private final ITask m_task;
+
+    public ChunkUpdateQueue(IScheduler scheduler) {
+        m_task = scheduler != null ? scheduler.runTaskTimer(this::onTick, 1, 1) : null;
+
+        if (m_task != null) {
+            s_instance.set(this);
+        }
+    }
+
+    /**
+     * Stop sending the updates
+     */
+    public void stop() {
+        s_instance.compareAndSet(this, null);
+
+        if (m_task != null) {
+            m_task.cancel();
+        }
+
+        synchronized (m_pending) {
+            m_pending.clear();
+        }
+    }
+
+    /**
+     * Queue the chunk dirty sections update
+     *
+     * @param chunk
+     */
+    public void queue(IWrappedChunk chunk) {
+        if (chunk == null) {
+            return;
+        }
+
+        int sections = chunk.resetDirtySections() & 0xffff;
+        if (sections == 0) {
+            return;
+        }
+
+        queue(chunk, sections, null);
+    }
+
+    private void queue(IWrappedChunk chunk, int sections, Set<UUID> players) {
+        ChunkKey key = new ChunkKey(chunk);
+
+        synchronized (m_pending) {
+            PendingUpdate update = m_pending.get(key);
+
+            if (update == null) {
+                m_pending.put(key, new PendingUpdate(chunk, sections, players));
+            } else {
+                update.merge(chunk, sections, players);
+            }
+        }
+    }
+
+    /**
+     * Number of chunks waiting for the update
+     *
+     * @return
+     */
+    public int size() {
+        synchronized (m_pending) {
+            return m_pending.size();
+        }
+    }
+
+    private void onTick() {
+        ConfigDirectChunkApi dcConfig = ConfigProvider.directChunk();
+
+        flush(dcConfig != null ? dcConfig.getMaxChunkPackets() : 0);
+    }
+
+    /**
+     * Send the pending updates, players that reached the packets limit get
+     * the update in the next tick.
+     *
+     * @param maxPackets maximum number of chunk updates sent to one player, 0
+     * for no limit
+     */
+    void flush(final int maxPackets) {
+        final List<PendingUpdate> updates;
+
+        synchronized (m_pending) {
+            if (m_pending.isEmpty()) {
+                return;
+            }
+
+            updates = new ArrayList<>(m_pending.values());
+            m_pending.clear();
+        }
+
+        final Map<UUID, int[]> sent = new HashMap<>();
+
+        for (final PendingUpdate update : updates) {
+            final Set<UUID> players = update.m_players;
+            final Set<UUID> skipped = new HashSet<>();
+
+            try {
+                update.m_chunk.sendChunkUpdate(update.m_sections, player -> {
+                    if (players != null && !players.contains(player)) {
+                        return false;
+                    }
+
+                    int[] count = sent.computeIfAbsent(player, p -> new int[1]);
+                    if (maxPackets > 0 && count[0] >= maxPackets) {
+                        skipped.add(player);
+                        return false;
+                    }
+
+                    count[0]++;
+                    return true;
+                });
+            } catch (Exception ex) {
+                ExceptionHelper.printException(ex, "Unable to send chunk update");
+                continue;
+            }
+
+            if (!skipped.isEmpty()) {
+                queue(update.m_chunk, update.m_sections, skipped);
+            }
+        }
+    }
+}
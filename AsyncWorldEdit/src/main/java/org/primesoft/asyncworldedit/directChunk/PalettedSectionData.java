@@ -0,0 +1,305 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk;
+
+import org.primesoft.asyncworldedit.api.directChunk.IChunkSection;
+
+/**
+ * Chunk section data that stores the blocks as bit-packed indices into a 
+ * per-section palette. A section that contains only one block type does not
+ * allocate the index array at all. Sections with too many distinct blocks
+ * are expanded to the plain int[] layout.
+ * 
+ * @author SBPrime
+ */
+public class PalettedSectionData implements IChunkSection {
+    /**
+     * Number of blocks in a section
+     */
+    private final static int VOLUME = 16 * 16 * 16;
+    
+    /**
+     * Maximum number of bits per index, above this the section is expanded
+     */
+    private final static int MAX_BITS = 8;
+    
+    private final int m_y;
+    
+    private final boolean m_hasSkyLight;
+    
+    /**
+     * The palette (combined block ids)
+     */
+    private int[] m_palette;
+    
+    /**
+     * Number of used palette entries
+     */
+    private int m_paletteSize;
+    
+    /**
+     * Number of bits per index (0 - single value section)
+     */
+    private int m_bits;
+    
+    /**
+     * The packed palette indices
+     */
+    private long[] m_data;
+    
+    /**
+     * The expanded block ids, when set the palette is no longer used
+     */
+    private int[] m_blockIds;
+    
+    private byte[] m_emittedLight;
+    
+    private byte[] m_skyLight;
+    
+    /**
+     * Create new empty (air) section
+     * @param y
+     * @param skyLight 
+     */
+    public PalettedSectionData(int y, boolean skyLight) {
+        this(y, 0, skyLight);
+    }
+    
+    /**
+     * Create new section filled with one block
+     * @param y
+     * @param id
+     * @param skyLight 
+     */
+    public PalettedSectionData(int y, int id, boolean skyLight) {
+        m_y = y;
+        m_hasSkyLight = skyLight;
+        
+        m_palette = new int[]{id};
+        m_paletteSize = 1;
+        m_bits = 0;
+    }
+    
+    /**
+     * Get the block id
+     * @param idx block index (y * 256 + z * 16 + x)
+     * @return 
+     */
+    public int get(int idx) {
+        if (m_blockIds != null) {
+            return m_blockIds[idx];
+        }
+        
+        if (m_bits == 0) {
+            return m_palette[0];
+        }
+        
+        return m_palette[getIndex(idx)];
+    }
+    
+    /**
+     * Set the block id
+     * @param idx block index (y * 256 + z * 16 + x)
+     * @param id 
+     */
+    public void set(int idx, int id) {
+        if (m_blockIds != null) {
+            m_blockIds[idx] = id;
+            return;
+        }
+        
+        int pIdx = indexOf(id);
+        if (pIdx < 0) {
+            if (m_paletteSize == 1 << m_bits && !grow()) {
+                m_blockIds[idx] = id;
+                return;
+            }
+            
+            pIdx = m_paletteSize;
+            m_palette[m_paletteSize++] = id;
+        }
+        
+        if (m_bits != 0) {
+            setIndex(idx, pIdx);
+        }
+    }
+    
+    /**
+     * Is the section filled with a single block
+     * @return 
+     */
+    public boolean isSingleValue() {
+        return m_blockIds == null && m_bits == 0;
+    }
+    
+    /**
+     * Is the section stored using the palette
+     * @return 
+     */
+    public boolean isPaletted() {
+        return m_blockIds == null;
+    }
+    
+    /**
+     * Get the number of palette entries
+     * @return 
+     */
+    public int getPaletteSize() {
+        return m_blockIds == null ? m_paletteSize : 0;
+    }
+    
+    /**
+     * Get the block ids. This expands the section to the int[] layout, 
+     * the returned array is used as the section storage.
+     * @return 
+     */
+    @Override
+    public int[] getBlockIds() {
+        if (m_blockIds == null) {
+            expand();
+        }
+        
+        return m_blockIds;
+    }
+
+    @Override
+    public byte[] getEmittedLight() {
+        if (m_emittedLight == null) {
+            m_emittedLight = DcUtils.newSectionEmittedLight();
+        }
+        
+        return m_emittedLight;
+    }
+
+    @Override
+    public byte[] getSkyLight() {
+        if (m_skyLight == null && m_hasSkyLight) {
+            m_skyLight = new byte[2048];
+        }
+        
+        return m_skyLight;
+    }
+
+    @Override
+    public int getY() {
+        return m_y;
+    }
+    
+    private int indexOf(int id) {
+        final int[] palette = m_palette;
+        for (int i = 0; i < m_paletteSize; i++) {
+            if (palette[i] == id) {
+                return i;
+            }
+        }
+        
+        return -1;
+    }
+    
+    private int getIndex(int idx) {
+        final int bitIdx = idx * m_bits;
+        final long mask = (1L << m_bits) - 1;
+        
+        return (int) ((m_data[bitIdx >> 6] >>> (bitIdx & 63)) & mask);
+    }
+    
+    private void setIndex(int idx, int value) {
+        final int bitIdx = idx * m_bits;
+        final int shift = bitIdx & 63;
+        final long mask = ((1L << m_bits) - 1) << shift;
+        final int lIdx = bitIdx >> 6;
+        
+        m_data[lIdx] = (m_data[lIdx] & ~mask) | (((long) value << shift) & mask);
+    }
+    
+    /**
+     * Double the index size
+     * @return false if the section was expanded to the int[] layout
+     */
+    private boolean grow() {
+        final int bits = m_bits == 0 ? 1 : m_bits * 2;
+        if (bits > MAX_BITS) {
+            expand();
+            return false;
+        }
+        
+        final int oldBits = m_bits;
+        final long[] oldData = m_data;
+        
+        m_bits = bits;
+        m_data = new long[VOLUME * bits / 64];
+        if (oldBits != 0) {
+            final long oldMask = (1L << oldBits) - 1;
+            for (int i = 0; i < VOLUME; i++) {
+                final int bitIdx = i * oldBits;
+                setIndex(i, (int) ((oldData[bitIdx >> 6] >>> (bitIdx & 63)) & oldMask));
+            }
+        }
+        
+        final int[] palette = new int[1 << bits];
+        System.arraycopy(m_palette, 0, palette, 0, m_paletteSize);
+        m_palette = palette;
+        
+        return true;
+    }
+    
+    /**
+     * Convert the section to the int[] layout
+     */
+    private void expand() {
+        final int[] ids = new int[VOLUME];
+        for (int i = 0; i < VOLUME; i++) {
+            ids[i] = get(i);
+        }
+        
+        m_blockIds = ids;
+        m_palette = null;
+        m_data = null;
+        m_paletteSize = 0;
+    }
+}
@@ -72,7 +72,7 @@ import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.core.AwePlatform;
 import org.primesoft.asyncworldedit.directChunk.entries.BiomeEntry;
-import org.primesoft.asyncworldedit.directChunk.entries.BlockEntry;
+import org.primesoft.asyncworldedit.utils.MutexProvider;
 import org.primesoft.asyncworldedit.worldedit.blocks.BlockStates;
 
 /**
@@ -88,7 +88,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
     /**
      * The chunk blocks
      */
-    private final HashMap<Short, IBlockEntry> m_changedBlocks;
+    private final ChangedBlocks m_changedBlocks;
 
     /**
      * The chunk biomes
@@ -125,7 +125,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
         m_wrappedChunk = wrappedChunk;
         m_chunkCoords = BlockVector2.at(wrappedChunk.getX(), wrappedChunk.getZ());
 
-        m_changedBlocks = new LinkedHashMap<>();
+        m_changedBlocks = new ChangedBlocks();
         m_changedBiomes = new LinkedHashMap<>();
 
         m_addedEntity = new LinkedHashMap<>();
@@ -209,9 +209,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
 
         short encodedPos = encodePosition(x, y, z);
         synchronized (m_mutex) {
-            m_changedBlocks.put(encodedPos, emission < 0 ? 
-                    new BlockEntry(id, x, y, z, ct) :
-                    new BlockEntry(id, x, y, z, ct, emission));
+            m_changedBlocks.setBlock(encodedPos, id, ct, emission);
         }
     }
 
@@ -239,15 +237,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
         short encodedPos = encodePosition(x, y, z);
 
         synchronized (m_mutex) {
-            IBlockEntry blockEntry = m_changedBlocks.get(encodedPos);
-
-            if (blockEntry == null) {
-                blockEntry = new BlockEntry(x, y, z, emission);
-            } else {
-                blockEntry.setEmission(emission);
-            }
-
-            m_changedBlocks.put(encodedPos, blockEntry);
+            m_changedBlocks.setEmission(encodedPos, emission);
         }
     }
     
@@ -262,16 +252,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
         short encodedPos = encodePosition(x, y, z);
 
         synchronized (m_mutex) {
-            IBlockEntry blockEntry = m_changedBlocks.get(encodedPos);
-
-            if (blockEntry == null) {
-                blockEntry = new BlockEntry(x, y, z, (byte)-1, emission);
-            }
-            else {
-                blockEntry.setSky(emission);
-            }
-
-            m_changedBlocks.put(encodedPos, blockEntry);
+            m_changedBlocks.setSky(encodedPos, emission);
         }
     }
 
@@ -359,7 +340,7 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
     @Override
     public IBlockEntry[] getChangedBlocks() {
         synchronized (m_mutex) {
-            return m_changedBlocks.values().toArray(new IBlockEntry[0]);
+            return m_changedBlocks.toEntries();
         }
     }
 
@@ -385,10 +366,8 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
         final short encodedPos = encodePosition(x, y, z);
 
         synchronized (m_mutex) {
-            final IBlockEntry bEntry = m_changedBlocks.get(encodedPos);
-
-            if (bEntry != null && bEntry.hasBlock()) {
-                return bEntry.getId();
+            if (m_changedBlocks.hasBlock(encodedPos)) {
+                return m_changedBlocks.getId(encodedPos);
             } else {
                 if (m_fullChunkData == null) {
                     m_fullChunkData = fullChunkData();
@@ -409,13 +388,12 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
         final short encodedPos = encodePosition(x, y, z);
 
         synchronized (m_mutex) {
-            final IBlockEntry bEntry = m_changedBlocks.get(encodedPos);
-
-            if (bEntry != null && bEntry.hasBlock()) {
+            if (m_changedBlocks.hasBlock(encodedPos)) {
                 final IDirectChunkAPI dcApi = AwePlatform.getInstance().getCore().getDirectChunkAPI();
-                BlockStateHolder block = dcApi.convertId(bEntry.getId());
-                if (bEntry.getNbt() != null) {
-                    block = block.toBaseBlock(bEntry.getNbt());
+                final CompoundTag nbt = m_changedBlocks.getNbt(encodedPos);
+                BlockStateHolder block = dcApi.convertId(m_changedBlocks.getId(encodedPos));
+                if (nbt != null) {
+                    block = block.toBaseBlock(nbt);
                 }
 
                 return block;
@@ -463,9 +441,9 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
         final short encodedPos = encodePosition(x, y, z);
 
         synchronized (m_mutex) {
-            IBlockEntry blockEntry = m_changedBlocks.get(encodedPos);
-            if (blockEntry != null && blockEntry.hasLight()) {
-                return blockEntry.getEmission();
+            final byte emission = m_changedBlocks.getEmission(encodedPos);
+            if (emission >= 0) {
+                return emission;
             }
 
             if (m_fullChunkData == null) {
@@ -486,9 +464,9 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
         final short encodedPos = encodePosition(x, y, z);
 
         synchronized (m_mutex) {
-            IBlockEntry blockEntry = m_changedBlocks.get(encodedPos);
-            if (blockEntry != null && blockEntry.hasSkyLight()) {
-                return blockEntry.getSky();
+            final byte sky = m_changedBlocks.getSky(encodedPos);
+            if (sky >= 0) {
+                return sky;
             }
 
             if (m_fullChunkData == null) {
@@ -534,6 +512,6 @@ public abstract class BaseChangesetChunkData extends ChunkDataCommon implements
      */
     private IChunkData fullChunkData() {
         IWorld world = m_wrappedChunk.getWorld();
-        return m_dispatcher.performSafeChunk(world, m_wrappedChunk::getData, world, m_chunkCoords);
+        return m_dispatcher.performSafeChunk(MutexProvider.getMutex(world), m_wrappedChunk::getData, world, m_chunkCoords);
     }
 }
@@ -70,7 +70,7 @@ import org.primesoft.asyncworldedit.api.directChunk.ISerializedEntity;
 import org.primesoft.asyncworldedit.api.directChunk.ISerializedTileEntity;
 import org.primesoft.asyncworldedit.api.utils.IInOutParam;
 import org.primesoft.asyncworldedit.core.AwePlatform;
-import org.primesoft.asyncworldedit.directChunk.ChunkSectionData;
+import org.primesoft.asyncworldedit.directChunk.PalettedSectionData;
 import org.primesoft.asyncworldedit.utils.InOutParam;
 
 /**
@@ -366,23 +366,17 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
             return;
         }
 
-        int cy = y / 16;
-        IChunkSection cs = getChunkSection(cy);
-        if (cs == null) {
-            cs = new ChunkSectionData(y, new int[16 * 16 * 16], true);
-            setChunkSection(cy, cs);
-        }
+        IChunkSection cs = getOrCreateSection(y);
 
-        int[] ids = cs.getBlockIds();
         int idx = (y % 16) * 256 + z * 16 + x;
 
-        if (idx < 0 || idx >= ids.length) {
+        if (idx < 0 || idx >= 16 * 16 * 16) {
             return;
         }
 
         removeTileEntity(BlockVector3.at(x, y, z));
 
-        ids[idx] = id;
+        setSectionBlock(cs, idx, id);
         if (emission >= 0) {
             setEmission(cs, idx, emission);
         }
@@ -404,27 +398,20 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
             return;
         }
 
-        int cy = y / 16;
-        IChunkSection cs = getChunkSection(cy);
-        if (cs == null) {
-            cs = new ChunkSectionData(y, new int[16 * 16 * 16], true);
-            setChunkSection(cy, cs);
-        }
+        IChunkSection cs = getOrCreateSection(y);
 
         BlockVector3 entityCoords = BlockVector3.at(x, y, z);
         ISerializedTileEntity entity = createTileEntity(entityCoords, ct);
 
-        int[] ids = cs.getBlockIds();
-
         int idx = (y % 16) * 256 + z * 16 + x;
 
-        if (idx < 0 || idx >= ids.length) {
+        if (idx < 0 || idx >= 16 * 16 * 16) {
             return;
         }
 
         setTileEntity(BlockVector3.at(x, y, z), entity);
 
-        ids[idx] = id;
+        setSectionBlock(cs, idx, id);
 
         if (emission >= 0) {
             setEmission(cs, idx, emission);
@@ -441,6 +428,59 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
 
     }
 
+    /**
+     * Get the chunk section, new sections are created as single value
+     * paletted sections
+     *
+     * @param y block y position
+     * @return
+     */
+    private IChunkSection getOrCreateSection(int y) {
+        int cy = y / 16;
+        IChunkSection cs = getChunkSection(cy);
+        if (cs == null) {
+            cs = new PalettedSectionData(y, true);
+            setChunkSection(cy, cs);
+        }
+
+        return cs;
+    }
+
+    /**
+     * Get the block id from the chunk section
+     *
+     * @param cs
+     * @param idx
+     * @return
+     */
+    private static int getSectionBlock(IChunkSection cs, int idx) {
+        if (cs instanceof PalettedSectionData) {
+            return ((PalettedSectionData) cs).get(idx);
+        }
+
+        int[] ids = cs.getBlockIds();
+        return ids != null && idx < ids.length ? ids[idx] : 0;
+    }
+
+    /**
+     * Set the block id in the chunk section
+     *
+     * @param cs
+     * @param idx
+     * @param id
+     */
+    private static void setSectionBlock(IChunkSection cs, int idx, int id) {
+        if (cs instanceof PalettedSectionData) {
+            ((PalettedSectionData) cs).set(idx, id);
+            return;
+        }
+
+        int[] ids = cs.getBlockIds();
+        if (ids != null && idx < ids.length) {
+            ids[idx] = id;
+        }
+    }
+
     /**
      * Set the emission light level
      *
@@ -483,10 +523,9 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
             return 0;
         }
 
-        int[] ids = cs.getBlockIds();
         int idx = (y % 16) * 256 + z * 16 + x;
 
-        if (idx < 0 || idx >= ids.length) {
+        if (idx < 0 || idx >= 16 * 16 * 16) {
             return 0;
         }
 
@@ -498,7 +537,7 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
             }
         }
 
-        return ids[idx];
+        return getSectionBlock(cs, idx);
     }
 
     @Override
@@ -508,12 +547,7 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
             return;
         }
 
-        int cy = y / 16;
-        IChunkSection cs = getChunkSection(cy);
-        if (cs == null) {
-            cs = new ChunkSectionData(y, new int[16 * 16 * 16], true);
-            setChunkSection(cy, cs);
-        }
+        IChunkSection cs = getOrCreateSection(y);
 
         int idx = (y % 16) * 256 + z * 16 + x;
         byte[] lEmission = cs.getEmittedLight();
@@ -530,12 +564,7 @@ public abstract class BaseChunkData extends ChunkDataCommon implements IChunkDat
             return;
         }
 
-        int cy = y / 16;
-        IChunkSection cs = getChunkSection(cy);
-        if (cs == null) {
-            cs = new ChunkSectionData(y, new int[16 * 16 * 16], true);
-            setChunkSection(cy, cs);
-        }
+        IChunkSection cs = getOrCreateSection(y);
 
         int idx = (y % 16) * 256 + z * 16 + x;
         byte[] lEmission = cs.getSkyLight();
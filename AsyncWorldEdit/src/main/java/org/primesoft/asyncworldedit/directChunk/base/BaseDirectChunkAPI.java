@@ -50,9 +50,8 @@ package org.primesoft.asyncworldedit.directChunk.base;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.registry.state.Property;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.primesoft.asyncworldedit.api.IChunk;
 import org.primesoft.asyncworldedit.api.inner.IBlockRelighter;
 import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
@@ -80,24 +79,24 @@ public abstract class BaseDirectChunkAPI implements IInnerDirectChunkAPI {
     /**
      * Block ID to emission light
      */
-    private final HashMap<Integer, Byte> m_idToEmission = new LinkedHashMap<>();
+    private final Map<Integer, Byte> m_idToEmission = new ConcurrentHashMap<>();
     
     
     /**
      * Block ID to opacity
      */
-    private final HashMap<Integer, Short> m_idToOpacity = new LinkedHashMap<>();
+    private final Map<Integer, Short> m_idToOpacity = new ConcurrentHashMap<>();
     
     /**
      * Block ID to opacity (sky light)
      */
-    private final HashMap<Integer, Short> m_idToOpacitySkyLight = new LinkedHashMap<>();
+    private final Map<Integer, Short> m_idToOpacitySkyLight = new ConcurrentHashMap<>();
     
     
     /**
      * Block ID to BaseBlock
      */
-    private final HashMap<Integer, BlockStateHolder> m_idToBlock = new LinkedHashMap<>();
+    private final Map<Integer, BlockStateHolder> m_idToBlock = new ConcurrentHashMap<>();
     
     private final IBlockRelighter m_blockRelighter;
 
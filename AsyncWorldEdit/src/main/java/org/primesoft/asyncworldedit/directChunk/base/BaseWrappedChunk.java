@@ -56,6 +56,8 @@ import com.sk89q.worldedit.world.block.BlockStateHolder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.directChunk.IBiomeEntry;
 import org.primesoft.asyncworldedit.api.directChunk.IBlockEntry;
@@ -68,6 +70,7 @@ import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
 import org.primesoft.asyncworldedit.api.inner.IBlocksHubIntegration;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.core.AwePlatform;
+import org.primesoft.asyncworldedit.directChunk.ChunkUpdateQueue;
 import org.primesoft.asyncworldedit.directChunk.entries.BiomeEntry;
 import org.primesoft.asyncworldedit.directChunk.entries.BlockEntry;
 import org.primesoft.asyncworldedit.utils.InOutParam;
@@ -84,6 +87,11 @@ public abstract class BaseWrappedChunk implements IWrappedChunk {
     protected final int m_cz;
     protected final IBlocksHubIntegration m_blocksHub;
     protected final IPlayerEntry m_player;
+    
+    /**
+     * The changed sections mask
+     */
+    private final AtomicInteger m_dirtySections = new AtomicInteger(0);
 
     public BaseWrappedChunk(IBlocksHubIntegration blocksHub,
             IWorld world, int cx, int cz,
@@ -115,6 +123,45 @@ public abstract class BaseWrappedChunk implements IWrappedChunk {
         return m_player;
     }
 
+    /**
+     * Queue the dirty sections in the chunk update queue, the update is sent
+     * in the next tick together with the other updates of this chunk. If no
+     * section is marked as dirty the whole chunk is sent.
+     */
+    @Override
+    public void sendChunkUpdate() {
+        final ChunkUpdateQueue queue = ChunkUpdateQueue.getInstance();
+        if (queue == null) {
+            int sections = resetDirtySections();
+
+            sendChunkUpdate(sections != 0 ? sections : 0xffff, player -> true);
+            return;
+        }
+
+        if ((m_dirtySections.get() & 0xffff) == 0) {
+            markSectionsDirty(0xffff);
+        }
+        queue.queue(this);
+    }
+
+    @Override
+    public abstract void sendChunkUpdate(int sectionMask, Predicate<UUID> playerFilter);
+
+    @Override
+    public void markSectionsDirty(int sectionMask) {
+        sectionMask &= 0xffff;
+        if (sectionMask == 0) {
+            return;
+        }
+        
+        m_dirtySections.accumulateAndGet(sectionMask, (a, b) -> a | b);
+    }
+
+    @Override
+    public int resetDirtySections() {
+        return m_dirtySections.getAndSet(0);
+    }
+
     @Override
     public boolean setData(IChunkData data) {
         if (data == null) {
@@ -258,11 +305,20 @@ public abstract class BaseWrappedChunk implements IWrappedChunk {
 
         IDirectChunkAPI dcApi = AwePlatform.getInstance().getCore().getDirectChunkAPI();
         BlockVector3 chunkZero = PositionHelper.chunkToPosition(BlockVector2.at(m_cx, m_cz), 0);
+        int sections = 0;
+
+        final boolean checkBlocks = bh != null && m_player != null && !bh.isAcceptAll();
+        final BlockVector3[] logLocations = checkBlocks ? new BlockVector3[dataBlocks.length] : null;
+        final BlockStateHolder[] logOld = checkBlocks ? new BlockStateHolder[dataBlocks.length] : null;
+        final BlockStateHolder[] logNew = checkBlocks ? new BlockStateHolder[dataBlocks.length] : null;
+        int logCount = 0;
 
         for (IBlockEntry block : dataBlocks) {
             int x = block.getX();
             int y = block.getY();
             int z = block.getZ();
+            
+            sections |= 1 << ((y >> 4) & 0xf);
 
             final byte emissionLight = cData.getEmissionLight(x, y, z);
 
@@ -275,13 +331,16 @@ public abstract class BaseWrappedChunk implements IWrappedChunk {
                 BlockStateHolder old = cData.getBlock(x, y, z);
                 BlockStateHolder newBlock = dcApi.getBaseBlock(id, nbt);
 
-                if (bh == null || m_player == null || bh.canPlace(m_player, m_world, pos, old, newBlock, true)) {
+                if (!checkBlocks || bh.canPlace(m_player, m_world, pos, old, newBlock, true)) {
                     final int oldId = dcApi.getCombinedId(old.getBlockType().getId(), old.getStates());
                     final CompoundTag oldCt = old instanceof BaseBlock ? ((BaseBlock)old).getNbtData() : null;
 
                     tOldBlocks.add(new BlockEntry(oldId, x, y, z, oldCt, emissionLight));
-                    if (bh != null && m_player != null) {
-                        bh.logBlock(m_player, m_world, pos, old, newBlock, true);
+                    if (checkBlocks) {
+                        logLocations[logCount] = pos;
+                        logOld[logCount] = old;
+                        logNew[logCount] = newBlock;
+                        logCount++;
                     }
 
                     if (block.hasLight()) {
@@ -310,6 +369,12 @@ public abstract class BaseWrappedChunk implements IWrappedChunk {
             }
         }
 
+        markSectionsDirty(sections);
+
+        if (logCount > 0) {
+            bh.logBlocks(m_player, m_world, logLocations, logOld, logNew, logCount, true);
+        }
+
         if (oldBlocks
                 != null) {
             oldBlocks.setValue(tOldBlocks.toArray(new IBlockEntry[0]));
@@ -0,0 +1,367 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk.base;
+
+import com.sk89q.jnbt.CompoundTag;
+import java.util.HashMap;
+import java.util.Map;
+import org.primesoft.asyncworldedit.api.directChunk.IBlockEntry;
+import org.primesoft.asyncworldedit.directChunk.entries.BlockEntry;
+
+/**
+ * The changed blocks of a changeset chunk stored in flat arrays indexed by 
+ * the encoded block position. The arrays are allocated per chunk section on
+ * first change, the tile entity NBT is kept in a sparse side table.
+ * The entries are returned in the order of the first change.
+ * 
+ * This class is not thread safe.
+ *
+ * @author SBPrime
+ */
+final class ChangedBlocks {
+    /**
+     * Number of sections in a chunk
+     */
+    private final static int SECTIONS = 16;
+
+    /**
+     * Number of blocks in a section
+     */
+    private final static int SECTION_VOLUME = 16 * 16 * 16;
+
+    /**
+     * The chunk sections
+     */
+    private final Section[] m_sections = new Section[SECTIONS];
+
+    /**
+     * The tile entity NBT data
+     */
+    private Map<Integer, CompoundTag> m_nbt;
+
+    /**
+     * The changed positions in the first change order
+     */
+    private int[] m_order = new int[256];
+
+    /**
+     * Number of changed positions
+     */
+    private int m_size;
+
+    /**
+     * Number of changed positions
+     *
+     * @return
+     */
+    int size() {
+        return m_size;
+    }
+
+    /**
+     * Set the block
+     *
+     * @param pos the encoded position
+     * @param id the block id
+     * @param ct the tile entity NBT
+     * @param emission the emission light level, -1 for none
+     */
+    void setBlock(int pos, int id, CompoundTag ct, byte emission) {
+        pos &= 0xffff;
+        final Section section = getOrCreate(pos);
+        final int idx = pos & (SECTION_VOLUME - 1);
+
+        if (section.m_ids == null) {
+            section.m_ids = new int[SECTION_VOLUME];
+        }
+        section.m_ids[idx] = id;
+
+        set(section.m_hasBlock, idx, true);
+        setEmission(section, idx, emission);
+        set(section.m_hasSky, idx, false);
+
+        if (ct != null) {
+            if (m_nbt == null) {
+                m_nbt = new HashMap<>();
+            }
+            m_nbt.put(pos, ct);
+        } else if (m_nbt != null) {
+            m_nbt.remove(pos);
+        }
+    }
+
+    /**
+     * Set the emission light level
+     *
+     * @param pos the encoded position
+     * @param emission the emission light level, -1 for none
+     */
+    void setEmission(int pos, byte emission) {
+        pos &= 0xffff;
+        setEmission(getOrCreate(pos), pos & (SECTION_VOLUME - 1), emission);
+    }
+
+    /**
+     * Set the sky light level
+     *
+     * @param pos the encoded position
+     * @param sky the sky light level, -1 for none
+     */
+    void setSky(int pos, byte sky) {
+        pos &= 0xffff;
+        final Section section = getOrCreate(pos);
+        final int idx = pos & (SECTION_VOLUME - 1);
+
+        if (sky < 0) {
+            set(section.m_hasSky, idx, false);
+            return;
+        }
+
+        if (section.m_sky == null) {
+            section.m_sky = new byte[SECTION_VOLUME / 2];
+        }
+        setNibble(section.m_sky, idx, sky);
+        set(section.m_hasSky, idx, true);
+    }
+
+    /**
+     * Does the position contain a changed block
+     *
+     * @param pos the encoded position
+     * @return
+     */
+    boolean hasBlock(int pos) {
+        pos &= 0xffff;
+        final Section section = m_sections[pos >> 12];
+        return section != null && get(section.m_hasBlock, pos & (SECTION_VOLUME - 1));
+    }
+
+    /**
+     * Get the changed block id
+     *
+     * @param pos the encoded position
+     * @return
+     */
+    int getId(int pos) {
+        pos &= 0xffff;
+        return m_sections[pos >> 12].m_ids[pos & (SECTION_VOLUME - 1)];
+    }
+
+    /**
+     * Get the changed block NBT
+     *
+     * @param pos the encoded position
+     * @return
+     */
+    CompoundTag getNbt(int pos) {
+        return m_nbt == null ? null : m_nbt.get(pos & 0xffff);
+    }
+
+    /**
+     * Get the changed emission light level
+     *
+     * @param pos the encoded position
+     * @return the light level, -1 when not changed
+     */
+    byte getEmission(int pos) {
+        pos &= 0xffff;
+        final Section section = m_sections[pos >> 12];
+        final int idx = pos & (SECTION_VOLUME - 1);
+        if (section == null || !get(section.m_hasEmission, idx)) {
+            return -1;
+        }
+
+        return getNibble(section.m_emission, idx);
+    }
+
+    /**
+     * Get the changed sky light level
+     *
+     * @param pos the encoded position
+     * @return the light level, -1 when not changed
+     */
+    byte getSky(int pos) {
+        pos &= 0xffff;
+        final Section section = m_sections[pos >> 12];
+        final int idx = pos & (SECTION_VOLUME - 1);
+        if (section == null || !get(section.m_hasSky, idx)) {
+            return -1;
+        }
+
+        return getNibble(section.m_sky, idx);
+    }
+
+    /**
+     * Create the block entries in the first change order
+     *
+     * @return
+     */
+    IBlockEntry[] toEntries() {
+        final IBlockEntry[] result = new IBlockEntry[m_size];
+
+        for (int i = 0; i < m_size; i++) {
+            final int pos = m_order[i];
+            final int x = pos & 15;
+            final int z = (pos >> 4) & 15;
+            final int y = (pos >> 8) & 255;
+
+            final byte emission = getEmission(pos);
+            final byte sky = getSky(pos);
+
+            result[i] = hasBlock(pos)
+                    ? new BlockEntry(getId(pos), x, y, z, getNbt(pos), emission, sky)
+                    : new BlockEntry(x, y, z, emission, sky);
+        }
+
+        return result;
+    }
+
+    private void setEmission(Section section, int idx, byte emission) {
+        if (emission < 0) {
+            set(section.m_hasEmission, idx, false);
+            return;
+        }
+
+        if (section.m_emission == null) {
+            section.m_emission = new byte[SECTION_VOLUME / 2];
+        }
+        setNibble(section.m_emission, idx, emission);
+        set(section.m_hasEmission, idx, true);
+    }
+
+    /**
+     * Get the section and mark the position as changed
+     *
+     * @param pos
+     * @return
+     */
+    private Section getOrCreate(int pos) {
+        Section section = m_sections[pos >> 12];
+        if (section == null) {
+            section = new Section();
+            m_sections[pos >> 12] = section;
+        }
+
+        final int idx = pos & (SECTION_VOLUME - 1);
+        if (!get(section.m_changed, idx)) {
+            set(section.m_changed, idx, true);
+
+            if (m_size == m_order.length) {
+                final int[] order = new int[m_order.length * 2];
+                System.arraycopy(m_order, 0, order, 0, m_size);
+                m_order = order;
+            }
+            m_order[m_size++] = pos;
+        }
+
+        return section;
+    }
+
+    private static boolean get(long[] bits, int idx) {
+        return (bits[idx >> 6] & (1L << idx)) != 0;
+    }
+
+    private static void set(long[] bits, int idx, boolean value) {
+        if (value) {
+            bits[idx >> 6] |= 1L << idx;
+        } else {
+            bits[idx >> 6] &= ~(1L << idx);
+        }
+    }
+
+    private static byte getNibble(byte[] data, int idx) {
+        return (byte) ((data[idx >> 1] >> (4 * (idx & 1))) & 0xf);
+    }
+
+    private static void setNibble(byte[] data, int idx, byte value) {
+        final int shift = 4 * (idx & 1);
+        final int lIdx = idx >> 1;
+
+        data[lIdx] = (byte) ((data[lIdx] & ~(0xf << shift)) | ((value & 0xf) << shift));
+    }
+
+    /**
+     * The changed data of a single chunk section
+     */
+    private final static class Section {
+        /**
+         * Changed positions
+         */
+        private final long[] m_changed = new long[SECTION_VOLUME >> 6];
+
+        /**
+         * Positions with a changed block
+         */
+        private final long[] m_hasBlock = new long[SECTION_VOLUME >> 6];
+
+        /**
+         * Positions with a changed emission light
+         */
+        private final long[] m_hasEmission = new long[SECTION_VOLUME >> 6];
+
+        /**
+         * Positions with a changed sky light
+         */
+        private final long[] m_hasSky = new long[SECTION_VOLUME >> 6];
+
+        /**
+         * The block ids
+         */
+        private int[] m_ids;
+
+        /**
+         * The emission light nibbles
+         */
+        private byte[] m_emission;
+
+        /**
+         * The sky light nibbles
+         */
+        private byte[] m_sky;
+    }
+}
@@ -47,10 +47,13 @@
  */
 package org.primesoft.asyncworldedit.directChunk.relighter;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
@@ -63,12 +66,23 @@ import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.configuration.ConfigDirectChunkApi;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.directChunk.ChunkUpdateQueue;
 import org.primesoft.asyncworldedit.directChunk.DcUtils;
 import org.primesoft.asyncworldedit.platform.api.IPlatform;
 import org.primesoft.asyncworldedit.platform.api.IScheduler;
 import org.primesoft.asyncworldedit.platform.api.ITask;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
+import static org.primesoft.asyncworldedit.directChunk.relighter.RelightBuffers.SIZE_Y;
+import static org.primesoft.asyncworldedit.directChunk.relighter.RelightBuffers.getX;
+import static org.primesoft.asyncworldedit.directChunk.relighter.RelightBuffers.getY;
+import static org.primesoft.asyncworldedit.directChunk.relighter.RelightBuffers.getZ;
+import static org.primesoft.asyncworldedit.directChunk.relighter.RelightBuffers.index;
+import static org.primesoft.asyncworldedit.directChunk.relighter.RelightBuffers.isValid;
 
 /**
+ * The block relighter. Chunks are relit by a pool of workers, each worker
+ * processes a 3x3 chunk neighbourhood that does not overlap the 
+ * neighbourhoods processed by the other workers.
  *
  * @author SBPrime
  */
@@ -76,7 +90,15 @@ public class BlockReligher implements IBlockRelighter {
 
     private interface IRelighterMethods {
 
-        public byte getLightLevel(IDirectChunkData chunk, int x, int y, int z, int id);
+        /**
+         * Get the source light level of a block
+         *
+         * @param id the block ID
+         * @param lightAbove the source light level of the block above (15
+         * for the top block)
+         * @return
+         */
+        public byte getLightLevel(int id, byte lightAbove);
 
         public int getOpacityLevel(int tBlockType);
 
@@ -88,24 +110,57 @@ public class BlockReligher implements IBlockRelighter {
     }
 
     /**
-     * Is the relight disposed
+     * Chunk that is being relit
      */
-    private boolean m_isDisposed = false;
+    private static final class RelightJob {
+
+        private final IWorld m_world;
+
+        private final UUID m_uuid;
+
+        private final int m_cx;
+
+        private final int m_cz;
+
+        private final Set<Short> m_blocks;
+
+        RelightJob(IWorld world, UUID uuid, int cx, int cz, Set<Short> blocks) {
+            m_world = world;
+            m_uuid = uuid;
+            m_cx = cx;
+            m_cz = cz;
+            m_blocks = blocks;
+        }
+
+        /**
+         * Does the 3x3 chunk neighbourhood overlap the neighbourhood of the
+         * provided chunk
+         *
+         * @param uuid
+         * @param cx
+         * @param cz
+         * @return
+         */
+        boolean overlaps(UUID uuid, int cx, int cz) {
+            return Math.abs(m_cx - cx) <= 2 && Math.abs(m_cz - cz) <= 2
+                    && m_uuid.equals(uuid);
+        }
+    }
 
     /**
-     * The DirectChunk API
+     * Is the relight disposed
      */
-    private final IDirectChunkAPI m_dcApi;
+    private volatile boolean m_isDisposed = false;
 
     /**
-     * The wait mutex
+     * The DirectChunk API
      */
-    private final Object m_waitMutex = new Object();
+    private final IDirectChunkAPI m_dcApi;
 
     /**
-     * The task
+     * The worker tasks
      */
-    private ITask m_task;
+    private ITask[] m_tasks;
 
     /**
      * List of all queued entries
@@ -115,7 +170,12 @@ public class BlockReligher implements IBlockRelighter {
     private final LinkedList<UUID> m_worldsStack = new LinkedList<>();
 
     /**
-     * The data mutex
+     * The chunks that are currently relit
+     */
+    private final List<RelightJob> m_active = new ArrayList<>();
+
+    /**
+     * The data mutex, the workers wait on this mutex for new data
      */
     private final Object m_dataMutex = new Object();
 
@@ -124,6 +184,11 @@ public class BlockReligher implements IBlockRelighter {
      */
     private IChunkWatch m_chunkWatcher;
 
+    /**
+     * The chunk update packets queue
+     */
+    private ChunkUpdateQueue m_updateQueue;
+
     /**
      * The task dispatcher
      */
@@ -145,7 +210,7 @@ public class BlockReligher implements IBlockRelighter {
 
         m_relighterEmission = new IRelighterMethods() {
             @Override
-            public byte getLightLevel(IDirectChunkData chunk, int x, int y, int z, int id) {
+            public byte getLightLevel(int id, byte lightAbove) {
                 return m_dcApi.getLightEmissionLevel(id);
             }
 
@@ -172,18 +237,8 @@ public class BlockReligher implements IBlockRelighter {
 
         m_relighterSky = new IRelighterMethods() {
             @Override
-            public byte getLightLevel(IDirectChunkData chunk, int x, int y, int z, int id) {
-                if (chunk == null) {
-                    return 0;
-                }
-
-                int opacity = 0;
-                for (int py = y; py < 256 && opacity < 15; py++) {
-                    id = chunk.getRawBlockData(x, py, z);
-                    opacity = Math.max(opacity, m_dcApi.getOpacityLevelSkyLight(id));
-                }
-
-                return (byte) Math.max(0, 15 - opacity);
+            public byte getLightLevel(int id, byte lightAbove) {
+                return (byte) Math.max(0, Math.min(lightAbove, 15 - m_dcApi.getOpacityLevelSkyLight(id)));
             }
 
             @Override
@@ -237,26 +292,37 @@ public class BlockReligher implements IBlockRelighter {
     @Override
     public void initialize(IPlatform platform) {
         IScheduler scheduler = platform.getScheduler();
+        ConfigDirectChunkApi dcConfig = ConfigProvider.directChunk();
 
         m_chunkWatcher = platform.getChunkWatcher();
+        m_updateQueue = new ChunkUpdateQueue(scheduler);
 
-        m_task = scheduler.runTaskAsynchronously(this::relightLoop);
+        m_tasks = new ITask[dcConfig != null ? dcConfig.getRelightThreads() : 1];
+        for (int i = 0; i < m_tasks.length; i++) {
+            m_tasks[i] = scheduler.runTaskAsynchronously(this::relightLoop);
+        }
     }
 
     @Override
     public void stop() {
         m_isDisposed = true;
 
-        synchronized (m_waitMutex) {
-            m_waitMutex.notifyAll();
-        }
-
         synchronized (m_dataMutex) {
             m_worlds.clear();
             m_worldsStack.clear();
+
+            m_dataMutex.notifyAll();
+        }
+
+        if (m_tasks != null) {
+            for (ITask task : m_tasks) {
+                task.cancel();
+            }
         }
 
-        m_task.cancel();
+        if (m_updateQueue != null) {
+            m_updateQueue.stop();
+        }
     }
 
     @Override
@@ -292,11 +358,9 @@ public class BlockReligher implements IBlockRelighter {
                 if (!m_worldsStack.contains(uuid)) {
                     m_worldsStack.push(uuid);
                 }
-            }
-        }
 
-        synchronized (m_waitMutex) {
-            m_waitMutex.notifyAll();
+                m_dataMutex.notify();
+            }
         }
     }
 
@@ -306,82 +370,120 @@ public class BlockReligher implements IBlockRelighter {
     }
 
     /**
-     * The main relight loop
+     * The worker relight loop
      */
     private void relightLoop() {
-        boolean dataProcessed = false;
+        final RelightBuffers buffers = new RelightBuffers();
 
         while (!m_isDisposed) {
-            if (!dataProcessed) {
-                synchronized (m_waitMutex) {
+            RelightJob job;
+
+            synchronized (m_dataMutex) {
+                job = m_isDisposed ? null : takeJob();
+
+                if (job == null) {
                     try {
-                        m_waitMutex.wait();
+                        m_dataMutex.wait();
                     } catch (InterruptedException ex) {
                     }
+                    continue;
                 }
-            } else {
-                dataProcessed = false;
+
+                m_active.add(job);
             }
 
-            IWorld world = null;
-            Long encodedChunk = null;
-            HashSet<Short> blocksToProcess = null;
+            try {
+                relight(job, buffers);
+            } catch (Exception ex) {
+                ExceptionHelper.printException(ex, "Unable to relight chunk");
+            } finally {
+                synchronized (m_dataMutex) {
+                    m_active.remove(job);
 
-            synchronized (m_dataMutex) {
-                if (m_isDisposed) {
-                    //Relighter is disposed
-                    continue;
+                    //Chunks blocked by the job can be processed now
+                    m_dataMutex.notifyAll();
                 }
+            }
+        }
+    }
 
-                while (!m_worldsStack.isEmpty() && blocksToProcess == null) {
-                    UUID worldUUID = m_worldsStack.pop();
-                    QueueEntry entry = m_worlds.get(worldUUID);
+    /**
+     * Get the next chunk that does not overlap any of the active jobs. Needs
+     * to be called while holding the data mutex.
+     *
+     * @return
+     */
+    private RelightJob takeJob() {
+        for (Iterator<UUID> worlds = m_worldsStack.iterator(); worlds.hasNext();) {
+            UUID worldUUID = worlds.next();
+            QueueEntry entry = m_worlds.get(worldUUID);
 
-                    Queue<Long> hashQueue = entry.getQueue();
-                    HashMap<Long, HashSet<Short>> blockQueue = entry.getBlockQueue();
+            Queue<Long> hashQueue = entry.getQueue();
+            HashMap<Long, HashSet<Short>> blockQueue = entry.getBlockQueue();
 
-                    if (hashQueue.isEmpty()) {
-                        //No data? strange this should not happen...
-                        //Continue to next world
-                        continue;
-                    }
+            for (Iterator<Long> it = hashQueue.iterator(); it.hasNext();) {
+                long encodedChunk = it.next();
 
-                    encodedChunk = hashQueue.poll();
-                    blocksToProcess = blockQueue.get(encodedChunk);
-                    blockQueue.remove(encodedChunk);
-                    world = entry.getWorld();
+                //HACK: We need to do SHL then SHR to handle the negative chunks propwerly
+                int cx = ((int) ((encodedChunk & 0xfffffff) << 4)) >> 4;
+                int cz = ((int) (((encodedChunk >> 28) & 0xfffffff) << 4)) >> 4;
 
-                    if (!hashQueue.isEmpty()) {
-                        m_worldsStack.push(worldUUID);
-                    }
+                if (isBlocked(worldUUID, cx, cz)) {
+                    continue;
                 }
+
+                it.remove();
+                Set<Short> blocks = blockQueue.remove(encodedChunk);
+
+                if (hashQueue.isEmpty()) {
+                    worlds.remove();
+                }
+
+                return new RelightJob(entry.getWorld(), worldUUID, cx, cz, blocks);
             }
 
-            if (blocksToProcess != null) {
-                relight(world, encodedChunk, blocksToProcess);
-                dataProcessed = true;
+            if (hashQueue.isEmpty()) {
+                worlds.remove();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Is the chunk neighbourhood used by any of the active jobs
+     *
+     * @param uuid
+     * @param cx
+     * @param cz
+     * @return
+     */
+    private boolean isBlocked(UUID uuid, int cx, int cz) {
+        for (RelightJob job : m_active) {
+            if (job.overlaps(uuid, cx, cz)) {
+                return true;
             }
         }
+
+        return false;
     }
 
     /**
      * Relight blocks
      *
-     * @param encodedChunk
-     * @param blocks
+     * @param job
+     * @param buffers
      */
-    private void relight(IWorld world, long encodedChunk, HashSet<Short> blocks) {
-        //HACK: We need to do SHL then SHR to handle the negative chunks propwerly
-        int cx = ((int) ((encodedChunk & 0xfffffff) << 4)) >> 4;
-        int cz = ((int) (((encodedChunk >> 28) & 0xfffffff) << 4)) >> 4;
+    private void relight(RelightJob job, RelightBuffers buffers) {
+        IWorld world = job.m_world;
         String worldName = world.getName();
 
         int[] ccx = new int[3];
         int[] ccz = new int[3];
 
         for (int i = -1; i < 2; i++) {
-            ccx[i + 1] = cx + i;
-            ccz[i + 1] = cz + i;
+            ccx[i + 1] = job.m_cx + i;
+            ccz[i + 1] = job.m_cz + i;
         }
 
         final IWrappedChunk[] chunks = new IWrappedChunk[9];
@@ -403,8 +505,21 @@ public class BlockReligher implements IBlockRelighter {
                 wChunk.initLighting();
             }
 
-            //relight(chunks, chunkData, blocks, m_relighterEmission);
-            relight(chunks, chunkData, blocks, m_relighterSky);
+            buffers.clearChanged();
+            relight(chunkData, job.m_blocks, m_relighterEmission, buffers);
+            relight(chunkData, job.m_blocks, m_relighterSky, buffers);
+
+            for (int i = 0; i < 9; i++) {
+                int changed = buffers.getChanged(i);
+                if (changed == 0) {
+                    continue;
+                }
+
+                IWrappedChunk chunk = chunks[i];
+                chunk.setDirty();
+                chunk.markSectionsDirty(changed);
+                m_updateQueue.queue(chunk);
+            }
         } finally {
             for (int i = 0; i < 3; i++) {
                 for (int j = 0; j < 3; j++) {
@@ -421,37 +536,32 @@ public class BlockReligher implements IBlockRelighter {
     /**
      * Recalculate light starting from blocks
      *
-     * @param chunks
+     * @param chunkData
+     * @param blocks
+     * @param relighter
+     * @param buffers
      */
-    private static void relight(IWrappedChunk[] chunks, IDirectChunkData[] chunkData, HashSet<Short> blocks,
-            IRelighterMethods relighter) {
-        //Move position to center chunk
-        final Set<Integer> diamond = new HashSet<>();
-        final HashMap<Byte, Queue<Integer>> blockQueue = new LinkedHashMap<>();
-        final Set<Integer> blockQueueFlat = new HashSet<>();
+    private static void relight(IDirectChunkData[] chunkData, Set<Short> blocks,
+            IRelighterMethods relighter, RelightBuffers buffers) {
+        buffers.reset();
 
-        calculateDiamond(blocks, diamond, chunkData, relighter.isFullY());
-        queueDiamond(diamond, chunkData, blockQueue, blockQueueFlat, relighter);
+        calculateDiamond(blocks, buffers, relighter.isFullY());
+        queueDiamond(chunkData, buffers, relighter);
 
-        while (!blockQueue.isEmpty()) {
-            int data = dequeueBlock(blockQueue, blockQueueFlat);
-            if (data == -1) {
-                continue;
-            }
-
-            int x = data & 0x3f;
-            int y = (data >> 12) & 0xff;
-            int z = (data >> 6) & 0x3f;
+        int idx;
+        while ((idx = buffers.dequeue()) != -1) {
+            int x = getX(idx);
+            int y = getY(idx);
+            int z = getZ(idx);
 
-            if (!diamond.contains(data)) {
-                continue;
-            }
-
-            int idx = (x / 16) + (z / 16) * 3;
-            IDirectChunkData chunk = chunkData[idx];
+            IDirectChunkData chunk = chunkData[(x >> 4) + (z >> 4) * 3];
 
             int lightCurrent = relighter.getCurrentLight(chunk, x & 0xf, y, z & 0xf);
-            int lightExpected = getExpectedLight(x, y, z, chunkData, relighter);
+            int lightExpected = getExpectedLight(idx, x, y, z, chunkData, relighter, buffers);
+
+            if (lightExpected != buffers.getPrevious(idx)) {
+                buffers.markChanged(x, y, z);
+            }
 
             if (lightCurrent == lightExpected) {
                 continue;
@@ -472,64 +582,83 @@ public class BlockReligher implements IBlockRelighter {
                 int newY = y + DD_Y[i];
                 int newZ = z + DD_Z[i];
 
-                data = encodeRelightPosition(newX, newY, newZ);
-                if (!diamond.contains(data) || newY < 0 || newY > 255) {
+                if (!isValid(newX, newY, newZ)) {
                     continue;
                 }
 
-                idx = (newX / 16) + (newZ / 16) * 3;
-                chunk = chunkData[idx];
-                lightCurrent = relighter.getCurrentLight(chunk, newX & 0xf, newY, newZ & 0xf);
-
-                if (lightCurrent >= lightExpected) {
+                int newIdx = index(newX, newY, newZ);
+                if (!buffers.isDiamond(newIdx) || buffers.isQueued(newIdx)) {
                     continue;
                 }
 
-                if (blockQueueFlat.contains(data)) {
+                chunk = chunkData[(newX >> 4) + (newZ >> 4) * 3];
+                lightCurrent = relighter.getCurrentLight(chunk, newX & 0xf, newY, newZ & 0xf);
+
+                if (lightCurrent >= lightExpected) {
                     continue;
                 }
 
-                queueBlock((byte) (lightExpected & 0xf), data, blockQueue, blockQueueFlat);
+                buffers.queue(lightExpected, newIdx);
             }
         }
-
-        for (IWrappedChunk chunk : chunks) {
-            chunk.setDirty();
-            chunk.sendChunkUpdate();
-        }
     }
 
-    private static void queueDiamond(final Set<Integer> diamond, IDirectChunkData[] chunkData,
-            final HashMap<Byte, Queue<Integer>> blockQueue, Set<Integer> blockQueueFlat,
+    /**
+     * Reset the diamond light, calculate the source light and queue the 
+     * diamond blocks
+     *
+     * @param chunkData
+     * @param buffers
+     * @param relighter
+     */
+    private static void queueDiamond(IDirectChunkData[] chunkData, RelightBuffers buffers,
             IRelighterMethods relighter) {
-        for (Integer data : diamond) {
-            int x = data & 0x3f;
-            int y = (data >> 12) & 0xff;
-            int z = (data >> 6) & 0x3f;
+        final RelightBuffers.IntRing diamond = buffers.getDiamond();
+        final boolean fullY = relighter.isFullY();
+        final int size = diamond.size();
+
+        byte lightAbove = 15;
+        for (int i = 0; i < size; i++) {
+            int idx = diamond.get(i);
+            int x = getX(idx);
+            int y = getY(idx);
+            int z = getZ(idx);
+
+            if (fullY && y == SIZE_Y - 1) {
+                //Full Y diamonds contain whole columns added top to bottom
+                lightAbove = 15;
+            }
 
-            int idx = (x / 16) + (z / 16) * 3;
-            IDirectChunkData chunk = chunkData[idx];
+            IDirectChunkData chunk = chunkData[(x >> 4) + (z >> 4) * 3];
+            buffers.setPrevious(idx, relighter.getCurrentLight(chunk, x & 0xf, y, z & 0xf));
             relighter.setCurrentLight(chunk, x & 0xf, y, z & 0xf, (byte) 0);
             int id = chunk.getRawBlockData(x & 0xf, y, z & 0xf);
-            byte lightLevel = relighter.getLightLevel(chunk, x & 0xf, y, z & 0xf, id);
+            byte lightLevel = relighter.getLightLevel(id, lightAbove);
 
-            queueBlock(lightLevel, data, blockQueue, blockQueueFlat);
+            lightAbove = lightLevel;
+            buffers.setSource(idx, lightLevel);
+            buffers.queue(lightLevel, idx);
         }
     }
 
     /**
-     * Queue all blocks inside a diamond shape
+     * Calculate the diamond shape around all the blocks
      *
-     * @param blockQueue
-     * @param chunkData
+     * @param blocks
+     * @param buffers
+     * @param fullY
      */
-    private static void calculateDiamond(Set<Short> blocks, final Set<Integer> diamond, IDirectChunkData[] chunkData,
-            boolean fullY) {
+    private static void calculateDiamond(Set<Short> blocks, RelightBuffers buffers, boolean fullY) {
         for (Short data : blocks) {
             int px = 16 + (data & 0xf);
             int py = (data >> 8) & 0xff;
             int pz = 16 + ((data >> 4) & 0xf);
 
+            if (fullY && !buffers.addChangedColumn(px, pz)) {
+                //Column already processed
+                continue;
+            }
+
             for (int tx = -15; tx <= 15; tx++) {
                 int dx = tx < 0 ? -tx : tx;
                 int x = px + tx;
@@ -537,23 +666,20 @@ public class BlockReligher implements IBlockRelighter {
                     int z = pz + tz;
                     int dz = tz < 0 ? -tz : tz;
 
-                    int yMin, yMax;
                     if (fullY) {
-                        yMin = 0;
-                        yMax = 255;
-                    } else {
-                        yMin = py + -15 + dx + dz;
-                        yMax = py + 15 - dx - dz;
-                    }
+                        if (!buffers.addDiamondColumn(x, z)) {
+                            continue;
+                        }
 
-                    for (int y = yMin; y <= yMax; y++) {
-                        if (!isValidPos(x, y, z)) {
-                            return;
+                        for (int y = SIZE_Y - 1; y >= 0; y--) {
+                            buffers.addDiamond(index(x, y, z));
                         }
+                    } else {
+                        int yMin = Math.max(0, py - 15 + dx + dz);
+                        int yMax = Math.min(SIZE_Y - 1, py + 15 - dx - dz);
 
-                        Integer encoded = encodeRelightPosition(x, y, z);
-                        if (!diamond.contains(encoded)) {
-                            diamond.add(encoded);
+                        for (int y = yMin; y <= yMax; y++) {
+                            buffers.addDiamond(index(x, y, z));
                         }
                     }
                 }
@@ -561,50 +687,24 @@ public class BlockReligher implements IBlockRelighter {
         }
     }
 
-    /**
-     * Encode relight block position and expected light value
-     *
-     * @param x
-     * @param y
-     * @param z
-     * @param light
-     * @return
-     */
-    private static int encodeRelightPosition(int x, int y, int z) {
-        return (x & 0x3f) | ((z & 0x3f) << 6) | ((y & 0xff) << 12);
-    }
-
-    /**
-     * Is the position valid
-     *
-     * @param px
-     * @param py
-     * @param pz
-     * @return
-     */
-    private static boolean isValidPos(int px, int py, int pz) {
-        return px >= 0 && px < 48 && pz >= 0 && pz < 48 && py >= 0 && py < 256;
-    }
-
     /**
      * Get the expected light level for block
      *
+     * @param idx
      * @param x
      * @param y
      * @param z
      * @param chunkData
+     * @param relighter
+     * @param buffers
      * @return
      */
-    private static int getExpectedLight(int x, int y, int z, IDirectChunkData[] chunkData,
-            IRelighterMethods relighter) {
-        if (!isValidPos(x, y, z)) {
-            return -1;
-        }
-
-        IDirectChunkData chunk = chunkData[(x / 16) + (z / 16) * 3];
+    private static int getExpectedLight(int idx, int x, int y, int z, IDirectChunkData[] chunkData,
+            IRelighterMethods relighter, RelightBuffers buffers) {
+        IDirectChunkData chunk = chunkData[(x >> 4) + (z >> 4) * 3];
         int tBlockType = chunk.getRawBlockData(x & 0xf, y, z & 0xf);
 
-        int tLight = relighter.getLightLevel(chunk, x & 0xf, y, z & 0xf, tBlockType);
+        int tLight = buffers.getSource(idx);
         int tOpacity = relighter.getOpacityLevel(tBlockType);
 
         if (tOpacity >= 15) {
@@ -619,62 +719,14 @@ public class BlockReligher implements IBlockRelighter {
             int newY = y + DD_Y[i];
             int newZ = z + DD_Z[i];
 
-            if (!isValidPos(newX, newY, newZ) || newY < 0 || newY > 255) {
+            if (!isValid(newX, newY, newZ)) {
                 continue;
             }
 
-            chunk = chunkData[(newX / 16) + (newZ / 16) * 3];
-            tBlockType = chunk.getRawBlockData(newX & 0xf, newY, newZ & 0xf);
+            chunk = chunkData[(newX >> 4) + (newZ >> 4) * 3];
             tLight = Math.max(tLight, relighter.getCurrentLight(chunk, newX & 0xf, newY, newZ & 0xf) - tOpacity);
         }
 
         return tLight;
     }
-
-    /**
-     * Queue block to block queue
-     *
-     * @param emission
-     * @param data
-     * @param blockQueue
-     */
-    private static void queueBlock(Byte emission, Integer data,
-            HashMap<Byte, Queue<Integer>> blockQueue, Set<Integer> blockQueueFlat) {
-        Queue<Integer> entry = blockQueue.get(emission);
-        if (entry == null) {
-            entry = new LinkedList<>();
-            blockQueue.put(emission, entry);
-        }
-
-        entry.add(data);
-        blockQueueFlat.add(data);
-    }
-
-    private static int dequeueBlock(HashMap<Byte, Queue<Integer>> blockQueue,
-            Set<Integer> blockQueueFlat) {
-        if (blockQueue.isEmpty()) {
-            return -1;
-        }
-
-        for (Byte emission = 15; emission >= 0; emission--) {
-            Queue<Integer> queue = blockQueue.get(emission);
-            if (queue == null) {
-                continue;
-            }
-            if (queue.isEmpty()) {
-                blockQueue.remove(emission);
-                continue;
-            }
-
-            Integer result = queue.poll();
-            blockQueueFlat.remove(result);
-            if (queue.isEmpty()) {
-                blockQueue.remove(emission);
-            }
-
-            return result;
-        }
-
-        return -1;
-    }
 }
@@ -0,0 +1,385 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk.relighter;
+
+import java.util.Arrays;
+
+/**
+ * Per worker relight working set. Positions are flat indexes into a 3x3
+ * chunk area (48x256x48), all the sets are bitmaps and the light level 
+ * queues are int ring buffers so relighting does not allocate.
+ *
+ * @author SBPrime
+ */
+final class RelightBuffers {
+
+    /**
+     * The area size (X and Z)
+     */
+    final static int SIZE_XZ = 48;
+
+    /**
+     * The area height
+     */
+    final static int SIZE_Y = 256;
+
+    /**
+     * Number of blocks in the area
+     */
+    final static int VOLUME = SIZE_XZ * SIZE_XZ * SIZE_Y;
+
+    /**
+     * Number of light levels
+     */
+    private final static int LEVELS = 16;
+
+    /**
+     * Positions that are relit
+     */
+    private final long[] m_diamond = new long[VOLUME >> 6];
+
+    /**
+     * Positions that are currently on the queue
+     */
+    private final long[] m_queued = new long[VOLUME >> 6];
+
+    /**
+     * Columns that contain a changed block (sky light only)
+     */
+    private final long[] m_changedColumns = new long[(SIZE_XZ * SIZE_XZ + 63) >> 6];
+
+    /**
+     * Columns that are part of the diamond (sky light only)
+     */
+    private final long[] m_diamondColumns = new long[(SIZE_XZ * SIZE_XZ + 63) >> 6];
+
+    /**
+     * The source light level of the diamond positions
+     */
+    private final byte[] m_source = new byte[VOLUME];
+
+    /**
+     * The light level of the diamond positions before the relight
+     */
+    private final byte[] m_previous = new byte[VOLUME];
+
+    /**
+     * The changed sections of the 3x3 chunks
+     */
+    private final int[] m_changed = new int[9];
+
+    /**
+     * The diamond positions in insertion order
+     */
+    private final IntRing m_diamondList = new IntRing();
+
+    /**
+     * The per light level queues
+     */
+    private final IntRing[] m_levels = new IntRing[LEVELS];
+
+    /**
+     * Highest light level that may contain queued positions
+     */
+    private int m_maxLevel = -1;
+
+    RelightBuffers() {
+        for (int i = 0; i < LEVELS; i++) {
+            m_levels[i] = new IntRing();
+        }
+    }
+
+    /**
+     * Convert the position to a flat index
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    static int index(int x, int y, int z) {
+        return x + SIZE_XZ * (z + SIZE_XZ * y);
+    }
+
+    static int getX(int idx) {
+        return idx % SIZE_XZ;
+    }
+
+    static int getZ(int idx) {
+        return (idx / SIZE_XZ) % SIZE_XZ;
+    }
+
+    static int getY(int idx) {
+        return idx / (SIZE_XZ * SIZE_XZ);
+    }
+
+    /**
+     * Is the position inside the area
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    static boolean isValid(int x, int y, int z) {
+        return x >= 0 && x < SIZE_XZ && z >= 0 && z < SIZE_XZ && y >= 0 && y < SIZE_Y;
+    }
+
+    /**
+     * Clear the working set
+     */
+    void reset() {
+        Arrays.fill(m_diamond, 0);
+        Arrays.fill(m_queued, 0);
+        Arrays.fill(m_changedColumns, 0);
+        Arrays.fill(m_diamondColumns, 0);
+        m_diamondList.clear();
+        for (IntRing level : m_levels) {
+            level.clear();
+        }
+        m_maxLevel = -1;
+    }
+
+    /**
+     * Add the position to the diamond
+     *
+     * @param idx
+     */
+    void addDiamond(int idx) {
+        if (set(m_diamond, idx)) {
+            m_diamondList.add(idx);
+        }
+    }
+
+    boolean isDiamond(int idx) {
+        return get(m_diamond, idx);
+    }
+
+    IntRing getDiamond() {
+        return m_diamondList;
+    }
+
+    /**
+     * Mark the column as changed
+     *
+     * @param x
+     * @param z
+     * @return true if the column was not marked
+     */
+    boolean addChangedColumn(int x, int z) {
+        return set(m_changedColumns, x + z * SIZE_XZ);
+    }
+
+    /**
+     * Mark the column as part of the diamond
+     *
+     * @param x
+     * @param z
+     * @return true if the column was not marked
+     */
+    boolean addDiamondColumn(int x, int z) {
+        return set(m_diamondColumns, x + z * SIZE_XZ);
+    }
+
+    void setSource(int idx, byte level) {
+        m_source[idx] = level;
+    }
+
+    byte getSource(int idx) {
+        return m_source[idx];
+    }
+
+    void setPrevious(int idx, byte level) {
+        m_previous[idx] = level;
+    }
+
+    byte getPrevious(int idx) {
+        return m_previous[idx];
+    }
+
+    /**
+     * Mark the section containing the position as changed
+     *
+     * @param x
+     * @param y
+     * @param z
+     */
+    void markChanged(int x, int y, int z) {
+        m_changed[(x >> 4) + (z >> 4) * 3] |= 1 << (y >> 4);
+    }
+
+    /**
+     * Get the changed sections of a chunk
+     *
+     * @param chunk the chunk index in the 3x3 area
+     * @return
+     */
+    int getChanged(int chunk) {
+        return m_changed[chunk];
+    }
+
+    /**
+     * Clear the changed sections, the changed sections are not cleared by 
+     * the reset so they can be collected from multiple passes
+     */
+    void clearChanged() {
+        Arrays.fill(m_changed, 0);
+    }
+
+    boolean isQueued(int idx) {
+        return get(m_queued, idx);
+    }
+
+    /**
+     * Queue the position
+     *
+     * @param level the light level
+     * @param idx
+     */
+    void queue(int level, int idx) {
+        level &= 0xf;
+
+        m_levels[level].add(idx);
+        set(m_queued, idx);
+
+        if (level > m_maxLevel) {
+            m_maxLevel = level;
+        }
+    }
+
+    /**
+     * Get the next position, highest light levels first
+     *
+     * @return the position or -1 if the queue is empty
+     */
+    int dequeue() {
+        while (m_maxLevel >= 0) {
+            IntRing level = m_levels[m_maxLevel];
+            if (level.isEmpty()) {
+                m_maxLevel--;
+                continue;
+            }
+
+            int idx = level.poll();
+            clear(m_queued, idx);
+            return idx;
+        }
+
+        return -1;
+    }
+
+    private static boolean set(long[] bits, int idx) {
+        int word = idx >> 6;
+        long mask = 1L << idx;
+        long old = bits[word];
+
+        bits[word] = old | mask;
+        return (old & mask) == 0;
+    }
+
+    private static void clear(long[] bits, int idx) {
+        bits[idx >> 6] &= ~(1L << idx);
+    }
+
+    private static boolean get(long[] bits, int idx) {
+        return (bits[idx >> 6] & (1L << idx)) != 0;
+    }
+
+    /**
+     * Growable int FIFO ring buffer
+     */
+    static final class IntRing {
+
+        private int[] m_data = new int[256];
+
+        private int m_head;
+
+        private int m_size;
+
+        void add(int value) {
+            if (m_size == m_data.length) {
+                int[] data = new int[m_data.length << 1];
+                int tail = m_data.length - m_head;
+
+                System.arraycopy(m_data, m_head, data, 0, tail);
+                System.arraycopy(m_data, 0, data, tail, m_head);
+
+                m_data = data;
+                m_head = 0;
+            }
+
+            m_data[(m_head + m_size) & (m_data.length - 1)] = value;
+            m_size++;
+        }
+
+        int poll() {
+            int result = m_data[m_head];
+
+            m_head = (m_head + 1) & (m_data.length - 1);
+            m_size--;
+            return result;
+        }
+
+        int get(int i) {
+            return m_data[(m_head + i) & (m_data.length - 1)];
+        }
+
+        int size() {
+            return m_size;
+        }
+
+        boolean isEmpty() {
+            return m_size == 0;
+        }
+
+        void clear() {
+            m_head = 0;
+            m_size = 0;
+        }
+    }
+}
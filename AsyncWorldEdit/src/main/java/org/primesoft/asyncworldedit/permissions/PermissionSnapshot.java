@@ -0,0 +1,222 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.permissions;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.primesoft.asyncworldedit.api.permissions.IPermission;
+import org.primesoft.asyncworldedit.configuration.PermissionGroup;
+import org.primesoft.asyncworldedit.platform.api.IPermissionProvider;
+
+/**
+ * Cached permissions of a single player. All {@link Permission} values and the
+ * permission group are resolved at once and kept until the snapshot is
+ * invalidated or expires, so the hot paths only read a bit instead of asking
+ * the permission plugin. An expired snapshot is refreshed by one thread while
+ * the other threads keep using the old one.
+ *
+ * @author SBPrime
+ */
+public class PermissionSnapshot {
+
+    /**
+     * The default snapshot lifetime (ms)
+     */
+    public final static long DEFAULT_TTL = 60000;
+
+    /**
+     * All known permissions
+     */
+    private final static Permission[] PERMISSIONS = Permission.values();
+
+    /**
+     * The permission provider
+     */
+    private final IPermissionProvider m_provider;
+
+    /**
+     * The snapshot lifetime (ms)
+     */
+    private final long m_ttl;
+
+    /**
+     * The refresh mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * Is the expired snapshot being refreshed
+     */
+    private final AtomicBoolean m_refreshing = new AtomicBoolean();
+
+    /**
+     * The current snapshot
+     */
+    private volatile Entry m_entry;
+
+    public PermissionSnapshot(IPermissionProvider provider) {
+        this(provider, DEFAULT_TTL);
+    }
+
+    public PermissionSnapshot(IPermissionProvider provider, long ttl) {
+        m_provider = provider;
+        m_ttl = ttl;
+    }
+
+    /**
+     * Is the permission granted
+     *
+     * @param permission
+     * @return
+     */
+    public boolean isAllowed(IPermission permission) {
+        final Entry entry = getEntry();
+
+        if (permission instanceof Permission) {
+            return entry.m_allowed.get(((Permission) permission).ordinal());
+        }
+
+        return entry.m_other.computeIfAbsent(permission.getNode(), m_provider::hasPermission);
+    }
+
+    /**
+     * Get the resolved permission group
+     *
+     * @return
+     */
+    public PermissionGroup getPermissionGroup() {
+        return getEntry().m_group;
+    }
+
+    /**
+     * Drop the snapshot, the next check resolves the permissions again
+     */
+    public void invalidate() {
+        synchronized (m_mutex) {
+            m_entry = null;
+        }
+    }
+
+    private Entry getEntry() {
+        Entry entry = m_entry;
+        if (isValid(entry)) {
+            return entry;
+        }
+
+        if (entry != null) {
+            return refresh(entry);
+        }
+
+        synchronized (m_mutex) {
+            entry = m_entry;
+            if (isValid(entry)) {
+                return entry;
+            }
+
+            entry = new Entry();
+            m_entry = entry;
+
+            return entry;
+        }
+    }
+
+    /**
+     * Refresh the expired snapshot, if the snapshot is already being
+     * refreshed by other thread the expired snapshot is used
+     *
+     * @param expired
+     * @return
+     */
+    private Entry refresh(Entry expired) {
+        if (!m_refreshing.compareAndSet(false, true)) {
+            return expired;
+        }
+
+        try {
+            final Entry entry = new Entry();
+
+            synchronized (m_mutex) {
+                if (m_entry == expired) {
+                    m_entry = entry;
+                }
+            }
+
+            return entry;
+        } finally {
+            m_refreshing.set(false);
+        }
+    }
+
+    private boolean isValid(Entry entry) {
+        return entry != null && System.currentTimeMillis() - entry.m_time < m_ttl;
+    }
+
+    private class Entry {
+
+        private final BitSet m_allowed = new BitSet(PERMISSIONS.length);
+
+        private final Map<String, Boolean> m_other = new ConcurrentHashMap<>();
+
+        private final PermissionGroup m_group;
+
+        private final long m_time;
+
+        Entry() {
+            for (Permission p : PERMISSIONS) {
+                if (m_provider.hasPermission(p.getNode())) {
+                    m_allowed.set(p.ordinal());
+                }
+            }
+
+            m_group = PermissionManager.getPermissionGroup(m_provider);
+            m_time = System.currentTimeMillis();
+        }
+    }
+}
@@ -47,8 +47,6 @@
  */
 package org.primesoft.asyncworldedit.platform.bukkit;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.Chunk;
 import org.bukkit.Server;
 import org.bukkit.World;
@@ -57,8 +55,8 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitScheduler;
 import org.primesoft.asyncworldedit.core.ChunkWatch;
+import org.primesoft.asyncworldedit.core.ForceloadTicketManager;
 
 /**
  *
@@ -66,56 +64,46 @@ import org.primesoft.asyncworldedit.core.ChunkWatch;
  */
 class BukkitChunkWatcher extends ChunkWatch implements Listener {
 
-    private final static int HOLD_CHUNK = 1000;
+    /**
+     * Number of ticks the chunk is force loaded after the last watch is removed
+     */
+    private final static int HOLD_CHUNK = 20;
+
+    /**
+     * Maximum number of chunks force loaded in a single tick
+     */
+    private final static int LOADS_PER_TICK = 64;
 
     private final Plugin m_plugin;
 
-    private final Map<String, Map<Long, ChunkEntry>> m_forceload = new ConcurrentHashMap<>();
+    private final ForceloadTicketManager m_forceload;
 
-    private final BukkitScheduler m_scheduler;
     private final Server m_server;
 
     public BukkitChunkWatcher(Plugin plugin) {
         m_plugin = plugin;
         m_server = plugin.getServer();
-        m_scheduler = m_server.getScheduler();
+        m_forceload = new ForceloadTicketManager(HOLD_CHUNK, LOADS_PER_TICK) {
+            @Override
+            protected boolean setForceLoaded(String world, int cx, int cz, boolean forceLoaded) {
+                return doSetForceLoaded(world, cx, cz, forceLoaded);
+            }
+        };
 
-        m_scheduler.runTaskTimer(plugin, this::forceLoadProcessor, 1, 1);
+        m_server.getScheduler().runTaskTimer(plugin, m_forceload::tick, 1, 1);
     }
 
-    private void forceLoadProcessor() {
-        long now = System.currentTimeMillis();
-        long minTime = now - HOLD_CHUNK;
+    private boolean doSetForceLoaded(String worldName, int cx, int cz, boolean forceLoaded) {
+        final World world = m_server.getWorld(worldName);
+        if (world == null) {
+            return false;
+        }
 
-        for (String worldName : m_forceload.keySet()) {
-            final World world = m_server.getWorld(worldName);
-            if (world == null) {
-                continue;
-            }
-            
-            final Map<Long, ChunkEntry> chunks = m_forceload.get(worldName);
-            for (Long coords : chunks.keySet()) {
-                chunks.computeIfPresent(coords, (_coords, chunkEntry) -> {
-                   final Chunk chunk = world.getChunkAt(chunkEntry.cx, chunkEntry.cz);
-                    if (chunk == null) {
-                        return null;
-                    }
-
-                    final boolean forceLoadCurrent = chunk.isForceLoaded();
-                    final boolean forceLoadDesired = chunkEntry.timestamp < 0 && -chunkEntry.timestamp < minTime;
-
-                    if (forceLoadCurrent != forceLoadDesired) {
-                        chunk.setForceLoaded(forceLoadDesired);
-                    }
-
-                    if (!forceLoadDesired) {
-                        return null;
-                    }
-                    
-                    return chunkEntry;
-                });
-            }
+        if (world.isChunkForceLoaded(cx, cz) != forceLoaded) {
+            world.setChunkForceLoaded(cx, cz, forceLoaded);
         }
+
+        return true;
     }
 
     @EventHandler
@@ -169,75 +157,18 @@ class BukkitChunkWatcher extends ChunkWatch implements Listener {
 
     @Override
     protected void forceloadOff(String world, int cx, int cz) {
-        final long now = System.currentTimeMillis();
-        
-        m_forceload.computeIfAbsent(world, _w -> new ConcurrentHashMap<>())
-            .computeIfPresent(encode(cx, cz), (_coords, value) -> {
-                if ((value.timestamp < 0 && -value.timestamp < now) || 
-                    (value.timestamp >= 0 && value.timestamp < now)) {
-                    value.timestamp = -now;
-                }
-
-                return value;
-            });
+        m_forceload.release(world, cx, cz);
     }
 
     @Override
     protected void forceloadOn(String world, int cx, int cz) {
-        final long now = System.currentTimeMillis();
-        
-        m_forceload.computeIfAbsent(world, _w -> new ConcurrentHashMap<>())
-            .compute(encode(cx, cz), (_coords, value) -> {
-                if (value == null) {
-                    return new ChunkEntry(cx, cz, now);
-                }
-
-                if ((value.timestamp < 0 && -value.timestamp < now) || 
-                    (value.timestamp >= 0 && value.timestamp < now)) {
-                    value.timestamp = now;
-                }
-
-                return value;
-            });
+        m_forceload.issue(world, cx, cz);
     }
 
     @Override
     public void clear() {
         super.clear();
 
-        /*
-        for (Map.Entry<String, Map<Long, Boolean>> entry : m_forceload.entrySet()) {
-            final String world = entry.getKey();
-            m_scheduler.runTask(m_plugin, () -> {
-                World w = m_server.getWorld(world);
-                if (w == null) {
-                    return;
-                }
-                for (Map.Entry<Long, Boolean> chunkEntry : entry.getValue().entrySet()) {
-                    if (chunkEntry.getValue()) {
-                        long c = chunkEntry.getKey();
-                        Chunk chunk = w.getChunkAt((int) (c >> 32), (int) c);
-                        if (chunk != null) {
-                            chunk.setForceLoaded(false);
-                        }
-                    }
-                }
-            });
-        }
-         */
         m_forceload.clear();
     }
-
-    private static class ChunkEntry {
-        public volatile long timestamp;
-        
-        public final int cx;
-        public final int cz;
-        
-        public ChunkEntry(int cx, int cz, long timestamp) {
-            this.cx = cx;
-            this.cz = cz;
-            this.timestamp = timestamp;
-        }
-    }
 }
@@ -47,8 +47,6 @@
  */
 package org.primesoft.asyncworldedit.platform.bukkit;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.entity.Player;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
 import org.primesoft.asyncworldedit.platform.api.IPermissionProvider;
@@ -58,10 +56,6 @@ import org.primesoft.asyncworldedit.platform.api.IPermissionProvider;
  * @author SBPrime
  */
 class BukkitPermissionChecker implements IPermissionProvider {
-    private final static long CHECK_INTERVAL = 1000;
-    
-    private final Map<String, PermEntry> m_cachedPerms = new ConcurrentHashMap<>();
-            
     private final Player m_player;
 
     public BukkitPermissionChecker(Player p) {
@@ -74,24 +68,7 @@ class BukkitPermissionChecker implements IPermissionProvider {
             return true;
         }
         
-        final PermEntry pe = m_cachedPerms.computeIfAbsent(permissionNode, _pn -> new PermEntry());
-        final long now = System.currentTimeMillis();
-        
-        if (now - pe.LastCheck < CHECK_INTERVAL) {
-            return pe.Value;
-        }
-        
-        boolean newState = (m_player.isOp() && ConfigProvider.permission().opHasAll()) |
+        return (m_player.isOp() && ConfigProvider.permission().opHasAll()) ||
                 m_player.hasPermission(permissionNode);
-        
-        pe.LastCheck = now;
-        pe.Value = newState;
-        
-        return newState;
-    }
-    
-    private static class PermEntry {
-        public boolean Value;
-        public long LastCheck = -1;
     }
 }
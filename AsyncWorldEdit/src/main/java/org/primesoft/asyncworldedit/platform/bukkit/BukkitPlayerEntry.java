@@ -48,10 +48,10 @@
 package org.primesoft.asyncworldedit.platform.bukkit;
 
 import org.bukkit.entity.Player;
+import org.primesoft.asyncworldedit.api.configuration.IPermissionGroup;
 import org.primesoft.asyncworldedit.api.permissions.IPermission;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
-import org.primesoft.asyncworldedit.permissions.PermissionManager;
-import org.primesoft.asyncworldedit.platform.api.IPermissionProvider;
+import org.primesoft.asyncworldedit.permissions.PermissionSnapshot;
 import org.primesoft.asyncworldedit.playerManager.PlayerEntry;
 
 /**
@@ -60,16 +60,16 @@ import org.primesoft.asyncworldedit.playerManager.PlayerEntry;
  */
 public class BukkitPlayerEntry extends PlayerEntry {
     private Player m_player;
-    private final IPermissionProvider m_permissionProvider;
+    private volatile PermissionSnapshot m_permissions;
 
     BukkitPlayerEntry(Player player) {
-        this(player, new BukkitPermissionChecker(player));
+        this(player, new PermissionSnapshot(new BukkitPermissionChecker(player)));
     }
     
-    private BukkitPlayerEntry(Player player, IPermissionProvider permissionProvider) {
-        super(player.getName(), player.getUniqueId(), PermissionManager.getPermissionGroup(permissionProvider));
+    private BukkitPlayerEntry(Player player, PermissionSnapshot permissions) {
+        super(player.getName(), player.getUniqueId(), permissions.getPermissionGroup());
         
-        m_permissionProvider = permissionProvider;
+        m_permissions = permissions;
         m_player = player;
     }
 
@@ -102,7 +102,19 @@ public class BukkitPlayerEntry extends PlayerEntry {
 
     @Override
     public boolean isAllowed(IPermission permission) {
-        return m_permissionProvider.hasPermission(permission.getNode());
+        return m_permissions.isAllowed(permission);
+    }
+
+    @Override
+    public IPermissionGroup getPermissionGroup() {
+        return m_permissions.getPermissionGroup();
+    }
+
+    /**
+     * Drop the cached permissions, they are resolved again on the next check
+     */
+    public void invalidatePermissions() {
+        m_permissions.invalidate();
     }
 
 
@@ -129,12 +141,15 @@ public class BukkitPlayerEntry extends PlayerEntry {
             return;
         }
 
-        setPermissionGroup(player.getPermissionGroup());
-        m_player = ((BukkitPlayerEntry) player).getPlayer();
+        final BukkitPlayerEntry bukkitPlayer = (BukkitPlayerEntry) player;
+        m_permissions = bukkitPlayer.m_permissions;
+        m_player = bukkitPlayer.getPlayer();
+        setPermissionGroup(m_permissions.getPermissionGroup());
     }
 
     @Override
     public void updatePermissionGroup() {
-        setPermissionGroup(PermissionManager.getPermissionGroup(m_permissionProvider));
+        m_permissions.invalidate();
+        setPermissionGroup(m_permissions.getPermissionGroup());
     }
 }
@@ -51,6 +51,7 @@ import org.bukkit.Server;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.Plugin;
@@ -145,6 +146,25 @@ public class BukkitPlayerProvider implements Listener, IPlayerProvider {
         m_playerManager.removePlayer(player.getUniqueId());
     }
 
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        synchronized (m_mtaMutex) {            
+            if (!isInitialized) {
+                return;
+            }                        
+        }
+        
+        final Player player = event.getPlayer();
+        if (player == null) {
+            return;
+        }
+        
+        final IPlayerEntry entry = m_playerManager.getPlayer(player.getUniqueId());
+        if (entry instanceof BukkitPlayerEntry) {
+            ((BukkitPlayerEntry) entry).invalidatePermissions();
+        }
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         synchronized (m_mtaMutex) {            
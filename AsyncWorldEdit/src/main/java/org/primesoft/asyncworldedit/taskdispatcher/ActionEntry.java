@@ -47,7 +47,9 @@
  */
 package org.primesoft.asyncworldedit.taskdispatcher;
 
+import java.util.concurrent.CompletableFuture;
 import org.primesoft.asyncworldedit.api.utils.IAction;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
 /**
  *
@@ -61,9 +63,9 @@ public class ActionEntry extends BaseDispatcherEntry {
         
     
     /**
-     * Is the task done
+     * The action completion
      */
-    private boolean m_isDone = false;
+    private final CompletableFuture<Void> m_future = new CompletableFuture<>();
 
     
     /**
@@ -79,7 +81,15 @@ public class ActionEntry extends BaseDispatcherEntry {
      * @return 
      */
     public boolean isDone() {
-        return m_isDone;
+        return m_future.isDone();
+    }
+
+    /**
+     * The action completion future
+     * @return 
+     */
+    public CompletableFuture<Void> getFuture() {
+        return m_future;
     }
 
     /**
@@ -93,6 +103,18 @@ public class ActionEntry extends BaseDispatcherEntry {
     @Override
     public void Execute() {
         m_action.execute();
-        m_isDone = true;
-    }        
-}
\ No newline at end of file
+        m_future.complete(null);
+    }
+
+    @Override
+    public boolean Process() {
+        try {
+            Execute();
+        } catch (Exception ex) {
+            ExceptionHelper.printException(ex, "Error while executing dispatcher task");
+            m_future.completeExceptionally(ex);
+        }
+        
+        return true;
+    }
+}
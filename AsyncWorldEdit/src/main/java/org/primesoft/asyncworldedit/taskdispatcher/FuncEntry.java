@@ -48,7 +48,9 @@
 package org.primesoft.asyncworldedit.taskdispatcher;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
 /**
  *
@@ -58,14 +60,34 @@ import org.primesoft.asyncworldedit.api.utils.IFunc;
 public class FuncEntry<T> extends BaseDispatcherEntry {
 
     private final IFunc<T> m_action;
-    private volatile Optional<T> m_result = null;
+    
+    /**
+     * The operation result
+     */
+    private final CompletableFuture<T> m_future = new CompletableFuture<>();
 
     public IFunc<T> getAction() {
         return m_action;
     }
 
+    /**
+     * The operation result
+     * @return null if the operation is not done
+     */
     public Optional<T> getResult() {
-        return m_result;
+        if (!m_future.isDone()) {
+            return null;
+        }
+        
+        return m_future.isCompletedExceptionally() ? Optional.empty() : Optional.ofNullable(m_future.join());
+    }
+
+    /**
+     * The operation result future
+     * @return 
+     */
+    public CompletableFuture<T> getFuture() {
+        return m_future;
     }
 
     public FuncEntry(IFunc action) {
@@ -74,7 +96,18 @@ public class FuncEntry<T> extends BaseDispatcherEntry {
 
     @Override
     public void Execute() {
-        T result = m_action.execute();
-        m_result = result == null ? Optional.empty() : Optional.of(result);
+        m_future.complete(m_action.execute());
+    }
+
+    @Override
+    public boolean Process() {
+        try {
+            Execute();
+        } catch (Exception ex) {
+            ExceptionHelper.printException(ex, "Error while executing dispatcher task");
+            m_future.completeExceptionally(ex);
+        }
+        
+        return true;
     }
 }
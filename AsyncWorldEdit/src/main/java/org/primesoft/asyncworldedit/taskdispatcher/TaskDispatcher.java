@@ -53,11 +53,12 @@ import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.api.taskdispatcher.IDispatcherEntry;
 import com.sk89q.worldedit.regions.Region;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
 import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
@@ -70,6 +71,7 @@ import org.primesoft.asyncworldedit.platform.api.IScheduler;
 import org.primesoft.asyncworldedit.platform.api.ITask;
 import org.primesoft.asyncworldedit.utils.InOutParam;
 import org.primesoft.asyncworldedit.utils.PositionHelper;
+import org.primesoft.asyncworldedit.utils.StripedChunkLock;
 
 /**
  * This class is used to perform tasks that need to by performed as fast as
@@ -118,10 +120,10 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
     private final IAsyncWorldEditCore m_aweCore;
 
     /**
-     * List of fast tasks (high priority) Use linked list to overcome memory
-     * leakage
+     * List of fast tasks (high priority), lock free so the workers do not
+     * contend with the main thread
      */
-    private final Queue<IDispatcherEntry> m_fastTasks = new LinkedList<>();
+    private final Queue<IDispatcherEntry> m_fastTasks = new ConcurrentLinkedQueue<>();
 
     /**
      * The main thread
@@ -219,23 +221,14 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
 
             boolean processed = false;
             for (int i = 0; i < jobsCount && (m_usage * 3 + usage) / 4 < maxTime; i++) {
-                IDispatcherEntry task = null;
-                synchronized (m_fastTasks) {
-                    if (!m_fastTasks.isEmpty()) {
-                        task = m_fastTasks.poll();
-                    }
+                final IDispatcherEntry task = m_fastTasks.poll();
+                if (task == null) {
+                    //Queue drained, the new tasks are processed in the next tick
+                    break;
                 }
 
-                if (task != null) {
-                    task.Process();
-                    processed = true;
-                } else {
-                    try {
-                        //Force thread change
-                        Thread.sleep(1);
-                    } catch (InterruptedException ex) {
-                    }
-                }
+                task.Process();
+                processed = true;
 
                 runTime = System.currentTimeMillis() - enter;
                 if (runTime + runDelta > 0) {
@@ -285,9 +278,7 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
      */
     @Override
     public void addFastTask(IDispatcherEntry entry) {
-        synchronized (m_fastTasks) {
-            m_fastTasks.add(entry);
-        }
+        m_fastTasks.add(entry);
 
         startFastTask();
     }
@@ -321,6 +312,22 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
                 ;
     }
 
+    /**
+     * Wait for the dispatcher operation to finish
+     *
+     * @param <T>
+     * @param future
+     * @return null if the operation failed
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            //The error is already logged by the entry
+            return null;
+        }
+    }
+
     /**
      * Queue secure get operation
      *
@@ -334,24 +341,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return null;
         }
 
-        FuncEntry<T> getBlock = new FuncEntry<>(action);
         if (isMainTask()) {
             return action.execute();
         }
 
-        final Object mutex = getBlock.getMutex();
-
-        addFastTask(getBlock);
-        synchronized (mutex) {
-            while (getBlock.getResult() == null) {
-                try {
-                    mutex.wait();
-                } catch (InterruptedException ex) {
-                }
-            }
-        }
-        
-        return getBlock.getResult().orElse(null);
+        return await(queueFastOperationAsync(action));
     }
 
     /**
@@ -364,23 +358,57 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return;
         }
 
-        ActionEntry actionEntry = new ActionEntry(action);
         if (isMainTask()) {
             action.execute();
             return;
         }
 
-        final Object mutex = actionEntry.getMutex();
+        await(queueFastOperationAsync(action));
+    }
 
-        addFastTask(actionEntry);
-        synchronized (mutex) {
-            while (!actionEntry.isDone()) {
-                try {
-                    mutex.wait();
-                } catch (InterruptedException ex) {
-                }
-            }
+    /**
+     * Queue secure get operation without waiting for the result
+     *
+     * @param <T>
+     * @param action
+     * @return
+     */
+    @Override
+    public <T> CompletableFuture<T> queueFastOperationAsync(IFunc<T> action) {
+        if (action == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final FuncEntry<T> entry = new FuncEntry<>(action);
+        if (isMainTask()) {
+            entry.Process();
+        } else {
+            addFastTask(entry);
+        }
+
+        return entry.getFuture();
+    }
+
+    /**
+     * Queue the action without waiting for it to finish
+     *
+     * @param action
+     * @return
+     */
+    @Override
+    public CompletableFuture<Void> queueFastOperationAsync(IAction action) {
+        if (action == null) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        final ActionEntry entry = new ActionEntry(action);
+        if (isMainTask()) {
+            entry.Process();
+        } else {
+            addFastTask(entry);
+        }
+
+        return entry.getFuture();
     }
 
     /**
@@ -409,6 +437,187 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
     private void unmarkThread(long id) {
         m_threadMarker.remove(id);
     }
+    /**
+     * Convert action to function
+     *
+     * @param action
+     * @return
+     */
+    private static IFunc<Object> asFunc(IAction action) {
+        return () -> {
+            action.execute();
+            return null;
+        };
+    }
+
+    /**
+     * Try to execute the action on the current thread while holding the
+     * chunk lock
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @param world
+     * @param cx
+     * @param cz
+     * @return The action result, not set if the action needs to be queued
+     */
+    private <T> InOutParam<T> tryPerformChunk(Object mutex, IFunc<T> action, IWorld world, int cx, int cz) {
+        final InOutParam<T> result = InOutParam.Out();
+
+        if (mutex instanceof StripedChunkLock) {
+            final StripedChunkLock lock = (StripedChunkLock) mutex;
+
+            lock.lockChunk(cx, cz);
+            try {
+                executeChunk(action, result, world, cx, cz);
+            } finally {
+                lock.unlockChunk(cx, cz);
+            }
+        } else {
+            synchronized (mutex) {
+                executeChunk(action, result, world, cx, cz);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Try to execute the action on the current thread while holding the
+     * chunks lock
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @param world
+     * @param chunks
+     * @param region The region used in error messages, null for chunk list
+     * @return The action result, not set if the action needs to be queued
+     */
+    private <T> InOutParam<T> tryPerformChunks(Object mutex, IFunc<T> action, IWorld world,
+            Collection<BlockVector2> chunks, Region region) {
+        final InOutParam<T> result = InOutParam.Out();
+
+        if (mutex instanceof StripedChunkLock) {
+            final StripedChunkLock lock = (StripedChunkLock) mutex;
+            final long stripes = StripedChunkLock.getStripes(chunks);
+
+            lock.lockStripes(stripes);
+            try {
+                executeChunks(action, result, world, chunks, region);
+            } finally {
+                lock.unlockStripes(stripes);
+            }
+        } else {
+            synchronized (mutex) {
+                executeChunks(action, result, world, chunks, region);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Try to execute the action on the current thread while holding the
+     * world lock
+     *
+     * @param <T>
+     * @param mutex
+     * @param action
+     * @return The action result, not set if the action needs to be queued
+     */
+    private <T> InOutParam<T> tryPerform(Object mutex, IFunc<T> action) {
+        final InOutParam<T> result = InOutParam.Out();
+
+        if (mutex instanceof StripedChunkLock) {
+            final StripedChunkLock lock = (StripedChunkLock) mutex;
+
+            lock.lockWorld();
+            try {
+                execute(action, result);
+            } finally {
+                lock.unlockWorld();
+            }
+        } else {
+            synchronized (mutex) {
+                execute(action, result);
+            }
+        }
+
+        return result;
+    }
+
+    private <T> void executeChunk(IFunc<T> action, InOutParam<T> result, IWorld world, int cx, int cz) {
+        String worldName = world != null ? world.getName() : null;
+
+        try {
+            m_chunkWatch.add(cx, cz, worldName);
+            if (canPerform(world, cx, cz)) {
+                try {
+                    result.setValue(action.execute());
+                } catch (Exception ex) {
+                    /*
+                     * Exception here indicates that async block get is not
+                     * available. Therefore use the queue fallback.
+                     */
+                    ExceptionHelper.printException(ex,
+                            String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
+                                    worldName, cx, cz, world.isChunkLoaded(cx, cz)));
+                }
+            }
+        } finally {
+            m_chunkWatch.remove(cx, cz, worldName);
+        }
+    }
+
+    private <T> void executeChunks(IFunc<T> action, InOutParam<T> result, IWorld world,
+            Collection<BlockVector2> chunks, Region region) {
+        String worldName = world != null ? world.getName() : null;
+
+        try {
+            boolean canPerform = true;
+            for (BlockVector2 vector : chunks) {
+                int cx = vector.getBlockX();
+                int cz = vector.getBlockZ();
+                m_chunkWatch.add(cx, cz, worldName);
+                canPerform &= canPerform(world, cx, cz);
+            }
+            if (canPerform) {
+                try {
+                    result.setValue(action.execute());
+                } catch (Exception ex) {
+                    /*
+                     * Exception here indicates that async block get is not
+                     * available. Therefore use the queue fallback.
+                     */
+                    ExceptionHelper.printException(ex, region != null
+                            ? String.format("Error performing safe operation for %1$s for region %2$s",
+                                    worldName, region.toString())
+                            : String.format("Error performing safe operation for %1$s for chunk list",
+                                    worldName));
+                }
+            }
+        } finally {
+            for (BlockVector2 vector : chunks) {
+                int cx = vector.getBlockX();
+                int cz = vector.getBlockZ();
+                m_chunkWatch.remove(cx, cz, worldName);
+            }
+        }
+    }
+
+    private <T> void execute(IFunc<T> action, InOutParam<T> result) {
+        try {
+            result.setValue(action.execute());
+        } catch (Exception ex) {
+            /*
+             * Exception here indicates that async block get is not
+             * available. Therefore use the queue fallback.
+             */
+            ExceptionHelper.printException(ex, "Error performing safe operation.");
+        }
+    }
 
     /**
      * Perform operation using a safe wrapper. If the basic operation fails
@@ -428,32 +637,9 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         }
 
         try {
-            synchronized (mutex) {
-                int cx = pos.getBlockX();
-                int cz = pos.getBlockZ();
-                String worldName = world != null ? world.getName() : null;
-
-                try {
-                    m_chunkWatch.add(cx, cz, worldName);
-                    if (canPerform(world, cx, cz)) {
-                        try {
-                            action.execute();
-                            return;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
-                                            worldName, cx, cz, world.isChunkLoaded(cx, cz)));
-                        }
-                    }
-                } finally {
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
+            if (!tryPerformChunk(mutex, asFunc(action), world, pos.getBlockX(), pos.getBlockZ()).isSet()) {
+                queueFastOperation(action);
             }
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -477,32 +663,12 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         }
 
         try {
-            synchronized (mutex) {
-                int cx = PositionHelper.positionToChunk(pos.getX());
-                int cz = PositionHelper.positionToChunk(pos.getZ());
-                String worldName = world != null ? world.getName() : null;
+            int cx = PositionHelper.positionToChunk(pos.getX());
+            int cz = PositionHelper.positionToChunk(pos.getZ());
 
-                try {
-                    m_chunkWatch.add(cx, cz, worldName);
-                    if (canPerform(world, cx, cz)) {
-                        try {
-                            action.execute();
-                            return;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
-                                            worldName, cx, cz, world.isChunkLoaded(cx, cz)));
-                        }
-                    }
-                } finally {
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
+            if (!tryPerformChunk(mutex, asFunc(action), world, cx, cz).isSet()) {
+                queueFastOperation(action);
             }
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -526,42 +692,9 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         }
 
         try {
-            synchronized (mutex) {
-                Set<BlockVector2> chunks = region.getChunks();
-                String worldName = world != null ? world.getName() : null;
-
-                try {
-                    boolean canPerform = true;
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.add(cx, cz, worldName);
-                        canPerform &= canPerform(world, cx, cz);
-                    }
-                    if (canPerform) {
-                        try {
-                            action.execute();
-                            return;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s for region %2$s",
-                                            worldName, region.toString()));
-                        }
-                    }
-                } finally {
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.remove(cx, cz, worldName);
-                    }
-                }
+            if (!tryPerformChunks(mutex, asFunc(action), world, region.getChunks(), region).isSet()) {
+                queueFastOperation(action);
             }
-
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -585,41 +718,9 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return action.execute();
         }
         try {
-            synchronized (mutex) {
-                Set<BlockVector2> chunks = region.getChunks();
-                String worldName = world != null ? world.getName() : null;
+            InOutParam<T> result = tryPerformChunks(mutex, action, world, region.getChunks(), region);
 
-                try {
-                    boolean canPerform = true;
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.add(cx, cz, worldName);
-                        canPerform &= canPerform(world, cx, cz);
-                    }
-                    if (canPerform) {
-                        try {
-                            T result = action.execute();
-                            return result;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s for region %2$s",
-                                            worldName, region.toString()));
-                        }
-                    }
-                } finally {
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.remove(cx, cz, worldName);
-                    }
-                }
-            }
-            return queueFastOperation(action);
+            return result.isSet() ? result.getValue() : queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -643,31 +744,11 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return action.execute();
         }
         try {
-            synchronized (mutex) {
-                int cx = PositionHelper.positionToChunk(pos.getX());
-                int cz = PositionHelper.positionToChunk(pos.getZ());
-                String worldName = world != null ? world.getName() : null;
-                try {
-                    m_chunkWatch.add(cx, cz, worldName);
-                    if (canPerform(world, cx, cz)) {
-                        try {
-                            T result = action.execute();
-                            return result;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
-                                            worldName, cx, cz, world.isChunkLoaded(cx, cz)));
-                        }
-                    }
-                } finally {
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
-            }
-            return queueFastOperation(action);
+            int cx = PositionHelper.positionToChunk(pos.getX());
+            int cz = PositionHelper.positionToChunk(pos.getZ());
+            InOutParam<T> result = tryPerformChunk(mutex, action, world, cx, cz);
+
+            return result.isSet() ? result.getValue() : queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -691,31 +772,9 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return action.execute();
         }
         try {
-            synchronized (mutex) {
-                int cx = pos.getBlockX();
-                int cz = pos.getBlockZ();
-                String worldName = world != null ? world.getName() : null;
-                try {
-                    m_chunkWatch.add(cx, cz, worldName);
-                    if (canPerform(world, cx, cz)) {
-                        try {
-                            T result = action.execute();
-                            return result;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s cx: %2$s cz: %3$s Loaded: %4$s",
-                                            worldName, cx, cz, world.isChunkLoaded(cx, cz)));
-                        }
-                    }
-                } finally {
-                    m_chunkWatch.remove(cx, cz, worldName);
-                }
-            }
-            return queueFastOperation(action);
+            InOutParam<T> result = tryPerformChunk(mutex, action, world, pos.getBlockX(), pos.getBlockZ());
+
+            return result.isSet() ? result.getValue() : queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -736,19 +795,9 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return;
         }
         try {
-            synchronized (mutex) {
-                try {
-                    action.execute();
-                    return;
-                } catch (Exception ex) {
-                    /*
-                     * Exception here indicates that async block get is not
-                     * available. Therefore use the queue fallback.
-                     */
-                    ExceptionHelper.printException(ex, "Error performing safe operation.");
-                }
+            if (!tryPerform(mutex, asFunc(action)).isSet()) {
+                queueFastOperation(action);
             }
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -770,19 +819,9 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return action.execute();
         }
         try {
-            synchronized (mutex) {
-                try {
-                    T result = action.execute();
-                    return result;
-                } catch (Exception ex) {
-                    /*
-                     * Exception here indicates that async block get is not
-                     * available. Therefore use the queue fallback.
-                     */
-                    ExceptionHelper.printException(ex, "Error performing safe operation.");
-                }
-            }
-            return queueFastOperation(action);
+            InOutParam<T> result = tryPerform(mutex, action);
+
+            return result.isSet() ? result.getValue() : queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -796,41 +835,9 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
             return;
         }
         try {
-            synchronized (mutex) {
-                String worldName = world != null ? world.getName() : null;
-
-                try {
-                    boolean canPerform = true;
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.add(cx, cz, worldName);
-                        canPerform &= canPerform(world, cx, cz);
-                    }
-                    if (canPerform) {
-                        try {
-                            action.execute();
-                            return;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s for chunk list",
-                                            worldName));
-                        }
-                    }
-                } finally {
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.remove(cx, cz, worldName);
-                    }
-                }
+            if (!tryPerformChunks(mutex, asFunc(action), world, chunks, null).isSet()) {
+                queueFastOperation(action);
             }
-
-            queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
@@ -844,40 +851,9 @@ public class TaskDispatcher implements Runnable, ITaskDispatcher {
         }
 
         try {
-            synchronized (mutex) {
-                String worldName = world != null ? world.getName() : null;
+            InOutParam<T> result = tryPerformChunks(mutex, action, world, chunks, null);
 
-                try {
-                    boolean canPerform = true;
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.add(cx, cz, worldName);
-                        canPerform &= canPerform(world, cx, cz);
-                    }
-                    if (canPerform) {
-                        try {
-                            T result = action.execute();
-                            return result;
-                        } catch (Exception ex) {
-                            /*
-                             * Exception here indicates that async block get is not
-                             * available. Therefore use the queue fallback.
-                             */
-                            ExceptionHelper.printException(ex,
-                                    String.format("Error performing safe operation for %1$s for chunk list",
-                                            worldName));
-                        }
-                    }
-                } finally {
-                    for (BlockVector2 vector : chunks) {
-                        int cx = vector.getBlockX();
-                        int cz = vector.getBlockZ();
-                        m_chunkWatch.remove(cx, cz, worldName);
-                    }
-                }
-            }
-            return queueFastOperation(action);
+            return result.isSet() ? result.getValue() : queueFastOperation(action);
         } finally {
             unmarkThread(id);
         }
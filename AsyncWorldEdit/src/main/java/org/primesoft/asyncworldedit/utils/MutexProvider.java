@@ -48,6 +48,9 @@
 package org.primesoft.asyncworldedit.utils;
 
 import com.sk89q.worldedit.world.World;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.core.AwePlatform;
 import org.primesoft.asyncworldedit.worldedit.ThreadSafeEditSession;
@@ -58,6 +61,11 @@ import org.primesoft.asyncworldedit.worldedit.world.AbstractWorldWrapper;
  * @author SBPrime
  */
 public class MutexProvider {
+    /**
+     * The world locks
+     */
+    private final static Map<UUID, StripedChunkLock> s_worldLocks = new ConcurrentHashMap<>();
+    
     public static Object getMutex(ThreadSafeEditSession es) {
         return es.getMutex();
     }
@@ -68,11 +76,11 @@ public class MutexProvider {
             world = aWorld.getWorld();
         }
         
-        return AwePlatform.getInstance().getCore().getWorldEditIntegrator().getWorld(world).getUUID();
+        return getMutex(AwePlatform.getInstance().getCore().getWorldEditIntegrator().getWorld(world));
     }    
     
     
     public static Object getMutex(IWorld world) {
-        return world.getUUID();
+        return s_worldLocks.computeIfAbsent(world.getUUID(), _uuid -> new StripedChunkLock());
     }    
 }
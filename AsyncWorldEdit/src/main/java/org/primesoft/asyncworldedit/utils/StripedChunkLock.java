@@ -0,0 +1,184 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * World lock striped by chunk coordinates. Chunk operations hold the world
+ * read lock and the stripe locks of the used chunks, so operations in 
+ * different areas of one world can run in parallel. World wide operations
+ * hold the world write lock.
+ * 
+ * Multiple stripes are always acquired in ascending order to avoid
+ * deadlocks.
+ *
+ * @author SBPrime
+ */
+public final class StripedChunkLock {
+
+    /**
+     * Number of stripes, needs to match the stripes mask size
+     */
+    private final static int STRIPES = 64;
+
+    /**
+     * The world lock
+     */
+    private final ReentrantReadWriteLock m_worldLock = new ReentrantReadWriteLock();
+
+    /**
+     * The chunk stripes
+     */
+    private final ReentrantLock[] m_stripes = new ReentrantLock[STRIPES];
+
+    public StripedChunkLock() {
+        for (int i = 0; i < STRIPES; i++) {
+            m_stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Get the stripe used by the chunk
+     *
+     * @param cx
+     * @param cz
+     * @return
+     */
+    public static int getStripe(int cx, int cz) {
+        int h = cx * 0x9E3779B1 ^ cz * 0x85EBCA77;
+
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Get the stripes mask used by the chunks
+     *
+     * @param chunks
+     * @return
+     */
+    public static long getStripes(Iterable<BlockVector2> chunks) {
+        long result = 0;
+
+        for (BlockVector2 chunk : chunks) {
+            result |= 1L << getStripe(chunk.getBlockX(), chunk.getBlockZ());
+        }
+
+        return result;
+    }
+
+    /**
+     * Lock a single chunk
+     *
+     * @param cx
+     * @param cz
+     */
+    public void lockChunk(int cx, int cz) {
+        lockStripes(1L << getStripe(cx, cz));
+    }
+
+    /**
+     * Unlock a single chunk
+     *
+     * @param cx
+     * @param cz
+     */
+    public void unlockChunk(int cx, int cz) {
+        unlockStripes(1L << getStripe(cx, cz));
+    }
+
+    /**
+     * Lock the stripes in ascending order
+     *
+     * @param stripes the stripes mask
+     */
+    public void lockStripes(long stripes) {
+        m_worldLock.readLock().lock();
+
+        long mask = stripes;
+        while (mask != 0) {
+            int stripe = Long.numberOfTrailingZeros(mask);
+            m_stripes[stripe].lock();
+
+            mask &= mask - 1;
+        }
+    }
+
+    /**
+     * Unlock the stripes in descending order
+     *
+     * @param stripes the stripes mask
+     */
+    public void unlockStripes(long stripes) {
+        long mask = stripes;
+        while (mask != 0) {
+            int stripe = 63 - Long.numberOfLeadingZeros(mask);
+            m_stripes[stripe].unlock();
+
+            mask &= ~(1L << stripe);
+        }
+
+        m_worldLock.readLock().unlock();
+    }
+
+    /**
+     * Lock the whole world
+     */
+    public void lockWorld() {
+        m_worldLock.writeLock().lock();
+    }
+
+    /**
+     * Unlock the whole world
+     */
+    public void unlockWorld() {
+        m_worldLock.writeLock().unlock();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Output stream that writes to a file channel using a reusable (direct)
+ * buffer. Writes larger than the free buffer space are written together with
+ * the buffered data using a single gathering write.
+ *
+ * @author SBPrime
+ */
+public final class ChannelOutputStream extends OutputStream {
+
+    private final FileChannel m_channel;
+
+    private final ByteBuffer m_buffer;
+
+    /**
+     * Number of bytes written to the channel
+     */
+    private long m_written;
+
+    /**
+     * Create new instance of the stream
+     *
+     * @param channel the output channel
+     * @param buffer the buffer to use, the buffer content is discarded
+     */
+    public ChannelOutputStream(FileChannel channel, ByteBuffer buffer) {
+        m_channel = channel;
+        m_buffer = buffer;
+
+        m_buffer.clear();
+    }
+
+    /**
+     * Number of bytes written to the channel
+     *
+     * @return
+     */
+    public long getWritten() {
+        return m_written;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!m_buffer.hasRemaining()) {
+            flush();
+        }
+
+        m_buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len <= m_buffer.remaining()) {
+            m_buffer.put(b, off, len);
+            return;
+        }
+
+        if (len < m_buffer.capacity()) {
+            flush();
+            m_buffer.put(b, off, len);
+            return;
+        }
+
+        m_buffer.flip();
+        final ByteBuffer[] data = new ByteBuffer[]{m_buffer, ByteBuffer.wrap(b, off, len)};
+        while (data[0].hasRemaining() || data[1].hasRemaining()) {
+            m_written += m_channel.write(data);
+        }
+        m_buffer.clear();
+    }
+
+    /**
+     * Write the buffered data to the channel
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        m_buffer.flip();
+        while (m_buffer.hasRemaining()) {
+            m_written += m_channel.write(m_buffer);
+        }
+        m_buffer.clear();
+    }
+
+    /**
+     * Flush the data, the channel is not closed
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
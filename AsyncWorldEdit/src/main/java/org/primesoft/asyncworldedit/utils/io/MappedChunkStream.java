@@ -0,0 +1,399 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+
+/**
+ * Read only file stream backed by memory mapped file windows. The windows are
+ * mapped on first access, the file length is fixed when the stream is created.
+ *
+ * @author SBPrime
+ */
+public final class MappedChunkStream implements IChunkCacheStream, Closeable {
+
+    /**
+     * The window size (64MB)
+     */
+    private final static int WINDOW_BITS = 26;
+    private final static int WINDOW_SIZE = 1 << WINDOW_BITS;
+    private final static int WINDOW_MASK = WINDOW_SIZE - 1;
+
+    /**
+     * The file channel
+     */
+    private final FileChannel m_channel;
+
+    /**
+     * The file length
+     */
+    private final long m_length;
+
+    /**
+     * The mapped windows
+     */
+    private final MappedByteBuffer[] m_windows;
+
+    /**
+     * The current file pointer
+     */
+    private long m_filePointer;
+
+    public MappedChunkStream(FileChannel channel) throws IOException {
+        m_channel = channel;
+        m_length = channel.size();
+        m_windows = new MappedByteBuffer[(int) ((m_length + WINDOW_MASK) >>> WINDOW_BITS)];
+    }
+
+    /**
+     * Get the window containing the position
+     *
+     * @param pos
+     * @return
+     */
+    private MappedByteBuffer getWindow(long pos) throws IOException {
+        final int idx = (int) (pos >>> WINDOW_BITS);
+        MappedByteBuffer result = m_windows[idx];
+
+        if (result == null) {
+            final long start = (long) idx << WINDOW_BITS;
+            result = m_channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, m_length - start));
+            m_windows[idx] = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the window for a read of a number of bytes, returns null when the
+     * read crosses the window boundary
+     *
+     * @param size
+     * @return
+     */
+    private MappedByteBuffer getWindow(int size) throws IOException {
+        final long pos = m_filePointer;
+        if (m_length - pos < size) {
+            throw new EOFException();
+        }
+
+        if ((pos & WINDOW_MASK) + size > WINDOW_SIZE) {
+            return null;
+        }
+
+        return getWindow(pos);
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        return m_filePointer;
+    }
+
+    @Override
+    public long length() throws IOException {
+        return m_length;
+    }
+
+    @Override
+    public long seek(long pos, SeekOrigin origin) throws IOException {
+        long newOffset;
+
+        switch (origin) {
+            case Begin:
+                newOffset = pos;
+                break;
+            case Current:
+                newOffset = m_filePointer + pos;
+                break;
+            case End:
+                newOffset = m_length - pos;
+                break;
+            default:
+                return -1;
+        }
+
+        if (newOffset < 0) {
+            throw new IOException("Negative seek offset");
+        }
+        if (newOffset > m_length) {
+            throw new IOException("Seek offset larget then file size");
+        }
+
+        m_filePointer = newOffset;
+        return newOffset;
+    }
+
+    /**
+     * Reads the next byte of data
+     *
+     * @return the next byte of data, or <code>-1</code> if the end of the
+     * stream is reached.
+     * @throws IOException
+     */
+    public int read() throws IOException {
+        if (m_filePointer >= m_length) {
+            return -1;
+        }
+
+        return readUnsignedByte();
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        if (m_length - m_filePointer < len) {
+            throw new EOFException();
+        }
+
+        while (len > 0) {
+            final long pos = m_filePointer;
+            final MappedByteBuffer window = getWindow(pos);
+            final int offset = (int) (pos & WINDOW_MASK);
+            final int toCopy = Math.min(len, window.limit() - offset);
+
+            ((Buffer) window).position(offset);
+            window.get(b, off, toCopy);
+
+            off += toCopy;
+            len -= toCopy;
+            m_filePointer += toCopy;
+        }
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        final long pos = m_filePointer;
+        m_filePointer = Math.min(m_length, pos + Math.max(0, n));
+
+        return (int) (m_filePointer - pos);
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        final long pos = m_filePointer;
+        if (pos >= m_length) {
+            throw new EOFException();
+        }
+
+        final byte result = getWindow(pos).get((int) (pos & WINDOW_MASK));
+        m_filePointer = pos + 1;
+
+        return result;
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xff;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        final MappedByteBuffer window = getWindow(2);
+        if (window == null) {
+            return (short) ((readUnsignedByte() << 8) | readUnsignedByte());
+        }
+
+        final short result = window.getShort((int) (m_filePointer & WINDOW_MASK));
+        m_filePointer += 2;
+
+        return result;
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return (char) readShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        final MappedByteBuffer window = getWindow(4);
+        if (window == null) {
+            return (readUnsignedByte() << 24) | (readUnsignedByte() << 16)
+                    | (readUnsignedByte() << 8) | readUnsignedByte();
+        }
+
+        final int result = window.getInt((int) (m_filePointer & WINDOW_MASK));
+        m_filePointer += 4;
+
+        return result;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        final MappedByteBuffer window = getWindow(8);
+        if (window == null) {
+            return (((long) readInt()) << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        final long result = window.getLong((int) (m_filePointer & WINDOW_MASK));
+        m_filePointer += 8;
+
+        return result;
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        StringBuilder input = new StringBuilder();
+        int ch = -1;
+        boolean eol = false;
+
+        while (!eol) {
+            ch = read();
+            switch (ch) {
+                case -1:
+                case '\n':
+                    eol = true;
+                    break;
+                case '\r':
+                    eol = true;
+                    final int next = read();
+                    if (next != '\n' && next != -1) {
+                        seek(-1, SeekOrigin.Current);
+                    }
+                    break;
+                default:
+                    input.append((char) ch);
+                    break;
+            }
+        }
+
+        if ((ch == -1) && (input.length() == 0)) {
+            return null;
+        }
+        return input.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+
+    /**
+     * Unmap all the windows, the stream can not be used after this call
+     */
+    @Override
+    public void close() {
+        for (int i = 0; i < m_windows.length; i++) {
+            final MappedByteBuffer window = m_windows[i];
+            m_windows[i] = null;
+
+            if (window != null) {
+                unmap(window);
+            }
+        }
+    }
+
+    /**
+     * Try to release the mapped memory without waiting for the GC (the mapped
+     * file can not be removed on some systems while it is mapped)
+     *
+     * @param buffer
+     */
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            //Java 9+
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (Exception ex) {
+            //Not available
+        }
+
+        try {
+            //Java 8
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception ex) {
+            //Not supported, the buffer is released by the GC
+        }
+    }
+}
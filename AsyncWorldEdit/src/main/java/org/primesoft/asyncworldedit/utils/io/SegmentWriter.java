@@ -0,0 +1,243 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/**
+ * Buffers data into fixed size segments, each segment is written as an
+ * independently compressed frame:
+ * raw length (int), stored length (int), codec (byte), stored data.
+ * Metadata frames use the same layout with the FLAG_METADATA codec bit set,
+ * they are not part of the segment data.
+ *
+ * @author SBPrime
+ */
+public final class SegmentWriter {
+
+    /**
+     * The segment is not compressed
+     */
+    public final static int CODEC_NONE = 0;
+
+    /**
+     * The segment is compressed using Deflate
+     */
+    public final static int CODEC_DEFLATE = 1;
+
+    /**
+     * The frame codec flag: the frame contains metadata
+     */
+    public final static int FLAG_METADATA = 0x80;
+
+    /**
+     * The frame codec mask
+     */
+    public final static int CODEC_MASK = 0x7f;
+
+    /**
+     * The frame header size
+     */
+    public final static int FRAME_HEADER_SIZE = 4 + 4 + 1;
+
+    /**
+     * Byte buffer with direct access to the data
+     */
+    private final static class Buffer extends ByteArrayOutputStream {
+
+        private Buffer(int size) {
+            super(size);
+        }
+
+        private byte[] getData() {
+            return buf;
+        }
+    }
+
+    private final Buffer m_buffer;
+
+    private final DataOutputStream m_output;
+
+    private final int m_segmentSize;
+
+    private final int m_codec;
+
+    private final Deflater m_deflater;
+
+    private byte[] m_compressed;
+
+    /**
+     * Create new instance of the segment writer
+     *
+     * @param segmentSize The uncompressed segment size
+     * @param codec The compression codec
+     * @param level The compression level
+     */
+    public SegmentWriter(int segmentSize, int codec, int level) {
+        m_segmentSize = segmentSize;
+        m_codec = codec;
+        m_buffer = new Buffer(segmentSize + (segmentSize >> 4));
+        m_output = new DataOutputStream(m_buffer);
+        m_deflater = codec == CODEC_DEFLATE ? new Deflater(level) : null;
+    }
+
+    /**
+     * The current segment stream
+     *
+     * @return
+     */
+    public DataOutputStream getOutput() {
+        return m_output;
+    }
+
+    /**
+     * Is the current segment full
+     *
+     * @return
+     */
+    public boolean isFull() {
+        return m_buffer.size() >= m_segmentSize;
+    }
+
+    /**
+     * Compress the current segment and write the frame to the output
+     *
+     * @param out
+     * @return Number of bytes written
+     * @throws IOException
+     */
+    public int flush(DataOutput out) throws IOException {
+        m_output.flush();
+
+        final int rawLength = m_buffer.size();
+        if (rawLength == 0) {
+            return 0;
+        }
+
+        final int result = writeFrame(out, m_buffer.getData(), rawLength, 0);
+        m_buffer.reset();
+
+        return result;
+    }
+
+    /**
+     * Write a metadata frame to the output, the current segment is not 
+     * changed
+     *
+     * @param out
+     * @param data The metadata
+     * @param length The metadata length
+     * @return Number of bytes written
+     * @throws IOException
+     */
+    public int writeMetadata(DataOutput out, byte[] data, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        return writeFrame(out, data, length, FLAG_METADATA);
+    }
+
+    /**
+     * Compress the data and write the frame
+     *
+     * @param out
+     * @param raw
+     * @param rawLength
+     * @param flags The frame flags
+     * @return Number of bytes written
+     * @throws IOException
+     */
+    private int writeFrame(DataOutput out, byte[] raw, int rawLength, int flags) throws IOException {
+        byte[] stored = raw;
+        int storedLength = rawLength;
+        int codec = CODEC_NONE;
+
+        if (m_deflater != null) {
+            if (m_compressed == null || m_compressed.length < rawLength) {
+                m_compressed = new byte[rawLength];
+            }
+
+            m_deflater.reset();
+            m_deflater.setInput(raw, 0, rawLength);
+            m_deflater.finish();
+
+            int length = 0;
+            while (!m_deflater.finished() && length < rawLength) {
+                length += m_deflater.deflate(m_compressed, length, rawLength - length);
+            }
+
+            if (m_deflater.finished()) {
+                //Store uncompressed data if the compression does not help
+                stored = m_compressed;
+                storedLength = length;
+                codec = CODEC_DEFLATE;
+            }
+        }
+
+        out.writeInt(rawLength);
+        out.writeInt(storedLength);
+        out.writeByte(codec | flags);
+        out.write(stored, 0, storedLength);
+
+        return FRAME_HEADER_SIZE + storedLength;
+    }
+
+    /**
+     * Release the compressor
+     */
+    public void close() {
+        if (m_deflater != null) {
+            m_deflater.end();
+        }
+    }
+}
@@ -0,0 +1,582 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+
+/**
+ * Read only view of the frames written by the SegmentWriter. The stream
+ * positions are the uncompressed (logical) positions, only one segment is
+ * kept decompressed at a time. Metadata frames are not part of the stream,
+ * they are available using getMetadata.
+ *
+ * @author SBPrime
+ */
+public final class SegmentedStream implements IChunkCacheStream, Closeable {
+
+    /**
+     * The underlying (compressed) stream
+     */
+    private final IChunkCacheStream m_stream;
+
+    /**
+     * Segment logical start positions
+     */
+    private long[] m_start = new long[16];
+
+    /**
+     * Segment data offsets in the underlying stream
+     */
+    private long[] m_offset = new long[16];
+
+    /**
+     * Segment uncompressed lengths
+     */
+    private int[] m_rawLength = new int[16];
+
+    /**
+     * Segment stored lengths
+     */
+    private int[] m_storedLength = new int[16];
+
+    /**
+     * Segment codecs
+     */
+    private byte[] m_codec = new byte[16];
+
+    /**
+     * Number of segments
+     */
+    private int m_segments;
+
+    /**
+     * Metadata frame data offsets in the underlying stream
+     */
+    private long[] m_metaOffset = new long[4];
+
+    /**
+     * Metadata frame uncompressed lengths
+     */
+    private int[] m_metaRawLength = new int[4];
+
+    /**
+     * Metadata frame stored lengths
+     */
+    private int[] m_metaStoredLength = new int[4];
+
+    /**
+     * Metadata frame codecs
+     */
+    private byte[] m_metaCodec = new byte[4];
+
+    /**
+     * Number of metadata frames
+     */
+    private int m_metadata;
+
+    /**
+     * The logical stream length
+     */
+    private long m_length;
+
+    /**
+     * The current logical position
+     */
+    private long m_filePointer;
+
+    /**
+     * The current (decompressed) segment
+     */
+    private int m_current = -1;
+
+    /**
+     * The current segment data
+     */
+    private byte[] m_data = new byte[0];
+
+    /**
+     * The stored segment buffer
+     */
+    private byte[] m_stored = new byte[0];
+
+    private final Inflater m_inflater = new Inflater();
+
+    /**
+     * Create new instance of the segmented stream, the frames are read from
+     * the current stream position
+     *
+     * @param stream
+     * @throws IOException
+     */
+    public SegmentedStream(IChunkCacheStream stream) throws IOException {
+        m_stream = stream;
+
+        scan();
+    }
+
+    /**
+     * Build the segment table from the frame headers
+     */
+    private void scan() throws IOException {
+        final long length = m_stream.length();
+        long pos = m_stream.getFilePointer();
+
+        while (length - pos >= SegmentWriter.FRAME_HEADER_SIZE) {
+            m_stream.seek(pos, SeekOrigin.Begin);
+
+            final int rawLength = m_stream.readInt();
+            final int storedLength = m_stream.readInt();
+            final int codec = m_stream.readUnsignedByte();
+            final long dataPos = pos + SegmentWriter.FRAME_HEADER_SIZE;
+
+            if (rawLength <= 0 || storedLength < 0 || length - dataPos < storedLength) {
+                //Truncated frame
+                break;
+            }
+
+            if ((codec & SegmentWriter.FLAG_METADATA) != 0) {
+                addMetadata(dataPos, rawLength, storedLength, codec & SegmentWriter.CODEC_MASK);
+                pos = dataPos + storedLength;
+                continue;
+            }
+
+            if (m_segments == m_start.length) {
+                final int size = m_segments * 2;
+                m_start = Arrays.copyOf(m_start, size);
+                m_offset = Arrays.copyOf(m_offset, size);
+                m_rawLength = Arrays.copyOf(m_rawLength, size);
+                m_storedLength = Arrays.copyOf(m_storedLength, size);
+                m_codec = Arrays.copyOf(m_codec, size);
+            }
+
+            m_start[m_segments] = m_length;
+            m_offset[m_segments] = dataPos;
+            m_rawLength[m_segments] = rawLength;
+            m_storedLength[m_segments] = storedLength;
+            m_codec[m_segments] = (byte) codec;
+            m_segments++;
+
+            m_length += rawLength;
+            pos = dataPos + storedLength;
+        }
+    }
+
+    private void addMetadata(long dataPos, int rawLength, int storedLength, int codec) {
+        if (m_metadata == m_metaOffset.length) {
+            final int size = m_metadata * 2;
+            m_metaOffset = Arrays.copyOf(m_metaOffset, size);
+            m_metaRawLength = Arrays.copyOf(m_metaRawLength, size);
+            m_metaStoredLength = Arrays.copyOf(m_metaStoredLength, size);
+            m_metaCodec = Arrays.copyOf(m_metaCodec, size);
+        }
+
+        m_metaOffset[m_metadata] = dataPos;
+        m_metaRawLength[m_metadata] = rawLength;
+        m_metaStoredLength[m_metadata] = storedLength;
+        m_metaCodec[m_metadata] = (byte) codec;
+        m_metadata++;
+    }
+
+    /**
+     * Number of metadata frames in the stream
+     *
+     * @return
+     */
+    public int getMetadataCount() {
+        return m_metadata;
+    }
+
+    /**
+     * Read the metadata frame, the stream position is not changed
+     *
+     * @param idx The metadata frame index
+     * @return The uncompressed metadata
+     * @throws IOException
+     */
+    public byte[] getMetadata(int idx) throws IOException {
+        if (idx < 0 || idx >= m_metadata) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        final int rawLength = m_metaRawLength[idx];
+        final int storedLength = m_metaStoredLength[idx];
+        final byte[] result = new byte[rawLength];
+        final byte[] stored = storedLength == rawLength && m_metaCodec[idx] == SegmentWriter.CODEC_NONE
+                ? result : new byte[storedLength];
+
+        m_stream.seek(m_metaOffset[idx], SeekOrigin.Begin);
+        m_stream.readFully(stored, 0, storedLength);
+
+        switch (m_metaCodec[idx]) {
+            case SegmentWriter.CODEC_NONE:
+                if (storedLength != rawLength) {
+                    throw new IOException("Invalid metadata length");
+                }
+                break;
+            case SegmentWriter.CODEC_DEFLATE:
+                inflate(stored, storedLength, result, rawLength);
+                break;
+            default:
+                throw new IOException(String.format("Unknown metadata codec %1$s", m_metaCodec[idx]));
+        }
+
+        return result;
+    }
+
+    /**
+     * Number of segments in the stream
+     *
+     * @return
+     */
+    public int getSegmentCount() {
+        return m_segments;
+    }
+
+    /**
+     * Find the segment containing the logical position
+     *
+     * @param pos
+     * @return
+     */
+    private int findSegment(long pos) {
+        int low = 0;
+        int high = m_segments - 1;
+
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (m_start[mid] <= pos) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Make sure the segment containing the position is loaded
+     *
+     * @param pos
+     * @return Offset of the position in the segment data
+     */
+    private int load(long pos) throws IOException {
+        if (pos >= m_length) {
+            throw new EOFException();
+        }
+
+        final int current = m_current;
+        if (current >= 0) {
+            final long offset = pos - m_start[current];
+            if (offset >= 0 && offset < m_rawLength[current]) {
+                return (int) offset;
+            }
+        }
+
+        final int segment = findSegment(pos);
+        final int rawLength = m_rawLength[segment];
+        final int storedLength = m_storedLength[segment];
+
+        if (m_data.length < rawLength) {
+            m_data = new byte[rawLength];
+        }
+
+        m_current = -1;
+        m_stream.seek(m_offset[segment], SeekOrigin.Begin);
+
+        switch (m_codec[segment]) {
+            case SegmentWriter.CODEC_NONE:
+                if (storedLength != rawLength) {
+                    throw new IOException("Invalid segment length");
+                }
+
+                m_stream.readFully(m_data, 0, rawLength);
+                break;
+            case SegmentWriter.CODEC_DEFLATE:
+                if (m_stored.length < storedLength) {
+                    m_stored = new byte[storedLength];
+                }
+                m_stream.readFully(m_stored, 0, storedLength);
+                inflate(m_stored, storedLength, m_data, rawLength);
+                break;
+            default:
+                throw new IOException(String.format("Unknown segment codec %1$s", m_codec[segment]));
+        }
+
+        m_current = segment;
+        return (int) (pos - m_start[segment]);
+    }
+
+    private void inflate(byte[] stored, int storedLength, byte[] data, int rawLength) throws IOException {
+        m_inflater.reset();
+        m_inflater.setInput(stored, 0, storedLength);
+
+        try {
+            int length = 0;
+            while (length < rawLength && !m_inflater.finished()) {
+                final int read = m_inflater.inflate(data, length, rawLength - length);
+                if (read == 0 && (m_inflater.needsInput() || m_inflater.needsDictionary())) {
+                    break;
+                }
+
+                length += read;
+            }
+
+            if (length != rawLength) {
+                throw new IOException("Invalid segment data");
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Invalid segment data", ex);
+        }
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        return m_filePointer;
+    }
+
+    @Override
+    public long length() throws IOException {
+        return m_length;
+    }
+
+    @Override
+    public long seek(long pos, SeekOrigin origin) throws IOException {
+        long newOffset;
+
+        switch (origin) {
+            case Begin:
+                newOffset = pos;
+                break;
+            case Current:
+                newOffset = m_filePointer + pos;
+                break;
+            case End:
+                newOffset = m_length - pos;
+                break;
+            default:
+                return -1;
+        }
+
+        if (newOffset < 0) {
+            throw new IOException("Negative seek offset");
+        }
+        if (newOffset > m_length) {
+            throw new IOException("Seek offset larget then file size");
+        }
+
+        m_filePointer = newOffset;
+        return newOffset;
+    }
+
+    /**
+     * Reads the next byte of data
+     *
+     * @return the next byte of data, or <code>-1</code> if the end of the
+     * stream is reached.
+     * @throws IOException
+     */
+    public int read() throws IOException {
+        if (m_filePointer >= m_length) {
+            return -1;
+        }
+
+        return readUnsignedByte();
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        if (m_length - m_filePointer < len) {
+            throw new EOFException();
+        }
+
+        while (len > 0) {
+            final int offset = load(m_filePointer);
+            final int toCopy = Math.min(len, m_rawLength[m_current] - offset);
+
+            System.arraycopy(m_data, offset, b, off, toCopy);
+            off += toCopy;
+            len -= toCopy;
+            m_filePointer += toCopy;
+        }
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        final long pos = m_filePointer;
+        m_filePointer = Math.min(m_length, pos + Math.max(0, n));
+
+        return (int) (m_filePointer - pos);
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        final int offset = load(m_filePointer);
+        final byte result = m_data[offset];
+        m_filePointer++;
+
+        return result;
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xff;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return (short) readUnsignedShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        final int b1 = readUnsignedByte();
+        final int b2 = readUnsignedByte();
+
+        return (b1 << 8) | b2;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return (char) readUnsignedShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        final int b1 = readUnsignedByte();
+        final int b2 = readUnsignedByte();
+        final int b3 = readUnsignedByte();
+        final int b4 = readUnsignedByte();
+
+        return (b1 << 24) | (b2 << 16) | (b3 << 8) | b4;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return (((long) readInt()) << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        StringBuilder input = new StringBuilder();
+        int ch = -1;
+        boolean eol = false;
+
+        while (!eol) {
+            ch = read();
+            switch (ch) {
+                case -1:
+                case '\n':
+                    eol = true;
+                    break;
+                case '\r':
+                    eol = true;
+                    final int next = read();
+                    if (next != '\n' && next != -1) {
+                        seek(-1, SeekOrigin.Current);
+                    }
+                    break;
+                default:
+                    input.append((char) ch);
+                    break;
+            }
+        }
+
+        if ((ch == -1) && (input.length() == 0)) {
+            return null;
+        }
+        return input.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+
+    /**
+     * Release the decompressor and close the underlying stream
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        m_inflater.end();
+
+        if (m_stream instanceof Closeable) {
+            ((Closeable) m_stream).close();
+        }
+    }
+}
@@ -194,4 +194,28 @@ public class VarInt {
         
         return result;
     }
+    
+    /**
+     * Write variable length signed int (zig-zag encoded) to data output
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    public static void writeSignedInt(DataOutput out, int value) throws IOException {
+        writeLong(out, ((value << 1) ^ (value >> 31)) & 0xffffffffL);
+    }
+    
+    
+    /**
+     * Read variable length signed int (zig-zag encoded) from data input
+     * @param in
+     * @return
+     * @throws IOException 
+     */
+    public static int readSignedInt(DataInput in) throws IOException {
+        final int value = readInt(in);
+        
+        return (value >>> 1) ^ -(value & 1);
+    }
 }
@@ -131,17 +131,30 @@ public class CancelabeEditSession extends AweEditSession implements ICancelabeEd
     private boolean m_isInitialized;
 
     public CancelabeEditSession(IThreadSafeEditSession parent, Mask mask, int jobId) {
+        this(parent, mask, jobId, parent.getChangeSet());
+    }
+
+    /**
+     * Create a cancelable edit session that stores the changes in the provided
+     * change set instead of the parent change set
+     * @param parent
+     * @param mask
+     * @param jobId
+     * @param changeSet 
+     */
+    public CancelabeEditSession(IThreadSafeEditSession parent, Mask mask, int jobId,
+            ChangeSet changeSet) {
         this(parent, mask, jobId,
                 wrapEventBus(parent.getEventBus()),
                 new CancelableWorld(parent.getWorld(), jobId, parent.getPlayer()),
                 parent.getBlockChangeLimit(), parent.getBlockBag(),
-                parent.getEditSessionEvent());
+                parent.getEditSessionEvent(), changeSet);
     }
 
     private CancelabeEditSession(IThreadSafeEditSession parent, Mask mask, int jobId,
             EventBus eventBus, CancelableWorld world, int maxBlocks,
             @Nullable BlockBag blockBag,
-            EditSessionEvent event) {
+            EditSessionEvent event, ChangeSet changeSet) {
         super(eventBus, world, maxBlocks, blockBag, event);
 
         m_jobId = jobId;
@@ -150,7 +163,7 @@ public class CancelabeEditSession extends AweEditSession implements ICancelabeEd
         m_cWorld = (CancelableWorld) getWorld();
 
         ChangeSet tmp = m_parent.getRootChangeSet();
-        if (tmp instanceof FileChangeSet) {
+        if (tmp instanceof FileChangeSet && changeSet == m_parent.getChangeSet()) {
             ((FileChangeSet) tmp).setCancelable(this);
         }
 
@@ -159,7 +172,7 @@ public class CancelabeEditSession extends AweEditSession implements ICancelabeEd
             ExtentUtils.dumpExtents("CES: ", "Original extents:", this);
         }
 
-        injectExtents(parent.getPlayer());
+        injectExtents(parent.getPlayer(), changeSet);
 
         if (isDebug) {
             ExtentUtils.dumpExtents("CES: ", "Injected extents:", this);
@@ -180,7 +193,7 @@ public class CancelabeEditSession extends AweEditSession implements ICancelabeEd
         return m_player;
     }
 
-    private void injectExtents(IPlayerEntry playerEntry) {
+    private void injectExtents(IPlayerEntry playerEntry, ChangeSet changeSet) {
         Extent[] extentList = ExtentUtils.getExtentList(this).toArray(new Extent[0]);
         for (Extent e : extentList) {
             if (e instanceof NullExtent) {
@@ -189,7 +202,7 @@ public class CancelabeEditSession extends AweEditSession implements ICancelabeEd
         }
 
         injectBlockBagExtent(extentList);
-        injectChangeSet(extentList, m_parent.getChangeSet(), playerEntry);
+        injectChangeSet(extentList, changeSet, playerEntry);
 
         for (Extent e : extentList) {
             if (e instanceof ChunkLoadingExtent) {
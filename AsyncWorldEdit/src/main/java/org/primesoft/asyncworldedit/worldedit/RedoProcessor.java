@@ -63,6 +63,7 @@ import org.primesoft.asyncworldedit.api.utils.IDisposable;
 import org.primesoft.asyncworldedit.api.worldedit.IThreadSafeEditSession;
 import org.primesoft.asyncworldedit.utils.InjectionException;
 import org.primesoft.asyncworldedit.utils.Reflection;
+import org.primesoft.asyncworldedit.worldedit.history.ChunkChangeReplay;
 import org.primesoft.asyncworldedit.worldedit.history.ExtendedUndoContext;
 
 /**
@@ -112,11 +113,21 @@ public class RedoProcessor implements Operation {
         }
         uc.setExtent(bypassHistory);
 
+        final ChunkChangeReplay replay = ChunkChangeReplay.create(m_sender, m_session, bypassHistory, false);
         for (; m_changes.hasNext();) {
             Change change = m_changes.next();
-            if (change != null) {
-                change.redo(uc);
+            if (change == null || (replay != null && replay.add(change))) {
+                continue;
             }
+
+            if (replay != null) {
+                replay.flush();
+            }
+            change.redo(uc);
+        }
+
+        if (replay != null) {
+            replay.flush();
         }
 
         if (m_changes instanceof IDisposable) {
@@ -91,6 +91,19 @@ public final class TaskContext implements ITaskContext {
         return tc;
     }
     
+    /**
+     * Set the task context for the current thread, used by worker threads
+     * that process a part of the task
+     * @param context 
+     */
+    public static void set(ITaskContext context) {
+        if (context == null || context == NULL) {
+            m_contexts.remove();
+        } else {
+            m_contexts.set(context);
+        }
+    }
+    
     public static void remove() {
         m_contexts.remove();
     }
@@ -360,7 +360,8 @@ public class ThreadSafeEditSession extends AweEditSession implements IThreadSafe
                         changeSet = new FileChangeSet(core, playerEntry);
                     }
 
-                    IExtendedChangeSet aweChangeSet = new MemoryMonitorChangeSet(playerEntry, m_dispatcher, new ThreadSafeChangeSet(changeSet));
+                    IExtendedChangeSet aweChangeSet = new MemoryMonitorChangeSet(playerEntry, m_dispatcher, new ThreadSafeChangeSet(changeSet),
+                            changeSet instanceof FileChangeSet);
 
                     ExtendedChangeSetExtent extendedChangeSetExtent = new ExtendedChangeSetExtent(null, afterExtent, aweChangeSet);
                     ExtentUtils.setExtent(beforeExtent, extendedChangeSetExtent);
@@ -63,6 +63,7 @@ import org.primesoft.asyncworldedit.api.utils.IDisposable;
 import org.primesoft.asyncworldedit.api.worldedit.IThreadSafeEditSession;
 import org.primesoft.asyncworldedit.utils.InjectionException;
 import org.primesoft.asyncworldedit.utils.Reflection;
+import org.primesoft.asyncworldedit.worldedit.history.ChunkChangeReplay;
 import org.primesoft.asyncworldedit.worldedit.history.ExtendedUndoContext;
 
 /**
@@ -113,11 +114,21 @@ public class UndoProcessor implements Operation {
         }
         uc.setExtent(bypassHistory);
 
+        final ChunkChangeReplay replay = ChunkChangeReplay.create(m_sender, m_session, bypassHistory, true);
         for (; m_changes.hasNext();) {
             Change change = m_changes.next();
-            if (change != null) {
-                change.undo(uc);
-            }            
+            if (change == null || (replay != null && replay.add(change))) {
+                continue;
+            }
+
+            if (replay != null) {
+                replay.flush();
+            }
+            change.undo(uc);
+        }
+
+        if (replay != null) {
+            replay.flush();
         }
 
         if (m_changes instanceof IDisposable) {
@@ -60,9 +60,9 @@ import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *
@@ -74,11 +74,10 @@ public class MultiThreadExtent implements Extent {
      */
     private Extent m_default;
     
-    //TODO: Consider using thread locale
     /**
-     * Thread delegate extents
+     * Thread delegate extents, read for every block so no global lock is used
      */    
-    private final HashMap<Thread, Extent> m_extents = new LinkedHashMap<>();
+    private final ConcurrentMap<Thread, Extent> m_extents = new ConcurrentHashMap<>();
     
     public MultiThreadExtent() { }
     
@@ -89,6 +88,7 @@ public class MultiThreadExtent implements Extent {
     public void setDefault(Extent e) {
         m_default = e;
     }
+
     
     /**
      * Set extent for thread
@@ -96,12 +96,10 @@ public class MultiThreadExtent implements Extent {
      * @param e 
      */
     public void setExtent(Thread t, Extent e) {
-        synchronized (m_extents) {
-            if (e == null) {
-                m_extents.remove(t);
-            } else {
-                m_extents.put(t, e);
-            }
+        if (e == null) {
+            m_extents.remove(t);
+        } else {
+            m_extents.put(t, e);
         }
     }
     
@@ -119,12 +117,7 @@ public class MultiThreadExtent implements Extent {
      * @return 
      */
     private Extent getExtent() {
-        final Thread current = Thread.currentThread();
-        
-        Extent result;
-        synchronized (m_extents) {
-            result = m_extents.get(current);
-        }
+        final Extent result = m_extents.get(Thread.currentThread());
         
         return result != null ? result : m_default;
     }
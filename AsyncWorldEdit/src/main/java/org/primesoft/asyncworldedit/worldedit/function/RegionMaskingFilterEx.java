@@ -70,6 +70,22 @@ public class RegionMaskingFilterEx implements RegionFunction {
         m_blockData = function instanceof IBlockData ? (IBlockData)function : null;
     }
 
+    /**
+     * The filtered function
+     * @return 
+     */
+    public RegionFunction getFunction() {
+        return m_function;
+    }
+
+    /**
+     * The filter mask
+     * @return 
+     */
+    public Mask getMask() {
+        return m_mask;
+    }
+
     @Override
     public boolean apply(BlockVector3 position) throws WorldEditException {
         if (!m_mask.test(position)) {
@@ -67,22 +67,32 @@ public class KeepDataBlockReplace implements RegionFunction, IBlockData {
     private final Pattern m_pattern;
     
     /**
-     * The block data
+     * The block data, stored per thread so the function can be used by
+     * the parallel region workers
      */
-    private BlockStateHolder m_block;
+    private final ThreadLocal<BlockStateHolder> m_block = new ThreadLocal<>();
 
     public KeepDataBlockReplace(EditSession extent, Pattern pattern) {
         m_extent = extent;
         m_pattern = pattern;
     }
 
+    /**
+     * The replace pattern
+     * @return 
+     */
+    public Pattern getPattern() {
+        return m_pattern;
+    }
+
     @Override
     public boolean apply(BlockVector3 position) throws WorldEditException {
         BlockStateHolder newBlock = m_pattern.apply(position);
+        final BlockStateHolder block = m_block.get();
         
-        if (m_block != null) {
+        if (block != null) {
             BlockStateHolder tmp = newBlock.toImmutableState();            
-            final Map<Property<?>, Object> map = m_block.getStates();
+            final Map<Property<?>, Object> map = block.getStates();
             for (Map.Entry<Property<?>, Object> entry : map.entrySet()) {
                 tmp = tmp.with(entry.getKey(), entry.getValue());
             }
@@ -96,7 +106,7 @@ public class KeepDataBlockReplace implements RegionFunction, IBlockData {
 
     @Override
     public void setBlockData(BlockStateHolder block) {
-        m_block = block;
+        m_block.set(block);
     }
     
 }
@@ -69,9 +69,9 @@ public class SkipDataBlockMask extends AbstractExtentMask implements ILastBlock
     private final Set<String> m_blocks = new HashSet<>();
     
     /**
-     * The last cheked block
+     * The last cheked block (per thread)
      */
-    private BlockStateHolder m_lastBlock = null;
+    private final ThreadLocal<BlockStateHolder> m_lastBlock = new ThreadLocal<>();
     
     
     public SkipDataBlockMask(BlockMask blockMask) {
@@ -86,8 +86,9 @@ public class SkipDataBlockMask extends AbstractExtentMask implements ILastBlock
 
     @Override
     public boolean test(BlockVector3 vector) {
-        m_lastBlock = getExtent().getBlock(vector);
-        return m_blocks.contains(m_lastBlock.getBlockType().getId());
+        final BlockStateHolder block = getExtent().getBlock(vector);
+        m_lastBlock.set(block);
+        return m_blocks.contains(block.getBlockType().getId());
     }
 
     @Nullable
@@ -98,7 +99,7 @@ public class SkipDataBlockMask extends AbstractExtentMask implements ILastBlock
 
     @Override
     public BlockStateHolder getLastBlock() {
-        return m_lastBlock;
+        return m_lastBlock.get();
     }
     
 }
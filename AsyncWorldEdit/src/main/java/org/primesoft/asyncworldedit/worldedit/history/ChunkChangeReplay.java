@@ -0,0 +1,441 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.history;
+
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.primesoft.asyncworldedit.api.IWorld;
+import org.primesoft.asyncworldedit.api.directChunk.IBiomeEntry;
+import org.primesoft.asyncworldedit.api.directChunk.IBlockEntry;
+import org.primesoft.asyncworldedit.api.directChunk.ISerializedEntity;
+import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
+import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
+import org.primesoft.asyncworldedit.api.inner.IBlockRelighter;
+import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
+import org.primesoft.asyncworldedit.api.inner.IInnerDirectChunkAPI;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
+import org.primesoft.asyncworldedit.blockPlacer.BlockPlacerChange;
+import org.primesoft.asyncworldedit.core.AwePlatform;
+import org.primesoft.asyncworldedit.directChunk.ChunkUpdateQueue;
+import org.primesoft.asyncworldedit.directChunk.DcUtils;
+import org.primesoft.asyncworldedit.directChunk.ReadonlyChangesetData;
+import org.primesoft.asyncworldedit.directChunk.entries.BlockEntry;
+import org.primesoft.asyncworldedit.utils.MutexProvider;
+import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
+
+/**
+ * Bulk undo and redo of the block changes using the direct chunk API. The
+ * block changes are grouped by chunk (last write wins) and each chunk is
+ * written using a single changeset, relighted and queued in the chunk update
+ * queue once.
+ *
+ * @author SBPrime
+ */
+public final class ChunkChangeReplay {
+
+    /**
+     * Maximum number of blocks kept in memory before the chunks are written
+     */
+    private static final int MAX_PENDING = 1 << 20;
+
+    /**
+     * Number of blocks in a chunk section
+     */
+    private static final int SECTION_SIZE = 16 * 16 * 16;
+
+    private static final ISerializedEntity[] NO_ENTITIES = new ISerializedEntity[0];
+
+    private static final IBiomeEntry[] NO_BIOMES = new IBiomeEntry[0];
+
+    /**
+     * Create the change replay for the edit session
+     *
+     * @param sender the edit session that performs the undo or redo
+     * @param session the edit session to which the changes are applied
+     * @param bypassHistory the fallback extent
+     * @param isUndo
+     * @return null if the direct chunk API can not be used
+     */
+    public static ChunkChangeReplay create(EditSession sender, EditSession session,
+            Extent bypassHistory, boolean isUndo) {
+        if (!(sender instanceof CancelabeEditSession) || sender.getMask() != null) {
+            return null;
+        }
+
+        final IAsyncWorldEditCore core = AwePlatform.getInstance().getCore();
+        final IInnerDirectChunkAPI dcApi = core.getInnerDirectChunkAPI();
+        final World weWorld = session.getWorld();
+        final IWorld world = weWorld != null ? core.getWorldEditIntegrator().getWorld(weWorld) : null;
+
+        if (dcApi == null || world == null) {
+            return null;
+        }
+
+        return new ChunkChangeReplay(dcApi, core.getTaskDispatcher(), core.getChunkWatch(), world,
+                ((CancelabeEditSession) sender).getPlayer(), bypassHistory, isUndo);
+    }
+
+    /**
+     * The pending blocks of a chunk, stored in per section arrays indexed
+     * by the block position in the section
+     */
+    private static final class ChunkBlocks {
+
+        private final int m_cx;
+
+        private final int m_cz;
+
+        private final BaseBlock[][] m_sections = new BaseBlock[16][];
+
+        private int m_count;
+
+        ChunkBlocks(int cx, int cz) {
+            m_cx = cx;
+            m_cz = cz;
+        }
+
+        /**
+         * Set the block
+         *
+         * @param x
+         * @param y
+         * @param z
+         * @param block
+         * @return true if the block was not set before
+         */
+        boolean set(int x, int y, int z, BaseBlock block) {
+            BaseBlock[] section = m_sections[y >> 4];
+            if (section == null) {
+                section = new BaseBlock[SECTION_SIZE];
+                m_sections[y >> 4] = section;
+            }
+
+            final int index = getIndex(x, y & 0xf, z);
+            final boolean isNew = section[index] == null;
+            section[index] = block;
+
+            if (isNew) {
+                m_count++;
+            }
+            return isNew;
+        }
+
+        int getChunkX() {
+            return m_cx;
+        }
+
+        int getChunkZ() {
+            return m_cz;
+        }
+
+        int size() {
+            return m_count;
+        }
+
+        /**
+         * The sections that contain blocks
+         *
+         * @return
+         */
+        int getSectionMask() {
+            int result = 0;
+            for (int i = 0; i < m_sections.length; i++) {
+                if (m_sections[i] != null) {
+                    result |= 1 << i;
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Call the visitor for every block (section by section)
+         *
+         * @param visitor
+         * @throws WorldEditException
+         */
+        void forEach(IBlockVisitor visitor) throws WorldEditException {
+            for (int s = 0; s < m_sections.length; s++) {
+                final BaseBlock[] section = m_sections[s];
+                if (section == null) {
+                    continue;
+                }
+
+                final int y0 = s << 4;
+                for (int index = 0; index < SECTION_SIZE; index++) {
+                    final BaseBlock block = section[index];
+                    if (block != null) {
+                        visitor.visit(getX(index), y0 + getY(index), getZ(index), block);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The chunk blocks visitor
+     */
+    @FunctionalInterface
+    private interface IBlockVisitor {
+
+        void visit(int x, int y, int z, BaseBlock block) throws WorldEditException;
+    }
+
+    private final IInnerDirectChunkAPI m_dcApi;
+
+    private final ITaskDispatcher m_dispatcher;
+
+    private final IChunkWatch m_chunkWatcher;
+
+    private final IWorld m_world;
+
+    private final IPlayerEntry m_player;
+
+    private final Extent m_bypassHistory;
+
+    private final boolean m_isUndo;
+
+    /**
+     * The pending chunks (in the order of the first change)
+     */
+    private final Map<Long, ChunkBlocks> m_chunks = new LinkedHashMap<>();
+
+    /**
+     * Number of pending blocks
+     */
+    private int m_pending;
+
+    ChunkChangeReplay(IInnerDirectChunkAPI dcApi, ITaskDispatcher dispatcher,
+            IChunkWatch chunkWatcher, IWorld world, IPlayerEntry player,
+            Extent bypassHistory, boolean isUndo) {
+        m_dcApi = dcApi;
+        m_dispatcher = dispatcher;
+        m_chunkWatcher = chunkWatcher;
+        m_world = world;
+        m_player = player;
+        m_bypassHistory = bypassHistory;
+        m_isUndo = isUndo;
+    }
+
+    /**
+     * Add the change to the replay
+     *
+     * @param change
+     * @return false if the change is not a block change and should be applied
+     * directly (after flushing the pending blocks)
+     * @throws WorldEditException
+     */
+    public boolean add(Change change) throws WorldEditException {
+        if (change instanceof BlockPlacerChange) {
+            change = ((BlockPlacerChange) change).getChange();
+        }
+
+        if (!(change instanceof BlockChange)) {
+            return false;
+        }
+
+        final BlockChange blockChange = (BlockChange) change;
+        final BlockVector3 pos = blockChange.getPosition();
+        final int y = pos.getBlockY();
+        if (y < 0 || y > 255) {
+            return false;
+        }
+
+        final int cx = pos.getBlockX() >> 4;
+        final int cz = pos.getBlockZ() >> 4;
+        final BaseBlock block = m_isUndo ? blockChange.getPrevious() : blockChange.getCurrent();
+
+        if (m_chunks.computeIfAbsent(((long) cx << 32) | (cz & 0xffffffffL), c -> new ChunkBlocks(cx, cz))
+                .set(pos.getBlockX() & 0xf, y, pos.getBlockZ() & 0xf, block)) {
+            m_pending++;
+        }
+
+        if (m_pending >= MAX_PENDING) {
+            flush();
+        }
+
+        return true;
+    }
+
+    /**
+     * Write all the pending chunks
+     *
+     * @throws WorldEditException
+     */
+    public void flush() throws WorldEditException {
+        for (ChunkBlocks blocks : m_chunks.values()) {
+            apply(blocks);
+        }
+
+        m_chunks.clear();
+        m_pending = 0;
+    }
+
+    /**
+     * Write the blocks to the chunk
+     *
+     * @param blocks
+     * @throws WorldEditException
+     */
+    private void apply(ChunkBlocks blocks) throws WorldEditException {
+        final int cx = blocks.getChunkX();
+        final int cz = blocks.getChunkZ();
+        final BlockVector2 chunk = BlockVector2.at(cx, cz);
+        final String worldName = m_world.getName();
+
+        m_chunkWatcher.add(cx, cz, worldName);
+        try {
+            final IWrappedChunk wChunk = DcUtils.wrapChunk(m_dispatcher, m_dcApi, m_world, m_player, chunk);
+            if (wChunk == null) {
+                applyFallback(blocks);
+                return;
+            }
+
+            final IBlockEntry[] entries = new IBlockEntry[blocks.size()];
+            final int[] count = new int[1];
+            blocks.forEach((x, y, z, block) -> {
+                final int id = m_dcApi.getCombinedId(block, block.getStates());
+                final CompoundTag nbt = block.hasNbtData() ? block.getNbtData() : null;
+
+                entries[count[0]++] = new BlockEntry(id, x, y, z, nbt, m_dcApi.getLightEmissionLevel(block));
+            });
+
+            final ReadonlyChangesetData data = new ReadonlyChangesetData(NO_ENTITIES, NO_ENTITIES,
+                    entries, NO_BIOMES);
+            m_dispatcher.performSafeChunk(MutexProvider.getMutex(m_world), () -> {
+                wChunk.setData(data);
+            }, m_world, chunk);
+
+            relight(blocks);
+            sendUpdate(wChunk, blocks.getSectionMask());
+        } finally {
+            m_chunkWatcher.remove(cx, cz, worldName);
+        }
+    }
+
+    /**
+     * Send the changed sections to the players. The update goes through the
+     * chunk update queue so it is merged with the relighter update and the
+     * updates from the other flushes of this chunk.
+     *
+     * @param wChunk
+     * @param sections
+     */
+    private void sendUpdate(IWrappedChunk wChunk, int sections) {
+        final ChunkUpdateQueue updateQueue = ChunkUpdateQueue.getInstance();
+        if (updateQueue == null) {
+            m_dispatcher.queueFastOperation(wChunk::sendChunkUpdate);
+            return;
+        }
+
+        wChunk.markSectionsDirty(sections);
+        updateQueue.queue(wChunk);
+    }
+
+    /**
+     * Queue the changed blocks for relighting, the relighter processes them
+     * once per chunk
+     *
+     * @param blocks
+     * @throws WorldEditException
+     */
+    private void relight(ChunkBlocks blocks) throws WorldEditException {
+        final IBlockRelighter relighter = m_dcApi.getBlockRelighter();
+        if (relighter == null) {
+            return;
+        }
+
+        final int x0 = blocks.getChunkX() << 4;
+        final int z0 = blocks.getChunkZ() << 4;
+
+        synchronized (relighter.getDataMutex()) {
+            blocks.forEach((x, y, z, block) -> relighter.queueBlock(m_world, x0 + x, y, z0 + z));
+        }
+    }
+
+    /**
+     * Apply the blocks using the edit session when the chunk could not be
+     * wrapped
+     *
+     * @param blocks
+     * @throws WorldEditException
+     */
+    private void applyFallback(ChunkBlocks blocks) throws WorldEditException {
+        final int x0 = blocks.getChunkX() << 4;
+        final int z0 = blocks.getChunkZ() << 4;
+
+        blocks.forEach((x, y, z, block) -> m_bypassHistory.setBlock(BlockVector3.at(x0 + x, y, z0 + z), block));
+    }
+
+    private static int getIndex(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    private static int getX(int index) {
+        return index & 0xf;
+    }
+
+    private static int getY(int index) {
+        return (index >> 8) & 0xf;
+    }
+
+    private static int getZ(int index) {
+        return (index >> 4) & 0xf;
+    }
+}
@@ -55,6 +55,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import static org.primesoft.asyncworldedit.LoggerProvider.log;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
 import org.primesoft.asyncworldedit.api.inner.IInnerSerializerManager;
@@ -76,7 +77,16 @@ import org.primesoft.asyncworldedit.strings.MessageType;
  */
 public final class FileChangeSet implements ChangeSet {
 
-    private final static int MAX_SAVE = 100;
+    /**
+     * The maximum number of changes saved in one batch
+     */
+    private final static int MAX_SAVE = 65536;
+
+    /**
+     * The estimated size of a single queued change (in bytes)
+     */
+    private final static int CHANGE_SIZE = 128;
+
     private final static Iterator<Change> EMPTY_ITERATOR = new Iterator<Change>() {
         @Override
         public boolean hasNext() {
@@ -105,6 +115,11 @@ public final class FileChangeSet implements ChangeSet {
     private boolean m_savePending = false;
     private boolean m_isRecording = true;
 
+    /**
+     * Is the change set waiting for or being saved by the saver pool
+     */
+    private final AtomicBoolean m_scheduled = new AtomicBoolean(false);
+
     public FileChangeSet(IAsyncWorldEditCore aweCore, IPlayerEntry player) {
         m_changesetSerializer = aweCore.getInnerChangesetSerializer();
         m_player = player;
@@ -126,7 +141,8 @@ public final class FileChangeSet implements ChangeSet {
             m_queuedChanges.add(change);
         }
 
-        FileChangeSetManager.notiffy();
+        FileChangeSetManager.addQueued(CHANGE_SIZE);
+        FileChangeSetManager.schedule(this);
     }
 
     @Override
@@ -165,18 +181,18 @@ public final class FileChangeSet implements ChangeSet {
                 || !sp.initializeStream(new File(m_storageFile.getPath() + ".idx"), removeFile)) {
             log(String.format("Warning: unable to reserve undo file %1$s.", m_storageFile));
         }
-
-        FileChangeSetManager.start(this);
     }
 
     public void close() {
+        int removed;
         synchronized (m_queuedChanges) {
+            removed = m_queuedChanges.size();
             m_queuedChanges.clear();
 
             m_isDisposed = true;
         }
+        FileChangeSetManager.removeQueued((long) removed * CHANGE_SIZE);
         m_changesetSerializer.close(m_storageFile);
-        FileChangeSetManager.stop(this);
 
         if (m_storageFile == null) {
             return;
@@ -200,7 +216,7 @@ public final class FileChangeSet implements ChangeSet {
         }
 
         synchronized (m_queuedChanges) {
-            while (!m_queuedChanges.isEmpty() && !m_isDisposed /*&& dataToSave.size() < MAX_SAVE*/) {
+            while (!m_queuedChanges.isEmpty() && !m_isDisposed && dataToSave.size() < MAX_SAVE) {
                 dataToSave.add(m_queuedChanges.poll());
                 m_size++;
             }
@@ -214,6 +230,8 @@ public final class FileChangeSet implements ChangeSet {
             m_changesetSerializer.save(m_storageFile, dataToSave);
             return true;
         } finally {
+            FileChangeSetManager.removeQueued((long) dataToSave.size() * CHANGE_SIZE);
+
             synchronized (m_saveMutex) {
                 m_savePending = false;
                 m_saveMutex.notifyAll();
@@ -221,6 +239,33 @@ public final class FileChangeSet implements ChangeSet {
         }
     }
 
+    /**
+     * Are there any changes waiting to be saved
+     *
+     * @return
+     */
+    boolean hasPending() {
+        synchronized (m_queuedChanges) {
+            return !m_queuedChanges.isEmpty() && !m_isDisposed;
+        }
+    }
+
+    /**
+     * Mark the change set as scheduled for saving
+     *
+     * @return false if the change set was already scheduled
+     */
+    boolean tryMarkScheduled() {
+        return m_scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Clear the scheduled for saving mark
+     */
+    void clearScheduled() {
+        m_scheduled.set(false);
+    }
+
     /**
      * Load all changes stored on disk and queued
      *
@@ -47,116 +47,233 @@
  */
 package org.primesoft.asyncworldedit.worldedit.history.changeset;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.ConfigUndo;
 import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 
+import static org.primesoft.asyncworldedit.LoggerProvider.log;
+
 /**
+ * The undo file saver pool. Each change set is saved by at most one worker at
+ * a time so the order of the changes is kept, the change sets waiting for a
+ * worker are saved in the order they were scheduled.
  *
  * @author SBPrime
  */
 public class FileChangeSetManager {
 
-    private static final List<FileChangeSet> s_fileSavers = new LinkedList<FileChangeSet>();
-    private static boolean s_isRunning = false;
-    private static final Object s_waitMutex = new Object();
+    /**
+     * The idle worker keep alive time (in seconds)
+     */
+    private static final int KEEP_ALIVE = 30;
+
+    /**
+     * The maximum time to wait for the queued change sets when stopping the
+     * saver pool (in seconds)
+     */
+    private static final int STOP_TIMEOUT = 30;
+
+    private static final Object s_mutex = new Object();
+
+    /**
+     * The saver pool
+     */
+    private static ThreadPoolExecutor s_executor;
+
+    /**
+     * The estimated size of the changes waiting to be saved
+     */
+    private static final AtomicLong s_queuedBytes = new AtomicLong();
 
     /**
-     * Start the file saver thread
+     * The queue size wait mutex
+     */
+    private static final Object s_queueMutex = new Object();
+
+    /**
+     * Get the saver pool
      *
-     * @param changeSet
+     * @return
+     */
+    private static ThreadPoolExecutor getExecutor() {
+        synchronized (s_mutex) {
+            if (s_executor == null) {
+                final ConfigUndo undo = ConfigProvider.undo();
+                final int threads = undo != null ? undo.getSaveThreads() : 1;
+                final AtomicInteger threadId = new AtomicInteger();
+
+                s_executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), r -> {
+                            final Thread th = new Thread(r);
+                            th.setName("AWE:FileChangeSetManager:saver-" + threadId.incrementAndGet());
+                            th.setDaemon(true);
+                            return th;
+                        });
+                s_executor.allowCoreThreadTimeOut(true);
+            }
+
+            return s_executor;
+        }
+    }
+
+    /**
+     * Remove the saver pool, the change sets already queued are still saved
+     * by the removed pool
+     *
+     * @return The removed pool
      */
-    static void start(FileChangeSet changeSet) {
-        boolean isRunning;
-        synchronized (s_fileSavers) {
-            s_fileSavers.add(changeSet);
+    private static ThreadPoolExecutor detachExecutor() {
+        final ThreadPoolExecutor result;
+        synchronized (s_mutex) {
+            result = s_executor;
+            s_executor = null;
+        }
 
-            isRunning = s_isRunning;
-            s_isRunning = true;
+        if (result != null) {
+            result.shutdown();
         }
 
-        if (isRunning) {
-            synchronized (s_waitMutex) {
-                s_waitMutex.notifyAll();
-            }
+        return result;
+    }
+
+    /**
+     * Apply the configuration, the saver pool is recreated using the new
+     * number of threads
+     */
+    public static void loadConfig() {
+        detachExecutor();
+    }
+
+    /**
+     * Stop the saver pool and wait for the queued change sets to be saved
+     */
+    public static void stop() {
+        final ThreadPoolExecutor executor = detachExecutor();
+        if (executor == null) {
             return;
         }
 
-        final Thread th = new Thread(FileChangeSetManager::saveLoop);
-        th.setName("AWE:FileChangeSetManager:saveLoop");
-        th.start();
+        try {
+            if (!executor.awaitTermination(STOP_TIMEOUT, TimeUnit.SECONDS)) {
+                log("Unable to save all undo data, the undo saver timed out.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
-     * Stop the file saver thread
+     * Schedule the change set save, does nothing if the change set is already
+     * waiting for a worker or being saved
      *
      * @param changeSet
      */
-    static void stop(FileChangeSet changeSet) {
-        synchronized (s_fileSavers) {
-            s_fileSavers.remove(changeSet);
+    static void schedule(FileChangeSet changeSet) {
+        if (!changeSet.tryMarkScheduled()) {
+            return;
+        }
 
-            if (!s_fileSavers.isEmpty()) {
+        final Runnable task = () -> save(changeSet);
+        while (true) {
+            try {
+                getExecutor().execute(task);
                 return;
+            } catch (RejectedExecutionException ex) {
+                //The pool was replaced by loadConfig or stop, use the new pool
             }
+        }
+    }
 
-            s_isRunning = false;
+    /**
+     * Save a single batch of the change set and reschedule it if there are more
+     * changes to save
+     *
+     * @param changeSet
+     */
+    private static void save(FileChangeSet changeSet) {
+        try {
+            changeSet.save();
+        } catch (Exception ex) {
+            ExceptionHelper.printException(ex, "Unable to save undo data. Preventing undo subsystem from breaking.");
+        } finally {
+            changeSet.clearScheduled();
         }
 
-        synchronized (s_waitMutex) {
-            s_waitMutex.notifyAll();
+        if (changeSet.hasPending()) {
+            schedule(changeSet);
         }
     }
 
     /**
-     * The change set save loop
-     */
-    private static void saveLoop() {
-        while (s_isRunning) {
-            boolean dataSaved;
-            do {
-                dataSaved = false;
-                final FileChangeSet[] changeSets;
-                synchronized (s_fileSavers) {
-                    changeSets = s_fileSavers.toArray(new FileChangeSet[0]);
-                }
-
-                for (FileChangeSet changeSet : changeSets) {
-                    boolean result;
-                    
-                    try {
-                        result = changeSet.save();
-                    }
-                    catch (Exception ex) {
-                        ExceptionHelper.printException(ex, "Unable to save undo data. Preventing undo subsystem from breaking.");
-                        result = true;
-                    }
-                    if (result) {
-                        try {
-                            /**
-                             * HACK: Sleep is added to prevent IO overflow
-                             */
-                            Thread.sleep(5);
-                        } catch (InterruptedException ex) {
-                        }
-                    }
-                    dataSaved |= result;
-                }
-            } while (dataSaved);
-
-            synchronized (s_waitMutex) {
-                try {
-                    s_waitMutex.wait();
-                } catch (InterruptedException ex) {
-                }
+     * The maximum size of the changes waiting to be saved (in bytes)
+     *
+     * @return 0 if there is no limit
+     */
+    private static long getMaxQueued() {
+        final ConfigUndo undo = ConfigProvider.undo();
+        return undo != null ? undo.getMaxQueuedSize() * 1024L : 0;
+    }
+
+    /**
+     * Add the changes waiting to be saved
+     *
+     * @param bytes
+     */
+    static void addQueued(long bytes) {
+        s_queuedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Remove the saved changes
+     *
+     * @param bytes
+     */
+    static void removeQueued(long bytes) {
+        final long queued = s_queuedBytes.addAndGet(-bytes);
+        final long max = getMaxQueued();
+
+        if (max > 0 && queued < max * 3 / 4) {
+            synchronized (s_queueMutex) {
+                s_queueMutex.notifyAll();
             }
         }
     }
 
-    static void notiffy() {
-        synchronized (s_waitMutex) {
-            s_waitMutex.notifyAll();
-        }
+    /**
+     * Is the limit of the changes waiting to be saved reached
+     *
+     * @return
+     */
+    static boolean isQueueFull() {
+        final long max = getMaxQueued();
+        return max > 0 && s_queuedBytes.get() >= max;
     }
 
+    /**
+     * Wait for the saver to free up the queue
+     *
+     * @param timeout
+     * @return true if the queue is below the soft limit (3/4 of the maximum)
+     * @throws InterruptedException
+     */
+    static boolean awaitQueue(long timeout) throws InterruptedException {
+        final long max = getMaxQueued();
+        if (max <= 0) {
+            return true;
+        }
+
+        synchronized (s_queueMutex) {
+            if (s_queuedBytes.get() >= max * 3 / 4) {
+                s_queueMutex.wait(timeout);
+            }
+        }
+
+        return s_queuedBytes.get() < max * 3 / 4;
+    }
 }
@@ -108,8 +108,19 @@ public class MemoryMonitorChangeSet implements IExtendedChangeSet {
      */
     private final IPlayerEntry m_player;
 
+    /**
+     * Use the undo saver queue size instead of the free memory
+     */
+    private final boolean m_queueBackpressure;
+
     public MemoryMonitorChangeSet(IPlayerEntry player, ITaskDispatcher taskDispatcher, ChangeSet parent) {
+        this(player, taskDispatcher, parent, false);
+    }
+
+    public MemoryMonitorChangeSet(IPlayerEntry player, ITaskDispatcher taskDispatcher, ChangeSet parent,
+            boolean queueBackpressure) {
         m_player = player;
+        m_queueBackpressure = queueBackpressure;
         m_taskDispatcher = taskDispatcher;
         m_parent = parent;
 
@@ -135,8 +146,7 @@ public class MemoryMonitorChangeSet implements IExtendedChangeSet {
         }
         
         if (behaviour != UndoBehaviour.Off) {
-            long memAvailable = GCUtils.getTotalAvailableMemory();
-            boolean memLow = m_minMemoryHard > 0 && memAvailable < m_minMemoryHard;
+            boolean memLow = isMemoryLow();
 
             if (memLow) {
                 m_player.say(MessageType.BLOCK_PLACER_MEMORY_LOW.format());
@@ -145,6 +155,15 @@ public class MemoryMonitorChangeSet implements IExtendedChangeSet {
                     return;
                 } else if (behaviour == UndoBehaviour.Cancel) {
                     throw new MaxChangedBlocksException(0);
+                } else if (behaviour == UndoBehaviour.Wait && editSession != null && m_queueBackpressure) {
+                    boolean ready;
+                    do {
+                        try {
+                            ready = FileChangeSetManager.awaitQueue(1000);
+                        } catch (InterruptedException ex) {
+                            return;
+                        }
+                    } while (!ready && !editSession.isCanceled());
                 } else if (behaviour == UndoBehaviour.Wait && editSession != null) {
                     do {
                         //TODO: This needs refactoring
@@ -166,6 +185,20 @@ public class MemoryMonitorChangeSet implements IExtendedChangeSet {
         m_parent.add(change);
     }
 
+    /**
+     * Check if the undo should be throttled
+     *
+     * @return
+     */
+    private boolean isMemoryLow() {
+        if (m_queueBackpressure) {
+            return FileChangeSetManager.isQueueFull();
+        }
+
+        long memAvailable = GCUtils.getTotalAvailableMemory();
+        return m_minMemoryHard > 0 && memAvailable < m_minMemoryHard;
+    }
+
     @Override
     public void add(Change change) {
     }
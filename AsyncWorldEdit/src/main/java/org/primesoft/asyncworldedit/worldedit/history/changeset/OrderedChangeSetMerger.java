@@ -0,0 +1,256 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.history.changeset;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.history.change.Change;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.primesoft.asyncworldedit.api.worldedit.ICancelabeEditSession;
+
+/**
+ * Merges the changes recorded by a number of parallel workers into a single
+ * change set. The changes are stored in the order of the slots, the current
+ * (lowest not completed) slot writes to the parent change set and the other
+ * slots are buffered until they become the current slot. A slot that buffered
+ * the maximum number of changes blocks the worker until it becomes the current
+ * slot. The current slot writes without any lock, the other slots buffer the
+ * changes under their own lock.
+ *
+ * @author SBPrime
+ */
+public final class OrderedChangeSetMerger {
+
+    /**
+     * The default maximum number of changes buffered by a slot
+     */
+    public static final int DEFAULT_MAX_PENDING = 16384;
+
+    /**
+     * The target change set
+     */
+    private final IExtendedChangeSet m_parent;
+
+    /**
+     * The worker slots
+     */
+    private final Slot[] m_slots;
+
+    /**
+     * The slot completion mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * The slot that writes directly to the parent change set. Changed only
+     * after the pending changes of the new head slot are flushed.
+     */
+    private volatile int m_head;
+
+    /**
+     * The maximum number of changes buffered by a slot
+     */
+    private final int m_maxPending;
+
+    public OrderedChangeSetMerger(IExtendedChangeSet parent, int slots) {
+        this(parent, slots, DEFAULT_MAX_PENDING);
+    }
+
+    public OrderedChangeSetMerger(IExtendedChangeSet parent, int slots, int maxPending) {
+        if (parent == null) {
+            throw new IllegalArgumentException("Change set is null");
+        }
+
+        m_parent = parent;
+        m_maxPending = Math.max(1, maxPending);
+        m_slots = new Slot[slots];
+        for (int i = 0; i < slots; i++) {
+            m_slots[i] = new Slot(i);
+        }
+        m_head = 0;
+    }
+
+    /**
+     * Get the change set for the slot
+     *
+     * @param slot
+     * @return
+     */
+    public IExtendedChangeSet getSlot(int slot) {
+        return m_slots[slot];
+    }
+
+    /**
+     * Mark the slot as completed. The buffered changes of the following
+     * completed slots are moved to the parent change set.
+     *
+     * @param slot
+     * @throws WorldEditException
+     */
+    public void complete(int slot) throws WorldEditException {
+        synchronized (m_mutex) {
+            m_slots[slot].m_isDone = true;
+
+            int head = m_head;
+            while (head < m_slots.length && m_slots[head].m_isDone) {
+                head++;
+
+                if (head < m_slots.length) {
+                    m_slots[head].promote(head);
+                } else {
+                    m_head = head;
+                }
+            }
+        }
+    }
+
+    private final class Slot implements IExtendedChangeSet {
+
+        private final int m_index;
+
+        /**
+         * Changes waiting for the previous slots
+         */
+        private List<Change> m_pending = new ArrayList<>();
+
+        /**
+         * The edit session that recorded the pending changes
+         */
+        private ICancelabeEditSession m_editSession;
+
+        private boolean m_isDone;
+
+        private Slot(int index) {
+            m_index = index;
+        }
+
+        @Override
+        public void addExtended(Change change, ICancelabeEditSession cancelableEditSession) throws WorldEditException {
+            if (m_index == m_head) {
+                m_parent.addExtended(change, cancelableEditSession);
+                return;
+            }
+
+            synchronized (this) {
+                //The slots are started in order so the current slot is
+                //always running and releases the waiting slots when done
+                while (m_index != m_head && m_pending.size() >= m_maxPending) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+
+                if (m_index == m_head) {
+                    m_parent.addExtended(change, cancelableEditSession);
+                } else {
+                    m_editSession = cancelableEditSession;
+                    m_pending.add(change);
+                }
+            }
+        }
+
+        /**
+         * Move the pending changes to the parent change set and make this slot
+         * the head slot
+         *
+         * @param head
+         * @throws WorldEditException
+         */
+        private synchronized void promote(int head) throws WorldEditException {
+            final List<Change> pending = m_pending;
+            m_pending = new ArrayList<>();
+
+            try {
+                for (Change change : pending) {
+                    m_parent.addExtended(change, m_editSession);
+                }
+            } finally {
+                m_head = head;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void add(Change change) {
+            try {
+                addExtended(change, null);
+            } catch (WorldEditException ex) {
+                //Ignore the error
+            }
+        }
+
+        @Override
+        public Iterator<Change> backwardIterator() {
+            return m_parent.backwardIterator();
+        }
+
+        @Override
+        public Iterator<Change> forwardIterator() {
+            return m_parent.forwardIterator();
+        }
+
+        @Override
+        public int size() {
+            return m_parent.size();
+        }
+
+        @Override
+        public boolean isRecordingChanges() {
+            return m_parent.isRecordingChanges();
+        }
+
+        @Override
+        public void setRecordChanges(boolean bln) {
+            m_parent.setRecordChanges(bln);
+        }
+    }
+}
@@ -66,6 +66,8 @@ public final class ChunkCuboidRegionIterator implements Iterator<BlockVector3>,
     private int m_xChunk, m_zChunk;
     private int m_count;
     private AtomicInteger m_delta = new AtomicInteger(0);
+    private ChunkPrefetcher m_prefetcher;
+    private boolean m_chunkChanged;
 
     public ChunkCuboidRegionIterator(CuboidRegion region) {
         BlockVector3  min = region.getMinimumPoint();
@@ -89,9 +91,61 @@ public final class ChunkCuboidRegionIterator implements Iterator<BlockVector3>,
         m_count = (m_maxX - m_minX + 1) * (m_maxY - m_minY + 1) * (m_maxZ - m_minZ + 1);
     }    
 
+    /**
+     * Get the number of chunks in a single row of the iteration order
+     * @return 
+     */
+    public int getChunkWidth() {
+        return (m_maxX >> 4) - (m_minX >> 4) + 1;
+    }
+
+    /**
+     * Get the number of chunks in the iteration order
+     * @return 
+     */
+    public int getChunkCount() {
+        return getChunkWidth() * ((m_maxZ >> 4) - (m_minZ >> 4) + 1);
+    }
+
+    /**
+     * Get the first chunk x coordinate
+     * @return 
+     */
+    public int getMinChunkX() {
+        return m_minX >> 4;
+    }
+
+    /**
+     * Get the first chunk z coordinate
+     * @return 
+     */
+    public int getMinChunkZ() {
+        return m_minZ >> 4;
+    }
+
+    /**
+     * Set the chunk prefetcher, the prefetcher is moved to the next chunk
+     * each time the iterator returns a position from a new chunk
+     * @param prefetcher 
+     */
+    public void setPrefetcher(ChunkPrefetcher prefetcher) {
+        m_prefetcher = prefetcher;
+        
+        if (prefetcher != null) {
+            prefetcher.advance();
+        }
+    }
+
     @Override
     public boolean hasNext() {
-        return m_z <= m_maxZ;
+        if (m_z <= m_maxZ) {
+            return true;
+        }
+        
+        if (m_prefetcher != null) {
+            m_prefetcher.close();
+        }
+        return false;
     }
 
     @Override
@@ -100,6 +154,11 @@ public final class ChunkCuboidRegionIterator implements Iterator<BlockVector3>,
             throw new NoSuchElementException();
         }
         
+        if (m_chunkChanged) {
+            m_chunkChanged = false;
+            m_prefetcher.advance();
+        }
+        
         final BlockVector3 result = BlockVector3.at(m_x, m_y, m_z);
         
         m_y ++;
@@ -126,6 +185,8 @@ public final class ChunkCuboidRegionIterator implements Iterator<BlockVector3>,
             m_z = Math.max(m_zChunk, m_minZ);
             m_xChunk += 16;
             m_x = m_xChunk;
+            
+            m_chunkChanged = m_prefetcher != null;
         }
         
         if (m_xChunk > m_maxX) {
@@ -0,0 +1,259 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.regions;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
+
+/**
+ * Loads the chunks ahead of a region iterator. The chunks are visited in a row
+ * major order (x first, then z), the prefetcher holds the chunks from the
+ * cursor up to the prefetch distance using the chunk watch and releases them
+ * when the cursor passes.
+ *
+ * If the owner iterator is abandoned before it finishes, the held chunks are
+ * released by the cron (or the next created prefetcher) after the iterator is
+ * garbage collected.
+ *
+ * @author SBPrime
+ */
+public final class ChunkPrefetcher {
+
+    /**
+     * Number of chunks that were loaded when the cursor reached them
+     */
+    private final static AtomicLong s_hits = new AtomicLong();
+
+    /**
+     * Number of chunks that were not loaded when the cursor reached them
+     */
+    private final static AtomicLong s_misses = new AtomicLong();
+
+    /**
+     * The abandoned owners
+     */
+    private final static ReferenceQueue<Object> s_abandoned = new ReferenceQueue<>();
+
+    /**
+     * The active owners
+     */
+    private final static Set<Owner> s_owners = ConcurrentHashMap.newKeySet();
+
+    private final IChunkWatch m_chunkWatch;
+
+    private final String m_worldName;
+
+    private final int m_minX;
+
+    private final int m_minZ;
+
+    /**
+     * Number of chunks in a single row
+     */
+    private final int m_width;
+
+    /**
+     * Total number of chunks
+     */
+    private final int m_count;
+
+    /**
+     * Number of chunks held ahead of the cursor
+     */
+    private final int m_distance;
+
+    /**
+     * The owner reference
+     */
+    private final Owner m_owner;
+
+    /**
+     * The current chunk index
+     */
+    private int m_cursor = -1;
+
+    /**
+     * The first held chunk index
+     */
+    private int m_heldFrom = 0;
+
+    /**
+     * The index after the last held chunk
+     */
+    private int m_heldTo = 0;
+
+    /**
+     * Create a new prefetcher
+     *
+     * @param owner the iterator that uses the prefetcher
+     * @param chunkWatch
+     * @param worldName
+     * @param minX the first chunk x coordinate
+     * @param minZ the first chunk z coordinate
+     * @param width number of chunks in a single row
+     * @param count total number of chunks
+     * @param distance number of chunks held ahead of the cursor
+     */
+    public ChunkPrefetcher(Object owner, IChunkWatch chunkWatch, String worldName,
+            int minX, int minZ, int width, int count, int distance) {
+        releaseAbandoned();
+
+        m_chunkWatch = chunkWatch;
+        m_worldName = worldName;
+        m_minX = minX;
+        m_minZ = minZ;
+        m_width = Math.max(1, width);
+        m_count = count;
+        m_distance = Math.max(0, distance);
+
+        m_owner = new Owner(owner, this);
+        s_owners.add(m_owner);
+    }
+
+    /**
+     * Number of chunks that were loaded when the cursor reached them
+     *
+     * @return
+     */
+    public static long getHits() {
+        return s_hits.get();
+    }
+
+    /**
+     * Number of chunks that were not loaded when the cursor reached them
+     *
+     * @return
+     */
+    public static long getMisses() {
+        return s_misses.get();
+    }
+
+    /**
+     * Move the cursor to the next chunk
+     */
+    public synchronized void advance() {
+        m_cursor++;
+        if (m_cursor >= m_count) {
+            close();
+            return;
+        }
+
+        while (m_heldFrom < m_cursor && m_heldFrom < m_heldTo) {
+            m_chunkWatch.remove(getX(m_heldFrom), getZ(m_heldFrom), m_worldName);
+            m_heldFrom++;
+        }
+        m_heldFrom = Math.max(m_heldFrom, m_cursor);
+        m_heldTo = Math.max(m_heldTo, m_cursor);
+
+        final int cx = getX(m_cursor);
+        final int cz = getZ(m_cursor);
+        if (m_chunkWatch.isChunkLoaded(cx, cz, m_worldName)) {
+            s_hits.incrementAndGet();
+        } else {
+            s_misses.incrementAndGet();
+        }
+
+        final int last = (int) Math.min(m_count, (long) m_cursor + m_distance + 1);
+        while (m_heldTo < last) {
+            m_chunkWatch.add(getX(m_heldTo), getZ(m_heldTo), m_worldName);
+            m_heldTo++;
+        }
+    }
+
+    /**
+     * Release all the held chunks
+     */
+    public synchronized void close() {
+        while (m_heldFrom < m_heldTo) {
+            m_chunkWatch.remove(getX(m_heldFrom), getZ(m_heldFrom), m_worldName);
+            m_heldFrom++;
+        }
+        m_cursor = m_count;
+
+        if (s_owners.remove(m_owner)) {
+            m_owner.clear();
+        }
+    }
+
+    private int getX(int index) {
+        return m_minX + index % m_width;
+    }
+
+    private int getZ(int index) {
+        return m_minZ + index / m_width;
+    }
+
+    /**
+     * Release the chunks held by the garbage collected iterators
+     */
+    public static void releaseAbandoned() {
+        Reference<?> ref;
+        while ((ref = s_abandoned.poll()) != null) {
+            ((Owner) ref).prefetcher.close();
+        }
+    }
+
+    /**
+     * The prefetcher owner reference
+     */
+    private static class Owner extends PhantomReference<Object> {
+
+        public final ChunkPrefetcher prefetcher;
+
+        public Owner(Object owner, ChunkPrefetcher prefetcher) {
+            super(owner, s_abandoned);
+
+            this.prefetcher = prefetcher;
+        }
+    }
+}
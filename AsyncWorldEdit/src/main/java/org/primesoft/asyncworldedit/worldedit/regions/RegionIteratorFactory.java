@@ -58,12 +58,18 @@ import com.sk89q.worldedit.regions.Polygonal2DRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.regions.RegionIntersection;
 import com.sk89q.worldedit.regions.TransformRegion;
+import com.sk89q.worldedit.world.World;
 import java.util.Collections;
 import java.util.Iterator;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerPlayer;
 import org.primesoft.asyncworldedit.api.blockPlacer.ICountProvider;
+import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
+import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.configuration.ConfigDispatcher;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.core.AwePlatform;
 import org.primesoft.asyncworldedit.worldedit.ITaskContext;
 import org.primesoft.asyncworldedit.worldedit.TaskContext;
 
@@ -91,7 +97,10 @@ public final class RegionIteratorFactory {
         }
         
         if (region instanceof CuboidRegion) {
-            return new ChunkCuboidRegionIterator((CuboidRegion)region);
+            final ChunkCuboidRegionIterator result = new ChunkCuboidRegionIterator((CuboidRegion)region);
+            initializePrefetcher(result, region.getWorld());
+            
+            return result;
         }
         
         if (region instanceof CylinderRegion ||
@@ -110,6 +119,22 @@ public final class RegionIteratorFactory {
         return null;
     }
     
+    private static void initializePrefetcher(ChunkCuboidRegionIterator iterator, World world) {
+        final ConfigDispatcher config = ConfigProvider.dispatcher();
+        final int distance = config != null ? config.getPrefetchDistance() : 0;
+        final AwePlatform platform = AwePlatform.getInstance();
+        final IAsyncWorldEditCore core = platform != null ? platform.getCore() : null;
+        final IChunkWatch chunkWatch = core != null ? core.getChunkWatch() : null;
+        
+        if (distance <= 0 || world == null || chunkWatch == null) {
+            return;
+        }
+        
+        iterator.setPrefetcher(new ChunkPrefetcher(iterator, chunkWatch, world.getName(),
+                iterator.getMinChunkX(), iterator.getMinChunkZ(), 
+                iterator.getChunkWidth(), iterator.getChunkCount(), distance));
+    }
+    
     private static void initializeCountProvider(ICountProvider cp) {
         final ITaskContext tc = TaskContext.get();
         final IBlockPlacer bp = tc.getBlockPlacer();
@@ -77,12 +77,10 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.function.Function;
 import org.primesoft.asyncworldedit.core.AwePlatform;
+import org.primesoft.asyncworldedit.api.IPhysicsWatch;
 import org.primesoft.asyncworldedit.api.IWorld;
 import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacer;
 import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
@@ -91,8 +89,11 @@ import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
 import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.blockPlacer.BlockPlacer;
+import org.primesoft.asyncworldedit.blockPlacer.ISectionBatchTarget;
 import org.primesoft.asyncworldedit.blockPlacer.entries.JobEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.RegenerateEntry;
+import org.primesoft.asyncworldedit.blockPlacer.entries.SectionBatchEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.WorldActionEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.WorldFuncEntry;
 import org.primesoft.asyncworldedit.blockPlacer.entries.WorldFuncEntryEx;
@@ -100,6 +101,7 @@ import org.primesoft.asyncworldedit.api.utils.IAction;
 import org.primesoft.asyncworldedit.api.utils.IFunc;
 import org.primesoft.asyncworldedit.api.utils.IFuncEx;
 import org.primesoft.asyncworldedit.blockPlacer.entries.ActionEntry;
+import org.primesoft.asyncworldedit.utils.ExceptionHelper;
 import org.primesoft.asyncworldedit.utils.MutexProvider;
 import org.primesoft.asyncworldedit.worldedit.AsyncEditSession;
 import org.primesoft.asyncworldedit.worldedit.CancelabeEditSession;
@@ -117,7 +119,7 @@ import org.primesoft.asyncworldedit.worldedit.entity.EntityLazyWrapper;
  *
  * @author SBPrime
  */
-public class AsyncWorld extends AbstractWorldWrapper {
+public class AsyncWorld extends AbstractWorldWrapper implements ISectionBatchTarget {
 
     /**
      * Wrap the world (if needed)
@@ -173,9 +175,16 @@ public class AsyncWorld extends AbstractWorldWrapper {
      */
     private final IChunkWatch m_chunkWatcher;
 
-    private final static int CACHE_SIZE = 5000;
+    /**
+     * The chunk section snapshots used to read the blocks (null if disabled)
+     */
+    private final SectionSnapshotCache m_snapshots;
 
-    private final Map<BlockVector3, BlockCacheEntry> m_blockCache = new LruMap<>(CACHE_SIZE);
+    /**
+     * The cached world name, the name does not change so there is no need
+     * to take the world lock each time
+     */
+    private volatile String m_name;
 
     public AsyncWorld(World world, IPlayerEntry player) {
         super(world);
@@ -190,6 +199,9 @@ public class AsyncWorld extends AbstractWorldWrapper {
         m_blocksHub = aweCore.getBlocksHubBridge();
         m_bukkitWorld = aweCore.getWorldEditIntegrator().getWorld(world);
         m_chunkWatcher = aweCore.getChunkWatch();
+
+        final long snapshotCacheSize = ConfigProvider.memory().getSnapshotCacheSize() * 1024L;
+        m_snapshots = snapshotCacheSize > 0 ? new SectionSnapshotCache(snapshotCacheSize) : null;
     }
 
     /**
@@ -239,6 +251,94 @@ public class AsyncWorld extends AbstractWorldWrapper {
         return oldBlock.equalsFuzzy(newBlock);
     }
 
+    /**
+     * Try to queue the block change using the section batched block placer queue
+     *
+     * @param player
+     * @param jobId
+     * @param v
+     * @param newBlock
+     * @param notifyAndLight
+     * @return null if batching is not available
+     */
+    private Boolean addBatchedBlock(IPlayerEntry player, int jobId, BlockVector3 v,
+            BlockStateHolder newBlock, boolean notifyAndLight) {
+        if (!(m_blockPlacer instanceof BlockPlacer) || !ConfigProvider.renderer().isBatchModeEnabled()) {
+            return null;
+        }
+
+        return ((BlockPlacer) m_blockPlacer).addBlock(player, jobId, getName(), this, v, newBlock, notifyAndLight);
+    }
+
+    /**
+     * Place the block (main thread)
+     *
+     * @param player
+     * @param v
+     * @param newBlock
+     * @param notifyAndLight
+     * @param checkAccess should the BlocksHub access be checked, false if
+     * it was already checked when the change was queued
+     * @return
+     * @throws WorldEditException
+     */
+    private boolean placeBlock(IPlayerEntry player, BlockVector3 v,
+            BlockStateHolder newBlock, boolean notifyAndLight, boolean checkAccess) throws WorldEditException {
+        final BlockState oldBlock = m_parent.getBlock(v);
+        if ((checkAccess && !canPlace(player, m_bukkitWorld, v, oldBlock, newBlock))
+                || isSame(oldBlock, newBlock)) {
+            return false;
+        }
+
+        final boolean result = m_parent.setBlock(v, newBlock, notifyAndLight);
+        if (result) {
+            logBlock(v, player, oldBlock, newBlock);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean applyBatch(SectionBatchEntry batch, IPhysicsWatch physicsWatch) {
+        final IPlayerEntry player = batch.getPlayer();
+        final String worldName = batch.getWorldName();
+        final boolean notifyAndLight = batch.isNotifyAndLight();
+        final int size = batch.size();
+
+        final BlockVector3[] locations = new BlockVector3[size];
+        final BlockStateHolder[] oldBlocks = new BlockStateHolder[size];
+        final BlockStateHolder[] newBlocks = new BlockStateHolder[size];
+        int changed = 0;
+
+        for (int i = 0; i < size; i++) {
+            final BlockVector3 v = batch.getLocation(i);
+
+            try {
+                final BlockStateHolder newBlock = batch.getBlock(i);
+                final BlockState oldBlock = m_parent.getBlock(v);
+                if (isSame(oldBlock, newBlock)) {
+                    continue;
+                }
+
+                if (m_parent.setBlock(v, newBlock, notifyAndLight)) {
+                    locations[changed] = v;
+                    oldBlocks[changed] = oldBlock;
+                    newBlocks[changed] = newBlock;
+                    changed++;
+                }
+            } catch (Exception ex) {
+                ExceptionHelper.printException(ex, "Error while processing batched block change.");
+            } finally {
+                if (worldName != null) {
+                    physicsWatch.removeLocation(worldName, v);
+                }
+            }
+        }
+
+        m_blocksHub.logBlocks(player, m_bukkitWorld, locations, oldBlocks, newBlocks, changed, false);
+        return changed > 0;
+    }
+
     /**
      * Log placed block using blocks hub
      */
@@ -249,8 +349,14 @@ public class AsyncWorld extends AbstractWorldWrapper {
 
     @Override
     public String getName() {
-        return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()),
-                m_parent::getName);
+        String name = m_name;
+        if (name == null) {
+            name = m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()),
+                    m_parent::getName);
+            m_name = name;
+        }
+
+        return name;
     }
 
     @Override
@@ -290,31 +396,24 @@ public class AsyncWorld extends AbstractWorldWrapper {
         final BlockVector3 v = paramVector.getData();
         final IPlayerEntry player = getPlayer(paramBlock, paramVector);
 
-        IFuncEx<Boolean, WorldEditException> func = () -> {
-            final BlockStateHolder oldBlock = m_parent.getBlock(v);
-            if (!canPlace(player, m_bukkitWorld, v, oldBlock, newBlock)
-                    || isSame(oldBlock, newBlock)) {
-                return false;
-            }
-
-            final boolean result = m_parent.setBlock(v, newBlock, notifyAndLight);
-            if (result) {
-                logBlock(v, player, oldBlock, newBlock);
-            }
-
-            return result;
-        };
+        invalidateSnapshot(v);
 
         if (paramBlock.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
-            if (!canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
+            if (!m_blocksHub.isAcceptAll() && !canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
                 return false;
             }
 
+            final Boolean batched = addBatchedBlock(player, paramBlock.getJobId(), v, newBlock, notifyAndLight);
+            if (batched != null) {
+                return batched;
+            }
+
+            final IFuncEx<Boolean, WorldEditException> func = () -> placeBlock(player, v, newBlock, notifyAndLight, false);
             return m_blockPlacer.addTasks(player,
                     new WorldFuncEntryEx(this.getName(), paramBlock.getJobId(), v, func));
         }
         
-        return func.execute();
+        return placeBlock(player, v, newBlock, notifyAndLight, true);
     }
 
     @Override
@@ -390,6 +489,8 @@ public class AsyncWorld extends AbstractWorldWrapper {
         final DataAsyncParams<BlockVector3> param = DataAsyncParams.extract(position);
         final BlockVector3 v = param.getData();
         final IPlayerEntry player = getPlayer(param);
+
+        invalidateSnapshot(v);
         
         IAction func = () -> {
             BlockState oldBlock = m_parent.getBlock(v);
@@ -400,7 +501,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         };
 
         if (param.isAsync() || !m_dispatcher.isMainTask()) {
-            if (!canPlace(player, m_bukkitWorld, v, getBlock(v), BlockStates.AIR)) {
+            if (!m_blocksHub.isAcceptAll() && !canPlace(player, m_bukkitWorld, v, getBlock(v), BlockStates.AIR)) {
                 return;
             }
 
@@ -490,6 +591,10 @@ public class AsyncWorld extends AbstractWorldWrapper {
                 }
             }
 
+            if (m_snapshots != null) {
+                m_snapshots.invalidateChunk(chunk.getBlockX(), chunk.getBlockZ());
+            }
+
             m_chunkWatcher.add(chunk.getBlockX(), chunk.getBlockZ(), getName());
             // Then restore
             index = 0;
@@ -603,7 +708,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         };
 
         if (param.isAsync() || !m_dispatcher.isMainTask()) {
-            if (!canPlace(player, m_bukkitWorld, v, getBlock(v), BlockStates.AIR)) {
+            if (!m_blocksHub.isAcceptAll() && !canPlace(player, m_bukkitWorld, v, getBlock(v), BlockStates.AIR)) {
                 return false;
             }
 
@@ -728,31 +833,127 @@ public class AsyncWorld extends AbstractWorldWrapper {
         return result;
     }
             
-    private <T> T getBlockEntry(final BlockVector3 position, final Function<BlockCacheEntry, T> get) {
-        BlockCacheEntry result = m_blockCache.computeIfAbsent(position, _p -> {
-            BaseBlock block = getFullBlockDispatcher(position);
-            if (block == null) {
+    /**
+     * Mark the block as changed in the section snapshot
+     *
+     * @param position
+     */
+    private void invalidateSnapshot(BlockVector3 position) {
+        if (m_snapshots != null) {
+            m_snapshots.invalidate(position.getX(), position.getY(), position.getZ());
+        }
+    }
+
+    /**
+     * Get the section snapshot entry for the position, the snapshot is read
+     * from the world when missing
+     *
+     * @param position
+     * @return null if the position should be read directly from the world
+     */
+    private SectionSnapshotCache.Entry getSnapshot(final BlockVector3 position) {
+        final int y = position.getY();
+        if (m_snapshots == null || y < 0 || y >= 16 * SectionSnapshotCache.SECTIONS
+                || m_dispatcher.isMainTask()) {
+            return null;
+        }
+
+        final int cx = position.getX() >> 4;
+        final int cy = y >> 4;
+        final int cz = position.getZ() >> 4;
+        final long key = SectionSnapshotCache.getKey(cx, cy, cz);
+
+        SectionSnapshotCache.Entry result = m_snapshots.get(key);
+        if (result == null) {
+            final SectionSnapshot snapshot = loadSnapshot(cx, cy, cz);
+            if (snapshot == null) {
                 return null;
             }
-            
-            return new BlockCacheEntry(block);
-        });
-        
-        if (result == null) {
+
+            result = m_snapshots.put(key, snapshot);
+        }
+
+        final int index = SectionSnapshot.getIndex(position.getX(), y, position.getZ());
+        return result.isDirty(index) ? null : result;
+    }
+
+    /**
+     * Read the chunk section from the world. The block states are read using
+     * a single chunk safe operation, the tile entities are read using a single
+     * main thread operation.
+     *
+     * @param cx
+     * @param cy
+     * @param cz
+     * @return null if the section could not be read
+     */
+    private SectionSnapshot loadSnapshot(final int cx, final int cy, final int cz) {
+        final BlockVector3 min = BlockVector3.at(cx << 4, cy << 4, cz << 4);
+        final SectionSnapshot.Builder builder = m_dispatcher.performSafeChunk(MutexProvider.getMutex(getWorld()), () -> {
+            final SectionSnapshot.Builder b = new SectionSnapshot.Builder();
+            for (int i = 0; i < SectionSnapshot.SIZE; i++) {
+                final BlockState block = m_parent.getBlock(min.add(
+                        SectionSnapshot.getX(i), SectionSnapshot.getY(i), SectionSnapshot.getZ(i)));
+                if (block == null) {
+                    return null;
+                }
+
+                b.setBlock(i, block);
+            }
+
+            return b;
+        }, m_bukkitWorld, BlockVector2.at(cx, cz));
+
+        if (builder == null) {
             return null;
         }
-        
-        return get.apply(result);
+
+        final int[] tiles = builder.find(b -> isTileEntity(b.getBlockType()));
+        if (tiles.length > 0) {
+            final BaseBlock[] tileBlocks = m_dispatcher.queueFastOperation(() -> {
+                final BaseBlock[] r = new BaseBlock[tiles.length];
+                for (int i = 0; i < tiles.length; i++) {
+                    final int idx = tiles[i];
+                    r[i] = m_parent.getFullBlock(min.add(
+                            SectionSnapshot.getX(idx), SectionSnapshot.getY(idx), SectionSnapshot.getZ(idx)));
+                }
+
+                return r;
+            });
+
+            if (tileBlocks == null) {
+                return null;
+            }
+
+            for (int i = 0; i < tiles.length; i++) {
+                builder.setTile(tiles[i], tileBlocks[i]);
+            }
+        }
+
+        return builder.build();
     }
-    
+
     @Override
-    public BlockState getBlock(final BlockVector3 position) {        
-        return getBlockEntry(position, BlockCacheEntry::state);
+    public BlockState getBlock(final BlockVector3 position) {
+        final SectionSnapshotCache.Entry entry = getSnapshot(position);
+        if (entry != null) {
+            return entry.getSnapshot().getBlock(SectionSnapshot.getIndex(
+                    position.getX(), position.getY(), position.getZ()));
+        }
+
+        return m_dispatcher.performSafe(MutexProvider.getMutex(getWorld()),
+                () -> m_parent.getBlock(position), m_bukkitWorld, position);
     }
 
     @Override
     public BaseBlock getFullBlock(final BlockVector3 position) {
-        return getBlockEntry(position, BlockCacheEntry::block);
+        final SectionSnapshotCache.Entry entry = getSnapshot(position);
+        if (entry != null) {
+            return entry.getSnapshot().getFullBlock(SectionSnapshot.getIndex(
+                    position.getX(), position.getY(), position.getZ()));
+        }
+
+        return getFullBlockDispatcher(position);
     }
 
     @Override
@@ -764,8 +965,6 @@ public class AsyncWorld extends AbstractWorldWrapper {
 
     @Override
     public boolean setBlock(final BlockVector3 position, final BlockStateHolder block) throws WorldEditException {
-        m_blockCache.remove(position);
-
         final DataAsyncParams<BlockStateHolder> paramBlock = DataAsyncParams.extract(block);
         final DataAsyncParams<BlockVector3> paramVector = DataAsyncParams.extract(position);
 
@@ -773,31 +972,24 @@ public class AsyncWorld extends AbstractWorldWrapper {
         final BlockVector3 v = paramVector.getData();
         final IPlayerEntry player = getPlayer(paramBlock, paramVector);
 
-        IFuncEx<Boolean, WorldEditException> func = () -> {
-            final BlockState oldBlock = m_parent.getBlock(v);
-            if (!canPlace(player, m_bukkitWorld, v, oldBlock, newBlock)
-                    || isSame(oldBlock, newBlock)) {
-                return false;
-            }
-
-            final boolean result = m_parent.setBlock(position, newBlock);
-            if (result) {
-                logBlock(position, player, oldBlock, newBlock);
-            }
-
-            return result;
-        };
+        invalidateSnapshot(v);
 
         if (paramBlock.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
-            if (!canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
+            if (!m_blocksHub.isAcceptAll() && !canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
                 return false;
             }
 
+            final Boolean batched = addBatchedBlock(player, paramBlock.getJobId(), v, newBlock, true);
+            if (batched != null) {
+                return batched;
+            }
+
+            final IFuncEx<Boolean, WorldEditException> func = () -> placeBlock(player, v, newBlock, true, false);
             return m_blockPlacer.addTasks(player,
                     new WorldFuncEntryEx(this.getName(), paramBlock.getJobId(), v, func));
         }
 
-        return func.execute();
+        return placeBlock(player, v, newBlock, true, true);
     }
 
     @Override
@@ -837,6 +1029,8 @@ public class AsyncWorld extends AbstractWorldWrapper {
         final BlockVector3 v = paramVector.getData();
         final IPlayerEntry player = getPlayer(paramBlock, paramVector);
 
+        invalidateSnapshot(v);
+
         IFuncEx<Boolean, WorldEditException> func = () -> {
             final BlockState oldBlock = m_parent.getBlock(v);
             if (!canPlace(player, m_bukkitWorld, v, oldBlock, newBlock)
@@ -853,7 +1047,7 @@ public class AsyncWorld extends AbstractWorldWrapper {
         };
 
         if (paramBlock.isAsync() || paramVector.isAsync() || !m_dispatcher.isMainTask()) {
-            if (!canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
+            if (!m_blocksHub.isAcceptAll() && !canPlace(player, m_bukkitWorld, position, getBlock(v), newBlock)) {
                 return false;
             }
 
@@ -888,39 +1082,4 @@ public class AsyncWorld extends AbstractWorldWrapper {
     public String getId() {
         return m_parent.getId();
     }
-
-    private static class BlockCacheEntry {
-        private final BaseBlock m_block;
-        
-        private volatile BlockState m_state;
-        
-        public BaseBlock block() { return m_block; }
-        public BlockState state() {
-            if (m_state == null) {
-                m_state = m_block.toImmutableState();
-            }
-            
-            return m_state;
-        }
-        
-        public BlockCacheEntry(BaseBlock block) {
-            m_block = block;
-        }
-    }
-    
-    private static class LruMap<TKey, TValue> extends LinkedHashMap<TKey, TValue> {
-
-        private final int m_size;
-
-        public LruMap(int size) {
-            super(size + 1, 0.75f, true);
-
-            m_size = size;
-        }
-
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<TKey, TValue> entry) {
-            return size() > m_size;
-        }
-    };
 }
@@ -0,0 +1,251 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.world;
+
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Immutable snapshot of a single chunk section (16x16x16 blocks). The blocks
+ * are stored as palette indexes, the tile entities are stored separately.
+ *
+ * @author SBPrime
+ */
+final class SectionSnapshot {
+
+    /**
+     * Number of blocks in a section
+     */
+    static final int SIZE = 16 * 16 * 16;
+
+    /**
+     * Estimated memory used by a palette or tile entity entry
+     */
+    private static final int ENTRY_SIZE = 64;
+
+    /**
+     * Estimated memory used by the snapshot object
+     */
+    private static final int BASE_SIZE = 128;
+
+    /**
+     * Get the block index in the section
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    static int getIndex(int x, int y, int z) {
+        return ((y & 0xf) << 8) | ((z & 0xf) << 4) | (x & 0xf);
+    }
+
+    static int getX(int index) {
+        return index & 0xf;
+    }
+
+    static int getY(int index) {
+        return (index >> 8) & 0xf;
+    }
+
+    static int getZ(int index) {
+        return (index >> 4) & 0xf;
+    }
+
+    /**
+     * The block states palette
+     */
+    private final BlockState[] m_palette;
+
+    /**
+     * The full blocks palette
+     */
+    private final BaseBlock[] m_fullPalette;
+
+    /**
+     * The palette index for each block
+     */
+    private final char[] m_blocks;
+
+    /**
+     * The tile entities (block index to full block)
+     */
+    private final Map<Integer, BaseBlock> m_tiles;
+
+    private SectionSnapshot(BlockState[] palette, char[] blocks, Map<Integer, BaseBlock> tiles) {
+        m_palette = palette;
+        m_blocks = blocks;
+        m_tiles = tiles;
+
+        m_fullPalette = new BaseBlock[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            m_fullPalette[i] = palette[i] != null ? palette[i].toBaseBlock() : null;
+        }
+    }
+
+    /**
+     * Get the block state
+     *
+     * @param index
+     * @return
+     */
+    BlockState getBlock(int index) {
+        return m_palette[m_blocks[index]];
+    }
+
+    /**
+     * Get the full block (with the tile entity data)
+     *
+     * @param index
+     * @return
+     */
+    BaseBlock getFullBlock(int index) {
+        final BaseBlock tile = m_tiles.get(index);
+        if (tile != null) {
+            return tile;
+        }
+
+        return m_fullPalette[m_blocks[index]];
+    }
+
+    /**
+     * Get the estimated memory used by the snapshot (in bytes)
+     *
+     * @return
+     */
+    long getMemorySize() {
+        return BASE_SIZE + 2L * m_blocks.length
+                + (long) ENTRY_SIZE * (m_palette.length + m_tiles.size());
+    }
+
+    /**
+     * The section snapshot builder
+     */
+    static final class Builder {
+
+        private final Map<BlockState, Integer> m_indexes = new HashMap<>();
+
+        private final List<BlockState> m_palette = new ArrayList<>();
+
+        private final char[] m_blocks = new char[SIZE];
+
+        private final Map<Integer, BaseBlock> m_tiles = new HashMap<>();
+
+        /**
+         * Set the block state
+         *
+         * @param index
+         * @param block
+         */
+        void setBlock(int index, BlockState block) {
+            Integer id = m_indexes.get(block);
+            if (id == null) {
+                id = m_palette.size();
+                m_palette.add(block);
+                m_indexes.put(block, id);
+            }
+
+            m_blocks[index] = (char) id.intValue();
+        }
+
+        /**
+         * Set the tile entity block
+         *
+         * @param index
+         * @param block
+         */
+        void setTile(int index, BaseBlock block) {
+            if (block != null) {
+                m_tiles.put(index, block);
+            }
+        }
+
+        /**
+         * Find all the blocks that match the predicate
+         *
+         * @param predicate tested once for each palette entry
+         * @return the block indexes
+         */
+        int[] find(Predicate<BlockState> predicate) {
+            final boolean[] matches = new boolean[m_palette.size()];
+            boolean any = false;
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] = predicate.test(m_palette.get(i));
+                any |= matches[i];
+            }
+
+            if (!any) {
+                return new int[0];
+            }
+
+            int cnt = 0;
+            final int[] result = new int[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                if (matches[m_blocks[i]]) {
+                    result[cnt++] = i;
+                }
+            }
+
+            final int[] trimmed = new int[cnt];
+            System.arraycopy(result, 0, trimmed, 0, cnt);
+
+            return trimmed;
+        }
+
+        SectionSnapshot build() {
+            return new SectionSnapshot(m_palette.toArray(new BlockState[0]), m_blocks,
+                    m_tiles.isEmpty() ? Collections.<Integer, BaseBlock>emptyMap() : m_tiles);
+        }
+    }
+}
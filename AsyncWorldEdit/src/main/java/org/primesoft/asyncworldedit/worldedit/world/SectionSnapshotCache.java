@@ -0,0 +1,319 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.world;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The edit session chunk section snapshot cache. The snapshots are evicted
+ * (least recently used first) when the cache exceeds its memory budget.
+ *
+ * @author SBPrime
+ */
+final class SectionSnapshotCache {
+
+    /**
+     * Number of sections in a chunk
+     */
+    static final int SECTIONS = 16;
+
+    /**
+     * Get the section key
+     *
+     * @param cx
+     * @param cy
+     * @param cz
+     * @return
+     */
+    static long getKey(int cx, int cy, int cz) {
+        return ((long) (cx & 0x3ffffff) << 38) | ((long) (cz & 0x3ffffff) << 12) | (cy & 0xfff);
+    }
+
+    /**
+     * The cached snapshots in the access order (least recently used first)
+     */
+    private final LinkedHashMap<Long, Entry> m_entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Blocks changed by the edit session in sections that are not cached.
+     * The positions are merged into the entry when the section is added, so
+     * a change that is still queued or that races the section load is not
+     * served from the snapshot. Removed entries keep their changed blocks
+     * here for the same reason.
+     */
+    private final HashMap<Long, long[]> m_pending = new HashMap<>();
+
+    /**
+     * The MTA mutex
+     */
+    private final Object m_mutex = new Object();
+
+    /**
+     * The memory budget (in bytes)
+     */
+    private final long m_budget;
+
+    /**
+     * The estimated memory used by the snapshots
+     */
+    private long m_size;
+
+    SectionSnapshotCache(long budget) {
+        m_budget = budget;
+    }
+
+    /**
+     * Get the cached section
+     *
+     * @param key
+     * @return null if the section is not cached
+     */
+    Entry get(long key) {
+        synchronized (m_mutex) {
+            return m_entries.get(key);
+        }
+    }
+
+    /**
+     * Add the section snapshot to the cache
+     *
+     * @param key
+     * @param snapshot
+     * @return the cached entry
+     */
+    Entry put(long key, SectionSnapshot snapshot) {
+        synchronized (m_mutex) {
+            final Entry old = m_entries.get(key);
+            if (old != null) {
+                return old;
+            }
+
+            final Entry entry = new Entry(snapshot);
+            final long[] pending = m_pending.remove(key);
+            if (pending != null) {
+                entry.markDirty(pending);
+            }
+
+            m_entries.put(key, entry);
+            m_size += entry.m_size;
+            evict(key);
+
+            return entry;
+        }
+    }
+
+    /**
+     * Mark the block as changed by the edit session, the changed blocks are
+     * not served from the snapshot
+     *
+     * @param x
+     * @param y
+     * @param z
+     */
+    void invalidate(int x, int y, int z) {
+        final long key = getKey(x >> 4, y >> 4, z >> 4);
+        final int index = SectionSnapshot.getIndex(x, y, z);
+
+        synchronized (m_mutex) {
+            final Entry entry = m_entries.get(key);
+            if (entry != null) {
+                entry.markDirty(index);
+                return;
+            }
+
+            long[] pending = m_pending.get(key);
+            if (pending == null) {
+                pending = new long[SectionSnapshot.SIZE / 64];
+                m_pending.put(key, pending);
+            }
+
+            pending[index >> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * Remove all the chunk sections
+     *
+     * @param cx
+     * @param cz
+     */
+    void invalidateChunk(int cx, int cz) {
+        synchronized (m_mutex) {
+            for (int cy = 0; cy < SECTIONS; cy++) {
+                final long key = getKey(cx, cy, cz);
+                final Entry entry = m_entries.remove(key);
+                if (entry != null) {
+                    removed(key, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * The estimated memory used by the cache (in bytes)
+     *
+     * @return
+     */
+    long getMemorySize() {
+        synchronized (m_mutex) {
+            return m_size;
+        }
+    }
+
+    /**
+     * Number of cached sections
+     *
+     * @return
+     */
+    int size() {
+        synchronized (m_mutex) {
+            return m_entries.size();
+        }
+    }
+
+    /**
+     * Remove the least recently used snapshots until the cache fits the
+     * budget (MTA: mutex)
+     *
+     * @param keep the key that should not be removed
+     */
+    private void evict(long keep) {
+        final Iterator<Map.Entry<Long, Entry>> it = m_entries.entrySet().iterator();
+        while (m_size > m_budget && it.hasNext()) {
+            final Map.Entry<Long, Entry> e = it.next();
+            if (e.getKey() == keep) {
+                continue;
+            }
+
+            it.remove();
+            removed(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Release the removed entry, the changed blocks are moved to the pending
+     * changes (MTA: mutex)
+     *
+     * @param key
+     * @param entry
+     */
+    private void removed(long key, Entry entry) {
+        m_size -= entry.m_size;
+
+        final long[] dirty = entry.getDirty();
+        if (dirty != null) {
+            m_pending.put(key, dirty);
+        }
+    }
+
+    /**
+     * The cached section
+     */
+    static final class Entry {
+
+        private final SectionSnapshot m_snapshot;
+
+        private final long m_size;
+
+        /**
+         * Blocks changed by the edit session
+         */
+        private final AtomicLongArray m_dirty = new AtomicLongArray(SectionSnapshot.SIZE / 64);
+
+        private Entry(SectionSnapshot snapshot) {
+            m_snapshot = snapshot;
+            m_size = snapshot.getMemorySize() + SectionSnapshot.SIZE / 8;
+        }
+
+        SectionSnapshot getSnapshot() {
+            return m_snapshot;
+        }
+
+        boolean isDirty(int index) {
+            return (m_dirty.get(index >> 6) & (1L << index)) != 0;
+        }
+
+        /**
+         * Get the changed blocks
+         *
+         * @return null if no block was changed
+         */
+        private long[] getDirty() {
+            final long[] result = new long[m_dirty.length()];
+            boolean any = false;
+            for (int i = 0; i < result.length; i++) {
+                result[i] = m_dirty.get(i);
+                any |= result[i] != 0;
+            }
+
+            return any ? result : null;
+        }
+
+        private void markDirty(long[] dirty) {
+            for (int i = 0; i < dirty.length; i++) {
+                if (dirty[i] != 0) {
+                    m_dirty.set(i, m_dirty.get(i) | dirty[i]);
+                }
+            }
+        }
+
+        private void markDirty(int index) {
+            final int word = index >> 6;
+            final long mask = 1L << index;
+
+            long value;
+            do {
+                value = m_dirty.get(word);
+            } while ((value & mask) == 0 && !m_dirty.compareAndSet(word, value, value | mask));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.asyncinjector.async;
+
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.worldedit.function.RegionMaskingFilterEx;
+import org.primesoft.asyncworldedit.worldedit.function.block.KeepDataBlockReplace;
+import org.primesoft.asyncworldedit.worldedit.function.mask.DeltaMask;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class ParallelRegionProcessorTest {
+    
+    @Test
+    public void shouldSplitRegionIntoChunkRows() {
+        // Given
+        CuboidRegion region = new CuboidRegion(BlockVector3.at(-5, 10, -20), BlockVector3.at(40, 20, 35));
+        
+        // When
+        List<CuboidRegion> slabs = ParallelRegionProcessor.split(region, 16);
+        
+        // Then
+        Assert.assertEquals("Slabs", 5, slabs.size());
+        Assert.assertEquals(BlockVector3.at(-5, 10, -20), slabs.get(0).getMinimumPoint());
+        Assert.assertEquals(BlockVector3.at(40, 20, -17), slabs.get(0).getMaximumPoint());
+        Assert.assertEquals(BlockVector3.at(-5, 10, -16), slabs.get(1).getMinimumPoint());
+        Assert.assertEquals(BlockVector3.at(40, 20, 35), slabs.get(4).getMaximumPoint());
+    }
+    
+    @Test
+    public void shouldLimitTheNumberOfSlabs() {
+        // Given
+        CuboidRegion region = new CuboidRegion(BlockVector3.at(0, 0, 0), BlockVector3.at(15, 0, 159));
+        
+        // When
+        List<CuboidRegion> slabs = ParallelRegionProcessor.split(region, 4);
+        
+        // Then
+        Assert.assertEquals("Slabs", 4, slabs.size());
+        Assert.assertEquals(BlockVector3.at(0, 0, 0), slabs.get(0).getMinimumPoint());
+        Assert.assertEquals(BlockVector3.at(15, 0, 47), slabs.get(0).getMaximumPoint());
+        Assert.assertEquals(BlockVector3.at(15, 0, 159), slabs.get(3).getMaximumPoint());
+    }
+    
+    @Test
+    public void shouldAcceptSingleBlockPattern() {
+        // Given
+        Pattern pattern = Mockito.mock(BlockStateHolder.class);
+        
+        // When
+        boolean result = ParallelRegionProcessor.isThreadSafe(new KeepDataBlockReplace(null, pattern));
+        
+        // Then
+        Assert.assertTrue(result);
+    }
+    
+    @Test
+    public void shouldRefuseUnknownPattern() {
+        // Given
+        Pattern pattern = Mockito.mock(Pattern.class);
+        
+        // When
+        boolean result = ParallelRegionProcessor.isThreadSafe(new KeepDataBlockReplace(null, pattern));
+        
+        // Then
+        Assert.assertFalse(result);
+    }
+    
+    @Test
+    public void shouldCheckTheFilterMask() {
+        // Given
+        Pattern pattern = Mockito.mock(BlockStateHolder.class);
+        Mask unknown = Mockito.mock(Mask.class);
+        Mask known = new DeltaMask(0, 0, 0, 1, true, false, false);
+        
+        // When
+        boolean refused = ParallelRegionProcessor.isThreadSafe(
+                new RegionMaskingFilterEx(unknown, new KeepDataBlockReplace(null, pattern)));
+        boolean accepted = ParallelRegionProcessor.isThreadSafe(
+                new RegionMaskingFilterEx(known, new KeepDataBlockReplace(null, pattern)));
+        
+        // Then
+        Assert.assertFalse("Unknown mask", refused);
+        Assert.assertTrue("Known mask", accepted);
+    }
+}
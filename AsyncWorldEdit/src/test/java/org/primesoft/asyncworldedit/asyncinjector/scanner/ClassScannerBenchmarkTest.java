@@ -0,0 +1,225 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.asyncinjector.scanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.Benchmark;
+import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
+import org.primesoft.asyncworldedit.api.inner.IClassScannerResult;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.update.ConfigurationUpdater;
+import org.primesoft.asyncworldedit.platform.api.IConfiguration;
+import org.primesoft.asyncworldedit.platform.api.IConfigurationSection;
+import org.primesoft.asyncworldedit.platform.api.IPlatform;
+
+/**
+ * Scan latency of a brush like operation. The cold scan builds the class
+ * plans for every call, the same amount of reflection the scanner did 
+ * before the plans were cached.
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class ClassScannerBenchmarkTest {
+    private final static Class<?>[] TYPES = new Class<?>[]{Session.class, Selection.class};
+    
+    private final static int COLD_SCANS = 500;
+    
+    private final static int WARM_SCANS = 5000;
+    
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+    
+    private ClassScanner m_scanner;
+    
+    @Before
+    public void init() throws IOException {
+        IAsyncWorldEditCore core = Mockito.mock(IAsyncWorldEditCore.class);
+        IPlatform platform = Mockito.mock(IPlatform.class);
+        IConfiguration config = Mockito.mock(IConfiguration.class);
+        IConfigurationSection mainSection = Mockito.mock(IConfigurationSection.class);
+        
+        Mockito.when(core.getPlatform()).thenReturn(platform);
+        Mockito.when(platform.getConfig()).thenReturn(config);
+        Mockito.when(config.getDataFolder()).thenReturn(m_folder.newFolder());
+        Mockito.when(config.getConfigurationSection("awe")).thenReturn(mainSection);
+        Mockito.when(mainSection.getInt("version", 0)).thenReturn(ConfigurationUpdater.CONFIG_VERSION);
+        
+        ConfigProvider.load(core);
+        
+        m_scanner = new ClassScanner() {
+        };
+        m_scanner.loadConfig();
+        m_scanner.initialize();
+    }
+    
+    @Test
+    public void brushOperationScan() {
+        // Given
+        final BrushOperation operation = new BrushOperation(new Session(), new Selection());
+        
+        // When
+        long time = System.nanoTime();
+        for (int i = 0; i < COLD_SCANS; i++) {
+            //Reloading the config drops the cached plans
+            m_scanner.loadConfig();
+            m_scanner.scan(TYPES, operation);
+        }
+        final long coldTime = System.nanoTime() - time;
+        
+        List<IClassScannerResult> result = null;
+        time = System.nanoTime();
+        for (int i = 0; i < WARM_SCANS; i++) {
+            result = m_scanner.scan(TYPES, operation);
+        }
+        final long warmTime = System.nanoTime() - time;
+        
+        // Then
+        final String rates = String.format("Brush scan: cold %1$.1f us, cached plans %2$.1f us",
+                coldTime / 1e3 / COLD_SCANS, warmTime / 1e3 / WARM_SCANS);
+        Benchmark.report(rates);
+        
+        Assert.assertEquals(rates, 2, result.size());
+        Assert.assertSame(rates, operation.m_session, result.get(0).getValue());
+        Assert.assertSame(rates, operation.m_pattern.m_selection, result.get(1).getValue());
+    }
+    
+    /**
+     * The edit session that is injected
+     */
+    private static class Session {
+    }
+    
+    /**
+     * The region that is injected
+     */
+    private static class Selection {
+        private final int[] m_bounds = new int[6];
+    }
+    
+    private static final class Offset {
+        private final int m_x;
+        private final int m_y;
+        private final int m_z;
+        
+        Offset(int x, int y, int z) {
+            m_x = x;
+            m_y = y;
+            m_z = z;
+        }
+    }
+    
+    private static class Pattern {
+        private final Selection m_selection;
+        
+        private final int[] m_weights = new int[16];
+        
+        Pattern(Selection selection) {
+            m_selection = selection;
+        }
+    }
+    
+    private static class Mask {
+        private final Offset[] m_offsets;
+        
+        private final Mask m_inner;
+        
+        Mask(int depth) {
+            m_offsets = new Offset[64];
+            for (int i = 0; i < m_offsets.length; i++) {
+                m_offsets[i] = new Offset(i, depth, -i);
+            }
+            
+            m_inner = depth > 0 ? new Mask(depth - 1) : null;
+        }
+    }
+    
+    /**
+     * Sphere brush operation with a pattern, a nested mask and the brush 
+     * settings
+     */
+    private static class BrushOperation {
+        private final Session m_session;
+        
+        private final Pattern m_pattern;
+        
+        private final Mask m_mask = new Mask(4);
+        
+        private final List<Offset> m_shape = new ArrayList<>();
+        
+        private final Map<String, Object> m_settings = new HashMap<>();
+        
+        private final double m_radius = 5;
+        
+        BrushOperation(Session session, Selection selection) {
+            m_session = session;
+            m_pattern = new Pattern(selection);
+            
+            for (int x = -5; x <= 5; x++) {
+                for (int z = -5; z <= 5; z++) {
+                    m_shape.add(new Offset(x, 0, z));
+                }
+            }
+            
+            for (int i = 0; i < 16; i++) {
+                m_settings.put("setting" + i, i);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.asyncinjector.validators;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.Benchmark;
+import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.update.ConfigurationUpdater;
+import org.primesoft.asyncworldedit.platform.api.IConfiguration;
+import org.primesoft.asyncworldedit.platform.api.IConfigurationSection;
+import org.primesoft.asyncworldedit.platform.api.IPlatform;
+import org.primesoft.asyncworldedit.utils.InOutParam;
+
+/**
+ * The stack validator compared to the previous implementation that 
+ * captured the stack twice and matched every rule against every frame.
+ * The validation runs from a deep call stack without any matching frame,
+ * so both validators walk the whole stack.
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class StackValidatorBenchmarkTest {
+    private final static int DEPTH = 64;
+    
+    private final static int CALLS = 5000;
+    
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+    
+    private StackValidatorEntry[] m_data;
+    
+    private Pattern[] m_countPatterns;
+    
+    @Before
+    public void init() throws IOException, ReflectiveOperationException {
+        IAsyncWorldEditCore core = Mockito.mock(IAsyncWorldEditCore.class);
+        IPlatform platform = Mockito.mock(IPlatform.class);
+        IConfiguration config = Mockito.mock(IConfiguration.class);
+        IConfigurationSection mainSection = Mockito.mock(IConfigurationSection.class);
+        
+        Mockito.when(core.getPlatform()).thenReturn(platform);
+        Mockito.when(platform.getConfig()).thenReturn(config);
+        Mockito.when(config.getDataFolder()).thenReturn(m_folder.newFolder());
+        Mockito.when(config.getConfigurationSection("awe")).thenReturn(mainSection);
+        Mockito.when(mainSection.getInt("version", 0)).thenReturn(ConfigurationUpdater.CONFIG_VERSION);
+        
+        ConfigProvider.load(core);
+        
+        m_data = (StackValidatorEntry[]) getStatic("s_data");
+        m_countPatterns = (Pattern[]) getStatic("s_countPatterns");
+    }
+    
+    private static Object getStatic(String name) throws ReflectiveOperationException {
+        Field field = StackValidator.class.getDeclaredField(name);
+        field.setAccessible(true);
+        
+        return field.get(null);
+    }
+    
+    @Test
+    public void deepStackValidation() {
+        // Given
+        final InOutParam<String> oldName = InOutParam.Out();
+        final InOutParam<String> newName = InOutParam.Out();
+        
+        // When
+        long time = System.nanoTime();
+        final boolean oldResult = call(DEPTH, () -> {
+            boolean result = false;
+            for (int i = 0; i < CALLS; i++) {
+                result = isValidOld(oldName);
+            }
+            return result;
+        });
+        final long oldTime = System.nanoTime() - time;
+        
+        time = System.nanoTime();
+        final boolean newResult = call(DEPTH, () -> {
+            boolean result = false;
+            for (int i = 0; i < CALLS; i++) {
+                result = StackValidator.isVaild(newName);
+            }
+            return result;
+        });
+        final long newTime = System.nanoTime() - time;
+        
+        // Then
+        final String rates = String.format("isVaild with %1$s frames: old %2$.1f us, new %3$.1f us",
+                DEPTH, oldTime / 1e3 / CALLS, newTime / 1e3 / CALLS);
+        Benchmark.report(rates);
+        
+        Assert.assertEquals(rates, oldResult, newResult);
+        Assert.assertEquals(rates, oldName.isSet(), newName.isSet());
+    }
+    
+    /**
+     * Run the action with additional stack frames
+     */
+    private static boolean call(int depth, IValidation action) {
+        if (depth == 0) {
+            return action.validate();
+        }
+        
+        return call(depth - 1, action);
+    }
+    
+    @FunctionalInterface
+    private interface IValidation {
+        boolean validate();
+    }
+    
+    /**
+     * The validator before the class and method matching was memoized
+     */
+    private boolean isValidOld(InOutParam<String> methodName) {
+        return validateStackOld(methodName) && validateCountOld();
+    }
+    
+    private boolean validateStackOld(InOutParam<String> methodName) {
+        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            StackTraceElement element = stackTrace[i];
+            
+            for (StackValidatorEntry entry : m_data) {
+                Boolean result = entry.process(
+                        () -> element.getClassName(),
+                        () -> element.getMethodName(),
+                        null);
+                
+                if (result != null) {
+                    if (result) {
+                        methodName.setValue(entry.getOperationName(element.getMethodName()));
+                    }
+                    
+                    return result;
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    private boolean validateCountOld() {
+        final StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        
+        for (Pattern p : m_countPatterns) {
+            int cnt = 0;
+            for (StackTraceElement stack : stackTrace) {
+                if (p.matcher(stack.toString()).matches()) {
+                    cnt++;
+                }
+            }
+            
+            if (cnt >= 2) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.Benchmark;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ * Block placer player queue enqueue throughput with a growing number of
+ * producer threads and a single consumer
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class BlockPlacerEnqueueBenchmarkTest {
+    private final static int[] PRODUCERS = new int[]{1, 2, 4, 8};
+    private final static int ENTRIES = 200000;
+    
+    @Test
+    public void enqueueThroughputWithGrowingProducers() throws Exception {
+        // Given
+        final IBlockPlacerEntry entry = Mockito.mock(IBlockPlacerEntry.class);
+        final StringBuilder rates = new StringBuilder();
+        final long[] consumed = new long[PRODUCERS.length];
+        
+        // When
+        for (int i = 0; i < PRODUCERS.length; i++) {
+            final int producers = PRODUCERS[i];
+            final BlockPlacerPlayer bpp = new BlockPlacerPlayer(Mockito.mock(IPlayerEntry.class));
+            
+            long time = System.nanoTime();
+            consumed[i] = run(bpp, entry, producers);
+            time = System.nanoTime() - time;
+            
+            rates.append(String.format("%1$s producers: %2$.0f entries/s; ",
+                    producers, (double) producers * ENTRIES / (time / 1e9)));
+        }
+        Benchmark.report(rates.toString());
+        
+        // Then
+        for (int i = 0; i < PRODUCERS.length; i++) {
+            Assert.assertEquals(rates.toString(), (long) PRODUCERS[i] * ENTRIES, consumed[i]);
+        }
+    }
+    
+    /**
+     * Run the producers the same way BlockPlacer.addTasks does and consume the
+     * entries on the current thread
+     */
+    private long run(final BlockPlacerPlayer bpp, final IBlockPlacerEntry entry, int producers) throws Exception {
+        final CyclicBarrier start = new CyclicBarrier(producers + 1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        
+        for (int p = 0; p < producers; p++) {
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                    
+                    for (int e = 0; e < ENTRIES; e++) {
+                        if (!bpp.tryAcquire()) {
+                            throw new AssertionError("Player entry retired");
+                        }
+                        
+                        try {
+                            bpp.nextSample();
+                            bpp.add(entry);
+                        } finally {
+                            bpp.release();
+                        }
+                    }
+                } catch (Throwable ex) {
+                    error.compareAndSet(null, ex);
+                }
+            });
+            
+            threads.add(t);
+            t.start();
+        }
+        
+        start.await();
+        
+        final long total = (long) producers * ENTRIES;
+        long consumed = 0;
+        while (consumed < total && error.get() == null) {
+            if (bpp.poll() != null) {
+                consumed++;
+            } else if (!isAlive(threads)) {
+                while (bpp.poll() != null) {
+                    consumed++;
+                }
+                break;
+            }
+        }
+        
+        for (Thread t : threads) {
+            t.join();
+        }
+        
+        Assert.assertNull(error.get());
+        return consumed;
+    }
+    
+    private static boolean isAlive(List<Thread> threads) {
+        for (Thread t : threads) {
+            if (t.isAlive()) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+}
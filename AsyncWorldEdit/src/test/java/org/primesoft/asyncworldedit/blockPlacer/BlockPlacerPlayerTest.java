@@ -0,0 +1,206 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.blockPlacer;
+
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.api.blockPlacer.IBlockPlacerEntry;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.blockPlacer.entries.SectionBatchEntry;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class BlockPlacerPlayerTest {
+    private IPlayerEntry m_player;
+    private ISectionBatchTarget m_target;
+    private BlockStateHolder m_block;
+    private BlockPlacerPlayer m_bpp;
+    
+    @Before
+    public void init() {
+        m_player = Mockito.mock(IPlayerEntry.class);
+        m_target = Mockito.mock(ISectionBatchTarget.class);
+        m_block = Mockito.mock(BlockStateHolder.class);
+        m_bpp = new BlockPlacerPlayer(m_player);
+    }
+    
+    @Test
+    public void shouldGroupBlocksFromOneSection() {
+        // Given
+        
+        // When
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 0, 0, 0, m_block, 4096);
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 15, 15, 15, m_block, 4096);
+        m_bpp.addBatched("world", 1, m_target, m_player, true, -1, 0, 0, m_block, 4096);
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 5, 5, 5, m_block, 4096);
+        
+        // Then
+        Assert.assertEquals("Queue entries", 2, m_bpp.getQueue().size());
+        Assert.assertEquals("Queued blocks", 4, m_bpp.getQueuedBlocks());
+        Assert.assertEquals("Operation count", 4, m_bpp.getOperationCount());
+    }
+    
+    @Test
+    public void shouldStartNewBatchAfterOtherEntry() {
+        // Given
+        IBlockPlacerEntry entry = Mockito.mock(IBlockPlacerEntry.class);
+        
+        // When
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 0, 0, 0, m_block, 4096);
+        m_bpp.add(entry);
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 1, 0, 0, m_block, 4096);
+        
+        // Then
+        Assert.assertEquals("Queue entries", 3, m_bpp.getQueue().size());
+        Assert.assertEquals("Queued blocks", 3, m_bpp.getQueuedBlocks());
+    }
+    
+    @Test
+    public void shouldSealBatchOnPoll() {
+        // Given
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 0, 0, 0, m_block, 4096);
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 1, 0, 0, m_block, 4096);
+        
+        // When
+        IBlockPlacerEntry polled = m_bpp.poll();
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 2, 0, 0, m_block, 4096);
+        
+        // Then
+        Assert.assertTrue("Batch entry", polled instanceof SectionBatchEntry);
+        Assert.assertTrue("Sealed", ((SectionBatchEntry) polled).isSealed());
+        Assert.assertEquals("Polled batch size", 2, ((SectionBatchEntry) polled).size());
+        Assert.assertEquals("Queue entries", 1, m_bpp.getQueue().size());
+        Assert.assertEquals("Queued blocks", 1, m_bpp.getQueuedBlocks());
+    }
+    
+    @Test
+    public void shouldSplitBatchOnMaxSize() {
+        // Given
+        
+        // When
+        for (int i = 0; i < 10; i++) {
+            m_bpp.addBatched("world", 1, m_target, m_player, true, i, 0, 0, m_block, 4);
+        }
+        
+        // Then
+        Assert.assertEquals("Queue entries", 3, m_bpp.getQueue().size());
+        Assert.assertEquals("Queued blocks", 10, m_bpp.getQueuedBlocks());
+    }
+    
+    @Test
+    public void shouldNotRetireWithQueuedBlocks() {
+        // Given
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 0, 0, 0, m_block, 4096);
+        
+        // When
+        boolean retired = m_bpp.tryRetire();
+        
+        // Then
+        Assert.assertFalse("Retired", retired);
+        Assert.assertTrue("Acquire", m_bpp.tryAcquire());
+    }
+    
+    @Test
+    public void shouldNotAcquireRetiredEntry() {
+        // Given
+        
+        // When
+        boolean retired = m_bpp.tryRetire();
+        
+        // Then
+        Assert.assertTrue("Retired", retired);
+        Assert.assertFalse("Acquire", m_bpp.tryAcquire());
+    }
+    
+    @Test
+    public void shouldRemoveMatchingEntries() {
+        // Given
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 0, 0, 0, m_block, 4096);
+        m_bpp.addBatched("world", 1, m_target, m_player, true, 1, 0, 0, m_block, 4096);
+        m_bpp.addBatched("world", 2, m_target, m_player, true, 32, 0, 0, m_block, 4096);
+        
+        // When
+        int removed = m_bpp.removeEntries(e -> e.getJobId() == 1, e -> {});
+        
+        // Then
+        Assert.assertEquals("Removed blocks", 2, removed);
+        Assert.assertEquals("Queue entries", 1, m_bpp.getQueue().size());
+        Assert.assertEquals("Queued blocks", 1, m_bpp.getQueuedBlocks());
+    }
+    
+    @Test
+    public void shouldCountSamplesFromAllProducers() throws InterruptedException {
+        // Given
+        final int threads = 8;
+        final int samples = 10000;
+        Thread[] producers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < samples; j++) {
+                    m_bpp.nextSample();
+                }
+            });
+        }
+        
+        // When
+        for (Thread t : producers) {
+            t.start();
+        }
+        for (Thread t : producers) {
+            t.join();
+        }
+        
+        // Then
+        Assert.assertEquals("Samples", threads * samples + 1, m_bpp.nextSample());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import com.sk89q.worldedit.history.change.Change;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class SerializerManagerTest {
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    private SerializerManager m_serializer;
+
+    private IPlayerEntry m_player;
+
+    @Before
+    public void init() throws Exception {
+        m_serializer = new SerializerManager(UndoTestCore.create(m_folder.newFolder()));
+        m_player = UndoTestCore.createPlayer();
+    }
+
+    private static List<Change> createChanges(int count) {
+        List<Change> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(Mockito.mock(Change.class));
+        }
+
+        return result;
+    }
+
+    private static File getIndexFile(File file) {
+        return new File(file.getPath() + ".idx");
+    }
+
+    @Test
+    public void shouldKeepSegmentOpenBetweenBatches() {
+        // Given
+        File file = m_serializer.open(m_player, 1);
+
+        // When
+        m_serializer.save(file, createChanges(10));
+        m_serializer.save(file, createChanges(10));
+
+        // Then
+        Assert.assertEquals("Data", UndoEntry.HEADER_SIZE, file.length());
+        Assert.assertEquals("Index", 0, getIndexFile(file).length());
+
+        m_serializer.close(file);
+    }
+
+    @Test
+    public void shouldFlushSegmentBeforeLoad() {
+        // Given
+        File file = m_serializer.open(m_player, 1);
+        List<Change> changes = createChanges(10);
+        changes.addAll(createChanges(10));
+        m_serializer.save(file, changes.subList(0, 10));
+        m_serializer.save(file, changes.subList(10, 20));
+
+        // When
+        List<Change> result = m_serializer.load(file, 20, m_player, null);
+
+        // Then
+        Assert.assertEquals("Loaded", 20, result.size());
+        for (int i = 0; i < changes.size(); i++) {
+            Assert.assertSame("Change " + i, changes.get(i), result.get(i));
+        }
+        Assert.assertTrue("Index", getIndexFile(file).length() >= 20);
+
+        m_serializer.close(file);
+    }
+
+    @Test
+    public void shouldFlushSegmentOnClose() {
+        // Given
+        File file = m_serializer.open(m_player, 1);
+        m_serializer.save(file, createChanges(10));
+
+        // When
+        m_serializer.close(file);
+
+        // Then
+        Assert.assertTrue("Data", file.length() > UndoEntry.HEADER_SIZE);
+        Assert.assertTrue("Index", getIndexFile(file).length() >= 10);
+    }
+
+    @Test
+    public void shouldReopenFileWithPalettes() {
+        // Given
+        File file = m_serializer.open(m_player, 1);
+        m_serializer.save(file, createChanges(10));
+        m_serializer.close(file);
+
+        // When
+        UndoDescriptor ud = (UndoDescriptor) m_serializer.reopen(file);
+
+        // Then
+        Assert.assertNotNull("Descriptor", ud);
+        Assert.assertEquals("Format", UndoEntry.FORMAT_SEGMENTED, ud.getFormat());
+        Assert.assertEquals("Types", 1, ud.getTypes().size());
+
+        m_serializer.close(file);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import com.sk89q.worldedit.history.change.Change;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.Benchmark;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ * Undo write throughput with concurrent players saving through the 
+ * serializer manager and the shared file handle pool
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class UndoChannelPoolBenchmarkTest {
+    private final static int PLAYERS = 20;
+    private final static int BATCHES = 20;
+    private final static int CHANGES = 1000;
+    
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+    
+    @Test
+    public void undoWriteThroughputWith20Players() throws Exception {
+        // Given
+        final SerializerManager serializer = new SerializerManager(UndoTestCore.create(m_folder.newFolder()));
+        final CyclicBarrier start = new CyclicBarrier(PLAYERS + 1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        final IPlayerEntry[] players = new IPlayerEntry[PLAYERS];
+        final File[] files = new File[PLAYERS];
+        
+        for (int i = 0; i < PLAYERS; i++) {
+            final IPlayerEntry player = UndoTestCore.createPlayer();
+            final File file = serializer.open(player, i);
+            final List<Change> batch = Collections.nCopies(CHANGES, Mockito.mock(Change.class));
+            players[i] = player;
+            files[i] = file;
+            
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                    
+                    for (int b = 0; b < BATCHES; b++) {
+                        serializer.save(file, batch);
+                    }
+                } catch (Throwable ex) {
+                    error.compareAndSet(null, ex);
+                }
+            });
+            
+            threads.add(t);
+            t.start();
+        }
+        
+        // When
+        start.await();
+        long time = System.nanoTime();
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (File file : files) {
+            serializer.flush(file);
+        }
+        time = System.nanoTime() - time;
+        
+        Benchmark.report(String.format("%1$s players: %2$.0f changes/s",
+                PLAYERS, (double) PLAYERS * BATCHES * CHANGES / (time / 1e9)));
+        
+        // Then
+        Assert.assertNull(error.get());
+        
+        for (int i = 0; i < PLAYERS; i++) {
+            List<Change> loaded = serializer.load(files[i], BATCHES * CHANGES, players[i], null);
+            Assert.assertEquals("Player " + i + " entries", BATCHES * CHANGES, loaded.size());
+            
+            serializer.close(files[i]);
+        }
+    }
+}
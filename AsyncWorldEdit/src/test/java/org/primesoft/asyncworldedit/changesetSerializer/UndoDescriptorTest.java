@@ -0,0 +1,155 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class UndoDescriptorTest {
+    private final static File FILE = new File("awe.undo");
+    
+    private static byte[] savePalettes(UndoDescriptor ud) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ud.savePalettes(out);
+        out.flush();
+        
+        return bytes.toByteArray();
+    }
+    
+    private static void loadPalettes(UndoDescriptor ud, byte[] data) throws IOException {
+        ud.loadPalettes(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+    
+    @Test
+    public void shouldRestorePalettesFromDeltas() throws IOException {
+        // Given
+        UndoDescriptor written = new UndoDescriptor(FILE, UndoEntry.FORMAT_SEGMENTED);
+        written.getTypes().getOrAdd("type.A");
+        written.getBlocks().getOrAdd("minecraft:stone");
+        written.getChunks().getOrAdd(-5L << 32 | 7);
+        byte[] first = savePalettes(written);
+        
+        written.getBlocks().getOrAdd("minecraft:dirt");
+        written.getChunks().getOrAdd(1L);
+        byte[] second = savePalettes(written);
+        
+        // When
+        UndoDescriptor read = new UndoDescriptor(FILE, UndoEntry.FORMAT_SEGMENTED);
+        loadPalettes(read, first);
+        loadPalettes(read, second);
+        
+        // Then
+        Assert.assertFalse("Palette changes", written.hasPaletteChanges());
+        Assert.assertEquals("Types", 1, read.getTypes().size());
+        Assert.assertEquals("Type", "type.A", read.getTypes().get(0));
+        Assert.assertEquals("Blocks", 2, read.getBlocks().size());
+        Assert.assertEquals("Block", "minecraft:dirt", read.getBlocks().get(1));
+        Assert.assertEquals("Chunks", 2, read.getChunks().size());
+        Assert.assertEquals("Chunk", -5L << 32 | 7, read.getChunks().get(0));
+        Assert.assertEquals("Chunk id", 1, read.getChunks().getOrAdd(1L));
+    }
+    
+    @Test
+    public void shouldSkipKnownPaletteEntries() throws IOException {
+        // Given
+        UndoDescriptor ud = new UndoDescriptor(FILE, UndoEntry.FORMAT_SEGMENTED);
+        ud.getBlocks().getOrAdd("minecraft:stone");
+        byte[] data = savePalettes(ud);
+        
+        // When
+        loadPalettes(ud, data);
+        
+        // Then
+        Assert.assertEquals("Blocks", 1, ud.getBlocks().size());
+    }
+    
+    @Test(expected = IOException.class)
+    public void shouldRejectMissingPaletteEntries() throws IOException {
+        // Given
+        UndoDescriptor written = new UndoDescriptor(FILE, UndoEntry.FORMAT_SEGMENTED);
+        written.getBlocks().getOrAdd("minecraft:stone");
+        savePalettes(written);
+        written.getBlocks().getOrAdd("minecraft:dirt");
+        byte[] second = savePalettes(written);
+        
+        // When
+        loadPalettes(new UndoDescriptor(FILE, UndoEntry.FORMAT_SEGMENTED), second);
+        
+        // Then
+    }
+    
+    @Test
+    public void shouldGrowChunkPalette() {
+        // Given
+        UndoChunkPalette palette = new UndoChunkPalette();
+        
+        // When
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("Id " + i, i, palette.getOrAdd((long) i * 31 << 32 | i));
+        }
+        
+        // Then
+        Assert.assertEquals("Size", 1000, palette.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("Known " + i, i, palette.getOrAdd((long) i * 31 << 32 | i));
+            Assert.assertEquals("Value " + i, (long) i * 31 << 32 | i, palette.get(i));
+        }
+        Assert.assertFalse("Unknown id", palette.contains(1000));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.changesetSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.primesoft.asyncworldedit.api.changesetSerializer.IUndoEntry;
+import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
+import org.primesoft.asyncworldedit.utils.io.ChunkCacheStream;
+import org.primesoft.asyncworldedit.utils.io.UnsafeDataInput;
+import org.primesoft.asyncworldedit.utils.io.UnsafeDataOutput;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class UndoEntryTest {
+    private File m_file;
+    private UndoPalette<String> m_types;
+    
+    @Before
+    public void init() throws IOException {
+        m_file = File.createTempFile("awe", ".undo");
+        m_types = new UndoPalette<>();
+    }
+    
+    @After
+    public void cleanup() {
+        m_file.delete();
+    }
+    
+    private void write(ByteArrayOutputStream data) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(m_file)) {
+            out.write(data.toByteArray());
+        }
+    }
+    
+    @Test
+    public void shouldLoadCompactEntries() throws IOException {
+        // Given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        UndoEntry.saveCompact(data, new UndoEntry("type.A", new byte[]{1, 2, 3}, 0), m_types);
+        UndoEntry.saveCompact(data, new UndoEntry("type.B", new byte[0], 1), m_types);
+        UndoEntry.saveCompact(data, new UndoEntry("type.A", new byte[]{4}, 300), m_types);
+        write(bytes);
+        
+        // When
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            IChunkCacheStream stream = new ChunkCacheStream(raf);
+            UndoEntry e1 = UndoEntry.loadCompact(stream, m_types);
+            UndoEntry e2 = UndoEntry.loadCompact(stream, m_types);
+            UndoEntry e3 = UndoEntry.loadCompact(stream, m_types);
+            UndoEntry e4 = UndoEntry.loadCompact(stream, m_types);
+            
+            // Then
+            Assert.assertEquals("Type 1", "type.A", e1.getType());
+            Assert.assertArrayEquals("Data 1", new byte[]{1, 2, 3}, e1.getData());
+            Assert.assertEquals("Id 2", 1, e2.getId());
+            Assert.assertEquals("Type 2", "type.B", e2.getType());
+            Assert.assertEquals("Id 3", 300, e3.getId());
+            Assert.assertEquals("Type palette", 2, m_types.size());
+            Assert.assertNull("End of file", e4);
+        }
+    }
+    
+    @Test
+    public void shouldDetectLegacyFormat() throws IOException {
+        // Given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        UndoEntry.save(data, new UndoEntry("type.A", new byte[]{1}, 0));
+        write(bytes);
+        
+        // When
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            IChunkCacheStream stream = new ChunkCacheStream(raf);
+            int format = UndoEntry.readHeader(stream);
+            UndoEntry entry = UndoEntry.load(stream);
+            
+            // Then
+            Assert.assertEquals("Format", UndoEntry.FORMAT_LEGACY, format);
+            Assert.assertEquals("Type", "type.A", entry.getType());
+            Assert.assertEquals("Id", 0, entry.getId());
+        }
+    }
+    
+    @Test
+    public void shouldStoreUnsetIdInSubEntries() throws IOException {
+        // Given
+        UnsafeDataOutput data = new UnsafeDataOutput();
+        
+        // When
+        UndoEntry.saveCompact(data, new UndoEntry("type.A", new byte[]{7}, -1), m_types);
+        IUndoEntry entry = UndoEntry.loadCompact(new UnsafeDataInput(data.toByteArray()), m_types);
+        
+        // Then
+        Assert.assertEquals("Id", -1, entry.getId());
+        Assert.assertArrayEquals("Data", new byte[]{7}, entry.getData());
+    }
+}
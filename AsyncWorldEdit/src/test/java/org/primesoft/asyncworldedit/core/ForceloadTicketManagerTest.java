@@ -0,0 +1,184 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class ForceloadTicketManagerTest {
+    private final static int HOLD = 5;
+    private final static int LOADS = 2;
+    
+    private List<String> m_calls;
+    private ForceloadTicketManager m_manager;
+    
+    @Before
+    public void init() {
+        m_calls = new ArrayList<>();
+        m_manager = new ForceloadTicketManager(HOLD, LOADS) {
+            @Override
+            protected boolean setForceLoaded(String world, int cx, int cz, boolean forceLoaded) {
+                m_calls.add(world + ":" + cx + ":" + cz + ":" + forceLoaded);
+                return !"missing".equals(world);
+            }
+        };
+    }
+    
+    @Test
+    public void shouldLoadChunksWithinBudget() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            m_manager.issue("world", i, 0);
+        }
+        
+        // When
+        m_manager.tick();
+        int first = m_calls.size();
+        m_manager.tick();
+        m_manager.tick();
+        
+        // Then
+        Assert.assertEquals(LOADS, first);
+        Assert.assertEquals(5, m_calls.size());
+        Assert.assertEquals(5, m_manager.getTicketCount());
+    }
+    
+    @Test
+    public void shouldReleaseAfterHoldTime() {
+        // Given
+        m_manager.issue("world", 1, 2);
+        m_manager.tick();
+        m_manager.release("world", 1, 2);
+        
+        // When
+        for (int i = 0; i < HOLD; i++) {
+            m_manager.tick();
+        }
+        int held = m_calls.size();
+        m_manager.tick();
+        
+        // Then
+        Assert.assertEquals("Hold", 1, held);
+        Assert.assertEquals("world:1:2:false", m_calls.get(1));
+        Assert.assertEquals(0, m_manager.getTicketCount());
+    }
+    
+    @Test
+    public void shouldKeepChunkWhenIssuedAgain() {
+        // Given
+        m_manager.issue("world", 1, 2);
+        m_manager.tick();
+        m_manager.release("world", 1, 2);
+        m_manager.tick();
+        
+        // When
+        m_manager.issue("world", 1, 2);
+        for (int i = 0; i < HOLD * 4; i++) {
+            m_manager.tick();
+        }
+        
+        // Then
+        Assert.assertEquals(1, m_calls.size());
+        Assert.assertEquals(1, m_manager.getTicketCount());
+    }
+    
+    @Test
+    public void shouldNotLoadReleasedBeforeLoad() {
+        // Given
+        m_manager.issue("world", 1, 2);
+        m_manager.release("world", 1, 2);
+        
+        // When
+        m_manager.tick();
+        
+        // Then
+        Assert.assertTrue(m_calls.isEmpty());
+        Assert.assertEquals(0, m_manager.getTicketCount());
+    }
+    
+    @Test
+    public void shouldDropTicketsForMissingWorld() {
+        // Given
+        m_manager.issue("missing", 1, 2);
+        
+        // When
+        m_manager.tick();
+        
+        // Then
+        Assert.assertEquals(0, m_manager.getTicketCount());
+    }
+    
+    @Test
+    public void shouldUnforceAllOnClear() {
+        // Given
+        m_manager.issue("world", 1, 2);
+        m_manager.issue("world", 3, 4);
+        m_manager.tick();
+        m_manager.release("world", 3, 4);
+        m_manager.tick();
+        
+        // When
+        m_manager.clear();
+        for (int i = 0; i < HOLD * 2; i++) {
+            m_manager.tick();
+        }
+        
+        // Then
+        Assert.assertEquals(4, m_calls.size());
+        Assert.assertTrue(m_calls.contains("world:1:2:false"));
+        Assert.assertTrue(m_calls.contains("world:3:4:false"));
+        Assert.assertEquals(0, m_manager.getTicketCount());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.core;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class LockedBlocksTest {
+    private LockedBlocks m_locked;
+    
+    @Before
+    public void init() {
+        m_locked = new LockedBlocks();
+    }
+    
+    @Test
+    public void shouldFindLockedBlock() {
+        // Given
+        m_locked.add(-17, 64, 33);
+        
+        // When
+        
+        // Then
+        Assert.assertTrue("Locked", m_locked.isLocked(-17, 64, 33));
+        Assert.assertFalse("Other block", m_locked.isLocked(-16, 64, 33));
+        Assert.assertTrue("Neighbour", m_locked.isAnyLocked(-16, 65, 32, 1));
+        Assert.assertFalse("Too far", m_locked.isAnyLocked(-15, 64, 33, 1));
+    }
+    
+    @Test
+    public void shouldCountReferences() {
+        // Given
+        m_locked.add(1, 2, 3);
+        m_locked.add(1, 2, 3);
+        
+        // When
+        m_locked.remove(1, 2, 3);
+        
+        // Then
+        Assert.assertTrue("Still locked", m_locked.isLocked(1, 2, 3));
+        
+        m_locked.remove(1, 2, 3);
+        Assert.assertFalse("Unlocked", m_locked.isLocked(1, 2, 3));
+        Assert.assertTrue("Empty", m_locked.isEmpty());
+    }
+    
+    @Test
+    public void shouldCountManyReferences() {
+        // Given
+        final int count = Character.MAX_VALUE + 10;
+        for (int i = 0; i < count; i++) {
+            m_locked.add(1, 2, 3);
+        }
+        
+        // When
+        for (int i = 0; i < count - 1; i++) {
+            m_locked.remove(1, 2, 3);
+        }
+        
+        // Then
+        Assert.assertTrue("Still locked", m_locked.isLocked(1, 2, 3));
+        
+        m_locked.remove(1, 2, 3);
+        Assert.assertFalse("Unlocked", m_locked.isLocked(1, 2, 3));
+        Assert.assertTrue("Empty", m_locked.isEmpty());
+    }
+    
+    @Test
+    public void shouldKeepBlocksWhenTableIsRebuilt() {
+        // Given
+        for (int x = 0; x < 64 * 16; x += 16) {
+            for (int z = 0; z < 64 * 16; z += 16) {
+                m_locked.add(x, 0, z);
+            }
+        }
+        
+        // When
+        for (int x = 0; x < 64 * 16; x += 16) {
+            for (int z = 0; z < 32 * 16; z += 16) {
+                m_locked.remove(x, 0, z);
+            }
+        }
+        
+        // Then
+        Assert.assertFalse("Removed", m_locked.isLocked(0, 0, 0));
+        for (int x = 0; x < 64 * 16; x += 16) {
+            for (int z = 32 * 16; z < 64 * 16; z += 16) {
+                Assert.assertTrue("Locked", m_locked.isLocked(x, 0, z));
+            }
+        }
+    }
+    
+    @Test
+    public void shouldIgnoreRemovingUnknownBlock() {
+        // Given
+        m_locked.add(0, 0, 0);
+        
+        // When
+        m_locked.remove(1, 0, 0);
+        m_locked.remove(100, 0, 0);
+        
+        // Then
+        Assert.assertTrue("Locked", m_locked.isLocked(0, 0, 0));
+        Assert.assertFalse("Empty", m_locked.isEmpty());
+    }
+}
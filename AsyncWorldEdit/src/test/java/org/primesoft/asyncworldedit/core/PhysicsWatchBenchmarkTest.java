@@ -0,0 +1,118 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.core;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.primesoft.asyncworldedit.Benchmark;
+
+/**
+ * Physics event check throughput with a few million locked blocks
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class PhysicsWatchBenchmarkTest {
+    private final static String WORLD = "world";
+    private final static int SIZE_XZ = 256;
+    private final static int SIZE_Y = 64;
+    private final static int EVENTS = 2000000;
+    
+    private PhysicsWatch m_watch;
+    
+    @Before
+    public void init() {
+        m_watch = new PhysicsWatch() {
+            @Override
+            public void registerEvents() {
+            }
+        };
+        m_watch.enable();
+    }
+    
+    @Test
+    public void cancelEventWithMillionsOfLockedBlocks() {
+        // Given
+        long time = System.nanoTime();
+        for (int x = 0; x < SIZE_XZ; x++) {
+            for (int z = 0; z < SIZE_XZ; z++) {
+                for (int y = 0; y < SIZE_Y; y++) {
+                    m_watch.addLocation(WORLD, x, y, z);
+                }
+            }
+        }
+        final long addTime = System.nanoTime() - time;
+        final long locked = (long) SIZE_XZ * SIZE_XZ * SIZE_Y;
+        
+        // When
+        int cancelled = 0;
+        time = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            final int x = (i * 31) % (2 * SIZE_XZ);
+            final int y = (i * 7) % SIZE_Y;
+            final int z = (i * 17) % SIZE_XZ;
+            
+            if (m_watch.cancelEvent(WORLD, x, y, z, "minecraft:sand")) {
+                cancelled++;
+            }
+        }
+        final long checkTime = System.nanoTime() - time;
+        
+        // Then
+        final String rates = String.format("%1$s locked blocks: add %2$.0f blocks/s, cancelEvent %3$.0f events/s",
+                locked, locked / (addTime / 1e9), EVENTS / (checkTime / 1e9));
+        Benchmark.report(rates);
+        
+        Assert.assertTrue(rates, cancelled > EVENTS / 3);
+        Assert.assertTrue(rates, cancelled < EVENTS);
+        Assert.assertTrue(rates, m_watch.cancelEvent(WORLD, SIZE_XZ, 0, 0, "minecraft:sand"));
+        Assert.assertFalse(rates, m_watch.cancelEvent(WORLD, SIZE_XZ + 1, 0, 0, "minecraft:sand"));
+    }
+}
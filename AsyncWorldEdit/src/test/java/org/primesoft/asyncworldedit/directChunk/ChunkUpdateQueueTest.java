@@ -0,0 +1,151 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.api.IWorld;
+import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
+import org.primesoft.asyncworldedit.platform.api.IScheduler;
+import org.primesoft.asyncworldedit.platform.api.ITask;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class ChunkUpdateQueueTest {
+    private final static UUID PLAYER = UUID.randomUUID();
+    
+    private IWorld m_world;
+    private ChunkUpdateQueue m_queue;
+    private List<Integer> m_sent;
+    
+    @Before
+    public void init() {
+        m_world = Mockito.mock(IWorld.class);
+        Mockito.when(m_world.getUUID()).thenReturn(UUID.randomUUID());
+        
+        m_queue = new ChunkUpdateQueue(null);
+        m_sent = new ArrayList<>();
+    }
+    
+    private IWrappedChunk mockChunk(int cx, int cz, int dirty) {
+        IWrappedChunk chunk = Mockito.mock(IWrappedChunk.class);
+        Mockito.when(chunk.getWorld()).thenReturn(m_world);
+        Mockito.when(chunk.getX()).thenReturn(cx);
+        Mockito.when(chunk.getZ()).thenReturn(cz);
+        Mockito.when(chunk.resetDirtySections()).thenReturn(dirty);
+        Mockito.doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            Predicate<UUID> filter = (Predicate<UUID>) args[1];
+            if (filter.test(PLAYER)) {
+                m_sent.add((Integer) args[0]);
+            }
+            return null;
+        }).when(chunk).sendChunkUpdate(Mockito.anyInt(), Mockito.any(Predicate.class));
+        
+        return chunk;
+    }
+    
+    @Test
+    public void shouldCoalesceChunkUpdates() {
+        // Given
+        m_queue.queue(mockChunk(1, 2, 0x1));
+        m_queue.queue(mockChunk(1, 2, 0x8));
+        m_queue.queue(mockChunk(1, 3, 0x0));
+        
+        // When
+        m_queue.flush(0);
+        
+        // Then
+        Assert.assertEquals("Packets", 1, m_sent.size());
+        Assert.assertEquals("Sections", 0x9, (int) m_sent.get(0));
+        Assert.assertEquals("Pending", 0, m_queue.size());
+    }
+    
+    @Test
+    public void shouldDelayUpdatesOverPlayerLimit() {
+        // Given
+        m_queue.queue(mockChunk(1, 2, 0x1));
+        m_queue.queue(mockChunk(5, 2, 0x2));
+        
+        // When
+        m_queue.flush(1);
+        
+        // Then
+        Assert.assertEquals("First tick", 1, m_sent.size());
+        Assert.assertEquals("Pending", 1, m_queue.size());
+        
+        m_queue.flush(1);
+        Assert.assertEquals("Second tick", 2, m_sent.size());
+        Assert.assertEquals("Pending", 0, m_queue.size());
+    }
+    
+    @Test
+    public void shouldRegisterRunningQueue() {
+        // Given
+        IScheduler scheduler = Mockito.mock(IScheduler.class);
+        Mockito.when(scheduler.runTaskTimer(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.anyLong()))
+                .thenReturn(Mockito.mock(ITask.class));
+        
+        // When
+        ChunkUpdateQueue queue = new ChunkUpdateQueue(scheduler);
+        
+        // Then
+        Assert.assertSame("Running", queue, ChunkUpdateQueue.getInstance());
+        
+        queue.stop();
+        Assert.assertNull("Stopped", ChunkUpdateQueue.getInstance());
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.primesoft.asyncworldedit.Benchmark;
+
+/**
+ * Memory use and set/get throughput of the paletted sections compared to
+ * the int[] layout
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class PalettedSectionDataBenchmarkTest {
+    private final static int VOLUME = 16 * 16 * 16;
+    
+    /**
+     * Number of sections, about the size of a 16x16 chunk paste
+     */
+    private final static int SECTIONS = 4096;
+    
+    private final static int ROUNDS = 200;
+    
+    @Test
+    public void singleBlockSections() {
+        run(1, true);
+    }
+    
+    @Test
+    public void terrainSections() {
+        run(4, true);
+    }
+    
+    @Test
+    public void mixedSections() {
+        run(200, false);
+    }
+    
+    /**
+     * The block id at the position
+     * @param types number of block types in the section
+     * @param idx
+     * @return 
+     */
+    private static int id(int types, int idx) {
+        return types == 1 ? 1 : 1 + ((idx >> 8) * 7 + (idx & 0xff) * 13) % types;
+    }
+    
+    private void run(int types, boolean smaller) {
+        // Given
+        final Object[] sections = new Object[SECTIONS];
+        
+        // When
+        final long paletted = measure(sections, () -> {
+            for (int i = 0; i < SECTIONS; i++) {
+                PalettedSectionData section = new PalettedSectionData(i & 0xf, true);
+                for (int idx = 0; idx < VOLUME; idx++) {
+                    section.set(idx, id(types, idx));
+                }
+                sections[i] = section;
+            }
+        });
+        final long arrays = measure(sections, () -> {
+            for (int i = 0; i < SECTIONS; i++) {
+                int[] section = new int[VOLUME];
+                for (int idx = 0; idx < VOLUME; idx++) {
+                    section[idx] = id(types, idx);
+                }
+                sections[i] = section;
+            }
+        });
+        
+        long checksum = 0;
+        long time = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            PalettedSectionData section = new PalettedSectionData(0, true);
+            for (int idx = 0; idx < VOLUME; idx++) {
+                section.set(idx, id(types, idx));
+            }
+            for (int idx = 0; idx < VOLUME; idx++) {
+                checksum += section.get(idx);
+            }
+        }
+        final long palettedTime = System.nanoTime() - time;
+        
+        long expected = 0;
+        time = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            int[] section = new int[VOLUME];
+            for (int idx = 0; idx < VOLUME; idx++) {
+                section[idx] = id(types, idx);
+            }
+            for (int idx = 0; idx < VOLUME; idx++) {
+                expected += section[idx];
+            }
+        }
+        final long arraysTime = System.nanoTime() - time;
+        
+        // Then
+        final double ops = 2.0 * ROUNDS * VOLUME;
+        final String rates = String.format("%1$s block types: paletted %2$d B/section %3$.1f Mops/s, int[] %4$d B/section %5$.1f Mops/s",
+                types, paletted / SECTIONS, ops / (palettedTime / 1e3),
+                arrays / SECTIONS, ops / (arraysTime / 1e3));
+        Benchmark.report(rates);
+        
+        Assert.assertEquals(rates, expected, checksum);
+        if (smaller) {
+            Assert.assertTrue(rates, paletted * 4 < arrays);
+        }
+    }
+    
+    /**
+     * Get the heap used by the sections created by the action
+     * @param sections
+     * @param action
+     * @return 
+     */
+    private static long measure(Object[] sections, Runnable action) {
+        final Runtime runtime = Runtime.getRuntime();
+        
+        for (int i = 0; i < SECTIONS; i++) {
+            sections[i] = null;
+        }
+        
+        gc();
+        final long before = runtime.totalMemory() - runtime.freeMemory();
+        action.run();
+        gc();
+        
+        return runtime.totalMemory() - runtime.freeMemory() - before;
+    }
+    
+    private static void gc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk.base;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.primesoft.asyncworldedit.Benchmark;
+import org.primesoft.asyncworldedit.api.directChunk.IBlockEntry;
+
+/**
+ * Changeset build and apply time per chunk. The apply step creates the
+ * block entries and writes them to flat chunk arrays the same way the 
+ * wrapped chunk sets the blocks and light.
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class ChangedBlocksBenchmarkTest {
+    private final static int VOLUME = 16 * 16 * 256;
+    
+    private final static int GROUND = 64;
+    
+    private final static int CHUNKS = 64;
+    
+    @Test
+    public void fullChunkRewrite() {
+        run(1);
+    }
+    
+    @Test
+    public void sparseEdit() {
+        run(16);
+    }
+    
+    /**
+     * Run the benchmark
+     * @param step only every step-th block is changed
+     */
+    private void run(int step) {
+        // Given
+        final Object mutex = new Object();
+        final int[] ids = new int[VOLUME];
+        final byte[] emission = new byte[VOLUME];
+        final byte[] sky = new byte[VOLUME];
+        
+        // When
+        long buildTime = 0;
+        long applyTime = 0;
+        long checksum = 0;
+        int changed = 0;
+        
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            long time = System.nanoTime();
+            final ChangedBlocks blocks = new ChangedBlocks();
+            for (int y = 0; y < 256; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x += step) {
+                        final int pos = ChunkDataCommon.encodePosition(x, y, z);
+                        synchronized (mutex) {
+                            blocks.setBlock(pos, y < GROUND ? 1 + chunk : 0, null, (byte) -1);
+                            if (y >= GROUND) {
+                                blocks.setSky(pos, (byte) 15);
+                            }
+                        }
+                    }
+                }
+            }
+            buildTime += System.nanoTime() - time;
+            
+            time = System.nanoTime();
+            final IBlockEntry[] entries;
+            synchronized (mutex) {
+                entries = blocks.toEntries();
+            }
+            for (IBlockEntry entry : entries) {
+                final int idx = entry.getX() | (entry.getZ() << 4) | (entry.getY() << 8);
+                if (entry.hasBlock()) {
+                    ids[idx] = entry.getId();
+                }
+                if (entry.hasLight()) {
+                    emission[idx] = entry.getEmission();
+                }
+                if (entry.hasSkyLight()) {
+                    sky[idx] = entry.getSky();
+                }
+            }
+            applyTime += System.nanoTime() - time;
+            
+            changed = entries.length;
+            checksum += ids[ChunkDataCommon.encodePosition(0, 0, 0) & 0xffff];
+        }
+        
+        // Then
+        final String rates = String.format("%1$s blocks per chunk: build %2$.0f us/chunk, apply %3$.0f us/chunk",
+                changed, buildTime / 1e3 / CHUNKS, applyTime / 1e3 / CHUNKS);
+        Benchmark.report(rates);
+        
+        Assert.assertEquals(rates, VOLUME / step, changed);
+        Assert.assertEquals(rates, (long) CHUNKS * (CHUNKS + 1) / 2, checksum);
+        Assert.assertEquals(rates, 15, sky[ChunkDataCommon.encodePosition(0, GROUND, 0) & 0xffff]);
+    }
+}
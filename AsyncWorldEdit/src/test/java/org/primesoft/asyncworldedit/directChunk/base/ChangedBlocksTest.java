@@ -0,0 +1,153 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk.base;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.primesoft.asyncworldedit.api.directChunk.IBlockEntry;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class ChangedBlocksTest {
+    private ChangedBlocks m_blocks;
+
+    @Before
+    public void init() {
+        m_blocks = new ChangedBlocks();
+    }
+
+    @Test
+    public void shouldStoreBlock() {
+        // Given
+        int pos = ChunkDataCommon.encodePosition(3, 200, 5);
+
+        // When
+        m_blocks.setBlock(pos, 42, null, (byte) 7);
+
+        // Then
+        Assert.assertTrue(m_blocks.hasBlock(pos));
+        Assert.assertEquals(42, m_blocks.getId(pos));
+        Assert.assertEquals(7, m_blocks.getEmission(pos));
+        Assert.assertEquals(-1, m_blocks.getSky(pos));
+        Assert.assertFalse(m_blocks.hasBlock(ChunkDataCommon.encodePosition(3, 199, 5)));
+    }
+
+    @Test
+    public void shouldKeepLightOnlyChanges() {
+        // Given
+        int pos = ChunkDataCommon.encodePosition(1, 2, 3);
+
+        // When
+        m_blocks.setSky(pos, (byte) 15);
+
+        // Then
+        IBlockEntry[] entries = m_blocks.toEntries();
+        Assert.assertEquals(1, entries.length);
+        Assert.assertFalse(entries[0].hasBlock());
+        Assert.assertFalse(entries[0].hasLight());
+        Assert.assertEquals(15, entries[0].getSky());
+    }
+
+    @Test
+    public void shouldResetSkyLightWhenBlockIsSet() {
+        // Given
+        int pos = ChunkDataCommon.encodePosition(1, 2, 3);
+        m_blocks.setSky(pos, (byte) 15);
+
+        // When
+        m_blocks.setBlock(pos, 1, null, (byte) -1);
+
+        // Then
+        Assert.assertEquals(-1, m_blocks.getSky(pos));
+        Assert.assertEquals(-1, m_blocks.getEmission(pos));
+    }
+
+    @Test
+    public void shouldReturnEntriesInFirstChangeOrder() {
+        // Given
+        int p1 = ChunkDataCommon.encodePosition(15, 255, 15);
+        int p2 = ChunkDataCommon.encodePosition(0, 0, 0);
+        int p3 = ChunkDataCommon.encodePosition(8, 100, 8);
+
+        // When
+        m_blocks.setBlock(p1, 1, null, (byte) -1);
+        m_blocks.setBlock(p2, 2, null, (byte) -1);
+        m_blocks.setBlock(p3, 3, null, (byte) -1);
+        m_blocks.setBlock(p1, 4, null, (byte) -1);
+
+        // Then
+        IBlockEntry[] entries = m_blocks.toEntries();
+        Assert.assertEquals(3, entries.length);
+        Assert.assertEquals(4, entries[0].getId());
+        Assert.assertEquals(255, entries[0].getY());
+        Assert.assertEquals(2, entries[1].getId());
+        Assert.assertEquals(3, entries[2].getId());
+        Assert.assertEquals(8, entries[2].getX());
+    }
+
+    @Test
+    public void shouldStoreFullChunk() {
+        // Given
+        int count = 16 * 16 * 256;
+
+        // When
+        for (int i = 0; i < count; i++) {
+            m_blocks.setBlock(i, i, null, (byte) (i & 0xf));
+        }
+
+        // Then
+        Assert.assertEquals(count, m_blocks.size());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, m_blocks.getId(i));
+            Assert.assertEquals(i & 0xf, m_blocks.getEmission(i));
+        }
+    }
+}
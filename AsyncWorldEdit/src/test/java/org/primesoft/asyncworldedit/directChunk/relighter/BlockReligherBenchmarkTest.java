@@ -0,0 +1,397 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk.relighter;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.Benchmark;
+import org.primesoft.asyncworldedit.api.IChunk;
+import org.primesoft.asyncworldedit.api.IWorld;
+import org.primesoft.asyncworldedit.api.directChunk.IChangesetChunkData;
+import org.primesoft.asyncworldedit.api.directChunk.IChunkData;
+import org.primesoft.asyncworldedit.api.directChunk.IDirectChunkData;
+import org.primesoft.asyncworldedit.api.directChunk.ISerializedEntity;
+import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
+import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
+import org.primesoft.asyncworldedit.api.inner.IBlockRelighter;
+import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
+import org.primesoft.asyncworldedit.api.utils.IFunc;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.update.ConfigurationUpdater;
+import org.primesoft.asyncworldedit.directChunk.base.BaseDirectChunkAPI;
+import org.primesoft.asyncworldedit.platform.api.IConfiguration;
+import org.primesoft.asyncworldedit.platform.api.IConfigurationSection;
+import org.primesoft.asyncworldedit.platform.api.IPlatform;
+import org.primesoft.asyncworldedit.platform.api.IScheduler;
+import org.primesoft.asyncworldedit.platform.api.ITask;
+
+/**
+ * Relight of a flattened area: a four block thick layer above the ground
+ * was removed and every removed block is queued for the relight.
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class BlockReligherBenchmarkTest {
+    /**
+     * The area size in chunks (X and Z)
+     */
+    private final static int AREA = 8;
+    
+    private final static int GROUND = 64;
+    private final static int LAYERS = 4;
+    
+    private final static char AIR = 0;
+    private final static char STONE = 1;
+    
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+    
+    @Test
+    public void singleWorker() throws IOException, InterruptedException {
+        run(1);
+    }
+    
+    @Test
+    public void fourWorkers() throws IOException, InterruptedException {
+        run(4);
+    }
+    
+    private void run(int threads) throws IOException, InterruptedException {
+        // Given
+        loadConfig(threads);
+        
+        final Map<IChunk, IWrappedChunk> chunks = new HashMap<>();
+        final Map<Long, FlatChunkData> data = new HashMap<>();
+        final IWorld world = Mockito.mock(IWorld.class);
+        Mockito.when(world.getUUID()).thenReturn(UUID.randomUUID());
+        Mockito.when(world.getName()).thenReturn("world");
+        
+        for (int cx = -1; cx <= AREA; cx++) {
+            for (int cz = -1; cz <= AREA; cz++) {
+                IChunk chunk = Mockito.mock(IChunk.class);
+                IWrappedChunk wrapped = Mockito.mock(IWrappedChunk.class);
+                FlatChunkData chunkData = new FlatChunkData();
+                
+                Mockito.when(world.getChunkAt(cx, cz)).thenReturn(chunk);
+                Mockito.when(wrapped.getDirectDataManipulator()).thenReturn(chunkData);
+                chunks.put(chunk, wrapped);
+                data.put(key(cx, cz), chunkData);
+            }
+        }
+        
+        final int jobs = AREA * AREA;
+        final CountDownLatch done = new CountDownLatch(9 * jobs);
+        final IBlockRelighter relighter = new RelightTestApi(createDispatcher(), chunks).getBlockRelighter();
+        
+        relighter.initialize(createPlatform(done));
+        
+        // When
+        final long time = System.nanoTime();
+        synchronized (relighter.getDataMutex()) {
+            //Queue whole chunks so each chunk is relit once
+            for (int x = 0; x < AREA * 16; x++) {
+                for (int z = 0; z < AREA * 16; z++) {
+                    for (int y = GROUND; y < GROUND + LAYERS; y++) {
+                        relighter.forceQueueBlock(world, x, y, z);
+                    }
+                }
+            }
+        }
+        
+        final boolean finished = done.await(5, TimeUnit.MINUTES);
+        final long relightTime = System.nanoTime() - time;
+        relighter.stop();
+        
+        // Then
+        final double perChunk = relightTime / 1e6 / jobs;
+        final String rates = String.format("%1$s workers: %2$dx%2$d chunks in %3$.0f ms, %4$.1f ms per chunk",
+                threads, AREA, relightTime / 1e6, perChunk);
+        Benchmark.report(rates);
+        
+        Assert.assertTrue(rates, finished);
+        
+        FlatChunkData center = data.get(key(AREA / 2, AREA / 2));
+        Assert.assertEquals(rates, 15, center.getSkyLight(8, GROUND, 8));
+        Assert.assertEquals(rates, 15, center.getSkyLight(8, 255, 8));
+        Assert.assertEquals(rates, 0, center.getSkyLight(8, GROUND - 1, 8));
+        Assert.assertEquals(rates, 0, center.getEmissionLight(8, GROUND, 8));
+    }
+    
+    private static long key(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xffffffffL);
+    }
+    
+    private void loadConfig(int threads) throws IOException {
+        IAsyncWorldEditCore core = Mockito.mock(IAsyncWorldEditCore.class);
+        IPlatform platform = Mockito.mock(IPlatform.class);
+        IConfiguration config = Mockito.mock(IConfiguration.class);
+        IConfigurationSection mainSection = Mockito.mock(IConfigurationSection.class);
+        IConfigurationSection dcSection = Mockito.mock(IConfigurationSection.class);
+        
+        Mockito.when(core.getPlatform()).thenReturn(platform);
+        Mockito.when(platform.getConfig()).thenReturn(config);
+        Mockito.when(config.getDataFolder()).thenReturn(m_folder.newFolder());
+        Mockito.when(config.getConfigurationSection("awe")).thenReturn(mainSection);
+        Mockito.when(mainSection.getInt("version", 0)).thenReturn(ConfigurationUpdater.CONFIG_VERSION);
+        Mockito.when(mainSection.getConfigurationSection("directChunk")).thenReturn(dcSection);
+        Mockito.when(dcSection.getBoolean("autoRelight", true)).thenReturn(true);
+        Mockito.when(dcSection.getInt("relightThreads", 0)).thenReturn(threads);
+        
+        ConfigProvider.load(core);
+    }
+    
+    private static ITaskDispatcher createDispatcher() {
+        ITaskDispatcher dispatcher = Mockito.mock(ITaskDispatcher.class);
+        Mockito.when(dispatcher.performSafeChunk(Mockito.any(), Mockito.any(IFunc.class),
+                Mockito.any(IWorld.class), Mockito.any(BlockVector2.class)))
+                .thenAnswer(invocation -> ((IFunc) invocation.getArguments()[1]).execute());
+        
+        return dispatcher;
+    }
+    
+    private static IPlatform createPlatform(CountDownLatch done) {
+        IPlatform platform = Mockito.mock(IPlatform.class);
+        IScheduler scheduler = Mockito.mock(IScheduler.class);
+        IChunkWatch chunkWatch = Mockito.mock(IChunkWatch.class);
+        
+        Mockito.when(platform.getScheduler()).thenReturn(scheduler);
+        Mockito.when(platform.getChunkWatcher()).thenReturn(chunkWatch);
+        Mockito.when(scheduler.runTaskAsynchronously(Mockito.any(Runnable.class))).thenAnswer(invocation -> {
+            Thread thread = new Thread((Runnable) invocation.getArguments()[0]);
+            thread.setDaemon(true);
+            thread.start();
+            
+            return Mockito.mock(ITask.class);
+        });
+        Mockito.doAnswer(invocation -> {
+            done.countDown();
+            return null;
+        }).when(chunkWatch).remove(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyString());
+        
+        return platform;
+    }
+    
+    /**
+     * Chunk with stone below the ground level and air above it, the light 
+     * is not calculated
+     */
+    private static final class FlatChunkData implements IDirectChunkData {
+        private final char[] m_blocks = new char[16 * 16 * 256];
+        private final byte[] m_sky = new byte[16 * 16 * 256];
+        private final byte[] m_emission = new byte[16 * 16 * 256];
+        
+        FlatChunkData() {
+            for (int i = 0; i < GROUND * 256; i++) {
+                m_blocks[i] = STONE;
+            }
+        }
+        
+        private static int index(int x, int y, int z) {
+            return x | (z << 4) | (y << 8);
+        }
+        
+        @Override
+        public IWrappedChunk getChunk() {
+            return null;
+        }
+        
+        @Override
+        public byte getEmissionLight(int x, int y, int z) {
+            return m_emission[index(x, y, z)];
+        }
+        
+        @Override
+        public byte getSkyLight(int x, int y, int z) {
+            return m_sky[index(x, y, z)];
+        }
+        
+        @Override
+        public String getMaterial(int x, int y, int z) {
+            return null;
+        }
+        
+        @Override
+        public int getRawBlockData(int x, int y, int z) {
+            return m_blocks[index(x, y, z)];
+        }
+        
+        @Override
+        public void setEmissionLight(int x, int y, int z, byte lightLevel) {
+            m_emission[index(x, y, z)] = lightLevel;
+        }
+        
+        @Override
+        public void setSkyLight(int x, int y, int z, byte lightLevel) {
+            m_sky[index(x, y, z)] = lightLevel;
+        }
+        
+        @Override
+        public void setBlock(int x, int y, int z, int id) {
+            m_blocks[index(x, y, z)] = (char) id;
+        }
+        
+        @Override
+        public void setBlockAndEmission(int x, int y, int z, int id, byte emission) {
+            setBlock(x, y, z, id);
+            setEmissionLight(x, y, z, emission);
+        }
+        
+        @Override
+        public int getBiome(int x, int z) {
+            return 0;
+        }
+        
+        @Override
+        public void setBiome(int x, int z, int biome) {
+        }
+        
+        @Override
+        public BlockVector2 getChunkCoords() {
+            return null;
+        }
+        
+        @Override
+        public void setChunkCoords(BlockVector2 coords) {
+        }
+    }
+    
+    /**
+     * Direct chunk API that knows only air and stone
+     */
+    private static final class RelightTestApi extends BaseDirectChunkAPI {
+        private final Map<IChunk, IWrappedChunk> m_chunks;
+        
+        RelightTestApi(ITaskDispatcher dispatcher, Map<IChunk, IWrappedChunk> chunks) {
+            super(dispatcher, null);
+            
+            m_chunks = chunks;
+        }
+        
+        @Override
+        public IWrappedChunk wrapChunk(IChunk chunk, IPlayerEntry player) {
+            return m_chunks.get(chunk);
+        }
+        
+        @Override
+        public byte getLightEmissionLevel(int id) {
+            return 0;
+        }
+        
+        @Override
+        public short getOpacityLevel(int id) {
+            return (short) (id == AIR ? 0 : 15);
+        }
+        
+        @Override
+        public short getOpacityLevelSkyLight(int id) {
+            return (short) (id == AIR ? 0 : 15);
+        }
+        
+        @Override
+        public IChunkData createChunkData() {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public IChangesetChunkData createLazyChunkData(IWrappedChunk chunk) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public int getCombinedId(String type, Map<Property<?>, Object> data) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public String getMaterial(int type) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public BlockStateHolder convertId(int combinedId) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public ISerializedEntity createEntity(UUID uuid, Vector3 position, float yaw, float pitch, byte[] nbt) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public byte getLightEmissionLevel(String type, Map<Property<?>, Object> data) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public short getOpacityLevel(String type, Map<Property<?>, Object> data) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public short getOpacityLevelSkyLight(String type, Map<Property<?>, Object> data) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.directChunk.relighter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class RelightBuffersTest {
+    private RelightBuffers m_buffers;
+    
+    @Before
+    public void init() {
+        m_buffers = new RelightBuffers();
+    }
+    
+    @Test
+    public void shouldEncodePosition() {
+        // Given
+        int idx = RelightBuffers.index(47, 255, 31);
+        
+        // When
+        
+        // Then
+        Assert.assertEquals("X", 47, RelightBuffers.getX(idx));
+        Assert.assertEquals("Y", 255, RelightBuffers.getY(idx));
+        Assert.assertEquals("Z", 31, RelightBuffers.getZ(idx));
+        Assert.assertEquals("Last", RelightBuffers.VOLUME - 1 - 16 * 48, idx);
+    }
+    
+    @Test
+    public void shouldDequeueHighestLevelFirst() {
+        // Given
+        m_buffers.queue(3, 1);
+        m_buffers.queue(15, 2);
+        m_buffers.queue(3, 3);
+        m_buffers.queue(0, 4);
+        
+        // When
+        
+        // Then
+        Assert.assertTrue("Queued", m_buffers.isQueued(3));
+        Assert.assertEquals(2, m_buffers.dequeue());
+        Assert.assertEquals(1, m_buffers.dequeue());
+        Assert.assertEquals(3, m_buffers.dequeue());
+        Assert.assertFalse("Dequeued", m_buffers.isQueued(3));
+        Assert.assertEquals(4, m_buffers.dequeue());
+        Assert.assertEquals(-1, m_buffers.dequeue());
+    }
+    
+    @Test
+    public void shouldGrowRingBuffer() {
+        // Given
+        RelightBuffers.IntRing ring = new RelightBuffers.IntRing();
+        for (int i = 0; i < 200; i++) {
+            ring.add(i);
+        }
+        for (int i = 0; i < 150; i++) {
+            ring.poll();
+        }
+        
+        // When
+        for (int i = 200; i < 1000; i++) {
+            ring.add(i);
+        }
+        
+        // Then
+        Assert.assertEquals(850, ring.size());
+        for (int i = 150; i < 1000; i++) {
+            Assert.assertEquals(i, ring.poll());
+        }
+        Assert.assertTrue("Empty", ring.isEmpty());
+    }
+    
+    @Test
+    public void shouldAddDiamondOnce() {
+        // Given
+        m_buffers.addDiamond(RelightBuffers.index(1, 2, 3));
+        m_buffers.addDiamond(RelightBuffers.index(1, 2, 3));
+        
+        // When
+        m_buffers.reset();
+        m_buffers.addDiamond(RelightBuffers.index(4, 5, 6));
+        
+        // Then
+        Assert.assertEquals(1, m_buffers.getDiamond().size());
+        Assert.assertFalse("Cleared", m_buffers.isDiamond(RelightBuffers.index(1, 2, 3)));
+        Assert.assertTrue("Added", m_buffers.isDiamond(RelightBuffers.index(4, 5, 6)));
+    }
+}
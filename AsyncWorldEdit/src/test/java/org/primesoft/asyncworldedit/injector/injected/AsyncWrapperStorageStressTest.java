@@ -0,0 +1,211 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.injector.injected;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
+
+/**
+ * Async wrapper storage correctness and throughput with many threads
+ *
+ * @author SBPrime
+ */
+public class AsyncWrapperStorageStressTest {
+    private final static int THREADS = 16;
+    private final static int OBJECTS = 100000;
+    private final static int CHAIN = 4;
+    private final static int WINDOW = 1024;
+    
+    private static class Wrapper implements IAsyncWrapper {
+        private final int m_value;
+
+        Wrapper(int value) {
+            m_value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Wrapper && ((Wrapper) obj).m_value == m_value;
+        }
+
+        @Override
+        public int hashCode() {
+            return m_value;
+        }
+    }
+    
+    @Test
+    public void shouldCompareKeysWithEquals() {
+        // Given
+        IPlayerEntry player = mock(IPlayerEntry.class);
+        Wrapper w1 = new Wrapper(1);
+        Wrapper w2 = new Wrapper(1);
+        Wrapper w3 = new Wrapper(2);
+        
+        // When
+        w1.initializeAsyncWrapper(7, true, player);
+        
+        // Then
+        Assert.assertEquals(7, w2.getJobId());
+        Assert.assertTrue(w2.isAsync());
+        Assert.assertSame(player, w2.getPlayer());
+        Assert.assertEquals(-1, w3.getJobId());
+        Assert.assertFalse(w3.isAsync());
+        Assert.assertNull(w3.getPlayer());
+    }
+    
+    @Test
+    public void shouldKeepOwnDataWhenInitializedFromSource() {
+        // Given
+        IPlayerEntry player = mock(IPlayerEntry.class);
+        Wrapper source = new Wrapper(1);
+        Wrapper result = new Wrapper(2);
+        Wrapper empty = new Wrapper(3);
+        Wrapper other = new Wrapper(4);
+        source.initializeAsyncWrapper(3, true, player);
+        other.initializeAsyncWrapper(5, false, null);
+        
+        // When
+        result.initializeAsyncWrapper(source);
+        other.initializeAsyncWrapper(empty);
+        
+        // Then
+        Assert.assertEquals(-1, result.getJobId());
+        Assert.assertFalse(result.isAsync());
+        Assert.assertNull(result.getPlayer());
+        Assert.assertEquals(5, other.getJobId());
+    }
+    
+    @Test
+    public void shouldRemoveAndGrowTable() {
+        // Given
+        ConcurrentWeakTable<Integer> table = new ConcurrentWeakTable<>();
+        Object[] keys = new Object[100000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Object();
+            table.put(keys[i], i);
+        }
+        
+        // When
+        for (int i = 0; i < keys.length; i += 2) {
+            table.remove(keys[i]);
+        }
+        
+        // Then
+        Assert.assertEquals(keys.length / 2, table.size());
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), table.get(keys[i]));
+        }
+    }
+    
+    @Test
+    public void wrapThroughputWith16Threads() throws Exception {
+        // Given
+        final CyclicBarrier start = new CyclicBarrier(THREADS + 1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        
+        for (int i = 0; i < THREADS; i++) {
+            final int jobId = i;
+            final IPlayerEntry player = mock(IPlayerEntry.class);
+            
+            Thread t = new Thread(() -> {
+                final Wrapper[] window = new Wrapper[WINDOW];
+                
+                try {
+                    start.await();
+                    
+                    for (int o = 0; o < OBJECTS; o++) {
+                        final Wrapper first = new Wrapper(jobId * OBJECTS + o);
+                        first.initializeAsyncWrapper(jobId, (o & 1) == 0, player);
+                        
+                        Wrapper source = first;
+                        for (int c = 0; c < CHAIN; c++) {
+                            Wrapper result = new Wrapper(jobId * OBJECTS + o);
+                            result.initializeAsyncWrapper(source);
+                            source = result;
+                        }
+                        
+                        final Wrapper old = window[o % WINDOW];
+                        if (old != null && (old.getJobId() != jobId || old.getPlayer() != player)) {
+                            throw new AssertionError("Invalid wrapper data");
+                        }
+                        window[o % WINDOW] = first;
+                        
+                        if (source.getJobId() != jobId || source.isAsync() != ((o & 1) == 0)) {
+                            throw new AssertionError("Invalid wrapper data");
+                        }
+                    }
+                } catch (Throwable ex) {
+                    error.compareAndSet(null, ex);
+                }
+            });
+            
+            threads.add(t);
+            t.start();
+        }
+        
+        // When
+        start.await();
+        long time = System.nanoTime();
+        for (Thread t : threads) {
+            t.join();
+        }
+        time = System.nanoTime() - time;
+        
+        // Then
+        Assert.assertNull(String.format("Async wrapper throughput (%1$s threads): %2$.0f wrapped objects/s",
+                THREADS, (double) THREADS * OBJECTS * (CHAIN + 1) / (time / 1e9)), error.get());
+    }
+}
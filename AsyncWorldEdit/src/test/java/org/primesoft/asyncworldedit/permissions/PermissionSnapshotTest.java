@@ -0,0 +1,195 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.permissions;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.primesoft.asyncworldedit.api.permissions.IPermission;
+import org.primesoft.asyncworldedit.platform.api.IPermissionProvider;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class PermissionSnapshotTest {
+    private final static int PERMISSIONS = Permission.values().length;
+    
+    @Test
+    public void shouldResolvePermissionsOnce() {
+        // Given
+        CountingProvider provider = new CountingProvider(Permission.QUEUE_BYPASS.getNode());
+        PermissionSnapshot snapshot = new PermissionSnapshot(provider, 60000);
+        
+        // When
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertTrue(snapshot.isAllowed(Permission.QUEUE_BYPASS));
+            Assert.assertFalse(snapshot.isAllowed(Permission.RELOAD_CONFIG));
+        }
+        
+        // Then
+        Assert.assertEquals(PERMISSIONS, provider.getCalls());
+    }
+    
+    @Test
+    public void shouldCacheCustomPermissions() {
+        // Given
+        CountingProvider provider = new CountingProvider("custom.node");
+        PermissionSnapshot snapshot = new PermissionSnapshot(provider, 60000);
+        IPermission custom = () -> "custom.node";
+        
+        // When
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(snapshot.isAllowed(custom));
+        }
+        
+        // Then
+        Assert.assertEquals(PERMISSIONS + 1, provider.getCalls());
+    }
+    
+    @Test
+    public void shouldRefreshAfterInvalidate() {
+        // Given
+        CountingProvider provider = new CountingProvider();
+        PermissionSnapshot snapshot = new PermissionSnapshot(provider, 60000);
+        Assert.assertFalse(snapshot.isAllowed(Permission.QUEUE_BYPASS));
+        
+        // When
+        provider.grant(Permission.QUEUE_BYPASS.getNode());
+        snapshot.invalidate();
+        
+        // Then
+        Assert.assertTrue(snapshot.isAllowed(Permission.QUEUE_BYPASS));
+        Assert.assertEquals(2 * PERMISSIONS, provider.getCalls());
+    }
+    
+    @Test
+    public void shouldRefreshAfterTtl() throws InterruptedException {
+        // Given
+        CountingProvider provider = new CountingProvider();
+        PermissionSnapshot snapshot = new PermissionSnapshot(provider, 10);
+        Assert.assertFalse(snapshot.isAllowed(Permission.QUEUE_BYPASS));
+        
+        // When
+        provider.grant(Permission.QUEUE_BYPASS.getNode());
+        Thread.sleep(50);
+        
+        // Then
+        Assert.assertTrue(snapshot.isAllowed(Permission.QUEUE_BYPASS));
+        Assert.assertEquals(2 * PERMISSIONS, provider.getCalls());
+    }
+    
+    @Test
+    public void shouldUseExpiredSnapshotWhileRefreshing() throws InterruptedException {
+        // Given
+        final CountDownLatch refreshing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingProvider provider = new CountingProvider() {
+            @Override
+            public boolean hasPermission(String permissionNode) {
+                if (getCalls() == PERMISSIONS) {
+                    refreshing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                
+                return super.hasPermission(permissionNode);
+            }
+        };
+        final PermissionSnapshot snapshot = new PermissionSnapshot(provider, 10);
+        Assert.assertFalse(snapshot.isAllowed(Permission.QUEUE_BYPASS));
+        provider.grant(Permission.QUEUE_BYPASS.getNode());
+        Thread.sleep(50);
+        
+        final Thread refresher = new Thread(() -> snapshot.isAllowed(Permission.QUEUE_BYPASS));
+        refresher.start();
+        refreshing.await();
+        
+        // When
+        final boolean expired = snapshot.isAllowed(Permission.QUEUE_BYPASS);
+        release.countDown();
+        refresher.join();
+        
+        // Then
+        Assert.assertFalse(expired);
+        Assert.assertTrue(snapshot.isAllowed(Permission.QUEUE_BYPASS));
+        Assert.assertEquals(2 * PERMISSIONS, provider.getCalls());
+    }
+    
+    private static class CountingProvider implements IPermissionProvider {
+        private final AtomicInteger m_calls = new AtomicInteger();
+        
+        private volatile String m_granted;
+        
+        CountingProvider() {
+            this(null);
+        }
+        
+        CountingProvider(String granted) {
+            m_granted = granted;
+        }
+        
+        void grant(String node) {
+            m_granted = node;
+        }
+        
+        int getCalls() {
+            return m_calls.get();
+        }
+
+        @Override
+        public boolean hasPermission(String permissionNode) {
+            m_calls.incrementAndGet();
+            return permissionNode.equals(m_granted);
+        }
+    }
+}
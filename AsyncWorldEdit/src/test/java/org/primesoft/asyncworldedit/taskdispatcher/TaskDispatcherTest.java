@@ -0,0 +1,214 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.taskdispatcher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
+import org.primesoft.asyncworldedit.api.utils.IFunc;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.update.ConfigurationUpdater;
+import org.primesoft.asyncworldedit.platform.api.IConfiguration;
+import org.primesoft.asyncworldedit.platform.api.IConfigurationSection;
+import org.primesoft.asyncworldedit.platform.api.IPlatform;
+import org.primesoft.asyncworldedit.platform.api.IScheduler;
+import org.primesoft.asyncworldedit.platform.api.ITask;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class TaskDispatcherTest {
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    private ITask m_task;
+
+    private TaskDispatcher m_dispatcher;
+
+    @Before
+    public void init() throws Exception {
+        IAsyncWorldEditCore core = Mockito.mock(IAsyncWorldEditCore.class);
+        IPlatform platform = Mockito.mock(IPlatform.class);
+        IScheduler scheduler = Mockito.mock(IScheduler.class);
+        IConfiguration config = Mockito.mock(IConfiguration.class);
+        IConfigurationSection mainSection = Mockito.mock(IConfigurationSection.class);
+        m_task = Mockito.mock(ITask.class);
+
+        Mockito.when(core.getPlatform()).thenReturn(platform);
+        Mockito.when(platform.getScheduler()).thenReturn(scheduler);
+        Mockito.when(platform.getConfig()).thenReturn(config);
+        Mockito.when(scheduler.runTaskTimer(Matchers.any(Runnable.class), Matchers.anyLong(), Matchers.anyLong()))
+                .thenReturn(m_task);
+        Mockito.when(config.getDataFolder()).thenReturn(m_folder.newFolder());
+        Mockito.when(config.getConfigurationSection("awe")).thenReturn(mainSection);
+        Mockito.when(mainSection.getInt("version", 0)).thenReturn(ConfigurationUpdater.CONFIG_VERSION);
+
+        ConfigProvider.load(core);
+
+        m_dispatcher = new TaskDispatcher(core);
+    }
+
+    @Test
+    public void shouldCompleteFutureWhenProcessed() {
+        // Given
+        CompletableFuture<Integer> future = m_dispatcher.queueFastOperationAsync(() -> 42);
+
+        // When
+        boolean doneBeforeRun = future.isDone();
+        m_dispatcher.run();
+
+        // Then
+        Assert.assertFalse(doneBeforeRun);
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(Integer.valueOf(42), future.join());
+    }
+
+    @Test
+    public void shouldCompleteActionFuture() {
+        // Given
+        AtomicInteger executed = new AtomicInteger();
+        CompletableFuture<Void> future = m_dispatcher.queueFastOperationAsync(() -> {
+            executed.incrementAndGet();
+        });
+
+        // When
+        m_dispatcher.run();
+
+        // Then
+        Assert.assertTrue(future.isDone());
+        Assert.assertFalse(future.isCompletedExceptionally());
+        Assert.assertEquals(1, executed.get());
+    }
+
+    @Test
+    public void shouldPropagateExceptionToFuture() {
+        // Given
+        IllegalStateException error = new IllegalStateException("test");
+        CompletableFuture<Object> future = m_dispatcher.queueFastOperationAsync((IFunc<Object>) () -> {
+            throw error;
+        });
+
+        // When
+        m_dispatcher.run();
+
+        // Then
+        Assert.assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+            Assert.fail("Exception expected");
+        } catch (CompletionException ex) {
+            Assert.assertSame(error, ex.getCause());
+        }
+    }
+
+    @Test
+    public void shouldProcessQueuedTasksInOrder() {
+        // Given
+        StringBuilder order = new StringBuilder();
+        m_dispatcher.queueFastOperationAsync(() -> {
+            order.append('a');
+        });
+        m_dispatcher.queueFastOperationAsync(() -> {
+            order.append('b');
+        });
+        m_dispatcher.queueFastOperationAsync(() -> {
+            order.append('c');
+        });
+
+        // When
+        m_dispatcher.run();
+
+        // Then
+        Assert.assertEquals("abc", order.toString());
+    }
+
+    @Test
+    public void shouldStopTaskWhenQueueStaysEmpty() {
+        // Given
+        int maxIdle = ConfigProvider.dispatcher().getMaxIdle();
+        m_dispatcher.queueFastOperationAsync(() -> {
+        });
+        m_dispatcher.run();
+
+        // When
+        for (int i = 0; i < maxIdle - 1; i++) {
+            m_dispatcher.run();
+        }
+
+        // Then
+        Mockito.verify(m_task, Mockito.never()).cancel();
+
+        // When
+        m_dispatcher.run();
+
+        // Then
+        Mockito.verify(m_task).cancel();
+    }
+
+    @Test
+    public void shouldRunInlineOnMainThread() {
+        // Given
+        m_dispatcher.run();
+
+        // When
+        CompletableFuture<Integer> future = m_dispatcher.queueFastOperationAsync(() -> 7);
+
+        // Then
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(Integer.valueOf(7), future.join());
+    }
+}
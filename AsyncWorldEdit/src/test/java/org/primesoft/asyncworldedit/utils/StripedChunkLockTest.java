@@ -0,0 +1,138 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class StripedChunkLockTest {
+    private StripedChunkLock m_lock;
+    
+    @Before
+    public void init() {
+        m_lock = new StripedChunkLock();
+    }
+    
+    @Test
+    public void shouldMapChunksToStripes() {
+        // Given
+        int stripe = StripedChunkLock.getStripe(-3, 7);
+        
+        // When
+        long stripes = StripedChunkLock.getStripes(Arrays.asList(
+                BlockVector2.at(-3, 7), BlockVector2.at(-3, 7)));
+        
+        // Then
+        Assert.assertEquals("Same chunk", stripe, StripedChunkLock.getStripe(-3, 7));
+        Assert.assertEquals("Stripes", 1L << stripe, stripes);
+    }
+    
+    @Test
+    public void shouldLockDifferentStripesInParallel() throws InterruptedException {
+        // Given
+        int cx = 1;
+        while (StripedChunkLock.getStripe(cx, 0) == StripedChunkLock.getStripe(0, 0)) {
+            cx++;
+        }
+        final int otherX = cx;
+        final AtomicBoolean locked = new AtomicBoolean(false);
+        
+        // When
+        m_lock.lockChunk(0, 0);
+        try {
+            Thread t = new Thread(() -> {
+                m_lock.lockChunk(otherX, 0);
+                locked.set(true);
+                m_lock.unlockChunk(otherX, 0);
+            });
+            t.start();
+            t.join(5000);
+        } finally {
+            m_lock.unlockChunk(0, 0);
+        }
+        
+        // Then
+        Assert.assertTrue("Other chunk locked", locked.get());
+    }
+    
+    @Test
+    public void shouldWaitForChunksBeforeLockingWorld() throws InterruptedException {
+        // Given
+        final AtomicBoolean locked = new AtomicBoolean(false);
+        Thread t = new Thread(() -> {
+            m_lock.lockWorld();
+            locked.set(true);
+            m_lock.unlockWorld();
+        });
+        
+        // When
+        m_lock.lockStripes(StripedChunkLock.getStripes(Arrays.asList(
+                BlockVector2.at(0, 0), BlockVector2.at(100, -100))));
+        try {
+            t.start();
+            t.join(200);
+            
+            // Then
+            Assert.assertFalse("World locked", locked.get());
+        } finally {
+            m_lock.unlockStripes(StripedChunkLock.getStripes(Arrays.asList(
+                BlockVector2.at(0, 0), BlockVector2.at(100, -100))));
+        }
+        
+        t.join(5000);
+        Assert.assertTrue("World locked after unlock", locked.get());
+    }
+}
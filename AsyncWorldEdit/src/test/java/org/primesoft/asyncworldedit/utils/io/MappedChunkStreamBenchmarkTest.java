@@ -0,0 +1,225 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.primesoft.asyncworldedit.Benchmark;
+import org.primesoft.asyncworldedit.api.inner.IChunkCacheStream;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+
+/**
+ * Undo file read speed of the memory mapped stream compared to the
+ * chunk cache stream. The file spans two mapping windows so the reads
+ * crossing the window boundary are included.
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class MappedChunkStreamBenchmarkTest {
+    private final static int FILE_SIZE = 96 * 1024 * 1024;
+    private final static int BLOCK_SIZE = 4096;
+    private final static int ENTRY_SIZE = 12;
+    
+    private File m_file;
+    
+    @Before
+    public void init() throws IOException {
+        m_file = File.createTempFile("awe", ".undo");
+        
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "rw")) {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+            
+            int value = 0;
+            while (channel.size() < FILE_SIZE) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    buffer.putInt(value++);
+                }
+                buffer.flip();
+                channel.write(buffer);
+            }
+        }
+    }
+    
+    @After
+    public void cleanup() {
+        m_file.delete();
+    }
+    
+    @Test
+    public void sequentialPrimitiveReads() throws IOException {
+        // Given
+        final double mb = FILE_SIZE / (1024.0 * 1024);
+        
+        // When
+        long time = System.nanoTime();
+        final long cached;
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            cached = readInts(new ChunkCacheStream(raf));
+        }
+        final long cachedTime = System.nanoTime() - time;
+        
+        time = System.nanoTime();
+        final long mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            MappedChunkStream stream = new MappedChunkStream(raf.getChannel());
+            mapped = readInts(stream);
+            stream.close();
+        }
+        final long mappedTime = System.nanoTime() - time;
+        
+        // Then
+        final String rates = String.format("readInt: cached %1$.1f MB/s, mapped %2$.1f MB/s",
+                mb / (cachedTime / 1e9), mb / (mappedTime / 1e9));
+        Benchmark.report(rates);
+        Assert.assertEquals(rates, cached, mapped);
+    }
+    
+    @Test
+    public void sequentialBlockReads() throws IOException {
+        // Given
+        final double mb = FILE_SIZE / (1024.0 * 1024);
+        
+        // When
+        long time = System.nanoTime();
+        final long cached;
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            cached = readBlocks(new ChunkCacheStream(raf));
+        }
+        final long cachedTime = System.nanoTime() - time;
+        
+        time = System.nanoTime();
+        final long mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            MappedChunkStream stream = new MappedChunkStream(raf.getChannel());
+            mapped = readBlocks(stream);
+            stream.close();
+        }
+        final long mappedTime = System.nanoTime() - time;
+        
+        // Then
+        final String rates = String.format("readFully: cached %1$.1f MB/s, mapped %2$.1f MB/s",
+                mb / (cachedTime / 1e9), mb / (mappedTime / 1e9));
+        Benchmark.report(rates);
+        Assert.assertEquals(rates, cached, mapped);
+    }
+    
+    @Test
+    public void backwardEntryReads() throws IOException {
+        // Given
+        final int entries = FILE_SIZE / ENTRY_SIZE;
+        
+        // When
+        long time = System.nanoTime();
+        final long cached;
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            cached = readBackwards(new ChunkCacheStream(raf), entries);
+        }
+        final long cachedTime = System.nanoTime() - time;
+        
+        time = System.nanoTime();
+        final long mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            MappedChunkStream stream = new MappedChunkStream(raf.getChannel());
+            mapped = readBackwards(stream, entries);
+            stream.close();
+        }
+        final long mappedTime = System.nanoTime() - time;
+        
+        // Then
+        final String rates = String.format("Backward seek: cached %1$.0f entries/s, mapped %2$.0f entries/s",
+                entries / (cachedTime / 1e9), entries / (mappedTime / 1e9));
+        Benchmark.report(rates);
+        Assert.assertEquals(rates, cached, mapped);
+    }
+    
+    private static long readInts(IChunkCacheStream stream) throws IOException {
+        long sum = 0;
+        for (int i = 0; i < FILE_SIZE / 4; i++) {
+            sum += stream.readInt();
+        }
+        
+        return sum;
+    }
+    
+    private static long readBlocks(IChunkCacheStream stream) throws IOException {
+        final byte[] block = new byte[BLOCK_SIZE];
+        long sum = 0;
+        for (int i = 0; i < FILE_SIZE / BLOCK_SIZE; i++) {
+            stream.readFully(block);
+            sum = sum * 31 + block[i % BLOCK_SIZE];
+        }
+        
+        return sum;
+    }
+    
+    /**
+     * Read the entries from the last to the first one, the same way the
+     * backward undo iterator does
+     */
+    private static long readBackwards(IChunkCacheStream stream, int entries) throws IOException {
+        long sum = 0;
+        for (int i = entries - 1; i >= 0; i--) {
+            stream.seek((long) i * ENTRY_SIZE, SeekOrigin.Begin);
+            sum += stream.readLong();
+            sum += stream.readInt();
+        }
+        
+        return sum;
+    }
+}
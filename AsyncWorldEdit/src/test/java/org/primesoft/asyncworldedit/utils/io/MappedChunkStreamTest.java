@@ -0,0 +1,131 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class MappedChunkStreamTest {
+    private final static long WINDOW_SIZE = 1 << 26;
+    
+    private File m_file;
+    
+    @Before
+    public void init() throws IOException {
+        m_file = File.createTempFile("awe", ".undo");
+    }
+    
+    @After
+    public void cleanup() {
+        m_file.delete();
+    }
+    
+    @Test
+    public void shouldReadPrimitives() throws IOException {
+        // Given
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "rw")) {
+            raf.writeInt(0x12345678);
+            raf.writeLong(-2L);
+            raf.writeShort(-3);
+            raf.write(new byte[]{1, 2, 3});
+        }
+        
+        // When
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            MappedChunkStream stream = new MappedChunkStream(raf.getChannel());
+            byte[] data = new byte[3];
+            
+            // Then
+            Assert.assertEquals("Length", 17, stream.length());
+            Assert.assertEquals("Int", 0x12345678, stream.readInt());
+            Assert.assertEquals("Long", -2L, stream.readLong());
+            Assert.assertEquals("Short", -3, stream.readShort());
+            stream.readFully(data);
+            Assert.assertArrayEquals("Bytes", new byte[]{1, 2, 3}, data);
+            Assert.assertEquals("End of file", -1, stream.read());
+            stream.close();
+        }
+    }
+    
+    @Test
+    public void shouldReadAcrossWindows() throws IOException {
+        // Given
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "rw")) {
+            raf.setLength(WINDOW_SIZE + 16);
+            raf.seek(WINDOW_SIZE - 4);
+            raf.writeLong(0x0102030405060708L);
+            raf.writeInt(42);
+        }
+        
+        // When
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            MappedChunkStream stream = new MappedChunkStream(raf.getChannel());
+            byte[] data = new byte[8];
+            
+            // Then
+            stream.seek(WINDOW_SIZE - 4, SeekOrigin.Begin);
+            Assert.assertEquals("Long", 0x0102030405060708L, stream.readLong());
+            Assert.assertEquals("Int", 42, stream.readInt());
+            
+            stream.seek(WINDOW_SIZE - 4, SeekOrigin.Begin);
+            stream.readFully(data);
+            Assert.assertArrayEquals("Bytes", new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, data);
+            stream.close();
+        }
+    }
+}
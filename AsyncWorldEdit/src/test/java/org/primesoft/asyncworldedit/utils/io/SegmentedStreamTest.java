@@ -0,0 +1,183 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class SegmentedStreamTest {
+    private File m_file;
+    
+    @Before
+    public void init() throws IOException {
+        m_file = File.createTempFile("awe", ".undo");
+    }
+    
+    @After
+    public void cleanup() {
+        m_file.delete();
+    }
+    
+    private byte[] write(int codec, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        SegmentWriter writer = new SegmentWriter(4096, codec, 1);
+        
+        for (int i = 0; i < data.length; i++) {
+            writer.getOutput().writeByte(data[i]);
+            if (writer.isFull()) {
+                writer.flush(out);
+            }
+        }
+        writer.flush(out);
+        writer.close();
+        
+        try (FileOutputStream fs = new FileOutputStream(m_file)) {
+            fs.write(bytes.toByteArray());
+        }
+        
+        return bytes.toByteArray();
+    }
+    
+    private byte[] testData() {
+        byte[] result = new byte[50000];
+        Random rnd = new Random(1);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) rnd.nextInt(8);
+        }
+        
+        return result;
+    }
+    
+    @Test
+    public void shouldReadCompressedSegments() throws IOException {
+        // Given
+        byte[] data = testData();
+        byte[] stored = write(SegmentWriter.CODEC_DEFLATE, data);
+        
+        // When
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            SegmentedStream stream = new SegmentedStream(new ChunkCacheStream(raf));
+            byte[] result = new byte[data.length];
+            stream.readFully(result);
+            
+            // Then
+            Assert.assertTrue("Compressed", stored.length < data.length);
+            Assert.assertEquals("Length", data.length, stream.length());
+            Assert.assertEquals("Segments", 13, stream.getSegmentCount());
+            Assert.assertArrayEquals("Data", data, result);
+            stream.close();
+        }
+    }
+    
+    @Test
+    public void shouldSeekBackwards() throws IOException {
+        // Given
+        byte[] data = testData();
+        write(SegmentWriter.CODEC_NONE, data);
+        
+        // When
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            SegmentedStream stream = new SegmentedStream(new ChunkCacheStream(raf));
+            
+            // Then
+            for (int pos = data.length - 1; pos >= 0; pos -= 997) {
+                stream.seek(pos, SeekOrigin.Begin);
+                Assert.assertEquals("Byte at " + pos, data[pos], stream.readByte());
+            }
+            stream.close();
+        }
+    }
+    
+    @Test
+    public void shouldSkipMetadataFrames() throws IOException {
+        // Given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        SegmentWriter writer = new SegmentWriter(4096, SegmentWriter.CODEC_DEFLATE, 1);
+        writer.writeMetadata(out, new byte[]{1, 2, 3}, 3);
+        writer.getOutput().write(new byte[]{10, 11});
+        writer.flush(out);
+        writer.writeMetadata(out, new byte[]{4}, 1);
+        writer.getOutput().write(new byte[]{12});
+        writer.flush(out);
+        writer.close();
+        try (FileOutputStream fs = new FileOutputStream(m_file)) {
+            fs.write(bytes.toByteArray());
+        }
+        
+        // When
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+            SegmentedStream stream = new SegmentedStream(new ChunkCacheStream(raf));
+            byte[] result = new byte[3];
+            stream.readFully(result);
+            
+            // Then
+            Assert.assertArrayEquals("Data", new byte[]{10, 11, 12}, result);
+            Assert.assertEquals("Segments", 2, stream.getSegmentCount());
+            Assert.assertEquals("Metadata", 2, stream.getMetadataCount());
+            Assert.assertArrayEquals("Metadata 0", new byte[]{1, 2, 3}, stream.getMetadata(0));
+            Assert.assertArrayEquals("Metadata 1", new byte[]{4}, stream.getMetadata(1));
+            stream.close();
+        }
+    }
+}
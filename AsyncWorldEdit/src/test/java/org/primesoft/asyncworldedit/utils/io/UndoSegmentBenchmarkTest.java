@@ -0,0 +1,201 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.utils.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.primesoft.asyncworldedit.Benchmark;
+import org.primesoft.asyncworldedit.api.io.SeekOrigin;
+
+/**
+ * Segmented undo file write throughput and backward replay speed
+ *
+ * @author SBPrime
+ */
+@Category(Benchmark.class)
+public class UndoSegmentBenchmarkTest {
+    private final static int SEGMENT_SIZE = 262144;
+    
+    /**
+     * Size of a single entry: type, chunk, position, old and new block
+     */
+    private final static int ENTRY_SIZE = 1 + 2 + 2 + 2 + 2;
+    private final static int ENTRIES = 4 * 1024 * 1024;
+    
+    private File m_file;
+    
+    @Before
+    public void init() throws IOException {
+        m_file = File.createTempFile("awe", ".undo");
+    }
+    
+    @After
+    public void cleanup() {
+        m_file.delete();
+    }
+    
+    @Test
+    public void uncompressedWriteAndReplay() throws IOException {
+        run(SegmentWriter.CODEC_NONE, 0);
+    }
+    
+    @Test
+    public void deflateWriteAndReplay() throws IOException {
+        run(SegmentWriter.CODEC_DEFLATE, 1);
+    }
+    
+    private void run(int codec, int level) throws IOException {
+        // Given
+        final double rawMb = (double) ENTRIES * ENTRY_SIZE / (1024 * 1024);
+        
+        // When
+        long time = System.nanoTime();
+        write(codec, level);
+        final long writeTime = System.nanoTime() - time;
+        
+        time = System.nanoTime();
+        final long checksum = replay();
+        final long replayTime = System.nanoTime() - time;
+        
+        // Then
+        final String rates = String.format("Codec %1$s: %2$.1f MB raw, %3$.1f MB stored, write %4$.1f MB/s, replay %5$.1f MB/s",
+                codec, rawMb, m_file.length() / (1024.0 * 1024),
+                rawMb / (writeTime / 1e9), rawMb / (replayTime / 1e9));
+        Benchmark.report(rates);
+        
+        Assert.assertEquals(rates, expectedChecksum(), checksum);
+        if (codec == SegmentWriter.CODEC_DEFLATE) {
+            Assert.assertTrue(rates, m_file.length() < (long) ENTRIES * ENTRY_SIZE);
+        }
+    }
+    
+    private static int chunk(int i) {
+        return (i >> 12) & 0x3ff;
+    }
+    
+    private static int position(int i) {
+        return i & 0xfff;
+    }
+    
+    private static int oldBlock(int i) {
+        return (i >> 6) % 12;
+    }
+    
+    private static int newBlock(int i) {
+        return 1 + (i >> 10) % 3;
+    }
+    
+    private void write(int codec, int level) throws IOException {
+        final SegmentWriter writer = new SegmentWriter(SEGMENT_SIZE, codec, level);
+        
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(m_file)))) {
+            final DataOutputStream segment = writer.getOutput();
+            
+            for (int i = 0; i < ENTRIES; i++) {
+                segment.writeByte(1);
+                segment.writeShort(chunk(i));
+                segment.writeShort(position(i));
+                segment.writeShort(oldBlock(i));
+                segment.writeShort(newBlock(i));
+                
+                if (writer.isFull()) {
+                    writer.flush(out);
+                }
+            }
+            
+            writer.flush(out);
+        } finally {
+            writer.close();
+        }
+    }
+    
+    /**
+     * Read the entries from the last to the first one, the same way the
+     * backward undo iterator does
+     */
+    private long replay() throws IOException {
+        long checksum = 0;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(m_file, "r");
+                SegmentedStream stream = new SegmentedStream(new ChunkCacheStream(raf))) {
+            for (int i = ENTRIES - 1; i >= 0; i--) {
+                stream.seek((long) i * ENTRY_SIZE, SeekOrigin.Begin);
+                
+                checksum = checksum * 31 + stream.readUnsignedByte();
+                checksum = checksum * 31 + stream.readUnsignedShort();
+                checksum = checksum * 31 + stream.readUnsignedShort();
+                checksum = checksum * 31 + stream.readUnsignedShort();
+                checksum = checksum * 31 + stream.readUnsignedShort();
+            }
+        }
+        
+        return checksum;
+    }
+    
+    private static long expectedChecksum() {
+        long checksum = 0;
+        for (int i = ENTRIES - 1; i >= 0; i--) {
+            checksum = checksum * 31 + 1;
+            checksum = checksum * 31 + chunk(i);
+            checksum = checksum * 31 + position(i);
+            checksum = checksum * 31 + oldBlock(i);
+            checksum = checksum * 31 + newBlock(i);
+        }
+        
+        return checksum;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.history;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.api.IChunk;
+import org.primesoft.asyncworldedit.api.IWorld;
+import org.primesoft.asyncworldedit.api.directChunk.IBlockEntry;
+import org.primesoft.asyncworldedit.api.directChunk.IChangesetData;
+import org.primesoft.asyncworldedit.api.directChunk.IWrappedChunk;
+import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
+import org.primesoft.asyncworldedit.api.inner.IInnerDirectChunkAPI;
+import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
+import org.primesoft.asyncworldedit.api.utils.IAction;
+import org.primesoft.asyncworldedit.api.utils.IFunc;
+import org.primesoft.asyncworldedit.directChunk.ChunkUpdateQueue;
+import org.primesoft.asyncworldedit.platform.api.IScheduler;
+import org.primesoft.asyncworldedit.platform.api.ITask;
+
+/**
+ * Block changes replay order and chunk updates
+ *
+ * @author SBPrime
+ */
+public class ChunkChangeReplayTest {
+
+    private IWorld m_world;
+    private IInnerDirectChunkAPI m_dcApi;
+    private ITaskDispatcher m_dispatcher;
+    private Map<BlockVector2, IWrappedChunk> m_chunks;
+    private ChunkUpdateQueue m_updateQueue;
+
+    @Before
+    public void init() {
+        m_world = Mockito.mock(IWorld.class);
+        Mockito.when(m_world.getName()).thenReturn("world");
+        Mockito.when(m_world.getUUID()).thenReturn(UUID.randomUUID());
+
+        m_dcApi = Mockito.mock(IInnerDirectChunkAPI.class);
+        m_chunks = new HashMap<>();
+        for (int cx = 0; cx < 2; cx++) {
+            IChunk chunk = Mockito.mock(IChunk.class);
+            IWrappedChunk wChunk = Mockito.mock(IWrappedChunk.class);
+            Mockito.when(wChunk.getWorld()).thenReturn(m_world);
+            Mockito.when(wChunk.getX()).thenReturn(cx);
+            Mockito.when(wChunk.getZ()).thenReturn(0);
+            Mockito.when(wChunk.resetDirtySections()).thenReturn(0x5);
+            Mockito.when(m_world.getChunkAt(cx, 0)).thenReturn(chunk);
+            Mockito.when(m_dcApi.wrapChunk(chunk)).thenReturn(wChunk);
+
+            m_chunks.put(BlockVector2.at(cx, 0), wChunk);
+        }
+
+        m_dispatcher = Mockito.mock(ITaskDispatcher.class);
+        Mockito.when(m_dispatcher.performSafeChunk(Mockito.any(), Mockito.any(IFunc.class),
+                Mockito.any(IWorld.class), Mockito.any(BlockVector2.class)))
+                .thenAnswer(i -> ((IFunc) i.getArguments()[1]).execute());
+        Mockito.doAnswer(i -> {
+            ((IAction) i.getArguments()[1]).execute();
+            return null;
+        }).when(m_dispatcher).performSafeChunk(Mockito.any(), Mockito.any(IAction.class),
+                Mockito.any(IWorld.class), Mockito.any(BlockVector2.class));
+    }
+
+    @After
+    public void cleanup() {
+        if (m_updateQueue != null) {
+            m_updateQueue.stop();
+        }
+    }
+
+    private ChunkChangeReplay createReplay(boolean isUndo) {
+        return new ChunkChangeReplay(m_dcApi, m_dispatcher, Mockito.mock(IChunkWatch.class),
+                m_world, null, null, isUndo);
+    }
+
+    private BaseBlock mockBlock(int id) {
+        BaseBlock block = Mockito.mock(BaseBlock.class);
+        Mockito.when(m_dcApi.getCombinedId(Mockito.eq(block), Mockito.anyMap())).thenReturn(id);
+
+        return block;
+    }
+
+    private IBlockEntry[] getWrittenBlocks(int cx) {
+        ArgumentCaptor<IChangesetData> data = ArgumentCaptor.forClass(IChangesetData.class);
+        Mockito.verify(m_chunks.get(BlockVector2.at(cx, 0))).setData(data.capture());
+
+        return data.getValue().getChangedBlocks();
+    }
+
+    @Test
+    public void shouldKeepLastChangeOfBlock() throws WorldEditException {
+        // Given
+        final ChunkChangeReplay replay = createReplay(true);
+        final BaseBlock air = mockBlock(0);
+        final BaseBlock stone = mockBlock(1);
+        final BaseBlock dirt = mockBlock(2);
+
+        // When
+        replay.add(new BlockChange(BlockVector3.at(3, 40, 5), stone, air));
+        replay.add(new BlockChange(BlockVector3.at(1, 2, 3), dirt, air));
+        replay.add(new BlockChange(BlockVector3.at(3, 40, 5), dirt, stone));
+        replay.flush();
+
+        // Then
+        final IBlockEntry[] blocks = getWrittenBlocks(0);
+        Assert.assertEquals("Blocks", 2, blocks.length);
+        Assert.assertEquals("First section", 2, blocks[0].getY());
+        Assert.assertEquals("First block", 2, blocks[0].getId());
+        Assert.assertEquals("X", 3, blocks[1].getX());
+        Assert.assertEquals("Y", 40, blocks[1].getY());
+        Assert.assertEquals("Z", 5, blocks[1].getZ());
+        Assert.assertEquals("Last change", 2, blocks[1].getId());
+    }
+
+    @Test
+    public void shouldWriteChunksInChangeOrder() throws WorldEditException {
+        // Given
+        final ChunkChangeReplay replay = createReplay(false);
+        final BaseBlock air = mockBlock(0);
+        final BaseBlock stone = mockBlock(1);
+
+        // When
+        replay.add(new BlockChange(BlockVector3.at(20, 10, 0), air, stone));
+        replay.add(new BlockChange(BlockVector3.at(4, 10, 0), air, stone));
+        replay.add(new BlockChange(BlockVector3.at(21, 10, 0), air, stone));
+        replay.flush();
+
+        // Then
+        final IWrappedChunk first = m_chunks.get(BlockVector2.at(1, 0));
+        final IWrappedChunk second = m_chunks.get(BlockVector2.at(0, 0));
+        final InOrder order = Mockito.inOrder(first, second);
+        order.verify(first).setData(Mockito.any(IChangesetData.class));
+        order.verify(second).setData(Mockito.any(IChangesetData.class));
+
+        Assert.assertEquals("Second chunk blocks", 2, getWrittenBlocks(1).length);
+        Assert.assertEquals("Redo block", 1, getWrittenBlocks(0)[0].getId());
+    }
+
+    @Test
+    public void shouldQueueSingleUpdatePerChunk() throws WorldEditException {
+        // Given
+        final IScheduler scheduler = Mockito.mock(IScheduler.class);
+        Mockito.when(scheduler.runTaskTimer(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.anyLong()))
+                .thenReturn(Mockito.mock(ITask.class));
+        m_updateQueue = new ChunkUpdateQueue(scheduler);
+
+        final ChunkChangeReplay replay = createReplay(true);
+        final BaseBlock air = mockBlock(0);
+        final BaseBlock stone = mockBlock(1);
+
+        // When
+        replay.add(new BlockChange(BlockVector3.at(1, 1, 1), stone, air));
+        replay.add(new BlockChange(BlockVector3.at(1, 33, 1), stone, air));
+        replay.flush();
+        replay.add(new BlockChange(BlockVector3.at(2, 2, 2), stone, air));
+        replay.flush();
+
+        // Then
+        final IWrappedChunk wChunk = m_chunks.get(BlockVector2.at(0, 0));
+        Assert.assertEquals("Pending updates", 1, m_updateQueue.size());
+        Mockito.verify(wChunk).markSectionsDirty(0x5);
+        Mockito.verify(wChunk, Mockito.never()).sendChunkUpdate();
+        Mockito.verify(wChunk, Mockito.never()).sendChunkUpdate(Mockito.anyInt(), Mockito.any());
+        Mockito.verify(m_dispatcher, Mockito.never()).queueFastOperation(Mockito.any(IAction.class));
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.history.changeset;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.primesoft.asyncworldedit.api.inner.IAsyncWorldEditCore;
+import org.primesoft.asyncworldedit.configuration.ConfigProvider;
+import org.primesoft.asyncworldedit.configuration.update.ConfigurationUpdater;
+import org.primesoft.asyncworldedit.platform.api.IConfiguration;
+import org.primesoft.asyncworldedit.platform.api.IConfigurationSection;
+import org.primesoft.asyncworldedit.platform.api.IPlatform;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class FileChangeSetManagerTest {
+    /**
+     * The maximum queued changes size (in KB)
+     */
+    private final static int MAX_QUEUED = 1;
+
+    /**
+     * Returns the default value passed to the configuration getters
+     */
+    private final static Answer<Object> DEFAULT_VALUE = i -> {
+        Object[] args = i.getArguments();
+        return args.length == 2 ? args[1] : Mockito.RETURNS_DEFAULTS.answer(i);
+    };
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    private IAsyncWorldEditCore m_core;
+
+    @Before
+    public void init() throws Exception {
+        m_core = Mockito.mock(IAsyncWorldEditCore.class);
+        IPlatform platform = Mockito.mock(IPlatform.class);
+        IConfiguration config = Mockito.mock(IConfiguration.class);
+        IConfigurationSection mainSection = Mockito.mock(IConfigurationSection.class, DEFAULT_VALUE);
+        IConfigurationSection undoSection = Mockito.mock(IConfigurationSection.class, DEFAULT_VALUE);
+        File dataFolder = m_folder.newFolder();
+
+        Mockito.when(m_core.getPlatform()).thenReturn(platform);
+        Mockito.when(platform.getConfig()).thenReturn(config);
+        Mockito.when(config.getDataFolder()).thenReturn(dataFolder);
+        Mockito.when(config.getConfigurationSection("awe")).thenReturn(mainSection);
+        Mockito.doReturn(ConfigurationUpdater.CONFIG_VERSION).when(mainSection).getInt("version", 0);
+        Mockito.doReturn(undoSection).when(mainSection).getConfigurationSection("undo");
+        Mockito.doReturn(MAX_QUEUED).when(undoSection).getInt("maxQueuedSize", 65536);
+
+        ConfigProvider.load(m_core);
+        FileChangeSetManager.loadConfig();
+    }
+
+    @After
+    public void cleanup() {
+        FileChangeSetManager.stop();
+    }
+
+    private FileChangeSet createChangeSet() {
+        return Mockito.spy(new FileChangeSet(m_core, null));
+    }
+
+    @Test
+    public void shouldSaveChangeSetOnceWhileScheduled() throws Exception {
+        // Given
+        final FileChangeSet changeSet = createChangeSet();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger saves = new AtomicInteger();
+
+        Mockito.doAnswer(i -> {
+            saves.incrementAndGet();
+            started.countDown();
+            release.await();
+            return true;
+        }).when(changeSet).save();
+        Mockito.doReturn(false).when(changeSet).hasPending();
+
+        // When
+        FileChangeSetManager.schedule(changeSet);
+        started.await(1, TimeUnit.SECONDS);
+        FileChangeSetManager.schedule(changeSet);
+        FileChangeSetManager.schedule(changeSet);
+        release.countDown();
+
+        // Then
+        Mockito.verify(changeSet, Mockito.timeout(1000)).clearScheduled();
+        FileChangeSetManager.stop();
+        Assert.assertEquals(1, saves.get());
+    }
+
+    @Test
+    public void shouldRescheduleWhileChangesArePending() {
+        // Given
+        final FileChangeSet changeSet = createChangeSet();
+
+        Mockito.doReturn(true).when(changeSet).save();
+        Mockito.when(changeSet.hasPending()).thenReturn(true, true, false);
+
+        // When
+        FileChangeSetManager.schedule(changeSet);
+
+        // Then
+        Mockito.verify(changeSet, Mockito.timeout(1000).times(3)).save();
+    }
+
+    @Test
+    public void shouldClearScheduledWhenSaveFails() {
+        // Given
+        final FileChangeSet changeSet = createChangeSet();
+
+        Mockito.doThrow(new IllegalStateException()).when(changeSet).save();
+        Mockito.doReturn(false).when(changeSet).hasPending();
+
+        // When
+        FileChangeSetManager.schedule(changeSet);
+
+        // Then
+        Mockito.verify(changeSet, Mockito.timeout(1000)).clearScheduled();
+        Assert.assertTrue(changeSet.tryMarkScheduled());
+    }
+
+    @Test
+    public void shouldUseDaemonThreads() throws Exception {
+        // Given
+        final FileChangeSet changeSet = createChangeSet();
+        final AtomicBoolean isDaemon = new AtomicBoolean();
+
+        Mockito.doAnswer(i -> {
+            isDaemon.set(Thread.currentThread().isDaemon());
+            return true;
+        }).when(changeSet).save();
+        Mockito.doReturn(false).when(changeSet).hasPending();
+
+        // When
+        FileChangeSetManager.schedule(changeSet);
+        FileChangeSetManager.stop();
+
+        // Then
+        Mockito.verify(changeSet).save();
+        Assert.assertTrue(isDaemon.get());
+    }
+
+    @Test
+    public void shouldRecreatePoolOnConfigReload() {
+        // Given
+        final FileChangeSet first = createChangeSet();
+        final FileChangeSet second = createChangeSet();
+
+        Mockito.doReturn(true).when(first).save();
+        Mockito.doReturn(false).when(first).hasPending();
+        Mockito.doReturn(true).when(second).save();
+        Mockito.doReturn(false).when(second).hasPending();
+
+        // When
+        FileChangeSetManager.schedule(first);
+        FileChangeSetManager.loadConfig();
+        FileChangeSetManager.schedule(second);
+        FileChangeSetManager.stop();
+
+        // Then
+        Mockito.verify(first).save();
+        Mockito.verify(second).save();
+    }
+
+    @Test
+    public void shouldReportFullQueue() throws Exception {
+        // Given
+        final long max = MAX_QUEUED * 1024L;
+
+        // When
+        FileChangeSetManager.addQueued(max);
+
+        // Then
+        try {
+            Assert.assertTrue(FileChangeSetManager.isQueueFull());
+            Assert.assertFalse(FileChangeSetManager.awaitQueue(10));
+        } finally {
+            FileChangeSetManager.removeQueued(max);
+        }
+        Assert.assertFalse(FileChangeSetManager.isQueueFull());
+    }
+
+    @Test
+    public void shouldWakeUpWhenQueueIsSaved() throws Exception {
+        // Given
+        final long max = MAX_QUEUED * 1024L;
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final AtomicBoolean result = new AtomicBoolean();
+
+        FileChangeSetManager.addQueued(max);
+        Thread waiter = new Thread(() -> {
+            try {
+                waiting.countDown();
+                result.set(FileChangeSetManager.awaitQueue(5000));
+            } catch (InterruptedException ex) {
+            }
+        });
+        waiter.start();
+        waiting.await();
+
+        // When
+        FileChangeSetManager.removeQueued(max);
+        waiter.join(5000);
+
+        // Then
+        Assert.assertFalse(waiter.isAlive());
+        Assert.assertTrue(result.get());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.history.changeset;
+
+import com.sk89q.worldedit.history.change.Change;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.primesoft.asyncworldedit.api.worldedit.ICancelabeEditSession;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class OrderedChangeSetMergerTest {
+    private IExtendedChangeSet m_parent;
+    private List<Change> m_stored;
+    
+    @Before
+    public void init() throws Exception {
+        m_stored = new ArrayList<>();
+        m_parent = Mockito.mock(IExtendedChangeSet.class);
+        
+        Mockito.doAnswer(i -> m_stored.add((Change) i.getArguments()[0]))
+                .when(m_parent).addExtended(Matchers.any(Change.class), Matchers.any(ICancelabeEditSession.class));
+    }
+    
+    @Test
+    public void shouldWriteFirstSlotDirectly() throws Exception {
+        // Given
+        OrderedChangeSetMerger merger = new OrderedChangeSetMerger(m_parent, 2);
+        Change c1 = Mockito.mock(Change.class);
+        
+        // When
+        merger.getSlot(0).addExtended(c1, null);
+        
+        // Then
+        Assert.assertEquals(Arrays.asList(c1), m_stored);
+    }
+    
+    @Test
+    public void shouldForwardAdd() throws Exception {
+        // Given
+        OrderedChangeSetMerger merger = new OrderedChangeSetMerger(m_parent, 2);
+        Change c1 = Mockito.mock(Change.class);
+        Change c2 = Mockito.mock(Change.class);
+        
+        // When
+        merger.getSlot(1).add(c2);
+        merger.getSlot(0).add(c1);
+        merger.complete(0);
+        
+        // Then
+        Assert.assertEquals(Arrays.asList(c1, c2), m_stored);
+    }
+    
+    @Test
+    public void shouldKeepTheSlotOrder() throws Exception {
+        // Given
+        OrderedChangeSetMerger merger = new OrderedChangeSetMerger(m_parent, 3);
+        Change c1 = Mockito.mock(Change.class);
+        Change c2 = Mockito.mock(Change.class);
+        Change c3 = Mockito.mock(Change.class);
+        Change c4 = Mockito.mock(Change.class);
+        
+        // When
+        merger.getSlot(2).addExtended(c4, null);
+        merger.complete(2);
+        merger.getSlot(1).addExtended(c2, null);
+        merger.getSlot(0).addExtended(c1, null);
+        
+        // Then
+        Assert.assertEquals("Before complete", Arrays.asList(c1), m_stored);
+        
+        // When
+        merger.complete(0);
+        merger.getSlot(1).addExtended(c3, null);
+        merger.complete(1);
+        
+        // Then
+        Assert.assertEquals("After complete", Arrays.asList(c1, c2, c3, c4), m_stored);
+    }
+    
+    @Test
+    public void shouldBlockSlotWhenPendingLimitIsReached() throws Exception {
+        // Given
+        OrderedChangeSetMerger merger = new OrderedChangeSetMerger(m_parent, 2, 2);
+        Change c1 = Mockito.mock(Change.class);
+        Change c2 = Mockito.mock(Change.class);
+        Change c3 = Mockito.mock(Change.class);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        
+        merger.getSlot(1).addExtended(c1, null);
+        merger.getSlot(1).addExtended(c2, null);
+        
+        Thread worker = new Thread(() -> {
+            try {
+                merger.getSlot(1).addExtended(c3, null);
+            } catch (Exception ex) {
+                error.set(ex);
+            }
+        });
+        
+        // When
+        worker.start();
+        worker.join(100);
+        
+        // Then
+        Assert.assertTrue("Worker blocked", worker.isAlive());
+        Assert.assertTrue("Nothing stored", m_stored.isEmpty());
+        
+        // When
+        merger.complete(0);
+        worker.join(5000);
+        
+        // Then
+        Assert.assertFalse("Worker released", worker.isAlive());
+        Assert.assertNull(error.get());
+        Assert.assertEquals(Arrays.asList(c1, c2, c3), m_stored);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.regions;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.primesoft.asyncworldedit.api.inner.IChunkWatch;
+import org.primesoft.asyncworldedit.api.taskdispatcher.ITaskDispatcher;
+
+/**
+ * Chunk prefetcher hold/release and hit rate with a fake chunk provider
+ *
+ * @author SBPrime
+ */
+public class ChunkPrefetcherTest {
+    private final static String WORLD = "world";
+    private final static int WIDTH = 8;
+    private final static int ROWS = 5;
+    private final static int LOAD_LATENCY = 20;
+    private final static int CHUNK_WORK = 10;
+    
+    private ScheduledExecutorService m_loader;
+    
+    @Before
+    public void init() {
+        m_loader = Executors.newSingleThreadScheduledExecutor();
+    }
+    
+    @After
+    public void cleanup() {
+        m_loader.shutdownNow();
+    }
+    
+    @Test
+    public void shouldHoldChunksAheadOfCursor() {
+        // Given
+        final int distance = 3;
+        final FakeChunkWatch chunkWatch = new FakeChunkWatch(m_loader, LOAD_LATENCY);
+        final ChunkPrefetcher prefetcher = new ChunkPrefetcher(this, chunkWatch, WORLD, 
+                -2, 4, WIDTH, WIDTH * ROWS, distance);
+        
+        // When
+        for (int i = 0; i < WIDTH * ROWS; i++) {
+            prefetcher.advance();
+            
+            // Then
+            Assert.assertTrue("Cursor held", chunkWatch.isHeld(-2 + i % WIDTH, 4 + i / WIDTH));
+            Assert.assertEquals("Held chunks", Math.min(distance + 1, WIDTH * ROWS - i), chunkWatch.getHeld());
+            if (i > 0) {
+                Assert.assertFalse("Passed released", chunkWatch.isHeld(-2 + (i - 1) % WIDTH, 4 + (i - 1) / WIDTH));
+            }
+        }
+        prefetcher.advance();
+        
+        // Then
+        Assert.assertEquals(0, chunkWatch.getHeld());
+    }
+    
+    @Test
+    public void shouldReleaseOnClose() {
+        // Given
+        final FakeChunkWatch chunkWatch = new FakeChunkWatch(m_loader, LOAD_LATENCY);
+        final ChunkPrefetcher prefetcher = new ChunkPrefetcher(this, chunkWatch, WORLD, 
+                0, 0, WIDTH, WIDTH * ROWS, 4);
+        prefetcher.advance();
+        prefetcher.advance();
+        
+        // When
+        prefetcher.close();
+        prefetcher.close();
+        
+        // Then
+        Assert.assertEquals(0, chunkWatch.getHeld());
+    }
+    
+    @Test
+    public void shouldFollowCuboidIteratorOrder() {
+        // Given
+        final FakeChunkWatch chunkWatch = new FakeChunkWatch(m_loader, LOAD_LATENCY);
+        final ChunkCuboidRegionIterator iterator = new ChunkCuboidRegionIterator(
+                new CuboidRegion(BlockVector3.at(-20, 0, 5), BlockVector3.at(40, 1, 50)));
+        iterator.setPrefetcher(new ChunkPrefetcher(iterator, chunkWatch, WORLD,
+                iterator.getMinChunkX(), iterator.getMinChunkZ(), 
+                iterator.getChunkWidth(), iterator.getChunkCount(), 2));
+        
+        // When
+        while (iterator.hasNext()) {
+            BlockVector3 pos = iterator.next();
+            
+            // Then
+            Assert.assertTrue("Current chunk held", chunkWatch.isHeld(pos.getX() >> 4, pos.getZ() >> 4));
+        }
+        Assert.assertEquals(0, chunkWatch.getHeld());
+    }
+    
+    @Test
+    public void prefetchShouldHideLoadLatency() throws InterruptedException {
+        // Given
+        final FakeChunkWatch baselineWatch = new FakeChunkWatch(m_loader, LOAD_LATENCY);
+        final FakeChunkWatch prefetchWatch = new FakeChunkWatch(m_loader, LOAD_LATENCY);
+        
+        // When
+        final long baselineMisses = runEdit(baselineWatch, 0);
+        final long prefetchMisses = runEdit(prefetchWatch, 4);
+        
+        // Then
+        Assert.assertEquals("Baseline misses", WIDTH * ROWS, baselineMisses);
+        Assert.assertTrue("Prefetch misses", prefetchMisses < baselineMisses);
+        Assert.assertEquals(0, prefetchWatch.getHeld());
+    }
+    
+    /**
+     * Simulate the edit worker, the worker needs to wait for the chunk
+     * if it is not loaded
+     */
+    private long runEdit(FakeChunkWatch chunkWatch, int distance) throws InterruptedException {
+        final long misses = ChunkPrefetcher.getMisses();
+        final ChunkPrefetcher prefetcher = new ChunkPrefetcher(this, chunkWatch, WORLD, 
+                0, 0, WIDTH, WIDTH * ROWS, distance);
+        
+        for (int i = 0; i < WIDTH * ROWS; i++) {
+            prefetcher.advance();
+            
+            final int cx = i % WIDTH;
+            final int cz = i / WIDTH;
+            chunkWatch.add(cx, cz, WORLD);
+            try {
+                while (!chunkWatch.isChunkLoaded(cx, cz, WORLD)) {
+                    Thread.sleep(1);
+                }
+                Thread.sleep(CHUNK_WORK);
+            } finally {
+                chunkWatch.remove(cx, cz, WORLD);
+            }
+        }
+        prefetcher.advance();
+        
+        return ChunkPrefetcher.getMisses() - misses;
+    }
+    
+    /**
+     * The chunk watch that loads the watched chunks after the load latency
+     */
+    private static class FakeChunkWatch implements IChunkWatch {
+        private final ScheduledExecutorService m_loader;
+        private final int m_latency;
+        private final Map<Long, Integer> m_watched = new ConcurrentHashMap<>();
+        private final Set<Long> m_loaded = ConcurrentHashMap.newKeySet();
+
+        FakeChunkWatch(ScheduledExecutorService loader, int latency) {
+            m_loader = loader;
+            m_latency = latency;
+        }
+        
+        private static long encode(int x, int z) {
+            return (long) x << 32 | z & 0xFFFFFFFFL;
+        }
+        
+        int getHeld() {
+            return m_watched.size();
+        }
+        
+        boolean isHeld(int cx, int cz) {
+            return m_watched.containsKey(encode(cx, cz));
+        }
+
+        @Override
+        public void add(int cx, int cz, String worldName) {
+            final long chunk = encode(cx, cz);
+            
+            if (m_watched.merge(chunk, 1, Integer::sum) == 1 && !m_loaded.contains(chunk)) {
+                m_loader.schedule(() -> m_loaded.add(chunk), m_latency, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public void remove(int cx, int cz, String worldName) {
+            m_watched.computeIfPresent(encode(cx, cz), (_c, v) -> v > 1 ? v - 1 : null);
+        }
+
+        @Override
+        public void clear() {
+            m_watched.clear();
+        }
+
+        @Override
+        public void setChunkUnloaded(int cx, int cz, String worldName) {
+            m_loaded.remove(encode(cx, cz));
+        }
+
+        @Override
+        public void setChunkLoaded(int cx, int cz, String worldName) {
+            m_loaded.add(encode(cx, cz));
+        }
+
+        @Override
+        public boolean isChunkLoaded(int cx, int cz, String worldName) {
+            return m_loaded.contains(encode(cx, cz));
+        }
+
+        @Override
+        public void loadChunk(int cx, int cz, String worldName) {
+            add(cx, cz, worldName);
+            remove(cx, cz, worldName);
+        }
+
+        @Override
+        public void setTaskDispat(ITaskDispatcher dispatcher) {
+        }
+    }
+}
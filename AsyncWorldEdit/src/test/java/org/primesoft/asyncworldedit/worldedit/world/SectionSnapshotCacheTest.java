@@ -0,0 +1,211 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.worldedit.world;
+
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ *
+ * @author SBPrime
+ */
+public class SectionSnapshotCacheTest {
+    private BlockState m_air;
+    private BlockState m_stone;
+    
+    @Before
+    public void init() {
+        m_air = Mockito.mock(BlockState.class);
+        m_stone = Mockito.mock(BlockState.class);
+    }
+    
+    private SectionSnapshot createSnapshot() {
+        SectionSnapshot.Builder builder = new SectionSnapshot.Builder();
+        for (int i = 0; i < SectionSnapshot.SIZE; i++) {
+            builder.setBlock(i, (i & 1) == 0 ? m_air : m_stone);
+        }
+        
+        return builder.build();
+    }
+    
+    @Test
+    public void shouldStoreBlocksUsingPalette() {
+        // Given
+        SectionSnapshot snapshot = createSnapshot();
+        
+        // Then
+        Assert.assertSame(m_air, snapshot.getBlock(SectionSnapshot.getIndex(0, 5, 3)));
+        Assert.assertSame(m_stone, snapshot.getBlock(SectionSnapshot.getIndex(-15, 5, 3)));
+        Assert.assertTrue(snapshot.getMemorySize() < 3 * SectionSnapshot.SIZE);
+    }
+    
+    @Test
+    public void shouldFindPaletteMatches() {
+        // Given
+        SectionSnapshot.Builder builder = new SectionSnapshot.Builder();
+        for (int i = 0; i < SectionSnapshot.SIZE; i++) {
+            builder.setBlock(i, i == 100 || i == 4000 ? m_stone : m_air);
+        }
+        
+        // When
+        int[] result = builder.find(b -> b == m_stone);
+        
+        // Then
+        Assert.assertArrayEquals(new int[]{100, 4000}, result);
+    }
+    
+    @Test
+    public void shouldMarkBlocksDirty() {
+        // Given
+        SectionSnapshotCache cache = new SectionSnapshotCache(Long.MAX_VALUE);
+        long key = SectionSnapshotCache.getKey(-1, 4, 2);
+        cache.put(key, createSnapshot());
+        
+        // When
+        cache.invalidate(-3, 70, 40);
+        
+        // Then
+        SectionSnapshotCache.Entry entry = cache.get(key);
+        Assert.assertTrue(entry.isDirty(SectionSnapshot.getIndex(-3, 70, 40)));
+        Assert.assertFalse(entry.isDirty(SectionSnapshot.getIndex(-4, 70, 40)));
+    }
+    
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        // Given
+        SectionSnapshot snapshot = createSnapshot();
+        long entrySize = snapshot.getMemorySize() + SectionSnapshot.SIZE / 8;
+        SectionSnapshotCache cache = new SectionSnapshotCache(entrySize * 2);
+        long k1 = SectionSnapshotCache.getKey(0, 0, 0);
+        long k2 = SectionSnapshotCache.getKey(1, 0, 0);
+        long k3 = SectionSnapshotCache.getKey(2, 0, 0);
+        
+        // When
+        cache.put(k1, snapshot);
+        cache.put(k2, createSnapshot());
+        cache.get(k1);
+        cache.put(k3, createSnapshot());
+        
+        // Then
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get(k1));
+        Assert.assertNull(cache.get(k2));
+        Assert.assertNotNull(cache.get(k3));
+        Assert.assertTrue(cache.getMemorySize() <= entrySize * 2);
+    }
+    
+    @Test
+    public void shouldEvictOldestEntries() {
+        // Given
+        SectionSnapshot snapshot = createSnapshot();
+        long entrySize = snapshot.getMemorySize() + SectionSnapshot.SIZE / 8;
+        SectionSnapshotCache cache = new SectionSnapshotCache(entrySize * 100);
+        
+        // When
+        for (int i = 0; i < 1000; i++) {
+            cache.put(SectionSnapshotCache.getKey(i, 0, 0), snapshot);
+        }
+        
+        // Then
+        Assert.assertEquals(100, cache.size());
+        Assert.assertEquals(entrySize * 100, cache.getMemorySize());
+        Assert.assertNull(cache.get(SectionSnapshotCache.getKey(899, 0, 0)));
+        Assert.assertNotNull(cache.get(SectionSnapshotCache.getKey(900, 0, 0)));
+        Assert.assertNotNull(cache.get(SectionSnapshotCache.getKey(999, 0, 0)));
+    }
+    
+    @Test
+    public void shouldRemoveChunkSections() {
+        // Given
+        SectionSnapshotCache cache = new SectionSnapshotCache(Long.MAX_VALUE);
+        cache.put(SectionSnapshotCache.getKey(5, 0, 5), createSnapshot());
+        cache.put(SectionSnapshotCache.getKey(5, 15, 5), createSnapshot());
+        cache.put(SectionSnapshotCache.getKey(5, 0, 6), createSnapshot());
+        
+        // When
+        cache.invalidateChunk(5, 5);
+        
+        // Then
+        Assert.assertEquals(1, cache.size());
+        Assert.assertNotNull(cache.get(SectionSnapshotCache.getKey(5, 0, 6)));
+    }
+    
+    @Test
+    public void shouldKeepChangesOfSectionsNotCached() {
+        // Given
+        SectionSnapshotCache cache = new SectionSnapshotCache(Long.MAX_VALUE);
+        long key = SectionSnapshotCache.getKey(-1, 4, 2);
+        cache.invalidate(-3, 70, 40);
+        
+        // When
+        SectionSnapshotCache.Entry entry = cache.put(key, createSnapshot());
+        
+        // Then
+        Assert.assertTrue(entry.isDirty(SectionSnapshot.getIndex(-3, 70, 40)));
+        Assert.assertFalse(entry.isDirty(SectionSnapshot.getIndex(-4, 70, 40)));
+    }
+    
+    @Test
+    public void shouldKeepChangesOfRemovedSections() {
+        // Given
+        SectionSnapshotCache cache = new SectionSnapshotCache(Long.MAX_VALUE);
+        long key = SectionSnapshotCache.getKey(0, 0, 0);
+        cache.put(key, createSnapshot());
+        cache.invalidate(1, 2, 3);
+        
+        // When
+        cache.invalidateChunk(0, 0);
+        SectionSnapshotCache.Entry entry = cache.put(key, createSnapshot());
+        
+        // Then
+        Assert.assertTrue(entry.isDirty(SectionSnapshot.getIndex(1, 2, 3)));
+    }
+}
@@ -47,54 +47,64 @@
  */
 package org.primesoft.asyncworldedit.injector.injected;
 
-import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.function.Function;
 import org.primesoft.asyncworldedit.api.playerManager.IPlayerEntry;
 
 /**
+ * The async wrapper data storage
  *
  * @author SBPrime
  */
 final class AsyncWrapperStorage {
 
-    private final static Map<Object, Data> m_storage = new WeakHashMap<>();
+    private final static ConcurrentWeakTable<Data> s_storage = new ConcurrentWeakTable<>();
+
+    /**
+     * The last stored data, the data is immutable so it can be shared by all
+     * the objects of the same job
+     */
+    private static volatile Data s_last;
 
     private AsyncWrapperStorage() {
     }
     
-    private static <T> T process(Object key, Function<Data, T> getter, T defaultValue) {
-        final Data data = m_storage.get(key);
-        if (data == null) {
-            return defaultValue;
-        }
-        return getter.apply(data);
-    }
-    
     public static int getJob(Object key) {
-        return process(key, i -> i.jobId, -1);
+        final Data data = s_storage.get(key);
+        return data != null ? data.jobId : -1;
     }
     
     public static boolean isAsync(Object key) {
-        return process(key, i -> i.isAsync, false);
+        final Data data = s_storage.get(key);
+        return data != null && data.isAsync;
     }
     
     public static IPlayerEntry getPlayerEntry(Object key) {
-        return process(key, i -> i.player, null);
+        final Data data = s_storage.get(key);
+        return data != null ? data.player : null;
     }
     
     public static void setData(Object key, int jobId, boolean isAsync, IPlayerEntry playerEntry) {
-        m_storage.put(key, new Data(jobId, isAsync, playerEntry));
-    }
-    
-    public static void setData(Object key, IAsyncWrapper source) {
-        final Data data = m_storage.get(key);
-        
-        if (data == null) {
+        final Data data = s_storage.get(key);
+        if (data != null && data.equals(jobId, isAsync, playerEntry)) {
             return;
         }
         
-        setData(key, data.jobId, data.isAsync, data.player);
+        Data last = s_last;
+        if (last == null || !last.equals(jobId, isAsync, playerEntry)) {
+            last = new Data(jobId, isAsync, playerEntry);
+            s_last = last;
+        }
+        
+        s_storage.put(key, last);
+    }
+    
+    /**
+     * Initialize the key from the source object. The key keeps its own data
+     * so there is nothing to store.
+     * 
+     * @param key
+     * @param source 
+     */
+    public static void setData(Object key, IAsyncWrapper source) {
     }
 
 
@@ -109,5 +119,9 @@ final class AsyncWrapperStorage {
             this.jobId = jobId;
             this.player = player;
         }
+        
+        public boolean equals(int jobId, boolean isAsync, IPlayerEntry player) {
+            return this.jobId == jobId && this.isAsync == isAsync && this.player == player;
+        }
     }
 }
@@ -0,0 +1,356 @@
+/*
+ * AsyncWorldEdit a performance improvement plugin for Minecraft WorldEdit plugin.
+ * Copyright (c) 2020, SBPrime <https://github.com/SBPrime/>
+ * Copyright (c) AsyncWorldEdit contributors
+ *
+ * All rights reserved.
+ *
+ * Redistribution in source, use in source and binary forms, with or without
+ * modification, are permitted free of charge provided that the following 
+ * conditions are met:
+ *
+ * 1.  Redistributions of source code must retain the above copyright notice, this
+ *     list of conditions and the following disclaimer.
+ * 2.  Redistributions of source code, with or without modification, in any form
+ *     other then free of charge is not allowed,
+ * 3.  Redistributions of source code, with tools and/or scripts used to build the 
+ *     software is not allowed,
+ * 4.  Redistributions of source code, with information on how to compile the software
+ *     is not allowed,
+ * 5.  Providing information of any sort (excluding information from the software page)
+ *     on how to compile the software is not allowed,
+ * 6.  You are allowed to build the software for your personal use,
+ * 7.  You are allowed to build the software using a non public build server,
+ * 8.  Redistributions in binary form in not allowed.
+ * 9.  The original author is allowed to redistrubute the software in bnary form.
+ * 10. Any derived work based on or containing parts of this software must reproduce
+ *     the above copyright notice, this list of conditions and the following
+ *     disclaimer in the documentation and/or other materials provided with the
+ *     derived work.
+ * 11. The original author of the software is allowed to change the license
+ *     terms or the entire license of the software as he sees fit.
+ * 12. The original author of the software is allowed to sublicense the software
+ *     or its parts using any license terms he sees fit.
+ * 13. By contributing to this project you agree that your contribution falls under this
+ *     license.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.primesoft.asyncworldedit.injector.injected;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent weak table, the keys are compared using equals like in the
+ * WeakHashMap. The table is split into segments, the reads are lock free and
+ * the writes lock only the segment the key belongs to.
+ *
+ * @author SBPrime
+ * @param <V>
+ */
+final class ConcurrentWeakTable<V> {
+
+    /**
+     * Number of bits used to select the segment
+     */
+    private final static int SEGMENT_BITS = 6;
+
+    /**
+     * Number of segments
+     */
+    private final static int SEGMENTS = 1 << SEGMENT_BITS;
+
+    /**
+     * Initial segment capacity (power of 2)
+     */
+    private final static int INITIAL_CAPACITY = 32;
+
+    /**
+     * The table segments
+     */
+    private final Segment<V>[] m_segments;
+
+    @SuppressWarnings("unchecked")
+    ConcurrentWeakTable() {
+        m_segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            m_segments[i] = new Segment<>();
+        }
+    }
+
+    /**
+     * Get the key hash, the top bits select the segment and the low bits
+     * select the bucket
+     *
+     * @param key
+     * @return
+     */
+    private static int hash(Object key) {
+        return key.hashCode() * 0x9E3779B9;
+    }
+
+    private static boolean eq(Object key, Object entryKey) {
+        return key == entryKey || (entryKey != null && key.equals(entryKey));
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        return m_segments[hash >>> (32 - SEGMENT_BITS)];
+    }
+
+    /**
+     * Get the value stored for the key
+     *
+     * @param key
+     * @return
+     */
+    V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+
+        final int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * Set the value for the key
+     *
+     * @param key
+     * @param value
+     */
+    void put(Object key, V value) {
+        if (key == null) {
+            return;
+        }
+
+        final int hash = hash(key);
+        segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Remove the key from the table
+     *
+     * @param key
+     */
+    void remove(Object key) {
+        if (key == null) {
+            return;
+        }
+
+        final int hash = hash(key);
+        segmentFor(hash).remove(key, hash);
+    }
+
+    /**
+     * Get the number of entries in the table, the entries for the collected
+     * keys are counted until they are removed
+     *
+     * @return
+     */
+    int size() {
+        int result = 0;
+        for (Segment<V> segment : m_segments) {
+            result += segment.size();
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove the entries for the collected keys
+     */
+    void expunge() {
+        for (Segment<V> segment : m_segments) {
+            segment.expungeStale();
+        }
+    }
+
+    /**
+     * The table entry
+     *
+     * @param <V>
+     */
+    private static final class Entry<V> extends WeakReference<Object> {
+
+        final int hash;
+
+        volatile V value;
+
+        volatile Entry<V> next;
+
+        Entry(Object key, int hash, V value, Entry<V> next, ReferenceQueue<Object> queue) {
+            super(key, queue);
+
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * The table segment
+     *
+     * @param <V>
+     */
+    private static final class Segment<V> {
+
+        /**
+         * The collected keys queue
+         */
+        private final ReferenceQueue<Object> m_queue = new ReferenceQueue<>();
+
+        /**
+         * The buckets
+         */
+        private volatile AtomicReferenceArray<Entry<V>> m_table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+        /**
+         * Number of entries (guarded by this)
+         */
+        private int m_count;
+
+        V get(Object key, int hash) {
+            final AtomicReferenceArray<Entry<V>> table = m_table;
+
+            for (Entry<V> e = table.get(hash & (table.length() - 1)); e != null; e = e.next) {
+                if (e.hash == hash && eq(key, e.get())) {
+                    return e.value;
+                }
+            }
+
+            return null;
+        }
+
+        synchronized void put(Object key, int hash, V value) {
+            expungeStale();
+
+            AtomicReferenceArray<Entry<V>> table = m_table;
+            int idx = hash & (table.length() - 1);
+
+            for (Entry<V> e = table.get(idx); e != null; e = e.next) {
+                if (e.hash == hash && eq(key, e.get())) {
+                    e.value = value;
+                    return;
+                }
+            }
+
+            if (m_count >= table.length() - (table.length() >>> 2)) {
+                table = rehash(table);
+                idx = hash & (table.length() - 1);
+            }
+
+            table.set(idx, new Entry<>(key, hash, value, table.get(idx), m_queue));
+            m_count++;
+        }
+
+        synchronized void remove(Object key, int hash) {
+            final AtomicReferenceArray<Entry<V>> table = m_table;
+            final int idx = hash & (table.length() - 1);
+
+            Entry<V> prev = null;
+            for (Entry<V> e = table.get(idx); e != null; e = e.next) {
+                if (e.hash == hash && eq(key, e.get())) {
+                    unlink(table, idx, prev, e);
+                    e.clear();
+                    return;
+                }
+
+                prev = e;
+            }
+        }
+
+        synchronized int size() {
+            return m_count;
+        }
+
+        /**
+         * Remove the entries for the collected keys
+         */
+        synchronized void expungeStale() {
+            Reference<?> ref;
+            while ((ref = m_queue.poll()) != null) {
+                @SuppressWarnings("unchecked")
+                final Entry<V> stale = (Entry<V>) ref;
+                final AtomicReferenceArray<Entry<V>> table = m_table;
+                final int idx = stale.hash & (table.length() - 1);
+
+                Entry<V> prev = null;
+                for (Entry<V> e = table.get(idx); e != null; e = e.next) {
+                    if (e == stale) {
+                        unlink(table, idx, prev, e);
+                        break;
+                    }
+
+                    prev = e;
+                }
+            }
+        }
+
+        /**
+         * Unlink the entry, the concurrent readers that already reached the
+         * entry still see the rest of the chain
+         */
+        private void unlink(AtomicReferenceArray<Entry<V>> table, int idx, Entry<V> prev, Entry<V> e) {
+            if (prev == null) {
+                table.set(idx, e.next);
+            } else {
+                prev.next = e.next;
+            }
+
+            e.value = null;
+            m_count--;
+        }
+
+        /**
+         * Rebuild the table dropping the collected keys, the table is grown
+         * only if it is still filled after the cleanup. The old table is not
+         * modified so the concurrent readers are not affected.
+         *
+         * @param table
+         * @return
+         */
+        private AtomicReferenceArray<Entry<V>> rehash(AtomicReferenceArray<Entry<V>> table) {
+            int live = 0;
+            for (int i = 0; i < table.length(); i++) {
+                for (Entry<V> e = table.get(i); e != null; e = e.next) {
+                    if (e.get() != null) {
+                        live++;
+                    }
+                }
+            }
+
+            final int length = live >= table.length() >>> 1 ? table.length() << 1 : table.length();
+            final AtomicReferenceArray<Entry<V>> newTable = new AtomicReferenceArray<>(length);
+            int count = 0;
+
+            for (int i = 0; i < table.length(); i++) {
+                for (Entry<V> e = table.get(i); e != null; e = e.next) {
+                    final Object key = e.get();
+                    if (key == null) {
+                        continue;
+                    }
+
+                    final int idx = e.hash & (length - 1);
+                    newTable.set(idx, new Entry<>(key, e.hash, e.value, newTable.get(idx), m_queue));
+                    count++;
+                }
+            }
+
+            m_table = newTable;
+            m_count = count;
+            return newTable;
+        }
+    }
+}